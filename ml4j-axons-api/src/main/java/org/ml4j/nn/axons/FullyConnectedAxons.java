@@ -23,6 +23,12 @@ import org.ml4j.nn.neurons.Neurons;
  * connected (ie. each Neuron on the left of the Axons is connected to each
  * Neuron on the right )
  * 
+ * Implementations can use MatrixFactory.gemm to multiply by the transpose of the weights or
+ * of the input activations during backpropagation, and to accumulate weight gradients, without
+ * transposed copies or intermediate results.  MatrixFactory.gemm multiplies
+ * only the non-zero values of SparseMatrix activations, such as bag-of-words or
+ * one-hot encoded inputs.
+ * 
  * @author Michael Lavelle
  *
  */
@@ -13,6 +13,10 @@
  */
 package org.ml4j.nn.activationfunctions;
 
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+
 public enum ActivationFunctionBaseType implements IActivationFunctionType {
 
 	CUSTOM, LINEAR, RELU, SIGMOID, SOFTMAX, LEAKYRELU;
@@ -53,4 +57,38 @@ public enum ActivationFunctionBaseType implements IActivationFunctionType {
 	public boolean isCustomBaseType() {
 		return false;
 	}
+
+	/**
+	 * @return Whether activation functions of this base type can be applied by a single fused
+	 *         kernel, using activate - only SOFTMAX, whose composition from exponential, sum and
+	 *         division operations would otherwise make several passes over the pre-activations.
+	 */
+	public boolean hasFusedActivation() {
+		return this == SOFTMAX;
+	}
+
+	/**
+	 * Apply the fused kernel for this base type to a matrix of pre-activations - for SOFTMAX, a
+	 * numerically stable softmax over the features of each example computed in a single pass
+	 * per example, rather than composed from exponential, sum and division operations.
+	 * 
+	 * @param matrixFactory      The matrix factory.
+	 * @param preActivations     The pre-activations.
+	 * @param featureOrientation The feature orientation of the pre-activations.
+	 * @return The activations, in the feature orientation of the pre-activations.
+	 * @throws IllegalStateException If this base type has no fused activation.
+	 */
+	public Matrix activate(MatrixFactory matrixFactory, Matrix preActivations,
+			NeuronsActivationFeatureOrientation featureOrientation) {
+		switch (this) {
+			case SOFTMAX:
+				if (featureOrientation == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET) {
+					return matrixFactory.columnSoftmax(preActivations);
+				}
+				return matrixFactory.createTransposedMatrix(
+						matrixFactory.columnSoftmax(matrixFactory.createTransposedMatrix(preActivations)));
+			default:
+				throw new IllegalStateException("No fused activation for " + this);
+		}
+	}
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.kernels.Int8Quantization;
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * Chooses the int8 quantization scale of the input activations of quantized axons, from the
+ * largest magnitude of the activations observed while propagating a calibration data set.
+ */
+public class ActivationQuantizationCalibrator {
+
+	private float maxAbsoluteValue;
+	private long observationCount;
+
+	/**
+	 * @param activation An activation observed during calibration.
+	 * @param matrixFactory The MatrixFactory.
+	 */
+	public void observe(NeuronsActivation activation, MatrixFactory matrixFactory) {
+		observe(activation.getActivations(matrixFactory));
+	}
+
+	/**
+	 * @param activations Activations observed during calibration.
+	 */
+	public void observe(Matrix activations) {
+		float max = Int8Quantization.getMaxAbsoluteValue(activations.getRowByRowArray());
+		synchronized (this) {
+			maxAbsoluteValue = Math.max(maxAbsoluteValue, max);
+			observationCount++;
+		}
+	}
+
+	/**
+	 * @return The number of activations observed.
+	 */
+	public synchronized long getObservationCount() {
+		return observationCount;
+	}
+
+	/**
+	 * @return The largest magnitude of the observed activations.
+	 */
+	public synchronized float getMaxAbsoluteValue() {
+		return maxAbsoluteValue;
+	}
+
+	/**
+	 * @return The quantization scale for the observed activations.
+	 */
+	public synchronized float getScale() {
+		if (observationCount == 0) {
+			throw new IllegalStateException("No activations have been observed");
+		}
+		return Int8Quantization.getScale(maxAbsoluteValue);
+	}
+}
@@ -18,6 +18,8 @@ package org.ml4j.nn.axons;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.ml4j.kernels.ConvolutionAlgorithm;
+import org.ml4j.kernels.ConvolutionGeometry;
 import org.ml4j.nn.neurons.Neurons3D;
 
 /**
@@ -41,6 +43,7 @@ public class Axons3DConfig extends AxonsConfig<Neurons3D, Neurons3D> {
 	private Integer filterHeight;
 	private Integer outputDepth;
 	private boolean outputBiasUnit;
+	private ConvolutionAlgorithm convolutionAlgorithm;
 	
 	public Axons3DConfig(Neurons3D leftNeurons, Neurons3D rightNeurons) {
 		super(leftNeurons, rightNeurons);
@@ -238,6 +241,42 @@ public class Axons3DConfig extends AxonsConfig<Neurons3D, Neurons3D> {
 		return this;
 	}
 	
+	/**
+	 * @param convolutionAlgorithm The algorithm by which convolutions configured by this config are
+	 * to be computed, or null for the algorithm to be selected from the dimensions of the convolution.
+	 * @return This config.
+	 */
+	public Axons3DConfig withConvolutionAlgorithm(ConvolutionAlgorithm convolutionAlgorithm) {
+		this.convolutionAlgorithm = convolutionAlgorithm;
+		return this;
+	}
+
+	/**
+	 * @return The dimensions of the convolution configured by this config.
+	 */
+	public ConvolutionGeometry getConvolutionGeometry() {
+		return new ConvolutionGeometry(leftNeurons.getDepth(), leftNeurons.getHeight(), leftNeurons.getWidth(),
+				getRightNeurons().getDepth(), getFilterHeight(), getFilterWidth(), strideHeight, strideWidth,
+				paddingHeight, paddingWidth);
+	}
+
+	/**
+	 * @return The algorithm by which convolutions configured by this config are to be computed -
+	 * the explicitly set algorithm, or otherwise the algorithm selected by
+	 * ConvolutionAlgorithm.select for the dimensions of the convolution.
+	 */
+	public ConvolutionAlgorithm getConvolutionAlgorithm() {
+		ConvolutionGeometry geometry = getConvolutionGeometry();
+		if (convolutionAlgorithm == null) {
+			return ConvolutionAlgorithm.select(geometry);
+		}
+		if (!convolutionAlgorithm.isSupported(geometry)) {
+			throw new IllegalStateException("Invalid configuration - convolution algorithm " + convolutionAlgorithm
+					+ " does not support " + geometry);
+		}
+		return convolutionAlgorithm;
+	}
+	
 	@Override
 	Axons3DConfig dup() {
 		Axons3DConfig dupConfig = new Axons3DConfig(leftNeurons, rightNeurons).withStrideHeight(strideHeight)
@@ -248,7 +287,7 @@ public class Axons3DConfig extends AxonsConfig<Neurons3D, Neurons3D> {
 		if (filterWidth != null) {
 			dupConfig = dupConfig.withFilterWidth(filterWidth);
 		}
-		return dupConfig;
+		return dupConfig.withConvolutionAlgorithm(convolutionAlgorithm);
 	}
 	
 	@Override
@@ -20,6 +20,7 @@ import java.io.Serializable;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.ml4j.kernels.ConvolutionAlgorithm;
 import org.ml4j.nn.neurons.Neurons3D;
 
 /**
@@ -46,6 +47,7 @@ public abstract class Axons3DConfigBuilderBase<C extends Axons3DConfig, T extend
 	protected Neurons3D leftNeurons;
 	protected Neurons3D rightNeurons;
 	protected Boolean samePadding;
+	protected ConvolutionAlgorithm convolutionAlgorithm;
 
 	public Axons3DConfigBuilderBase() {
 		this.strideWidth = 1;
@@ -109,6 +111,10 @@ public abstract class Axons3DConfigBuilderBase<C extends Axons3DConfig, T extend
 		return samePadding;
 	}
 
+	public ConvolutionAlgorithm getConvolutionAlgorithm() {
+		return convolutionAlgorithm;
+	}
+
 	public C build(Axons3DConfigPopulator<T> configPopulator) {
 
 		if (leftNeurons == null) {
@@ -147,6 +153,7 @@ public abstract class Axons3DConfigBuilderBase<C extends Axons3DConfig, T extend
 		
 		config.withStrideHeight(strideHeight);
 		config.withStrideWidth(strideWidth);
+		config.withConvolutionAlgorithm(convolutionAlgorithm);
 			
 		return config;
 	}
@@ -244,6 +251,11 @@ public abstract class Axons3DConfigBuilderBase<C extends Axons3DConfig, T extend
 		return getInstance();
 	}
 
+	public T withConvolutionAlgorithm(ConvolutionAlgorithm convolutionAlgorithm) {
+		this.convolutionAlgorithm = convolutionAlgorithm;
+		return getInstance();
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		return EqualsBuilder.reflectionEquals(this, obj);
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ml4j.nn.axons;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ml4j.InterrimMatrix;
+import org.ml4j.MatrixArena;
+import org.ml4j.MatrixFactory;
+
+/**
+ * A cache of the working buffers used by convolutional and pooling axons - the im2col, output
+ * reformatting and ConvolutionalFormatter matrices - keyed by Axons3DConfig, example count and
+ * propagation direction, so that successive mini-batches of the same size reuse the buffers of the
+ * previous batch rather than allocating new ones.
+ *
+ * A workspace is obtained as a MatrixArena: the n-th InterrimMatrix requested from a workspace is
+ * the n-th matrix requested the last time the same workspace was opened, if of the same shape.
+ * Closing the workspace does not release its matrices - they remain cached for the next batch -
+ * and their values are overwritten by the next propagation with the same key.
+ *
+ * The matrices handed out by a workspace are owned by the cache: they must not be used once the
+ * workspace is closed, and must not be closed by the caller.  A matrix found closed when its
+ * workspace is next opened is silently replaced by a newly allocated one, so closing it is not
+ * an error but defeats the reuse.
+ *
+ * Workspaces are held per thread, so that concurrent propagations never share buffers.  The bytes
+ * held by the workspaces of all threads together are bounded by a single budget, beyond which the
+ * least recently used workspaces which are not open are evicted and their matrices closed.  The
+ * workspaces of threads which have terminated are evicted as soon as this is noticed - whenever a
+ * workspace is created or a matrix allocated - so a cache shared by short-lived threads does not
+ * retain their buffers.
+ *
+ * A ConvolutionWorkspaceCache is intended to be scoped to a session, such as a training run.  A
+ * DirectedComponentsContext may expose one through getConvolutionWorkspaceCache(), whose default
+ * implementation provides none - in which case components allocate their buffers per batch.
+ */
+public class ConvolutionWorkspaceCache {
+
+	/**
+	 * The default maximum number of bytes held by the workspaces of a cache - 256 MiB.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	/**
+	 * The direction of the propagation for which a workspace is used.
+	 */
+	public enum Direction {
+		LEFT_TO_RIGHT, RIGHT_TO_LEFT
+	}
+
+	private final MatrixFactory matrixFactory;
+	private final long maxBytes;
+	private final ThreadLocal<Map<WorkspaceKey, Workspace>> threadWorkspaces;
+	/**
+	 * The workspaces of all threads, in least recently used order - guarded by this cache.
+	 */
+	private final Set<Workspace> workspaces;
+	private long cachedBytes;
+	private final AtomicLong bytesAllocated;
+	private final AtomicLong bytesReused;
+
+	/**
+	 * Create a new ConvolutionWorkspaceCache holding at most DEFAULT_MAX_BYTES.
+	 *
+	 * @param matrixFactory The MatrixFactory used to allocate workspace matrices.
+	 */
+	public ConvolutionWorkspaceCache(MatrixFactory matrixFactory) {
+		this(matrixFactory, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create a new ConvolutionWorkspaceCache.
+	 *
+	 * @param matrixFactory The MatrixFactory used to allocate workspace matrices.
+	 * @param maxBytes The maximum number of bytes held by the workspaces of all threads which are
+	 * not open - open workspaces are never evicted, so may take the cache beyond this budget.
+	 */
+	public ConvolutionWorkspaceCache(MatrixFactory matrixFactory, long maxBytes) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Max bytes must be >= 0");
+		}
+		this.matrixFactory = matrixFactory;
+		this.maxBytes = maxBytes;
+		this.threadWorkspaces = ThreadLocal.withInitial(HashMap::new);
+		this.workspaces = new LinkedHashSet<>();
+		this.bytesAllocated = new AtomicLong();
+		this.bytesReused = new AtomicLong();
+	}
+
+	/**
+	 * Open the workspace of the current thread for the provided key.
+	 *
+	 * @param axons3DConfig The configuration of the axons propagating.
+	 * @param examples The number of examples in the mini-batch.
+	 * @param direction The direction of propagation.
+	 * @return The workspace, as a MatrixArena which must be closed once the propagation completes.
+	 */
+	public MatrixArena openWorkspace(Axons3DConfig axons3DConfig, int examples, Direction direction) {
+		if (axons3DConfig == null) {
+			throw new IllegalArgumentException("Axons3DConfig cannot be null");
+		}
+		if (direction == null) {
+			throw new IllegalArgumentException("Direction cannot be null");
+		}
+		Map<WorkspaceKey, Workspace> owned = threadWorkspaces.get();
+		WorkspaceKey key = new WorkspaceKey(axons3DConfig, examples, direction);
+		synchronized (this) {
+			Workspace workspace = owned.get(key);
+			if (workspace == null) {
+				evict();
+				workspace = new Workspace(owned, key.snapshot());
+				owned.put(workspace.key, workspace);
+			} else {
+				// Move to the most recently used position
+				workspaces.remove(workspace);
+			}
+			workspaces.add(workspace);
+			workspace.open();
+			return workspace;
+		}
+	}
+
+	/**
+	 * @return The total number of bytes of matrices newly allocated by this cache.
+	 */
+	public long getBytesAllocated() {
+		return bytesAllocated.get();
+	}
+
+	/**
+	 * @return The total number of bytes of matrices handed out by this cache that were
+	 * reused rather than newly allocated.
+	 */
+	public long getBytesReused() {
+		return bytesReused.get();
+	}
+
+	/**
+	 * @return The number of bytes currently held by the workspaces of all threads.
+	 */
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * Close and discard the matrices of all workspaces of all threads - to be called only when no
+	 * propagation using this cache is in progress.
+	 */
+	public synchronized void clear() {
+		for (Workspace workspace : workspaces) {
+			workspace.release();
+		}
+		workspaces.clear();
+	}
+
+	/**
+	 * Evict the workspaces of terminated threads, then the least recently used workspaces which are
+	 * not open until the cache is within its budget.
+	 */
+	private synchronized void evict() {
+		Iterator<Workspace> iterator = workspaces.iterator();
+		while (iterator.hasNext()) {
+			Workspace workspace = iterator.next();
+			if (!workspace.isOwnerAlive() || (cachedBytes > maxBytes && !workspace.isOpen())) {
+				iterator.remove();
+				workspace.release();
+			}
+		}
+	}
+
+	private static long getByteSize(int rows, int columns) {
+		return (long) rows * columns * Float.BYTES;
+	}
+
+	private static class WorkspaceKey {
+
+		private final Axons3DConfig axons3DConfig;
+		private final int examples;
+		private final Direction direction;
+
+		WorkspaceKey(Axons3DConfig axons3DConfig, int examples, Direction direction) {
+			this.axons3DConfig = axons3DConfig;
+			this.examples = examples;
+			this.direction = direction;
+		}
+
+		/**
+		 * @return This key with a copy of its configuration, which may be mutated by its owner.
+		 */
+		WorkspaceKey snapshot() {
+			return new WorkspaceKey(axons3DConfig.dup(), examples, direction);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof WorkspaceKey)) {
+				return false;
+			}
+			WorkspaceKey other = (WorkspaceKey) obj;
+			return examples == other.examples && direction == other.direction
+					&& axons3DConfig.equals(other.axons3DConfig);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(axons3DConfig, examples, direction);
+		}
+	}
+
+	/**
+	 * A workspace, handing out its cached matrices in the order in which they were first requested.
+	 */
+	private class Workspace implements MatrixArena {
+
+		private final WeakReference<Thread> owner;
+		private final Map<WorkspaceKey, Workspace> ownerWorkspaces;
+		private final WorkspaceKey key;
+		private final List<InterrimMatrix> matrices = new ArrayList<>();
+		private int next;
+		private volatile boolean open;
+
+		Workspace(Map<WorkspaceKey, Workspace> ownerWorkspaces, WorkspaceKey key) {
+			this.owner = new WeakReference<>(Thread.currentThread());
+			this.ownerWorkspaces = ownerWorkspaces;
+			this.key = key;
+		}
+
+		void open() {
+			if (open) {
+				throw new IllegalStateException("Workspace is already open");
+			}
+			open = true;
+			next = 0;
+		}
+
+		boolean isOpen() {
+			return open;
+		}
+
+		boolean isOwnerAlive() {
+			Thread thread = owner.get();
+			return thread != null && thread.isAlive();
+		}
+
+		@Override
+		public InterrimMatrix createInterrimMatrix(int rows, int columns) {
+			if (!open) {
+				throw new IllegalStateException("Workspace has been closed");
+			}
+			long byteSize = getByteSize(rows, columns);
+			synchronized (ConvolutionWorkspaceCache.this) {
+				if (next < matrices.size()) {
+					InterrimMatrix matrix = matrices.get(next);
+					if (!matrix.isClosed() && matrix.getRows() == rows && matrix.getColumns() == columns) {
+						next++;
+						bytesReused.addAndGet(byteSize);
+						return matrix;
+					}
+					cachedBytes -= getByteSize(matrix.getRows(), matrix.getColumns());
+					matrix.close();
+				}
+				InterrimMatrix matrix = matrixFactory.createMatrix(rows, columns).asInterrimMatrix();
+				if (next < matrices.size()) {
+					matrices.set(next, matrix);
+				} else {
+					matrices.add(matrix);
+				}
+				next++;
+				bytesAllocated.addAndGet(byteSize);
+				cachedBytes += byteSize;
+				evict();
+				return matrix;
+			}
+		}
+
+		/**
+		 * Close the matrices of this workspace and remove it from the workspaces of its thread - to be
+		 * called with the cache locked.
+		 */
+		void release() {
+			for (InterrimMatrix matrix : matrices) {
+				cachedBytes -= getByteSize(matrix.getRows(), matrix.getColumns());
+				matrix.close();
+			}
+			matrices.clear();
+			ownerWorkspaces.remove(key, this);
+		}
+
+		@Override
+		public void close() {
+			open = false;
+		}
+	}
+}
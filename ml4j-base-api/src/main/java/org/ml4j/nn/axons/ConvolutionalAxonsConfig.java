@@ -2,6 +2,8 @@ package org.ml4j.nn.axons;
 
 import java.io.Serializable;
 
+import org.ml4j.kernels.ConvolutionAlgorithm;
+
 public class ConvolutionalAxonsConfig implements Serializable {
 
 	/**
@@ -41,4 +43,14 @@ public class ConvolutionalAxonsConfig implements Serializable {
 	public AxonsContextConfigurer getAxonsContextConfigurer() {
 		return axonsContextConfigurer;
 	}
+
+	/**
+	 * @return The algorithm by which the forward propagation of the configured ConvolutionalAxons
+	 * is to be computed - IM2COL by im2ColConv and mmul, or otherwise by MatrixFactory.convolve.  Where
+	 * the algorithm is not IM2COL, the gradients are computed by MatrixFactory.convolutionInputGradient
+	 * and convolutionWeightGradient rather than through an im2col matrix.
+	 */
+	public ConvolutionAlgorithm getConvolutionAlgorithm() {
+		return axonsConfig.getConvolutionAlgorithm();
+	}
 }
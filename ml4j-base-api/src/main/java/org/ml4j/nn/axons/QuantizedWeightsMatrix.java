@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+
+/**
+ * A WeightsMatrix for inference only, whose values are held as int8 with a quantization scale
+ * per output channel - per row when the rows of the matrix span the output dimensions, as for
+ * FullyConnectedAxons and ConvolutionalAxons, and otherwise per column.
+ * 
+ * getMatrix() returns the dequantized float values.
+ */
+public interface QuantizedWeightsMatrix extends WeightsMatrix {
+
+	/**
+	 * @return The number of rows of the matrix.
+	 */
+	int getRows();
+
+	/**
+	 * @return The number of columns of the matrix.
+	 */
+	int getColumns();
+
+	/**
+	 * @return The quantized values in row-by-row order.
+	 */
+	byte[] getQuantizedValues();
+
+	/**
+	 * @return The quantization scale of each output channel.
+	 */
+	float[] getScales();
+
+	/**
+	 * Multiply these weights by activations quantized with the given scale, accumulating
+	 * in int32.
+	 * 
+	 * The product is weights * activations if the rows of the weights matrix span the output
+	 * dimensions, and activations * weights otherwise.
+	 * 
+	 * @param activations The float activations, which are quantized to int8 using the given scale.
+	 * @param activationScale The quantization scale of the activations - eg. obtained by an
+	 * ActivationQuantizationCalibrator.
+	 * @param matrixFactory The MatrixFactory used to create the product.
+	 * @return The dequantized product.
+	 */
+	Matrix mmul(Matrix activations, float activationScale, MatrixFactory matrixFactory);
+
+	@Override
+	QuantizedWeightsMatrix dup();
+}
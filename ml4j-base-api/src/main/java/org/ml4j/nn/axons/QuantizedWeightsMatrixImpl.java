@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.kernels.Int8GemmKernel;
+import org.ml4j.kernels.Int8Quantization;
+
+public class QuantizedWeightsMatrixImpl implements QuantizedWeightsMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private MatrixFactory matrixFactory;
+	private int rows;
+	private int columns;
+	private byte[] quantizedValues;
+	private float[] scales;
+	private WeightsFormat format;
+
+	public QuantizedWeightsMatrixImpl(MatrixFactory matrixFactory, int rows, int columns, byte[] quantizedValues,
+			float[] scales, WeightsFormat format) {
+		if (quantizedValues.length != rows * columns) {
+			throw new IllegalArgumentException("Quantized values must contain " + rows * columns + " elements");
+		}
+		if (scales.length != (isPerRow(format) ? rows : columns)) {
+			throw new IllegalArgumentException("A scale is required for each output channel");
+		}
+		this.matrixFactory = matrixFactory;
+		this.rows = rows;
+		this.columns = columns;
+		this.quantizedValues = quantizedValues;
+		this.scales = scales;
+		this.format = format;
+	}
+
+	/**
+	 * Quantize trained weights to int8, with a scale per output channel.
+	 * 
+	 * @param weightsMatrix The weights to quantize.
+	 * @param matrixFactory The MatrixFactory used to create dequantized matrices.
+	 * @return The quantized weights.
+	 */
+	public static QuantizedWeightsMatrixImpl quantize(WeightsMatrix weightsMatrix, MatrixFactory matrixFactory) {
+		Matrix matrix = weightsMatrix.getMatrix();
+		int rows = matrix.getRows();
+		int columns = matrix.getColumns();
+		float[] data = matrix.getRowByRowArray();
+		boolean perRow = isPerRow(weightsMatrix.getFormat());
+		float[] scales = perRow ? Int8Quantization.getRowScales(rows, columns, data)
+				: Int8Quantization.getColumnScales(rows, columns, data);
+		return new QuantizedWeightsMatrixImpl(matrixFactory, rows, columns,
+				Int8Quantization.quantize(rows, columns, data, scales, perRow), scales, weightsMatrix.getFormat());
+	}
+
+	private static boolean isPerRow(WeightsFormat format) {
+		return format.getOrientation() == WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public byte[] getQuantizedValues() {
+		return quantizedValues;
+	}
+
+	@Override
+	public float[] getScales() {
+		return scales;
+	}
+
+	@Override
+	public WeightsFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return A new Matrix containing the dequantized values of these weights.
+	 */
+	@Override
+	public Matrix getMatrix() {
+		boolean perRow = isPerRow(format);
+		float[] data = new float[quantizedValues.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				int index = r * columns + c;
+				data[index] = quantizedValues[index] * scales[perRow ? r : c];
+			}
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, data);
+	}
+
+	@Override
+	public Matrix mmul(Matrix activations, float activationScale, MatrixFactory matrixFactory) {
+		boolean perRow = isPerRow(format);
+		int activationRows = activations.getRows();
+		int activationColumns = activations.getColumns();
+		if ((perRow ? activationRows : activationColumns) != (perRow ? columns : rows)) {
+			throw new IllegalArgumentException("Activations of shape (" + activationRows + ", " + activationColumns
+					+ ") cannot be multiplied by weights of shape (" + rows + ", " + columns + ")");
+		}
+		byte[] quantizedActivations = new byte[activationRows * activationColumns];
+		Int8Quantization.quantize(activations.getRowByRowArray(), 0, quantizedActivations.length, activationScale,
+				quantizedActivations, 0);
+		float[] activationScales = new float[] { activationScale };
+		Int8GemmKernel kernel = new Int8GemmKernel(matrixFactory.getConfig().getForkJoinPool());
+		if (perRow) {
+			float[] product = new float[rows * activationColumns];
+			kernel.gemm(rows, activationColumns, columns, quantizedValues, 0, columns, scales, quantizedActivations, 0,
+					activationColumns, activationScales, product, 0, activationColumns);
+			return matrixFactory.createMatrixFromRowsByRowsArray(rows, activationColumns, product);
+		} else {
+			float[] product = new float[activationRows * columns];
+			kernel.gemm(activationRows, columns, rows, quantizedActivations, 0, activationColumns, activationScales,
+					quantizedValues, 0, columns, scales, product, 0, columns);
+			return matrixFactory.createMatrixFromRowsByRowsArray(activationRows, columns, product);
+		}
+	}
+
+	@Override
+	public QuantizedWeightsMatrix dup() {
+		return new QuantizedWeightsMatrixImpl(matrixFactory, rows, columns, quantizedValues.clone(), scales.clone(),
+				format);
+	}
+}
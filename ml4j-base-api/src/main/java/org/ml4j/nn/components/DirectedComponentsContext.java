@@ -14,10 +14,12 @@
 package org.ml4j.nn.components;
 
 import java.io.Serializable;
+import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 import org.ml4j.MatrixFactory;
+import org.ml4j.nn.axons.ConvolutionWorkspaceCache;
 
 public interface DirectedComponentsContext extends Serializable {
 
@@ -39,6 +41,15 @@ public interface DirectedComponentsContext extends Serializable {
 
 	MatrixFactory getMatrixFactory();
 
+	/**
+	 * @return The cache of convolution workspaces for this session, if any, from which convolutional
+	 * and pooling components obtain their working buffers so that they are reused between
+	 * mini-batches.  Contexts holding such a cache override this.
+	 */
+	default Optional<ConvolutionWorkspaceCache> getConvolutionWorkspaceCache() {
+		return Optional.empty();
+	}
+
 	/**
 	 * @return Whether this context is for training
 	 */
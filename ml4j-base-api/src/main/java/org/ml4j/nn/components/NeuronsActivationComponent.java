@@ -13,6 +13,7 @@
  */
 package org.ml4j.nn.components;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
@@ -41,4 +42,25 @@ public interface NeuronsActivationComponent {
 	 *         data
 	 */
 	Optional<NeuronsActivationFormat<?>> optimisedFor();
+
+	/**
+	 * Choose the format in which input is to be provided to this component - for example, for
+	 * convolutional components, ImageNeuronsActivationFormat.forImageLayout(ImageLayout.select(depth))
+	 * may be returned by optimisedFor(), so that inputs with many channels are provided channels
+	 * last where the provider can do so.
+	 * 
+	 * @param availableFormats The formats in which the input can be provided, in the order
+	 *        preferred by the provider
+	 * @return The format this component is optimised for if it is available and supported,
+	 *         otherwise the first available supported format, or Optional.empty() if none of the
+	 *         available formats are supported
+	 */
+	default Optional<NeuronsActivationFormat<?>> negotiateFormat(List<NeuronsActivationFormat<?>> availableFormats) {
+		Optional<NeuronsActivationFormat<?>> optimisedFormat = optimisedFor();
+		if (optimisedFormat.isPresent() && availableFormats.contains(optimisedFormat.get())
+				&& isSupported(optimisedFormat.get())) {
+			return optimisedFormat;
+		}
+		return availableFormats.stream().filter(this::isSupported).findFirst();
+	}
 }
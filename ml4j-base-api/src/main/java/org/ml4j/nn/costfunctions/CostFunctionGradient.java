@@ -16,9 +16,13 @@
 
 package org.ml4j.nn.costfunctions;
 
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.activationfunctions.ActivationFunctionBaseType;
 import org.ml4j.nn.activationfunctions.ActivationFunctionType;
 import org.ml4j.nn.components.DirectedComponentGradient;
 import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
 
 /**
  * Encapsulates the gradient of a cost function which can be back propagated
@@ -34,6 +38,11 @@ public interface CostFunctionGradient {
 	CostFunction getCostFunction();
 
 	/**
+	 * For a final activation function with the
+	 * {@link ActivationFunctionBaseType#SOFTMAX} base type and a cross-entropy
+	 * cost function, implementations should obtain the gradient from
+	 * getSoftmaxCrossEntropyGradient rather than back propagating through the
+	 * softmax.
 	 * 
 	 * @param finalActivationFunctionType The type of the last activation function
 	 *                                    of a forward propagation chain.
@@ -43,4 +52,28 @@ public interface CostFunctionGradient {
 	DirectedComponentGradient<NeuronsActivation> backPropagateThroughFinalActivationFunction(
 			ActivationFunctionType finalActivationFunctionType);
 
+	/**
+	 * Obtain the gradient of the cross-entropy cost of a final softmax activation
+	 * function with respect to its pre-activations - the softmax of the
+	 * pre-activations less the desired outputs - computed by a single fused kernel
+	 * over the features of each example.
+	 * 
+	 * @param matrixFactory      The matrix factory.
+	 * @param preActivations     The pre-activations of the final softmax
+	 *                           activation function.
+	 * @param desiredOutputs     The desired outputs, in the feature orientation of
+	 *                           the pre-activations.
+	 * @param featureOrientation The feature orientation of the pre-activations.
+	 * @return The gradient, in the feature orientation of the pre-activations.
+	 */
+	default Matrix getSoftmaxCrossEntropyGradient(MatrixFactory matrixFactory, Matrix preActivations,
+			Matrix desiredOutputs, NeuronsActivationFeatureOrientation featureOrientation) {
+		if (featureOrientation == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET) {
+			return matrixFactory.columnSoftmaxCrossEntropyGradient(preActivations, desiredOutputs);
+		}
+		return matrixFactory.createTransposedMatrix(matrixFactory.columnSoftmaxCrossEntropyGradient(
+				matrixFactory.createTransposedMatrix(preActivations),
+				matrixFactory.createTransposedMatrix(desiredOutputs)));
+	}
+
 }
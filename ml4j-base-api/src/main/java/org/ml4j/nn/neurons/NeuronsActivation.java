@@ -38,6 +38,11 @@ public interface NeuronsActivation {
 	
 	NeuronsActivationFormat<?> getFormat();
 
+	/**
+	 * @param matrixFactory The MatrixFactory
+	 * @return The activations Matrix - which may be a SparseMatrix, in which case
+	 * the sparse representation is preserved by axons which multiply by it.
+	 */
 	Matrix getActivations(MatrixFactory matrixFactory);
 
 	// Values
@@ -54,6 +59,14 @@ public interface NeuronsActivation {
 
 	boolean isImmutable();
 
+	/**
+	 * Release the resources held by this NeuronsActivation.
+	 * 
+	 * Implementations holding matrices should, when created, track themselves with
+	 * the LeakTracker of the MatrixFactoryConfig of their MatrixFactory, if it has
+	 * one, and run the callback it returns here - so that activations which are
+	 * never closed are reported.
+	 */
 	void close();
 
 	NeuronsActivation dup();
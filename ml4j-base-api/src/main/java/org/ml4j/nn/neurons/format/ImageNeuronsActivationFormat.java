@@ -17,10 +17,12 @@ package org.ml4j.nn.neurons.format;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.ml4j.images.ImageLayout;
 import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
 import org.ml4j.nn.neurons.format.features.Dimension;
 import org.ml4j.nn.neurons.format.features.DimensionScope;
@@ -77,6 +79,35 @@ public class ImageNeuronsActivationFormat extends NeuronsActivationFormat<ImageF
 		}
 	}
 	
+	/**
+	 * @return The ImageLayout of the row-by-row data of the matrices of activations in this format,
+	 * or Optional.empty() if the data is not in an ImageLayout - as for im2col formats.
+	 */
+	public Optional<ImageLayout> getImageLayout() {
+		if (!exampleDimensions.equals(Arrays.asList(Dimension.EXAMPLE))) {
+			return Optional.empty();
+		}
+		if (featureOrientation == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET
+				&& featuresFormat == ImageFeaturesFormat.DEPTH_HEIGHT_WIDTH) {
+			return Optional.of(ImageLayout.CHANNELS_FIRST);
+		}
+		if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET
+				&& featuresFormat == ImageFeaturesFormat.HEIGHT_WIDTH_DEPTH) {
+			return Optional.of(ImageLayout.CHANNELS_LAST);
+		}
+		return Optional.empty();
+	}
+	
+	/**
+	 * @param imageLayout The ImageLayout.
+	 * @return The format of activations whose row-by-row data is in the ImageLayout - for example
+	 * for components to return from optimisedFor().
+	 */
+	public static ImageNeuronsActivationFormat forImageLayout(ImageLayout imageLayout) {
+		return imageLayout == ImageLayout.CHANNELS_LAST ? TENSORFLOW_IMAGE_FORMAT
+				: ML4J_DEFAULT_IMAGE_FORMAT;
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		return EqualsBuilder.reflectionEquals(this, obj);
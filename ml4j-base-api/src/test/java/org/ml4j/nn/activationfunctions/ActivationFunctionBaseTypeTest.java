@@ -2,6 +2,10 @@ package org.ml4j.nn.activationfunctions;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+import org.mockito.Mockito;
 
 public class ActivationFunctionBaseTypeTest {
 
@@ -27,4 +31,54 @@ public class ActivationFunctionBaseTypeTest {
 			Assert.assertEquals("org.ml4j.nn.activationfunctions.ActivationFunctionBaseType." + baseType.getId(),activationFunctionType.getQualifiedId());
 		}
 	}
+
+	@Test
+	public void testSoftmaxFusedActivation() {
+		MatrixFactory matrixFactory = Mockito.mock(MatrixFactory.class);
+		Matrix preActivations = Mockito.mock(Matrix.class);
+		Matrix activations = Mockito.mock(Matrix.class);
+		Mockito.when(matrixFactory.columnSoftmax(preActivations)).thenReturn(activations);
+
+		Assert.assertTrue(ActivationFunctionBaseType.SOFTMAX.hasFusedActivation());
+		Assert.assertSame(activations, ActivationFunctionBaseType.SOFTMAX.activate(matrixFactory, preActivations,
+				NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET));
+	}
+
+	@Test
+	public void testSoftmaxFusedActivationColumnsSpanFeatureSet() {
+		MatrixFactory matrixFactory = Mockito.mock(MatrixFactory.class);
+		Matrix preActivations = Mockito.mock(Matrix.class);
+		Matrix transposedPreActivations = Mockito.mock(Matrix.class);
+		Matrix transposedActivations = Mockito.mock(Matrix.class);
+		Matrix activations = Mockito.mock(Matrix.class);
+		Mockito.when(matrixFactory.createTransposedMatrix(preActivations)).thenReturn(transposedPreActivations);
+		Mockito.when(matrixFactory.columnSoftmax(transposedPreActivations)).thenReturn(transposedActivations);
+		Mockito.when(matrixFactory.createTransposedMatrix(transposedActivations)).thenReturn(activations);
+
+		Assert.assertSame(activations, ActivationFunctionBaseType.SOFTMAX.activate(matrixFactory, preActivations,
+				NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET));
+	}
+
+	@Test
+	public void testElementwiseTypesAreNotFused() {
+		for (ActivationFunctionBaseType baseType : new ActivationFunctionBaseType[] { ActivationFunctionBaseType.LINEAR,
+				ActivationFunctionBaseType.SIGMOID, ActivationFunctionBaseType.RELU,
+				ActivationFunctionBaseType.LEAKYRELU }) {
+			Assert.assertFalse(baseType.hasFusedActivation());
+			try {
+				baseType.activate(Mockito.mock(MatrixFactory.class), Mockito.mock(Matrix.class),
+						NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET);
+				Assert.fail("Expected IllegalStateException for " + baseType);
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoFusedActivation() {
+		Assert.assertFalse(ActivationFunctionBaseType.CUSTOM.hasFusedActivation());
+		ActivationFunctionBaseType.CUSTOM.activate(Mockito.mock(MatrixFactory.class), Mockito.mock(Matrix.class),
+				NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET);
+	}
 }
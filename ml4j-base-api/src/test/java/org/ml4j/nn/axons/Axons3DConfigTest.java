@@ -2,6 +2,7 @@ package org.ml4j.nn.axons;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.ml4j.kernels.ConvolutionAlgorithm;
 import org.ml4j.nn.neurons.Neurons3D;
 
 public class Axons3DConfigTest {
@@ -57,4 +58,33 @@ public class Axons3DConfigTest {
 
 	}
 
+
+	@Test
+	public void testConvolutionAlgorithmIsSelectedFromDimensions() {
+		Axons3DConfig config = new Axons3DConfig(new Neurons3D(16, 16, 64, false), new Neurons3D(16, 16, 64, false))
+				.withPaddingHeight(1).withPaddingWidth(1);
+		Assert.assertEquals(ConvolutionAlgorithm.WINOGRAD_4X4_3X3, config.getConvolutionAlgorithm());
+
+		Axons3DConfig firstLayerConfig = new Axons3DConfig(new Neurons3D(16, 16, 3, false),
+				new Neurons3D(16, 16, 64, false)).withPaddingHeight(1).withPaddingWidth(1);
+		Assert.assertEquals(ConvolutionAlgorithm.DIRECT, firstLayerConfig.getConvolutionAlgorithm());
+	}
+
+	@Test
+	public void testExplicitConvolutionAlgorithm() {
+		Axons3DConfig config = new Axons3DConfig(new Neurons3D(16, 16, 64, false), new Neurons3D(16, 16, 64, false))
+				.withPaddingHeight(1).withPaddingWidth(1).withConvolutionAlgorithm(ConvolutionAlgorithm.IM2COL);
+		Assert.assertEquals(ConvolutionAlgorithm.IM2COL, config.getConvolutionAlgorithm());
+		Assert.assertEquals(ConvolutionAlgorithm.IM2COL, config.dup().getConvolutionAlgorithm());
+		Assert.assertEquals(ConvolutionAlgorithm.IM2COL,
+				ConvolutionalAxonsConfig.create(config).getConvolutionAlgorithm());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnsupportedConvolutionAlgorithm() {
+		Axons3DConfig config = new Axons3DConfig(new Neurons3D(16, 16, 64, false), new Neurons3D(8, 8, 64, false))
+				.withStrideHeight(2).withStrideWidth(2).withFilterHeight(2).withFilterWidth(2)
+				.withConvolutionAlgorithm(ConvolutionAlgorithm.WINOGRAD_2X2_3X3);
+		config.getConvolutionAlgorithm();
+	}
 }
@@ -0,0 +1,213 @@
+package org.ml4j.nn.axons;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.InterrimMatrix;
+import org.ml4j.MatrixArena;
+import org.ml4j.MatrixFactory;
+import org.ml4j.MockMatrices;
+import org.ml4j.nn.axons.ConvolutionWorkspaceCache.Direction;
+import org.ml4j.nn.neurons.Neurons3D;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class ConvolutionWorkspaceCacheTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		MockMatrices.stubCreateInterrimMatrices(matrixFactory);
+	}
+
+	private Axons3DConfig createConfig() {
+		return new Axons3DConfig(new Neurons3D(8, 8, 3, false), new Neurons3D(8, 8, 4, false)).withFilterWidth(3)
+				.withFilterHeight(3).withPaddingWidth(1).withPaddingHeight(1);
+	}
+
+	@Test
+	public void testBuffersAreReusedBetweenBatches() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+
+		InterrimMatrix columns;
+		InterrimMatrix output;
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			columns = workspace.createInterrimMatrix(27, 2048);
+			output = workspace.createInterrimMatrix(4, 2048);
+		}
+		for (int batch = 0; batch < 3; batch++) {
+			try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+				Assert.assertSame(columns, workspace.createInterrimMatrix(27, 2048));
+				Assert.assertSame(output, workspace.createInterrimMatrix(4, 2048));
+			}
+		}
+
+		Assert.assertEquals(31 * 2048 * 4, cache.getBytesAllocated());
+		Assert.assertEquals(3 * 31 * 2048 * 4, cache.getBytesReused());
+		Assert.assertEquals(31 * 2048 * 4, cache.getCachedBytes());
+		Mockito.verify(columns, Mockito.never()).close();
+	}
+
+	@Test
+	public void testWorkspacesAreKeyedByExamplesAndDirection() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		InterrimMatrix forward;
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			forward = workspace.createInterrimMatrix(10, 10);
+		}
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.RIGHT_TO_LEFT)) {
+			Assert.assertNotSame(forward, workspace.createInterrimMatrix(10, 10));
+		}
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 16, Direction.LEFT_TO_RIGHT)) {
+			Assert.assertNotSame(forward, workspace.createInterrimMatrix(10, 10));
+		}
+		try (MatrixArena workspace = cache.openWorkspace(createConfig().withStrideWidth(2), 32,
+				Direction.LEFT_TO_RIGHT)) {
+			Assert.assertNotSame(forward, workspace.createInterrimMatrix(10, 10));
+		}
+		Assert.assertEquals(0, cache.getBytesReused());
+	}
+
+	@Test
+	public void testMutatingConfigAfterOpeningDoesNotAffectKey() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		Axons3DConfig config = createConfig();
+		InterrimMatrix first;
+		try (MatrixArena workspace = cache.openWorkspace(config, 32, Direction.LEFT_TO_RIGHT)) {
+			first = workspace.createInterrimMatrix(10, 10);
+		}
+		config.withStrideHeight(2);
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			Assert.assertSame(first, workspace.createInterrimMatrix(10, 10));
+		}
+	}
+
+	@Test
+	public void testLeastRecentlyUsedWorkspacesAreEvicted() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory, 800);
+		InterrimMatrix first;
+		InterrimMatrix second;
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 1, Direction.LEFT_TO_RIGHT)) {
+			first = workspace.createInterrimMatrix(10, 10);
+		}
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 2, Direction.LEFT_TO_RIGHT)) {
+			second = workspace.createInterrimMatrix(10, 10);
+		}
+		// Use the first workspace again, so that the second is the least recently used
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 1, Direction.LEFT_TO_RIGHT)) {
+			Assert.assertSame(first, workspace.createInterrimMatrix(10, 10));
+		}
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 3, Direction.LEFT_TO_RIGHT)) {
+			workspace.createInterrimMatrix(10, 10);
+		}
+
+		Mockito.verify(second).close();
+		Mockito.verify(first, Mockito.never()).close();
+		Assert.assertEquals(800, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testOpenWorkspacesAreNotEvicted() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory, 0);
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 1, Direction.LEFT_TO_RIGHT)) {
+			InterrimMatrix first = workspace.createInterrimMatrix(10, 10);
+			workspace.createInterrimMatrix(10, 10);
+			Mockito.verify(first, Mockito.never()).close();
+		}
+		Assert.assertEquals(800, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testWorkspacesAreNotSharedBetweenThreads() throws Exception {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		InterrimMatrix first;
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			first = workspace.createInterrimMatrix(10, 10);
+		}
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			InterrimMatrix other = executor.submit(() -> {
+				try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+					return workspace.createInterrimMatrix(10, 10);
+				}
+			}).get();
+			Assert.assertNotSame(first, other);
+		} finally {
+			executor.shutdown();
+		}
+
+		cache.clear();
+		Mockito.verify(first).close();
+		Assert.assertEquals(0, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testBudgetIsSharedBetweenThreads() throws Exception {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory, 800);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			InterrimMatrix other = executor.submit(() -> {
+				try (MatrixArena workspace = cache.openWorkspace(createConfig(), 1, Direction.LEFT_TO_RIGHT)) {
+					workspace.createInterrimMatrix(10, 10);
+					return workspace.createInterrimMatrix(10, 10);
+				}
+			}).get();
+			try (MatrixArena workspace = cache.openWorkspace(createConfig(), 1, Direction.LEFT_TO_RIGHT)) {
+				workspace.createInterrimMatrix(10, 10);
+			}
+			Mockito.verify(other).close();
+			Assert.assertEquals(400, cache.getCachedBytes());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testWorkspacesOfTerminatedThreadsAreEvicted() throws Exception {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		InterrimMatrix[] other = new InterrimMatrix[1];
+		Thread thread = new Thread(() -> {
+			try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+				other[0] = workspace.createInterrimMatrix(10, 10);
+			}
+		});
+		thread.start();
+		thread.join();
+
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			workspace.createInterrimMatrix(10, 10);
+		}
+		Mockito.verify(other[0]).close();
+		Assert.assertEquals(400, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testClosedMatricesAreReallocated() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		InterrimMatrix first;
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			first = workspace.createInterrimMatrix(10, 10);
+		}
+		Mockito.when(first.isClosed()).thenReturn(true);
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			Assert.assertNotSame(first, workspace.createInterrimMatrix(10, 10));
+		}
+		Assert.assertEquals(800, cache.getBytesAllocated());
+		Assert.assertEquals(400, cache.getCachedBytes());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWorkspaceCannotBeOpenedTwice() {
+		ConvolutionWorkspaceCache cache = new ConvolutionWorkspaceCache(matrixFactory);
+		try (MatrixArena workspace = cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT)) {
+			cache.openWorkspace(createConfig(), 32, Direction.LEFT_TO_RIGHT);
+		}
+	}
+}
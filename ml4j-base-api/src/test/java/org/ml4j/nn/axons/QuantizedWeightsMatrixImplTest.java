@@ -0,0 +1,98 @@
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.MatrixFactoryConfig;
+import org.ml4j.MockMatrices;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class QuantizedWeightsMatrixImplTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Mock
+	private WeightsFormat weightsFormat;
+
+	@Mock
+	private Matrix resultMatrix;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(matrixFactory.getConfig()).thenReturn(MatrixFactoryConfig.defaultConfig());
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.anyInt(), Mockito.anyInt(),
+				Mockito.any())).thenReturn(resultMatrix);
+		Mockito.when(weightsFormat.getOrientation()).thenReturn(WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS);
+	}
+
+	private float[] captureCreatedData(int rows, int columns) {
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(rows), Mockito.eq(columns),
+				data.capture());
+		return data.getValue();
+	}
+
+	@Test
+	public void testQuantizePerOutputChannel() {
+		WeightsMatrix weights = new WeightsMatrixImpl(MockMatrices.createMockMatrix(2, 3, 1, -2, 0.5f, 10, 5, -10), weightsFormat);
+
+		QuantizedWeightsMatrix quantized = QuantizedWeightsMatrixImpl.quantize(weights, matrixFactory);
+
+		Assert.assertEquals(2, quantized.getRows());
+		Assert.assertEquals(3, quantized.getColumns());
+		Assert.assertArrayEquals(new float[] { 2f / 127, 10f / 127 }, quantized.getScales(), 0f);
+		Assert.assertArrayEquals(new byte[] { 64, -127, 32, 127, 64, -127 }, quantized.getQuantizedValues());
+		Assert.assertSame(weightsFormat, quantized.getFormat());
+
+		quantized.getMatrix();
+		float[] dequantized = captureCreatedData(2, 3);
+		Assert.assertArrayEquals(new float[] { 1, -2, 0.5f, 10, 5, -10 }, dequantized, 0.05f);
+	}
+
+	@Test
+	public void testMmul() {
+		WeightsMatrix weights = new WeightsMatrixImpl(MockMatrices.createMockMatrix(2, 2, 1, 2, -3, 4), weightsFormat);
+		QuantizedWeightsMatrix quantized = QuantizedWeightsMatrixImpl.quantize(weights, matrixFactory);
+		Matrix activations = MockMatrices.createMockMatrix(2, 1, 0.5f, 1);
+
+		Assert.assertSame(resultMatrix, quantized.mmul(activations, 1f / 127, matrixFactory));
+
+		float[] product = captureCreatedData(2, 1);
+		Assert.assertEquals(2.5f, product[0], 0.05f);
+		Assert.assertEquals(2.5f, product[1], 0.05f);
+	}
+
+	@Test
+	public void testMmulRowsSpanInput() {
+		Mockito.when(weightsFormat.getOrientation()).thenReturn(WeightsMatrixOrientation.ROWS_SPAN_INPUT_DIMENSIONS);
+		WeightsMatrix weights = new WeightsMatrixImpl(MockMatrices.createMockMatrix(2, 2, 1, -3, 2, 4), weightsFormat);
+		QuantizedWeightsMatrix quantized = QuantizedWeightsMatrixImpl.quantize(weights, matrixFactory);
+		Assert.assertEquals(2, quantized.getScales().length);
+
+		quantized.mmul(MockMatrices.createMockMatrix(1, 2, 0.5f, 1), 1f / 127, matrixFactory);
+
+		Assert.assertArrayEquals(new float[] { 2.5f, 2.5f }, captureCreatedData(1, 2), 0.05f);
+	}
+
+	@Test
+	public void testActivationCalibration() {
+		ActivationQuantizationCalibrator calibrator = new ActivationQuantizationCalibrator();
+		calibrator.observe(MockMatrices.createMockMatrix(1, 2, 0.5f, -3));
+		calibrator.observe(MockMatrices.createMockMatrix(1, 2, 2, 1));
+		Assert.assertEquals(2, calibrator.getObservationCount());
+		Assert.assertEquals(3f, calibrator.getMaxAbsoluteValue(), 0f);
+		Assert.assertEquals(3f / 127, calibrator.getScale(), 0f);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCalibrationRequiresObservations() {
+		new ActivationQuantizationCalibrator().getScale();
+	}
+}
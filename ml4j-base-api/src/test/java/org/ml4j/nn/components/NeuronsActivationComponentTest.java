@@ -0,0 +1,56 @@
+package org.ml4j.nn.components;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.images.ImageLayout;
+import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
+import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
+import org.mockito.Mockito;
+
+public class NeuronsActivationComponentTest {
+
+	/**
+	 * Exposes the default method of the interface to Mockito.
+	 */
+	private abstract static class NegotiatingComponent implements NeuronsActivationComponent {
+
+		@Override
+		public Optional<NeuronsActivationFormat<?>> negotiateFormat(List<NeuronsActivationFormat<?>> availableFormats) {
+			return NeuronsActivationComponent.super.negotiateFormat(availableFormats);
+		}
+	}
+
+	private NeuronsActivationComponent createComponent(NeuronsActivationFormat<?> optimisedFor) {
+		NeuronsActivationComponent component = Mockito.mock(NegotiatingComponent.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.doReturn(Optional.ofNullable(optimisedFor)).when(component).optimisedFor();
+		Mockito.doReturn(true).when(component).isSupported(Mockito.any());
+		return component;
+	}
+
+	@Test
+	public void testOptimisedFormatIsPreferred() {
+		NeuronsActivationFormat<?> channelsLast = ImageNeuronsActivationFormat.forImageLayout(
+				ImageLayout.select(64));
+		NeuronsActivationComponent component = createComponent(channelsLast);
+
+		Assert.assertEquals(channelsLast, component.negotiateFormat(Arrays.asList(
+				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT, channelsLast)).get());
+	}
+
+	@Test
+	public void testFirstSupportedFormatIsChosenOtherwise() {
+		NeuronsActivationComponent component = createComponent(
+				ImageNeuronsActivationFormat.TENSORFLOW_IMAGE_FORMAT);
+		Mockito.doReturn(false).when(component).isSupported(ImageNeuronsActivationFormat.ML4J_IM_TO_COL_CONV_FORMAT);
+
+		Assert.assertEquals(ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT,
+				component.negotiateFormat(Arrays.asList(ImageNeuronsActivationFormat.ML4J_IM_TO_COL_CONV_FORMAT,
+						ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT)).get());
+		Assert.assertFalse(component.negotiateFormat(
+				Arrays.asList(ImageNeuronsActivationFormat.ML4J_IM_TO_COL_CONV_FORMAT)).isPresent());
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.ml4j.images.ImageLayout;
 import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
 import org.ml4j.nn.neurons.format.features.Dimension;
 import org.ml4j.nn.neurons.format.features.DimensionScope;
@@ -164,4 +165,24 @@ public class NeuronsActivationFormatTest {
 				customDepthHeightWidthWithExampleColumnsFormat.getDimensions(), ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT.getDimensions(), DimensionScope.OUTPUT));
 		
 	}
+
+	@Test
+	public void testImageLayout() {
+		Assert.assertEquals(ImageLayout.CHANNELS_FIRST,
+				ImageNeuronsActivationFormat.ML4J_DEFAULT_IMAGE_FORMAT.getImageLayout().get());
+		Assert.assertEquals(ImageLayout.CHANNELS_LAST,
+				ImageNeuronsActivationFormat.TENSORFLOW_IMAGE_FORMAT.getImageLayout().get());
+		Assert.assertFalse(ImageNeuronsActivationFormat.DL4J_DEFAULT_IMAGE_FORMAT.getImageLayout().isPresent());
+		Assert.assertFalse(ImageNeuronsActivationFormat.ML4J_IM_TO_COL_CONV_FORMAT.getImageLayout().isPresent());
+	}
+
+	@Test
+	public void testForImageLayout() {
+		for (ImageLayout imageLayout : ImageLayout.values()) {
+			Assert.assertEquals(imageLayout,
+					ImageNeuronsActivationFormat.forImageLayout(imageLayout).getImageLayout().get());
+		}
+		Assert.assertEquals(ImageNeuronsActivationFormat.TENSORFLOW_IMAGE_FORMAT,
+				ImageNeuronsActivationFormat.forImageLayout(ImageLayout.CHANNELS_LAST));
+	}
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Base class of benchmarks parameterised by BenchmarkBackend, so that the results of several
+ * implementations may be compared in a single run - for example with
+ * -p backend=com.example.FirstBackend,com.example.SecondBackend
+ *
+ * This repository contains only the ml4j APIs, so no backend is built in: the backend parameter has
+ * no default, and must name BenchmarkBackend implementations on the classpath.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractBackendBenchmark {
+
+	/**
+	 * The fully-qualified class name of the BenchmarkBackend.
+	 */
+	@Param({})
+	public String backend;
+
+	protected BenchmarkBackend benchmarkBackend;
+
+	protected MatrixFactory matrixFactory;
+
+	@Setup
+	public void setUpBackend() throws ReflectiveOperationException {
+		benchmarkBackend = createBackend(backend);
+		matrixFactory = benchmarkBackend.getMatrixFactory();
+		setUp();
+	}
+
+	/**
+	 * Consume a Matrix result of a benchmark, and close it.
+	 */
+	protected static void consumeAndClose(Blackhole blackhole, Matrix result) {
+		blackhole.consume(result);
+		result.close();
+	}
+
+	/**
+	 * @param className The fully-qualified class name of a BenchmarkBackend.
+	 * @return A new instance of the BenchmarkBackend.
+	 * @throws ReflectiveOperationException If the backend cannot be instantiated.
+	 */
+	static BenchmarkBackend createBackend(String className) throws ReflectiveOperationException {
+		if (className == null || className.trim().isEmpty()) {
+			throw new IllegalStateException(BenchmarkRunner.MISSING_BACKEND_MESSAGE);
+		}
+		Class<?> backendClass;
+		try {
+			backendClass = Class.forName(className.trim());
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("BenchmarkBackend " + className
+					+ " was not found - add the jars of the backend to the classpath", e);
+		}
+		if (!BenchmarkBackend.class.isAssignableFrom(backendClass)) {
+			throw new IllegalStateException(className + " does not implement " + BenchmarkBackend.class.getName());
+		}
+		return (BenchmarkBackend) backendClass.getConstructor().newInstance();
+	}
+
+	/**
+	 * Create the inputs of the benchmark, once the backend has been created.
+	 */
+	protected abstract void setUp();
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.images.Images;
+import org.ml4j.nn.components.DirectedComponentGradient;
+import org.ml4j.nn.components.DirectedComponentsContext;
+import org.ml4j.nn.components.factories.DirectedComponentFactory;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * The implementations of the ml4j APIs under benchmark.
+ *
+ * Implementations are selected by fully-qualified class name through the backend parameter of each
+ * benchmark, and must have a public no-argument constructor.
+ */
+public interface BenchmarkBackend {
+
+	/**
+	 * @return The MatrixFactory under benchmark.
+	 */
+	MatrixFactory getMatrixFactory();
+
+	/**
+	 * @param data The values of the images, in the order expected by the implementation.
+	 * @param channels The number of channels.
+	 * @param height The height of each image.
+	 * @param width The width of each image.
+	 * @param paddingHeight The padding height.
+	 * @param paddingWidth The padding width.
+	 * @param examples The number of images.
+	 * @return A new Images instance containing the data.
+	 */
+	Images createImages(float[] data, int channels, int height, int width, int paddingHeight, int paddingWidth,
+			int examples);
+
+	/**
+	 * @return The DirectedComponentFactory used to create component chains.
+	 */
+	DirectedComponentFactory getDirectedComponentFactory();
+
+	/**
+	 * @param isTrainingContext Whether the context is a training context.
+	 * @return A new DirectedComponentsContext.
+	 */
+	DirectedComponentsContext createDirectedComponentsContext(boolean isTrainingContext);
+
+	/**
+	 * @param neurons The neurons.
+	 * @param activations The activations, with the rows spanning the features of the neurons and a
+	 * column per example.
+	 * @return A new NeuronsActivation.
+	 */
+	NeuronsActivation createNeuronsActivation(Neurons neurons, Matrix activations);
+
+	/**
+	 * @param output The gradient with respect to the output of a component.
+	 * @return A new DirectedComponentGradient.
+	 */
+	DirectedComponentGradient<NeuronsActivation> createDirectedComponentGradient(NeuronsActivation output);
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options provided, always adding the GC profiler
+ * so that allocation rates are reported alongside timings.  For example:
+ *
+ * java -cp ml4j-benchmarks/target/benchmarks.jar:backend.jar org.ml4j.benchmarks.BenchmarkRunner
+ * MatrixBenchmark -p backend=com.example.Backend
+ *
+ * The backend parameter is required, as no BenchmarkBackend is built in.
+ */
+public final class BenchmarkRunner {
+
+	static final String MISSING_BACKEND_MESSAGE = "No BenchmarkBackend has been specified - add the jars of a "
+			+ "BenchmarkBackend implementation to the classpath and pass its class name with -p backend=<class name>";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		boolean listing = commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+				|| commandLineOptions.shouldListWithParams() || commandLineOptions.shouldListProfilers()
+				|| commandLineOptions.shouldListResultFormats();
+		if (!listing && !commandLineOptions.getParameter("backend").hasValue()) {
+			System.err.println(MISSING_BACKEND_MESSAGE);
+			System.exit(1);
+		}
+		new Runner(new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.Matrix;
+import org.ml4j.nn.activationfunctions.ActivationFunctionBaseType;
+import org.ml4j.nn.activationfunctions.ActivationFunctionProperties;
+import org.ml4j.nn.activationfunctions.ActivationFunctionType;
+import org.ml4j.nn.axons.FullyConnectedAxonsConfig;
+import org.ml4j.nn.axons.WeightsFormatImpl;
+import org.ml4j.nn.axons.WeightsMatrix;
+import org.ml4j.nn.axons.WeightsMatrixImpl;
+import org.ml4j.nn.axons.WeightsMatrixOrientation;
+import org.ml4j.nn.components.DirectedComponentGradient;
+import org.ml4j.nn.components.DirectedComponentsContext;
+import org.ml4j.nn.components.factories.DirectedComponentFactory;
+import org.ml4j.nn.components.onetone.DefaultChainableDirectedComponent;
+import org.ml4j.nn.components.onetone.DefaultDirectedComponentChain;
+import org.ml4j.nn.components.onetone.DefaultDirectedComponentChainActivation;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.format.features.Dimension;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End-to-end benchmarks of forward and back propagation through a small
+ * DefaultDirectedComponentChain - fully connected axons, relu, fully connected axons and sigmoid.
+ *
+ * The output activations and gradients of each propagation are consumed and then closed within the
+ * benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentChainBenchmark extends AbstractBackendBenchmark {
+
+	@Param({ "784" })
+	public int inputFeatures;
+
+	@Param({ "100" })
+	public int hiddenFeatures;
+
+	@Param({ "10" })
+	public int outputFeatures;
+
+	@Param({ "32", "256" })
+	public int examples;
+
+	private DefaultDirectedComponentChain chain;
+	private NeuronsActivation input;
+	private DirectedComponentsContext trainingContext;
+	private DirectedComponentsContext inferenceContext;
+
+	@Override
+	protected void setUp() {
+		DirectedComponentFactory componentFactory = benchmarkBackend.getDirectedComponentFactory();
+		Neurons inputNeurons = new Neurons(inputFeatures, false);
+		Neurons hiddenNeurons = new Neurons(hiddenFeatures, false);
+		Neurons outputNeurons = new Neurons(outputFeatures, false);
+		chain = componentFactory.createDirectedComponentChain(Arrays.<DefaultChainableDirectedComponent<?, ?>>asList(
+				componentFactory.createFullyConnectedAxonsComponent("hidden",
+						FullyConnectedAxonsConfig.create(inputNeurons, hiddenNeurons),
+						createWeights(inputFeatures, hiddenFeatures), null),
+				componentFactory.createDifferentiableActivationFunctionComponent("relu", hiddenNeurons,
+						ActivationFunctionType.getBaseType(ActivationFunctionBaseType.RELU),
+						new ActivationFunctionProperties()),
+				componentFactory.createFullyConnectedAxonsComponent("output",
+						FullyConnectedAxonsConfig.create(hiddenNeurons, outputNeurons),
+						createWeights(hiddenFeatures, outputFeatures), null),
+				componentFactory.createDifferentiableActivationFunctionComponent("sigmoid", outputNeurons,
+						ActivationFunctionType.getBaseType(ActivationFunctionBaseType.SIGMOID),
+						new ActivationFunctionProperties())));
+		input = benchmarkBackend.createNeuronsActivation(inputNeurons,
+				matrixFactory.createRand(inputFeatures, examples));
+		input.setImmutable(true);
+		trainingContext = benchmarkBackend.createDirectedComponentsContext(true);
+		inferenceContext = benchmarkBackend.createDirectedComponentsContext(false);
+	}
+
+	private WeightsMatrix createWeights(int inputs, int outputs) {
+		Matrix weights = matrixFactory.createRandn(outputs, inputs).mul((float) Math.sqrt(2d / inputs));
+		return new WeightsMatrixImpl(weights, new WeightsFormatImpl(Arrays.asList(Dimension.INPUT_FEATURE),
+				Arrays.asList(Dimension.OUTPUT_FEATURE), WeightsMatrixOrientation.ROWS_SPAN_OUTPUT_DIMENSIONS));
+	}
+
+	@TearDown
+	public void tearDown() {
+		input.close();
+	}
+
+	@Benchmark
+	public void forward(Blackhole blackhole) {
+		DefaultDirectedComponentChainActivation activation = chain.forwardPropagate(input, inferenceContext);
+		NeuronsActivation output = activation.getOutput();
+		blackhole.consume(output);
+		output.close();
+	}
+
+	@Benchmark
+	public void forwardBackward(Blackhole blackhole) {
+		DefaultDirectedComponentChainActivation activation = chain.forwardPropagate(input, trainingContext);
+		NeuronsActivation output = activation.getOutput();
+		DirectedComponentGradient<NeuronsActivation> gradient = activation
+				.backPropagate(benchmarkBackend.createDirectedComponentGradient(output));
+		blackhole.consume(gradient);
+		gradient.getOutput().close();
+		output.close();
+	}
+}
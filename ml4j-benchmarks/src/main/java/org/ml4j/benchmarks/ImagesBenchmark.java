@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.Matrix;
+import org.ml4j.images.Images;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the im2col and space-to-depth transformations of Images used by convolutional and
+ * pooling axons, with a square filter and a stride of 1 for convolution, and a 2 x 2 filter and
+ * stride of 2 for pooling and space-to-depth.
+ *
+ * Each exported Matrix is consumed and then closed within the benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImagesBenchmark extends AbstractBackendBenchmark {
+
+	@Param({ "1", "16" })
+	public int channels;
+
+	@Param({ "28", "64" })
+	public int size;
+
+	@Param({ "3" })
+	public int filterSize;
+
+	@Param({ "32" })
+	public int examples;
+
+	private Images images;
+	private Matrix im2colConv;
+
+	@Override
+	protected void setUp() {
+		float[] data = new float[channels * size * size * examples];
+		Random random = new Random(1);
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextFloat();
+		}
+		images = benchmarkBackend.createImages(data, channels, size, size, 0, 0, examples);
+		im2colConv = images.im2colConvExport(matrixFactory, filterSize, filterSize, 1, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		im2colConv.close();
+		images.close();
+	}
+
+	@Benchmark
+	public void im2colConvExport(Blackhole blackhole) {
+		consumeAndClose(blackhole, images.im2colConvExport(matrixFactory, filterSize, filterSize, 1, 1));
+	}
+
+	@Benchmark
+	public Images im2colConvImport() {
+		images.im2colConvImport(matrixFactory, im2colConv, filterSize, filterSize, 1, 1);
+		return images;
+	}
+
+	@Benchmark
+	public void im2colPoolExport(Blackhole blackhole) {
+		consumeAndClose(blackhole, images.im2colPoolExport(matrixFactory, 2, 2, 2, 2));
+	}
+
+	@Benchmark
+	public void spaceToDepthExport(Blackhole blackhole) {
+		consumeAndClose(blackhole, images.spaceToDepthExport(matrixFactory, 2, 2));
+	}
+}
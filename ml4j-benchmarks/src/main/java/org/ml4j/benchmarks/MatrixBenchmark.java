@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ml4j.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of Matrix operations at the sizes of typical fully connected layers - a weights
+ * matrix of (outputFeatures, inputFeatures) and an activations matrix of (inputFeatures, examples).
+ *
+ * Each result is consumed and then closed within the benchmark, as it would be by a caller, so that
+ * results are never leaked and backends releasing memory on close are measured in a steady state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark extends AbstractBackendBenchmark {
+
+	@Param({ "100", "784" })
+	public int inputFeatures;
+
+	@Param({ "10", "100", "500" })
+	public int outputFeatures;
+
+	@Param({ "32", "256" })
+	public int examples;
+
+	private Matrix weights;
+	private Matrix activations;
+	private Matrix outputs;
+	private Matrix columnVector;
+	private Matrix rowVector;
+
+	@Override
+	protected void setUp() {
+		weights = matrixFactory.createRandn(outputFeatures, inputFeatures);
+		activations = matrixFactory.createRandn(inputFeatures, examples);
+		outputs = matrixFactory.createRandn(outputFeatures, examples);
+		columnVector = matrixFactory.createRandn(outputFeatures, 1);
+		rowVector = matrixFactory.createRandn(1, examples);
+	}
+
+	@TearDown
+	public void tearDown() {
+		weights.close();
+		activations.close();
+		outputs.close();
+		columnVector.close();
+		rowVector.close();
+	}
+
+	@Benchmark
+	public void mmul(Blackhole blackhole) {
+		consumeAndClose(blackhole, weights.mmul(activations));
+	}
+
+	@Benchmark
+	public void addColumnVector(Blackhole blackhole) {
+		consumeAndClose(blackhole, outputs.addColumnVector(columnVector));
+	}
+
+	@Benchmark
+	public void mulRowVector(Blackhole blackhole) {
+		consumeAndClose(blackhole, outputs.mulRowVector(rowVector));
+	}
+
+	@Benchmark
+	public int[] columnArgmaxs() {
+		return outputs.columnArgmaxs();
+	}
+}
@@ -13,10 +13,16 @@
  */
 package org.ml4j.nn.datasets.floatarray;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.ml4j.Matrix;
 import org.ml4j.MatrixFactory;
+import org.ml4j.SparseMatrix;
+import org.ml4j.SparseMatrixFormat;
 import org.ml4j.nn.datasets.DataBatch;
 import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
 import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
 
 /**
@@ -35,6 +41,65 @@ public interface FloatArrayDataBatch extends DataBatch<float[]> {
 	 */
 	Matrix getAsMatrix(MatrixFactory matrixFactory);
 
+	/**
+	 * Obtain the data within this FloatArrayDataBatch as a Matrix in the
+	 * requested feature orientation. For ROWS_SPAN_FEATURE_SET, the Matrix is the
+	 * transpose of the Matrix returned by getAsMatrix, obtained without re-laying
+	 * out its values.
+	 * 
+	 * @param matrixFactory      The matrix factory used to construct the Matrix.
+	 * @param featureOrientation The feature orientation of the Matrix.
+	 * @return The Matrix.
+	 */
+	default Matrix getAsMatrix(MatrixFactory matrixFactory, NeuronsActivationFeatureOrientation featureOrientation) {
+		Matrix matrix = getAsMatrix(matrixFactory);
+		return featureOrientation == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET
+				? matrixFactory.createTransposedMatrix(matrix)
+				: matrix;
+	}
+
+	/**
+	 * Obtain the data within this FloatArrayDataBatch as a SparseMatrix in CSR
+	 * format, with each float array element forming a row in the matrix - for
+	 * data such as bag-of-words or one-hot encoded features which are mostly
+	 * zeros.
+	 * 
+	 * @param matrixFactory The matrix factory used to construct the SparseMatrix.
+	 * @return The SparseMatrix.
+	 */
+	default SparseMatrix getAsSparseMatrix(MatrixFactory matrixFactory) {
+		List<float[]> rows = get().collect(Collectors.toList());
+		int columns = rows.isEmpty() ? 0 : rows.get(0).length;
+		int[] rowPointers = new int[rows.size() + 1];
+		for (int r = 0; r < rows.size(); r++) {
+			float[] row = rows.get(r);
+			if (row.length != columns) {
+				throw new IllegalStateException("Float array elements must all have length " + columns);
+			}
+			int nonZeroCount = 0;
+			for (float value : row) {
+				if (value != 0f) {
+					nonZeroCount++;
+				}
+			}
+			rowPointers[r + 1] = rowPointers[r] + nonZeroCount;
+		}
+		float[] values = new float[rowPointers[rows.size()]];
+		int[] columnIndices = new int[values.length];
+		int index = 0;
+		for (float[] row : rows) {
+			for (int c = 0; c < columns; c++) {
+				if (row[c] != 0f) {
+					values[index] = row[c];
+					columnIndices[index] = c;
+					index++;
+				}
+			}
+		}
+		return matrixFactory.createSparseMatrix(rows.size(), columns, values, columnIndices, rowPointers,
+				SparseMatrixFormat.CSR);
+	}
+
 	/**
 	 * Obtain the data within this FloatArrayDataBatch as a NeuronsActivation
 	 * instance.
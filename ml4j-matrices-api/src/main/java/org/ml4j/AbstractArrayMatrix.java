@@ -0,0 +1,401 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import org.ml4j.kernels.ElementwiseKernels;
+import org.ml4j.kernels.ElementwiseOperation;
+import org.ml4j.kernels.GemmKernel;
+
+/**
+ * Base class for matrices whose values are not held in a heap float array laid out row by row -
+ * off-heap, reduced-precision or strided storage - computing the operations whose result is a new
+ * Matrix on the row-by-row array returned by getRowByRowArray(), with the ElementwiseKernels and
+ * GemmKernel, and creating each result with the MatrixFactory.
+ *
+ * Operands are read with getRowByRowArray() in the same way, so that no temporary Matrix is created
+ * by an operation - each Matrix created is the result, owned by the caller.
+ */
+abstract class AbstractArrayMatrix implements Matrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	protected final MatrixFactory matrixFactory;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the results of operations.
+	 */
+	protected AbstractArrayMatrix(MatrixFactory matrixFactory) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		this.matrixFactory = matrixFactory;
+	}
+
+	private Matrix create(int rows, int columns, float[] values) {
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, values);
+	}
+
+	private void checkSameShape(Matrix other) {
+		if (other.getRows() != getRows() || other.getColumns() != getColumns()) {
+			throw new IllegalArgumentException("A matrix of shape (" + other.getRows() + ", " + other.getColumns()
+					+ ") does not match the shape (" + getRows() + ", " + getColumns() + ")");
+		}
+	}
+
+	private Matrix apply(ElementwiseOperation operation, Matrix other) {
+		checkSameShape(other);
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().apply(operation, values, 0, other.getRowByRowArray(), 0, values, 0,
+				values.length);
+		return create(getRows(), getColumns(), values);
+	}
+
+	private Matrix apply(ElementwiseOperation operation, float value) {
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().apply(operation, values, 0, value, values, 0, values.length);
+		return create(getRows(), getColumns(), values);
+	}
+
+	private Matrix applyRowVector(ElementwiseOperation operation, Matrix rowVector) {
+		if (rowVector.getLength() != getColumns()) {
+			throw new IllegalArgumentException("Row vector must have " + getColumns() + " elements but has "
+					+ rowVector.getLength());
+		}
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().applyRowVector(operation, getRows(), getColumns(), values, 0,
+				rowVector.getRowByRowArray(), 0, values, 0);
+		return create(getRows(), getColumns(), values);
+	}
+
+	private Matrix applyColumnVector(ElementwiseOperation operation, Matrix columnVector) {
+		if (columnVector.getLength() != getRows()) {
+			throw new IllegalArgumentException("Column vector must have " + getRows() + " elements but has "
+					+ columnVector.getLength());
+		}
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().applyColumnVector(operation, getRows(), getColumns(), values, 0,
+				columnVector.getRowByRowArray(), 0, values, 0);
+		return create(getRows(), getColumns(), values);
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public float get(int i) {
+		if (i < 0 || i >= getLength()) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + getLength());
+		}
+		return get(i / getColumns(), i % getColumns());
+	}
+
+	@Override
+	public int getLength() {
+		return getRows() * getColumns();
+	}
+
+	@Override
+	public float sum() {
+		double sum = 0;
+		for (float value : getRowByRowArray()) {
+			sum += value;
+		}
+		return (float) sum;
+	}
+
+	/**
+	 * @return The row-by-row index of the first maximum value.
+	 */
+	@Override
+	public int argmax() {
+		float[] values = getRowByRowArray();
+		int argmax = -1;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] > max || (argmax < 0 && values[i] == max)) {
+				max = values[i];
+				argmax = i;
+			}
+		}
+		return argmax;
+	}
+
+	@Override
+	public Matrix mul(Matrix other) {
+		return apply(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public Matrix add(Matrix other) {
+		return apply(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return apply(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return apply(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public Matrix mul(float v) {
+		return apply(ElementwiseOperation.MUL, v);
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return apply(ElementwiseOperation.ADD, v);
+	}
+
+	@Override
+	public Matrix div(float v) {
+		return apply(ElementwiseOperation.DIV, v);
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return apply(ElementwiseOperation.SUB, v);
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().sigmoid(values, 0, values, 0, values.length);
+		return create(getRows(), getColumns(), values);
+	}
+
+	@Override
+	public Matrix log() {
+		float[] values = getRowByRowArray();
+		ElementwiseKernels.getDefault().log(values, 0, values, 0, values.length);
+		return create(getRows(), getColumns(), values);
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		return applyColumnVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		return applyRowVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return applyColumnVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return applyRowVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return applyColumnVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return applyRowVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return applyColumnVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return applyRowVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public Matrix mmul(Matrix other) {
+		if (other.getRows() != getColumns()) {
+			throw new IllegalArgumentException("A matrix of shape (" + getRows() + ", " + getColumns()
+					+ ") cannot be multiplied by a matrix of shape (" + other.getRows() + ", " + other.getColumns() + ")");
+		}
+		int m = getRows();
+		int n = other.getColumns();
+		int k = getColumns();
+		float[] product = new float[m * n];
+		new GemmKernel(matrixFactory.getConfig().getForkJoinPool()).gemm(false, false, m, n, k, 1f,
+				getRowByRowArray(), 0, k, other.getRowByRowArray(), 0, n, 0f, product, 0, n);
+		return create(m, n, product);
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return toColumnByColumnArray();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		int rows = getRows();
+		int columns = getColumns();
+		float[] values = getRowByRowArray();
+		float[] data = new float[values.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				data[c * rows + r] = values[r * columns + c];
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public Matrix transpose() {
+		return create(getColumns(), getRows(), toColumnByColumnArray());
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		return getRows(new int[] { rowIndex });
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		return getColumns(new int[] { columnIndex });
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		int columns = getColumns();
+		float[] values = getRowByRowArray();
+		float[] data = new float[rows.length * columns];
+		for (int i = 0; i < rows.length; i++) {
+			checkRowIndex(rows[i]);
+			System.arraycopy(values, rows[i] * columns, data, i * columns, columns);
+		}
+		return create(rows.length, columns, data);
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		int[] rows = new int[getRows()];
+		for (int r = 0; r < rows.length; r++) {
+			rows[r] = r;
+		}
+		return get(rows, columns);
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		int allColumns = getColumns();
+		float[] values = getRowByRowArray();
+		float[] data = new float[rows.length * columns.length];
+		for (int i = 0; i < rows.length; i++) {
+			checkRowIndex(rows[i]);
+			for (int j = 0; j < columns.length; j++) {
+				if (columns[j] < 0 || columns[j] >= allColumns) {
+					throw new IndexOutOfBoundsException("Column " + columns[j] + " is outside a matrix of " + allColumns
+							+ " columns");
+				}
+				data[i * columns.length + j] = values[rows[i] * allColumns + columns[j]];
+			}
+		}
+		return create(rows.length, columns.length, data);
+	}
+
+	private void checkRowIndex(int row) {
+		if (row < 0 || row >= getRows()) {
+			throw new IndexOutOfBoundsException("Row " + row + " is outside a matrix of " + getRows() + " rows");
+		}
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		if (other.getRows() != getRows()) {
+			throw new IllegalArgumentException("A matrix of " + other.getRows() + " rows cannot be appended to a matrix of "
+					+ getRows() + " rows");
+		}
+		int rows = getRows();
+		int columns = getColumns();
+		int otherColumns = other.getColumns();
+		float[] values = getRowByRowArray();
+		float[] otherValues = other.getRowByRowArray();
+		float[] data = new float[rows * (columns + otherColumns)];
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(values, r * columns, data, r * (columns + otherColumns), columns);
+			System.arraycopy(otherValues, r * otherColumns, data, r * (columns + otherColumns) + columns, otherColumns);
+		}
+		return create(rows, columns + otherColumns, data);
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		if (other.getColumns() != getColumns()) {
+			throw new IllegalArgumentException("A matrix of " + other.getColumns()
+					+ " columns cannot be appended to a matrix of " + getColumns() + " columns");
+		}
+		float[] values = getRowByRowArray();
+		float[] otherValues = other.getRowByRowArray();
+		float[] data = new float[values.length + otherValues.length];
+		System.arraycopy(values, 0, data, 0, values.length);
+		System.arraycopy(otherValues, 0, data, values.length, otherValues.length);
+		return create(getRows() + other.getRows(), getColumns(), data);
+	}
+
+	@Override
+	public Matrix columnSums() {
+		int rows = getRows();
+		int columns = getColumns();
+		float[] values = getRowByRowArray();
+		float[] sums = new float[columns];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				sums[c] += values[r * columns + c];
+			}
+		}
+		return create(1, columns, sums);
+	}
+
+	@Override
+	public Matrix rowSums() {
+		int rows = getRows();
+		int columns = getColumns();
+		float[] values = getRowByRowArray();
+		float[] sums = new float[rows];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				sums[r] += values[r * columns + c];
+			}
+		}
+		return create(rows, 1, sums);
+	}
+
+	@Override
+	public int[] columnArgmaxs() {
+		int rows = getRows();
+		int columns = getColumns();
+		float[] values = getRowByRowArray();
+		int[] argmaxs = new int[columns];
+		for (int c = 0; c < columns; c++) {
+			for (int r = 1; r < rows; r++) {
+				if (values[r * columns + c] > values[argmaxs[c] * columns + c]) {
+					argmaxs[c] = r;
+				}
+			}
+		}
+		return argmaxs;
+	}
+}
@@ -0,0 +1,651 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+import org.ml4j.kernels.SparseGemmKernel;
+
+/**
+ * A SparseMatrix backed by CSR or CSC arrays.
+ *
+ * Operations which preserve sparsity - scalar and element-wise multiplication, scalar division,
+ * transpose and multiplication by a dense Matrix - are computed from the non-zero values, with
+ * transpose sharing the arrays of this matrix, as are element access, argmax, sums and the
+ * extraction of rows and columns.  All other operations, whose results are dense, are delegated to a
+ * dense copy of this matrix, created by the MatrixFactory when first required.
+ *
+ * Obtain a CompressedSparseMatrix using {@link MatrixFactory#createSparseMatrix}.
+ */
+public class CompressedSparseMatrix implements SparseMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory matrixFactory;
+	private final SparseMatrixFormat format;
+	private final int rows;
+	private final int columns;
+	private final float[] values;
+	private final int[] indices;
+	private final int[] pointers;
+	private Matrix dense;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create dense matrices.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param values The non-zero values.
+	 * @param indices The column (CSR) or row (CSC) index of each value.
+	 * @param pointers The index of the first value of each row (CSR) or column (CSC), followed
+	 * by the number of values.
+	 * @param format The format of the arrays.
+	 */
+	public CompressedSparseMatrix(MatrixFactory matrixFactory, int rows, int columns, float[] values,
+			int[] indices, int[] pointers, SparseMatrixFormat format) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("Sparse matrix format cannot be null");
+		}
+		int outer = format == SparseMatrixFormat.CSR ? rows : columns;
+		if (pointers.length != outer + 1) {
+			throw new IllegalArgumentException("Pointers must contain " + (outer + 1) + " elements but contains "
+					+ pointers.length);
+		}
+		if (values.length < pointers[outer] || indices.length < pointers[outer]) {
+			throw new IllegalArgumentException("Values and indices must contain " + pointers[outer] + " elements");
+		}
+		this.matrixFactory = matrixFactory;
+		this.rows = rows;
+		this.columns = columns;
+		this.values = values;
+		this.indices = indices;
+		this.pointers = pointers;
+		this.format = format;
+	}
+
+	/**
+	 * Compress a dense row-by-row array.
+	 *
+	 * @param matrixFactory The MatrixFactory used to create dense matrices.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowByRowData The values of the matrix in row-by-row order.
+	 * @param format The format of the SparseMatrix.
+	 * @return A CompressedSparseMatrix containing the non-zero values of the array.
+	 */
+	public static CompressedSparseMatrix compress(MatrixFactory matrixFactory, int rows, int columns,
+			float[] rowByRowData, SparseMatrixFormat format) {
+		if (rowByRowData.length != rows * columns) {
+			throw new IllegalArgumentException("Data must contain " + rows * columns + " elements but contains "
+					+ rowByRowData.length);
+		}
+		boolean byRow = format == SparseMatrixFormat.CSR;
+		int outer = byRow ? rows : columns;
+		int inner = byRow ? columns : rows;
+		int nonZeroCount = 0;
+		for (float value : rowByRowData) {
+			if (value != 0f) {
+				nonZeroCount++;
+			}
+		}
+		float[] values = new float[nonZeroCount];
+		int[] indices = new int[nonZeroCount];
+		int[] pointers = new int[outer + 1];
+		int index = 0;
+		for (int o = 0; o < outer; o++) {
+			pointers[o] = index;
+			for (int i = 0; i < inner; i++) {
+				float value = byRow ? rowByRowData[o * columns + i] : rowByRowData[i * columns + o];
+				if (value != 0f) {
+					values[index] = value;
+					indices[index] = i;
+					index++;
+				}
+			}
+		}
+		pointers[outer] = index;
+		return new CompressedSparseMatrix(matrixFactory, rows, columns, values, indices, pointers, format);
+	}
+
+	@Override
+	public SparseMatrixFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public int getNonZeroCount() {
+		return pointers[pointers.length - 1] - pointers[0];
+	}
+
+	@Override
+	public float[] getValues() {
+		return values;
+	}
+
+	@Override
+	public int[] getIndices() {
+		return indices;
+	}
+
+	@Override
+	public int[] getPointers() {
+		return pointers;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+	}
+
+	private void checkMutable() {
+		if (immutable) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+	}
+
+	/**
+	 * @return A dense copy of this matrix, created when first required.
+	 */
+	private synchronized Matrix dense() {
+		checkOpen();
+		if (dense == null) {
+			dense = matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, toRowByRowArray());
+			dense.setImmutable(true);
+		}
+		return dense;
+	}
+
+	private float[] toRowByRowArray() {
+		float[] data = new float[rows * columns];
+		for (int o = 0; o < pointers.length - 1; o++) {
+			for (int p = pointers[o]; p < pointers[o + 1]; p++) {
+				data[getRowByRowIndex(o, p)] = values[p];
+			}
+		}
+		return data;
+	}
+
+	private float[] toColumnByColumnArrayFromValues() {
+		checkOpen();
+		float[] data = new float[rows * columns];
+		boolean byRow = format == SparseMatrixFormat.CSR;
+		for (int o = 0; o < pointers.length - 1; o++) {
+			for (int p = pointers[o]; p < pointers[o + 1]; p++) {
+				data[byRow ? indices[p] * rows + o : o * rows + indices[p]] = values[p];
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * @return The row-by-row index of the value at position p, in the row (CSR) or column (CSC) o.
+	 */
+	private int getRowByRowIndex(int o, int p) {
+		return format == SparseMatrixFormat.CSR ? o * columns + indices[p] : indices[p] * columns + o;
+	}
+
+	private CompressedSparseMatrix withValues(float[] newValues) {
+		return new CompressedSparseMatrix(matrixFactory, rows, columns, newValues, indices, pointers, format);
+	}
+
+	private static Matrix dense(Matrix matrix) {
+		return matrix instanceof CompressedSparseMatrix ? ((CompressedSparseMatrix) matrix).dense() : matrix;
+	}
+
+	// Shape
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public int getLength() {
+		return rows * columns;
+	}
+
+	// Operations computed from the non-zero values
+
+	@Override
+	public float get(int r, int c) {
+		checkOpen();
+		if (r < 0 || r >= rows || c < 0 || c >= columns) {
+			throw new IndexOutOfBoundsException("(" + r + ", " + c + ") is outside a matrix of shape (" + rows + ", "
+					+ columns + ")");
+		}
+		int o = format == SparseMatrixFormat.CSR ? r : c;
+		int i = format == SparseMatrixFormat.CSR ? c : r;
+		int position = Arrays.binarySearch(indices, pointers[o], pointers[o + 1], i);
+		return position >= 0 ? values[position] : 0f;
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public float get(int i) {
+		if (i < 0 || i >= getLength()) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + getLength());
+		}
+		return get(i / columns, i % columns);
+	}
+
+	/**
+	 * @return The row-by-row index of the first maximum value, found by scanning the non-zero values
+	 * and the position of the first implicit zero of each row (CSR) or column (CSC).
+	 */
+	@Override
+	public int argmax() {
+		checkOpen();
+		float max = Float.NEGATIVE_INFINITY;
+		int argmax = -1;
+		for (int o = 0; o < pointers.length - 1; o++) {
+			int expectedIndex = 0;
+			for (int p = pointers[o]; p < pointers[o + 1]; p++) {
+				if (indices[p] == expectedIndex) {
+					expectedIndex++;
+				}
+				int index = getRowByRowIndex(o, p);
+				if (values[p] > max || (values[p] == max && (argmax < 0 || index < argmax))) {
+					max = values[p];
+					argmax = index;
+				}
+			}
+			// The first implicit zero of the row or column is the only zero of it which can be the argmax
+			int inner = format == SparseMatrixFormat.CSR ? columns : rows;
+			if (expectedIndex < inner) {
+				int index = format == SparseMatrixFormat.CSR ? o * columns + expectedIndex
+						: expectedIndex * columns + o;
+				if (0f > max || (0f == max && (argmax < 0 || index < argmax))) {
+					max = 0f;
+					argmax = index;
+				}
+			}
+		}
+		return argmax;
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		checkOpen();
+		if (rowIndex < 0 || rowIndex >= rows) {
+			throw new IndexOutOfBoundsException("Row " + rowIndex + " is outside a matrix of " + rows + " rows");
+		}
+		float[] data = new float[columns];
+		if (format == SparseMatrixFormat.CSR) {
+			for (int p = pointers[rowIndex]; p < pointers[rowIndex + 1]; p++) {
+				data[indices[p]] = values[p];
+			}
+		} else {
+			for (int c = 0; c < columns; c++) {
+				data[c] = get(rowIndex, c);
+			}
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(1, columns, data);
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		checkOpen();
+		if (columnIndex < 0 || columnIndex >= columns) {
+			throw new IndexOutOfBoundsException("Column " + columnIndex + " is outside a matrix of " + columns
+					+ " columns");
+		}
+		float[] data = new float[rows];
+		if (format == SparseMatrixFormat.CSC) {
+			for (int p = pointers[columnIndex]; p < pointers[columnIndex + 1]; p++) {
+				data[indices[p]] = values[p];
+			}
+		} else {
+			for (int r = 0; r < rows; r++) {
+				data[r] = get(r, columnIndex);
+			}
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, 1, data);
+	}
+
+	@Override
+	public Matrix columnSums() {
+		return sums(false);
+	}
+
+	@Override
+	public Matrix rowSums() {
+		return sums(true);
+	}
+
+	private Matrix sums(boolean byRow) {
+		checkOpen();
+		double[] sums = new double[byRow ? rows : columns];
+		for (int o = 0; o < pointers.length - 1; o++) {
+			for (int p = pointers[o]; p < pointers[o + 1]; p++) {
+				int index = getRowByRowIndex(o, p);
+				sums[byRow ? index / columns : index % columns] += values[p];
+			}
+		}
+		float[] data = new float[sums.length];
+		for (int i = 0; i < sums.length; i++) {
+			data[i] = (float) sums[i];
+		}
+		return byRow ? matrixFactory.createMatrixFromRowsByRowsArray(rows, 1, data)
+				: matrixFactory.createMatrixFromRowsByRowsArray(1, columns, data);
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return toColumnByColumnArrayFromValues();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		return toColumnByColumnArrayFromValues();
+	}
+
+	/**
+	 * @return The element-wise product of this matrix and the other Matrix, as a sparse matrix with
+	 * the non-zero positions of this matrix.
+	 */
+	@Override
+	public Matrix mul(Matrix other) {
+		checkOpen();
+		if (other.getRows() != rows || other.getColumns() != columns) {
+			throw new IllegalArgumentException("Matrices of shape (" + rows + ", " + columns + ") and ("
+					+ other.getRows() + ", " + other.getColumns() + ") cannot be multiplied element-wise");
+		}
+		float[] otherData = other.getRowByRowArray();
+		return mulValues(index -> otherData[index]);
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		checkOpen();
+		if (other.getRows() != 1 || other.getColumns() != columns) {
+			throw new IllegalArgumentException("Row vector must be of shape (1, " + columns + ") but is of shape ("
+					+ other.getRows() + ", " + other.getColumns() + ")");
+		}
+		float[] vector = other.getRowByRowArray();
+		return mulValues(index -> vector[index % columns]);
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		checkOpen();
+		if (other.getRows() != rows || other.getColumns() != 1) {
+			throw new IllegalArgumentException("Column vector must be of shape (" + rows
+					+ ", 1) but is of shape (" + other.getRows() + ", " + other.getColumns() + ")");
+		}
+		float[] vector = other.getRowByRowArray();
+		return mulValues(index -> vector[index / columns]);
+	}
+
+	/**
+	 * @param factors The factor of the value at each row-by-row index.
+	 * @return A sparse matrix with the non-zero positions of this matrix, each value multiplied by
+	 * its factor.
+	 */
+	private Matrix mulValues(IntToDoubleFunction factors) {
+		float[] newValues = values.clone();
+		for (int o = 0; o < pointers.length - 1; o++) {
+			for (int p = pointers[o]; p < pointers[o + 1]; p++) {
+				newValues[p] *= (float) factors.applyAsDouble(getRowByRowIndex(o, p));
+			}
+		}
+		return withValues(newValues);
+	}
+
+	@Override
+	public float sum() {
+		checkOpen();
+		double sum = 0;
+		for (int p = pointers[0]; p < pointers[pointers.length - 1]; p++) {
+			sum += values[p];
+		}
+		return (float) sum;
+	}
+
+	@Override
+	public Matrix mul(float v) {
+		checkOpen();
+		float[] newValues = values.clone();
+		for (int p = 0; p < newValues.length; p++) {
+			newValues[p] *= v;
+		}
+		return withValues(newValues);
+	}
+
+	@Override
+	public Matrix div(float v) {
+		checkOpen();
+		float[] newValues = values.clone();
+		for (int p = 0; p < newValues.length; p++) {
+			newValues[p] /= v;
+		}
+		return withValues(newValues);
+	}
+
+	/**
+	 * @return The transpose of this matrix, sharing the arrays of this matrix - the CSR arrays of
+	 * a matrix are the CSC arrays of its transpose.
+	 */
+	@Override
+	public Matrix transpose() {
+		checkOpen();
+		return new CompressedSparseMatrix(matrixFactory, columns, rows, values, indices, pointers,
+				format.transpose());
+	}
+
+	/**
+	 * @return The dense product of this matrix and the other Matrix, computing only the products
+	 * of the non-zero values of this matrix.
+	 */
+	@Override
+	public Matrix mmul(Matrix other) {
+		checkOpen();
+		if (other.getRows() != columns) {
+			throw new IllegalArgumentException("Matrices of shape (" + rows + ", " + columns + ") and ("
+					+ other.getRows() + ", " + other.getColumns() + ") cannot be multiplied");
+		}
+		int n = other.getColumns();
+		float[] result = new float[rows * n];
+		new SparseGemmKernel(matrixFactory.getConfig().getForkJoinPool()).gemm(format, false, false, rows, n,
+				columns, 1f, values, indices, pointers, other.getRowByRowArray(), 0, n, 0f, result, 0, n);
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, n, result);
+	}
+
+	@Override
+	public Matrix dup() {
+		checkOpen();
+		return new CompressedSparseMatrix(matrixFactory, rows, columns, values.clone(), indices.clone(),
+				pointers.clone(), format);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		checkOpen();
+		return toRowByRowArray();
+	}
+
+	// Lifecycle
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			if (dense != null) {
+				dense.close();
+				dense = null;
+			}
+		}
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable;
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+	}
+
+	// Operations delegated to a dense copy
+
+	@Override
+	public Matrix add(Matrix other) {
+		return dense().add(dense(other));
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return dense().div(dense(other));
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return dense().sub(dense(other));
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return dense().add(v);
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return dense().sub(v);
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		return dense().sigmoid();
+	}
+
+	@Override
+	public Matrix log() {
+		return dense().log();
+	}
+
+	/**
+	 * As the log of each implicit zero is negative infinity, the result cannot be held in the sparse
+	 * arrays of this matrix - this matrix is left unchanged, and its log is computed in place in a
+	 * new dense EditableMatrix, which is returned.
+	 */
+	@Override
+	public Matrix logi() {
+		checkMutable();
+		return asEditableMatrix().logi();
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		checkOpen();
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, toRowByRowArray()).asEditableMatrix();
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		checkOpen();
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, toRowByRowArray()).asInterrimMatrix();
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		return dense().appendVertically(dense(other));
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		return dense().appendHorizontally(dense(other));
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		return dense().get(rows, columns);
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		return dense().getColumns(columns);
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		return dense().getRows(rows);
+	}
+
+	@Override
+	public int[] columnArgmaxs() {
+		return dense().columnArgmaxs();
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return dense().addColumnVector(dense(other));
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return dense().addRowVector(dense(other));
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return dense().divColumnVector(dense(other));
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return dense().divRowVector(dense(other));
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return dense().subColumnVector(dense(other));
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return dense().subRowVector(dense(other));
+	}
+
+	/**
+	 * @return A CompressedSparseMatrix sharing the values, indices and pointers of this matrix.
+	 */
+	@Override
+	public Matrix softDup() {
+		checkOpen();
+		CompressedSparseMatrix softDup = withValues(values);
+		softDup.setImmutable(isImmutable());
+		return softDup;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * A MatrixFactory creating matrices with a delegate MatrixFactory, but configured with its own
+ * MatrixFactoryConfig - returned by the default implementation of
+ * {@link MatrixFactory#withConfig(MatrixFactoryConfig)} for factories which cannot be
+ * reconfigured themselves.
+ *
+ * Only the creation methods are delegated - the default compute methods of MatrixFactory, such as
+ * gemm, batchMmul, convolve, the softmax methods and the seeded random methods, are run by this
+ * factory, so on the ForkJoinPool of its own config.
+ */
+public class ConfiguredMatrixFactory implements MatrixFactory {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory delegate;
+	private final MatrixFactoryConfig config;
+
+	/**
+	 * @param delegate The MatrixFactory creating matrices.  If it is itself a ConfiguredMatrixFactory,
+	 * its delegate is used.
+	 * @param config The MatrixFactoryConfig of this factory.
+	 */
+	public ConfiguredMatrixFactory(MatrixFactory delegate, MatrixFactoryConfig config) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("Delegate cannot be null");
+		}
+		if (config == null) {
+			throw new IllegalArgumentException("Config cannot be null");
+		}
+		this.delegate = delegate instanceof ConfiguredMatrixFactory ? ((ConfiguredMatrixFactory) delegate).delegate
+				: delegate;
+		this.config = config;
+	}
+
+	/**
+	 * @return The MatrixFactory creating matrices.
+	 */
+	public MatrixFactory getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return config;
+	}
+
+	@Override
+	public MatrixFactory withConfig(MatrixFactoryConfig config) {
+		return config.equals(this.config) ? this : delegate.withConfig(config);
+	}
+
+	@Override
+	public Matrix createOnes(int rows, int columns) {
+		return delegate.createOnes(rows, columns);
+	}
+
+	@Override
+	public Matrix createOnes(int rows) {
+		return delegate.createOnes(rows);
+	}
+
+	@Override
+	public Matrix createZeros(int rows, int columns) {
+		return delegate.createZeros(rows, columns);
+	}
+
+	@Override
+	public Matrix createRandn(int rows, int columns) {
+		return delegate.createRandn(rows, columns);
+	}
+
+	@Override
+	public Matrix createRand(int rows, int columns) {
+		return delegate.createRand(rows, columns);
+	}
+
+	@Override
+	public Matrix createMatrixFromRows(float[][] data) {
+		return delegate.createMatrixFromRows(data);
+	}
+
+	@Override
+	public Matrix createMatrix(int rows, int cols) {
+		return delegate.createMatrix(rows, cols);
+	}
+
+	@Override
+	public Matrix createMatrixFromColumnsByColumnsArray(int rows, int cols, float[] data) {
+		return delegate.createMatrixFromColumnsByColumnsArray(rows, cols, data);
+	}
+
+	@Override
+	public Matrix createMatrixFromRowsByRowsArray(int rows, int cols, float[] data) {
+		return delegate.createMatrixFromRowsByRowsArray(rows, cols, data);
+	}
+
+	@Override
+	public Matrix createMatrix() {
+		return delegate.createMatrix();
+	}
+
+	@Override
+	public Matrix createMatrix(float[] data) {
+		return delegate.createMatrix(data);
+	}
+
+	@Override
+	public Matrix createHorizontalConcatenation(Matrix matrix1, Matrix matrix2) {
+		return delegate.createHorizontalConcatenation(matrix1, matrix2);
+	}
+
+	@Override
+	public Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2) {
+		return delegate.createVerticalConcatenation(matrix1, matrix2);
+	}
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.util.Optional;
+
+/**
+ * A copy-on-write handle to an immutable Matrix, allowing a matrix such as a snapshot of weights,
+ * or an activation passed along a skip connection, to be duplicated without copying its values.
+ *
+ * Until the first mutating operation - put, putRow, putColumn, reshape or any in-place operation -
+ * every operation reads the shared matrix.  The first mutating operation copies the values of the
+ * shared matrix into a new EditableMatrix owned by this handle, to which it and all subsequent
+ * operations are then applied, so the shared matrix is never modified.
+ *
+ * The shared matrix must remain immutable, and open, for as long as any handle to it has not been
+ * written to; closing a handle closes only the copy it owns, if any.  Obtain a CopyOnWriteMatrix
+ * using {@link MatrixFactory#createCopyOnWriteMatrix(Matrix)}.
+ */
+public class CopyOnWriteMatrix implements EditableMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory matrixFactory;
+	private final Matrix shared;
+	private EditableMatrix owned;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the copy on the first write.
+	 * @param matrix The immutable matrix to share.  If it is itself a CopyOnWriteMatrix which has
+	 * not been written to, this handle shares the matrix shared by that handle.
+	 */
+	public CopyOnWriteMatrix(MatrixFactory matrixFactory, Matrix matrix) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (!matrix.isImmutable()) {
+			throw new IllegalArgumentException("Only an immutable matrix can be shared");
+		}
+		this.matrixFactory = matrixFactory;
+		this.shared = matrix instanceof CopyOnWriteMatrix ? ((CopyOnWriteMatrix) matrix).getReadable() : matrix;
+	}
+
+	/**
+	 * @return Whether this handle has been written to, and so owns a copy of the shared values.
+	 */
+	public synchronized boolean isCopied() {
+		return owned != null;
+	}
+
+	private synchronized Matrix getReadable() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+		return owned == null ? shared : owned;
+	}
+
+	private synchronized EditableMatrix getWritable() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+		if (immutable) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+		if (owned == null) {
+			owned = copy(shared).asEditableMatrix();
+		}
+		return owned;
+	}
+
+	/**
+	 * @return A new Matrix created by the MatrixFactory containing the values of the matrix -
+	 * copied explicitly, since dup of an immutable matrix may itself return a shared handle.
+	 */
+	private Matrix copy(Matrix matrix) {
+		return matrixFactory.createMatrixFromColumnsByColumnsArray(matrix.getRows(), matrix.getColumns(),
+				matrix.toColumnByColumnArray());
+	}
+
+	// Mutating operations, applied to the copy
+
+	@Override
+	public void put(int r, int c, float v) {
+		getWritable().put(r, c, v);
+	}
+
+	@Override
+	public void put(int i, float v) {
+		getWritable().put(i, v);
+	}
+
+	@Override
+	public void putRow(int r, Matrix matrix) {
+		getWritable().putRow(r, matrix);
+	}
+
+	@Override
+	public void putColumn(int c, Matrix matrix) {
+		getWritable().putColumn(c, matrix);
+	}
+
+	@Override
+	public void reshape(int r, int c) {
+		getWritable().reshape(r, c);
+	}
+
+	@Override
+	public EditableMatrix subi(float v) {
+		getWritable().subi(v);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix divi(float v) {
+		getWritable().divi(v);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix addi(float v) {
+		getWritable().addi(v);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix muli(float v) {
+		getWritable().muli(v);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix expi() {
+		getWritable().expi();
+		return this;
+	}
+
+	@Override
+	public Matrix logi() {
+		getWritable().logi();
+		return this;
+	}
+
+	@Override
+	public EditableMatrix subiColumnVector(Matrix other) {
+		getWritable().subiColumnVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix subiRowVector(Matrix other) {
+		getWritable().subiRowVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix diviColumnVector(Matrix other) {
+		getWritable().diviColumnVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix diviRowVector(Matrix other) {
+		getWritable().diviRowVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix addiRowVector(Matrix other) {
+		getWritable().addiRowVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix addiColumnVector(Matrix other) {
+		getWritable().addiColumnVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix muliColumnVector(Matrix other) {
+		getWritable().muliColumnVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix muliRowVector(Matrix other) {
+		getWritable().muliRowVector(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix muli(Matrix other) {
+		getWritable().muli(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix addi(Matrix other) {
+		getWritable().addi(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix divi(Matrix other) {
+		getWritable().divi(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix subi(Matrix other) {
+		getWritable().subi(other);
+		return this;
+	}
+
+	@Override
+	public EditableMatrix gemmi(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta) {
+		getWritable().gemmi(transA, transB, alpha, a, b, beta);
+		return this;
+	}
+
+	/**
+	 * @return The storage array of the writable copy, which is made first if this handle has not yet
+	 * been written to.
+	 */
+	@Override
+	public Optional<float[]> getStorageArray() {
+		return getWritable().getStorageArray();
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return matrixFactory.getConfig();
+	}
+
+	// Duplication and lifecycle
+
+	/**
+	 * @return A new handle sharing the shared matrix if this handle has not been written to, and
+	 * otherwise a copy of the values of this handle.
+	 */
+	@Override
+	public synchronized Matrix dup() {
+		Matrix readable = getReadable();
+		return owned == null ? new CopyOnWriteMatrix(matrixFactory, readable) : readable.dup();
+	}
+
+	/**
+	 * @return A view of this handle, through which writes are applied to this handle.
+	 */
+	@Override
+	public Matrix softDup() {
+		return new MatrixView(matrixFactory, this, 0, 0, getRows(), getColumns(), 1, 1);
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return isImmutable() ? dup().asEditableMatrix() : this;
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return copy(getReadable()).asInterrimMatrix();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (owned != null) {
+			owned.close();
+		}
+		closed = true;
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable;
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+		if (owned != null) {
+			owned.setImmutable(immutable);
+		}
+	}
+
+	// Operations reading the shared matrix, or the copy once written to
+
+	@Override
+	public int getRows() {
+		return getReadable().getRows();
+	}
+
+	@Override
+	public int getColumns() {
+		return getReadable().getColumns();
+	}
+
+	@Override
+	public int getLength() {
+		return getReadable().getLength();
+	}
+
+	@Override
+	public MatrixLayout getLayout() {
+		return getReadable().getLayout();
+	}
+
+	@Override
+	public float get(int r, int c) {
+		return getReadable().get(r, c);
+	}
+
+	@Override
+	public float get(int i) {
+		return getReadable().get(i);
+	}
+
+	@Override
+	public int argmax() {
+		return getReadable().argmax();
+	}
+
+	@Override
+	public float sum() {
+		return getReadable().sum();
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		return getReadable().getRowByRowArray();
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return getReadable().getColumnByColumnArray();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		return getReadable().toColumnByColumnArray();
+	}
+
+	@Override
+	public Matrix mul(Matrix other) {
+		return getReadable().mul(other);
+	}
+
+	@Override
+	public Matrix add(Matrix other) {
+		return getReadable().add(other);
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return getReadable().div(other);
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return getReadable().sub(other);
+	}
+
+	@Override
+	public Matrix mul(float v) {
+		return getReadable().mul(v);
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return getReadable().add(v);
+	}
+
+	@Override
+	public Matrix div(float v) {
+		return getReadable().div(v);
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return getReadable().sub(v);
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		return getReadable().sigmoid();
+	}
+
+	@Override
+	public Matrix log() {
+		return getReadable().log();
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		return getReadable().getColumn(columnIndex);
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		return getReadable().getRow(rowIndex);
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		return getReadable().appendVertically(other);
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		return getReadable().appendHorizontally(other);
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		return getReadable().get(rows, columns);
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		return getReadable().getColumns(columns);
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		return getReadable().getRows(rows);
+	}
+
+	@Override
+	public Matrix transpose() {
+		return getReadable().transpose();
+	}
+
+	@Override
+	public Matrix columnSums() {
+		return getReadable().columnSums();
+	}
+
+	@Override
+	public Matrix rowSums() {
+		return getReadable().rowSums();
+	}
+
+	@Override
+	public int[] columnArgmaxs() {
+		return getReadable().columnArgmaxs();
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		return getReadable().mulColumnVector(other);
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		return getReadable().mulRowVector(other);
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return getReadable().addColumnVector(other);
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return getReadable().addRowVector(other);
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return getReadable().divColumnVector(other);
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return getReadable().divRowVector(other);
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return getReadable().subColumnVector(other);
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return getReadable().subRowVector(other);
+	}
+
+	@Override
+	public Matrix mmul(Matrix other) {
+		return getReadable().mmul(other);
+	}
+}
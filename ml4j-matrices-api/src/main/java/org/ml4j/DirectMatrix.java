@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A Matrix whose data is stored in off-heap (direct) memory.
+ *
+ * The off-heap storage is released when {@link #close()} is called - the buffer returned by
+ * {@link #getBuffer()} must not be accessed after this Matrix has been closed.
+ */
+public interface DirectMatrix extends Matrix {
+
+	/**
+	 * @return A read-only view of the direct buffer backing this Matrix, with the value for
+	 * row r, column c at position r * getColumns() + c.
+	 */
+	FloatBuffer getBuffer();
+
+	/**
+	 * @return The number of bytes of off-heap memory held by this Matrix.
+	 */
+	long getDirectByteSize();
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A MatrixFactory which creates Matrices whose data is stored in off-heap (direct) memory rather
+ * than in heap-allocated float arrays.
+ *
+ * The off-heap storage of a Matrix created by this factory is released when {@link Tensor#close()}
+ * is called, rather than when the Matrix is garbage collected.  Array accessors such as
+ * {@link Matrix#getRowByRowArray()} and {@link Matrix#getColumnByColumnArray()} remain available,
+ * but return copies of the off-heap data.
+ *
+ * All Matrices returned from the creation methods of this factory are instances of DirectMatrix.
+ * FloatBufferMatrixFactory is a pure-Java implementation.
+ */
+public interface DirectMatrixFactory extends MatrixFactory {
+
+	/**
+	 * Create a new Matrix which wraps the provided direct buffer, without copying.
+	 *
+	 * The caller retains ownership of the buffer - closing the returned Matrix releases the Matrix
+	 * but does not free memory which was not allocated by this factory.
+	 *
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 * @param data A direct buffer of at least rows * columns floats, with the value for row r,
+	 * column c at position data.position() + r * columns + c.
+	 * @return A new DirectMatrix of size (rows, columns) backed by the provided buffer.
+	 */
+	DirectMatrix createMatrixFromBuffer(int rows, int columns, FloatBuffer data);
+
+	/**
+	 * @return The number of bytes of off-heap memory currently held by Matrices created
+	 * by this factory which have not yet been closed.
+	 */
+	long getAllocatedDirectBytes();
+
+	/**
+	 * Open a Matrix written by writeMatrix as a read-only DirectMatrix backed by the
+	 * memory-mapped file, without copying.  The values are paged in on demand, and are shared
+	 * through the page cache by all processes mapping the same file.
+	 *
+	 * @param path The path of the file
+	 * @return An immutable DirectMatrix backed by the mapped file
+	 * @throws IOException If the file cannot be mapped, or is not a matrix file
+	 */
+	@Override
+	default DirectMatrix mapMatrix(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.Header header = MatrixFileFormat.readHeader(channel);
+			DirectMatrix matrix = createMatrixFromBuffer(header.getRows(), header.getColumns(),
+					MatrixFileFormat.mapValues(channel, header));
+			matrix.setImmutable(true);
+			return matrix;
+		}
+	}
+
+	/**
+	 * Allocate a direct buffer in native byte order, suitable for wrapping with
+	 * {@link #createMatrixFromBuffer(int, int, FloatBuffer)}.
+	 *
+	 * @param length The number of floats in the buffer.
+	 * @return A new direct FloatBuffer of the specified length.
+	 */
+	static FloatBuffer allocateDirect(int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("Buffer length must be >= 0");
+		}
+		long bytes = (long) length * Float.BYTES;
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Buffer of " + length + " floats requires " + bytes
+					+ " bytes, which exceeds the maximum direct buffer size of " + Integer.MAX_VALUE + " bytes");
+		}
+		return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+}
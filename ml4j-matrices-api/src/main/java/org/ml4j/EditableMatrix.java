@@ -13,6 +13,10 @@
  */
 package org.ml4j;
 
+import java.util.Optional;
+
+import org.ml4j.kernels.GemmKernel;
+
 public interface EditableMatrix extends Matrix {
 
 	void putRow(int r, Matrix matrix);
@@ -38,4 +42,43 @@ public interface EditableMatrix extends Matrix {
 	EditableMatrix expi();
 	void reshape(int r, int c);
 
+	/**
+	 * @return The array in which the values of this matrix are stored, in the order given by
+	 * getLayout(), if writes to that array are visible through this matrix - so that kernels may
+	 * write results into it directly - or empty if the values are not held in such an array.
+	 */
+	default Optional<float[]> getStorageArray() {
+		return Optional.empty();
+	}
+
+	/**
+	 * @return The configuration of the MatrixFactory which created this matrix, whose ForkJoinPool
+	 * runs the parallel in-place operations of this matrix.  Implementations created by a configured
+	 * MatrixFactory override this.
+	 */
+	default MatrixFactoryConfig getConfig() {
+		return MatrixFactoryConfig.defaultConfig();
+	}
+	
+	/**
+	 * BLAS-style general matrix multiplication accumulating into this matrix:
+	 * 
+	 * this = alpha * op(a) * op(b) + beta * this
+	 * 
+	 * where op(X) is either X or the transpose of X, without a transposed copy of either operand,
+	 * run on the ForkJoinPool of getConfig().
+	 * 
+	 * @param transA Whether op(a) is the transpose of a
+	 * @param transB Whether op(b) is the transpose of b
+	 * @param alpha The scalar multiplier of the product
+	 * @param a The matrix a
+	 * @param b The matrix b
+	 * @param beta The scalar multiplier of this matrix
+	 * @return This matrix
+	 */
+	default EditableMatrix gemmi(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta) {
+		new GemmKernel(getConfig().getForkJoinPool()).gemm(transA, transB, alpha, a, b, beta, this);
+		return this;
+	}
+
 }
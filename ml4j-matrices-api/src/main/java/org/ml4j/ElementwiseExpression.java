@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ml4j.kernels.ElementwiseKernels;
+import org.ml4j.kernels.ElementwiseOperation;
+
+/**
+ * An immutable tree of element-wise operations over one or more Matrix operands, evaluated
+ * block by block in row-by-row order so that a whole chain of operations is applied in a
+ * single pass over memory.
+ */
+abstract class ElementwiseExpression implements Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of elements evaluated at a time - small enough for the intermediate
+	 * blocks of a deep expression to remain in cache.
+	 */
+	static final int BLOCK_SIZE = 1024;
+
+	enum UnaryOperation {
+		SIGMOID, LOG, EXP;
+
+		void apply(float[] values, int length) {
+			ElementwiseKernels kernels = ElementwiseKernels.getDefault();
+			switch (this) {
+				case SIGMOID:
+					kernels.sigmoid(values, 0, values, 0, length);
+					break;
+				case LOG:
+					kernels.log(values, 0, values, 0, length);
+					break;
+				default:
+					kernels.exp(values, 0, values, 0, length);
+			}
+		}
+	}
+
+	protected final int rows;
+	protected final int columns;
+
+	protected ElementwiseExpression(int rows, int columns) {
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	int getRows() {
+		return rows;
+	}
+
+	int getColumns() {
+		return columns;
+	}
+
+	int getLength() {
+		return rows * columns;
+	}
+
+	/**
+	 * Evaluate the elements of this expression at row-by-row indexes [offset, offset + length).
+	 *
+	 * @param offset The row-by-row index of the first element to evaluate.
+	 * @param length The number of elements to evaluate - at most BLOCK_SIZE.
+	 * @param output The array into which the values are written, starting at index 0.
+	 * @param evaluation The state of the current evaluation.
+	 * @param depth The depth of this expression within the tree being evaluated.
+	 */
+	abstract void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth);
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the result.
+	 * @return A new Matrix containing the values of this expression.
+	 */
+	Matrix materialise(MatrixFactory matrixFactory) {
+		int length = getLength();
+		float[] data = new float[length];
+		Evaluation evaluation = new Evaluation();
+		float[] block = evaluation.getBuffer(0);
+		for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+			int blockLength = Math.min(BLOCK_SIZE, length - offset);
+			evaluate(offset, blockLength, block, evaluation, 1);
+			System.arraycopy(block, 0, data, offset, blockLength);
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, data);
+	}
+
+	/**
+	 * @return The sum of the values of this expression, evaluated without materialising.
+	 */
+	float sum() {
+		int length = getLength();
+		Evaluation evaluation = new Evaluation();
+		float[] block = evaluation.getBuffer(0);
+		double sum = 0;
+		for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+			int blockLength = Math.min(BLOCK_SIZE, length - offset);
+			evaluate(offset, blockLength, block, evaluation, 1);
+			for (int i = 0; i < blockLength; i++) {
+				sum += block[i];
+			}
+		}
+		return (float) sum;
+	}
+
+	static ElementwiseExpression leaf(Matrix matrix) {
+		return new Leaf(matrix);
+	}
+
+	ElementwiseExpression apply(ElementwiseOperation operation, float value) {
+		return new Scalar(this, operation, value);
+	}
+
+	ElementwiseExpression apply(UnaryOperation operation) {
+		return new Unary(this, operation);
+	}
+
+	ElementwiseExpression apply(ElementwiseOperation operation, ElementwiseExpression other) {
+		if (other.rows != rows || other.columns != columns) {
+			throw new IllegalArgumentException("Matrices must have the same shape: (" + rows + ", " + columns
+					+ ") and (" + other.rows + ", " + other.columns + ")");
+		}
+		return new Binary(this, other, operation);
+	}
+
+	ElementwiseExpression applyRowVector(ElementwiseOperation operation, ElementwiseExpression rowVector) {
+		if (rowVector.rows != 1 || rowVector.columns != columns) {
+			throw new IllegalArgumentException("Row vector must have shape (1, " + columns + ") but has shape ("
+					+ rowVector.rows + ", " + rowVector.columns + ")");
+		}
+		return new Broadcast(this, rowVector, operation, true);
+	}
+
+	ElementwiseExpression applyColumnVector(ElementwiseOperation operation, ElementwiseExpression columnVector) {
+		if (columnVector.columns != 1 || columnVector.rows != rows) {
+			throw new IllegalArgumentException("Column vector must have shape (" + rows + ", 1) but has shape ("
+					+ columnVector.rows + ", " + columnVector.columns + ")");
+		}
+		return new Broadcast(this, columnVector, operation, false);
+	}
+
+	/**
+	 * Per-evaluation state - the operand arrays of leaves and the scratch blocks for each depth
+	 * of the tree, so that expressions may be shared between threads.
+	 */
+	static class Evaluation {
+
+		private final Map<Leaf, float[]> leafData;
+		private final Map<Broadcast, float[]> vectorData;
+		private final List<float[]> buffers;
+
+		Evaluation() {
+			this.leafData = new IdentityHashMap<>();
+			this.vectorData = new IdentityHashMap<>();
+			this.buffers = new ArrayList<>();
+		}
+
+		/**
+		 * @param parent An evaluation whose operand arrays are shared, but whose scratch
+		 * blocks may still be in use.
+		 */
+		Evaluation(Evaluation parent) {
+			this.leafData = parent.leafData;
+			this.vectorData = parent.vectorData;
+			this.buffers = new ArrayList<>();
+		}
+
+		float[] getLeafData(Leaf leaf) {
+			return leafData.computeIfAbsent(leaf, l -> l.matrix.getRowByRowArray());
+		}
+
+		float[] getVectorData(Broadcast broadcast) {
+			float[] values = vectorData.get(broadcast);
+			if (values == null) {
+				values = broadcast.evaluateVector(this);
+				vectorData.put(broadcast, values);
+			}
+			return values;
+		}
+
+		float[] getBuffer(int depth) {
+			while (buffers.size() <= depth) {
+				buffers.add(new float[BLOCK_SIZE]);
+			}
+			return buffers.get(depth);
+		}
+	}
+
+	private static class Leaf extends ElementwiseExpression {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Matrix matrix;
+
+		Leaf(Matrix matrix) {
+			super(matrix.getRows(), matrix.getColumns());
+			this.matrix = matrix;
+		}
+
+		@Override
+		void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth) {
+			System.arraycopy(evaluation.getLeafData(this), offset, output, 0, length);
+		}
+	}
+
+	private static class Scalar extends ElementwiseExpression {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ElementwiseExpression operand;
+		private final ElementwiseOperation operation;
+		private final float value;
+
+		Scalar(ElementwiseExpression operand, ElementwiseOperation operation, float value) {
+			super(operand.rows, operand.columns);
+			this.operand = operand;
+			this.operation = operation;
+			this.value = value;
+		}
+
+		@Override
+		void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth) {
+			operand.evaluate(offset, length, output, evaluation, depth);
+			ElementwiseKernels.getDefault().apply(operation, output, 0, value, output, 0, length);
+		}
+	}
+
+	private static class Unary extends ElementwiseExpression {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ElementwiseExpression operand;
+		private final UnaryOperation operation;
+
+		Unary(ElementwiseExpression operand, UnaryOperation operation) {
+			super(operand.rows, operand.columns);
+			this.operand = operand;
+			this.operation = operation;
+		}
+
+		@Override
+		void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth) {
+			operand.evaluate(offset, length, output, evaluation, depth);
+			operation.apply(output, length);
+		}
+	}
+
+	private static class Binary extends ElementwiseExpression {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ElementwiseExpression left;
+		private final ElementwiseExpression right;
+		private final ElementwiseOperation operation;
+
+		Binary(ElementwiseExpression left, ElementwiseExpression right, ElementwiseOperation operation) {
+			super(left.rows, left.columns);
+			this.left = left;
+			this.right = right;
+			this.operation = operation;
+		}
+
+		@Override
+		void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth) {
+			left.evaluate(offset, length, output, evaluation, depth);
+			float[] rightValues = evaluation.getBuffer(depth);
+			right.evaluate(offset, length, rightValues, evaluation, depth + 1);
+			ElementwiseKernels.getDefault().apply(operation, output, 0, rightValues, 0, output, 0, length);
+		}
+	}
+
+	private static class Broadcast extends ElementwiseExpression {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ElementwiseExpression operand;
+		private final ElementwiseExpression vector;
+		private final ElementwiseOperation operation;
+		private final boolean rowVector;
+
+		Broadcast(ElementwiseExpression operand, ElementwiseExpression vector, ElementwiseOperation operation,
+				boolean rowVector) {
+			super(operand.rows, operand.columns);
+			this.operand = operand;
+			this.vector = vector;
+			this.operation = operation;
+			this.rowVector = rowVector;
+		}
+
+		@Override
+		void evaluate(int offset, int length, float[] output, Evaluation evaluation, int depth) {
+			operand.evaluate(offset, length, output, evaluation, depth);
+			float[] vectorValues = evaluation.getVectorData(this);
+			ElementwiseKernels kernels = ElementwiseKernels.getDefault();
+			// The block may start and end part way through a row - the partial rows at either end are
+			// applied as runs, and the whole rows between them as a single broadcast
+			int i = 0;
+			int column = offset % columns;
+			if (column != 0) {
+				int run = Math.min(length, columns - column);
+				applyRun(kernels, output, i, offset / columns, column, run, vectorValues);
+				i += run;
+			}
+			int rows = (length - i) / columns;
+			if (rows > 0) {
+				if (rowVector) {
+					kernels.applyRowVector(operation, rows, columns, output, i, vectorValues, 0, output, i);
+				} else {
+					kernels.applyColumnVector(operation, rows, columns, output, i, vectorValues,
+							(offset + i) / columns, output, i);
+				}
+				i += rows * columns;
+			}
+			if (i < length) {
+				applyRun(kernels, output, i, (offset + i) / columns, 0, length - i, vectorValues);
+			}
+		}
+
+		/**
+		 * Apply the operation to a run of the block within a single row of the matrix.
+		 */
+		private void applyRun(ElementwiseKernels kernels, float[] output, int outputOffset, int row, int column,
+				int length, float[] vectorValues) {
+			if (rowVector) {
+				kernels.apply(operation, output, outputOffset, vectorValues, column, output, outputOffset, length);
+			} else {
+				kernels.apply(operation, output, outputOffset, vectorValues[row], output, outputOffset, length);
+			}
+		}
+
+		float[] evaluateVector(Evaluation parentEvaluation) {
+			Evaluation evaluation = new Evaluation(parentEvaluation);
+			int vectorLength = vector.getLength();
+			float[] vectorValues = new float[vectorLength];
+			float[] block = evaluation.getBuffer(0);
+			for (int offset = 0; offset < vectorLength; offset += BLOCK_SIZE) {
+				int blockLength = Math.min(BLOCK_SIZE, vectorLength - offset);
+				vector.evaluate(offset, blockLength, block, evaluation, 1);
+				System.arraycopy(block, 0, vectorValues, offset, blockLength);
+			}
+			return vectorValues;
+		}
+	}
+}
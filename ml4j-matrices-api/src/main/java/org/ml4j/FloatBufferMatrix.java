@@ -0,0 +1,407 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.FloatBuffer;
+
+import org.ml4j.kernels.ElementwiseOperation;
+
+/**
+ * A DirectMatrix whose values are held row by row in a FloatBuffer, created by a
+ * FloatBufferMatrixFactory.
+ *
+ * Element access and the in-place operations read and write the buffer directly; operations whose
+ * result is a new Matrix are computed on a heap copy of the values and their results created by the
+ * factory, so are themselves FloatBufferMatrices.  Closing the matrix drops its reference to the
+ * buffer, so that the off-heap memory may be reclaimed, and - for a buffer allocated by the factory
+ * - deducts its size from the bytes allocated by the factory.
+ */
+public class FloatBufferMatrix extends AbstractArrayMatrix implements DirectMatrix, EditableMatrix,
+		InterrimMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final FloatBufferMatrixFactory directMatrixFactory;
+	private int rows;
+	private int columns;
+	private transient FloatBuffer buffer;
+	private boolean allocated;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The factory creating this matrix, and the results of its operations.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param buffer The buffer holding the values row by row from its current position, which is
+	 * shared rather than copied.
+	 * @param allocated Whether the buffer was allocated by the factory, and counted in its allocated
+	 * direct bytes.
+	 */
+	FloatBufferMatrix(FloatBufferMatrixFactory matrixFactory, int rows, int columns, FloatBuffer buffer,
+			boolean allocated) {
+		super(matrixFactory);
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix shape: (" + rows + ", " + columns + ")");
+		}
+		if (buffer.remaining() < (long) rows * columns) {
+			throw new IllegalArgumentException("Buffer must contain at least " + (long) rows * columns
+					+ " values but contains " + buffer.remaining());
+		}
+		this.directMatrixFactory = matrixFactory;
+		this.rows = rows;
+		this.columns = columns;
+		this.buffer = buffer.slice();
+		this.allocated = allocated;
+	}
+
+	private synchronized FloatBuffer getOpenBuffer() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+		return buffer;
+	}
+
+	private FloatBuffer getWritableBuffer() {
+		if (isImmutable()) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+		return getOpenBuffer();
+	}
+
+	private void checkIndex(int r, int c) {
+		if (r < 0 || r >= rows || c < 0 || c >= columns) {
+			throw new IndexOutOfBoundsException("(" + r + ", " + c + ") is outside a matrix of shape (" + rows + ", "
+					+ columns + ")");
+		}
+	}
+
+	private EditableMatrix modify(FloatModifier modifier) {
+		FloatBuffer values = getWritableBuffer();
+		for (int i = 0; i < getLength(); i++) {
+			values.put(i, modifier.acceptAndModify(values.get(i)));
+		}
+		return this;
+	}
+
+	private EditableMatrix modify(ElementwiseOperation operation, Matrix other) {
+		if (other.getRows() != rows || other.getColumns() != columns) {
+			throw new IllegalArgumentException("A matrix of shape (" + other.getRows() + ", " + other.getColumns()
+					+ ") does not match the shape (" + rows + ", " + columns + ")");
+		}
+		FloatBuffer values = getWritableBuffer();
+		float[] operand = other.getRowByRowArray();
+		for (int i = 0; i < operand.length; i++) {
+			values.put(i, operation.apply(values.get(i), operand[i]));
+		}
+		return this;
+	}
+
+	private EditableMatrix modifyRowVector(ElementwiseOperation operation, Matrix rowVector) {
+		if (rowVector.getLength() != columns) {
+			throw new IllegalArgumentException("Row vector must have " + columns + " elements but has "
+					+ rowVector.getLength());
+		}
+		FloatBuffer values = getWritableBuffer();
+		float[] operand = rowVector.getRowByRowArray();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				values.put(r * columns + c, operation.apply(values.get(r * columns + c), operand[c]));
+			}
+		}
+		return this;
+	}
+
+	private EditableMatrix modifyColumnVector(ElementwiseOperation operation, Matrix columnVector) {
+		if (columnVector.getLength() != rows) {
+			throw new IllegalArgumentException("Column vector must have " + rows + " elements but has "
+					+ columnVector.getLength());
+		}
+		FloatBuffer values = getWritableBuffer();
+		float[] operand = columnVector.getRowByRowArray();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				values.put(r * columns + c, operation.apply(values.get(r * columns + c), operand[r]));
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public FloatBuffer getBuffer() {
+		return getOpenBuffer().asReadOnlyBuffer();
+	}
+
+	@Override
+	public long getDirectByteSize() {
+		return (long) getLength() * Float.BYTES;
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return matrixFactory.getConfig();
+	}
+
+	@Override
+	public float get(int r, int c) {
+		checkIndex(r, c);
+		return getOpenBuffer().get(r * columns + c);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		float[] data = new float[getLength()];
+		FloatBuffer values = getOpenBuffer().duplicate();
+		values.position(0);
+		values.get(data);
+		return data;
+	}
+
+	@Override
+	public Matrix softDup() {
+		getOpenBuffer();
+		FloatBufferMatrix softDup = new FloatBufferMatrix(directMatrixFactory, rows, columns, buffer, false);
+		softDup.setImmutable(isImmutable());
+		return softDup;
+	}
+
+	@Override
+	public Matrix dup() {
+		if (isImmutable()) {
+			return matrixFactory.createCopyOnWriteMatrix(this);
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, getRowByRowArray());
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return isImmutable() ? matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, getRowByRowArray())
+				.asEditableMatrix() : this;
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		getOpenBuffer();
+		return this;
+	}
+
+	@Override
+	public void put(int r, int c, float v) {
+		checkIndex(r, c);
+		getWritableBuffer().put(r * columns + c, v);
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public void put(int i, float v) {
+		if (i < 0 || i >= getLength()) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + getLength());
+		}
+		getWritableBuffer().put(i, v);
+	}
+
+	@Override
+	public void putRow(int r, Matrix matrix) {
+		if (matrix.getLength() != columns) {
+			throw new IllegalArgumentException("Row must have " + columns + " elements but has " + matrix.getLength());
+		}
+		checkIndex(r, 0);
+		FloatBuffer values = getWritableBuffer().duplicate();
+		values.position(r * columns);
+		values.put(matrix.getRowByRowArray());
+	}
+
+	@Override
+	public void putColumn(int c, Matrix matrix) {
+		if (matrix.getLength() != rows) {
+			throw new IllegalArgumentException("Column must have " + rows + " elements but has " + matrix.getLength());
+		}
+		checkIndex(0, c);
+		FloatBuffer values = getWritableBuffer();
+		float[] column = matrix.getRowByRowArray();
+		for (int r = 0; r < rows; r++) {
+			values.put(r * columns + c, column[r]);
+		}
+	}
+
+	@Override
+	public EditableMatrix subi(float v) {
+		return modify(value -> value - v);
+	}
+
+	@Override
+	public EditableMatrix divi(float v) {
+		return modify(value -> value / v);
+	}
+
+	@Override
+	public EditableMatrix addi(float v) {
+		return modify(value -> value + v);
+	}
+
+	@Override
+	public EditableMatrix muli(float v) {
+		return modify(value -> value * v);
+	}
+
+	@Override
+	public EditableMatrix expi() {
+		return modify(value -> (float) Math.exp(value));
+	}
+
+	@Override
+	public Matrix logi() {
+		return modify(value -> (float) Math.log(value));
+	}
+
+	@Override
+	public EditableMatrix subiColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public EditableMatrix subiRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public EditableMatrix diviColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix diviRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix addiRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix addiColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix muliColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix muliRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix muli(Matrix other) {
+		return modify(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix addi(Matrix other) {
+		return modify(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix divi(Matrix other) {
+		return modify(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix subi(Matrix other) {
+		return modify(ElementwiseOperation.SUB, other);
+	}
+
+	/**
+	 * Reshape this matrix without copying, keeping its values in row-by-row order.
+	 */
+	@Override
+	public synchronized void reshape(int r, int c) {
+		getOpenBuffer();
+		if (r < 0 || c < 0 || (long) r * c != getLength()) {
+			throw new IllegalArgumentException("A matrix of shape (" + rows + ", " + columns
+					+ ") cannot be reshaped to (" + r + ", " + c + ")");
+		}
+		rows = r;
+		columns = c;
+	}
+
+	/**
+	 * Release the buffer of this matrix - the memory of a buffer allocated by the factory is
+	 * reclaimed once no other matrix shares it.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			buffer = null;
+			if (allocated) {
+				directMatrixFactory.release(getDirectByteSize());
+			}
+		}
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable;
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(closed ? null : getRowByRowArray());
+	}
+
+	/**
+	 * Read the values into a new direct buffer, counted in the bytes allocated by the factory.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		float[] data = (float[]) in.readObject();
+		if (data != null) {
+			buffer = directMatrixFactory.allocate(data.length);
+			buffer.put(data).flip();
+			allocated = true;
+		}
+	}
+}
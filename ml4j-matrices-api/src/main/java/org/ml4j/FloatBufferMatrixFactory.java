@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pure-Java DirectMatrixFactory, creating FloatBufferMatrices whose values are held in direct
+ * FloatBuffers allocated with {@link DirectMatrixFactory#allocateDirect(int)}.
+ *
+ * The bytes of the buffers allocated by this factory are counted by getAllocatedDirectBytes()
+ * until the matrices holding them are closed.  The JVM frees the memory of a direct buffer only
+ * once the buffer is garbage collected, so closing a matrix drops its reference to the buffer
+ * rather than freeing the memory immediately.
+ */
+public class FloatBufferMatrixFactory implements DirectMatrixFactory {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactoryConfig config;
+	private final AtomicLong allocatedDirectBytes;
+
+	/**
+	 * Create a FloatBufferMatrixFactory with the default MatrixFactoryConfig.
+	 */
+	public FloatBufferMatrixFactory() {
+		this(MatrixFactoryConfig.defaultConfig());
+	}
+
+	/**
+	 * @param config The MatrixFactoryConfig of this factory.
+	 */
+	public FloatBufferMatrixFactory(MatrixFactoryConfig config) {
+		if (config == null) {
+			throw new IllegalArgumentException("Config cannot be null");
+		}
+		this.config = config;
+		this.allocatedDirectBytes = new AtomicLong();
+	}
+
+	/**
+	 * @return A new direct buffer of the provided length, counted in the allocated direct bytes.
+	 */
+	FloatBuffer allocate(int length) {
+		FloatBuffer buffer = DirectMatrixFactory.allocateDirect(length);
+		allocatedDirectBytes.addAndGet((long) length * Float.BYTES);
+		return buffer;
+	}
+
+	/**
+	 * Deduct the bytes of a closed matrix from the allocated direct bytes.
+	 */
+	void release(long bytes) {
+		allocatedDirectBytes.addAndGet(-bytes);
+	}
+
+	private static int getLength(int rows, int columns) {
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix shape: (" + rows + ", " + columns + ")");
+		}
+		long length = (long) rows * columns;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Matrix of size (" + rows + ", " + columns + ") has " + length
+					+ " values, which exceeds the maximum buffer length");
+		}
+		return (int) length;
+	}
+
+	private FloatBufferMatrix create(int rows, int columns, float[] rowByRowData) {
+		int length = getLength(rows, columns);
+		if (rowByRowData != null && rowByRowData.length != length) {
+			throw new IllegalArgumentException("Data must contain " + length + " elements but contains "
+					+ rowByRowData.length);
+		}
+		FloatBuffer buffer = allocate(length);
+		if (rowByRowData != null) {
+			buffer.put(rowByRowData).flip();
+		}
+		return new FloatBufferMatrix(this, rows, columns, buffer, true);
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return config;
+	}
+
+	@Override
+	public MatrixFactory withConfig(MatrixFactoryConfig config) {
+		return config.equals(this.config) ? this : new FloatBufferMatrixFactory(config);
+	}
+
+	@Override
+	public DirectMatrix createMatrixFromBuffer(int rows, int columns, FloatBuffer data) {
+		if (!data.isDirect()) {
+			throw new IllegalArgumentException("A direct buffer is required");
+		}
+		return new FloatBufferMatrix(this, rows, columns, data, false);
+	}
+
+	@Override
+	public long getAllocatedDirectBytes() {
+		return allocatedDirectBytes.get();
+	}
+
+	@Override
+	public Matrix createOnes(int rows, int columns) {
+		FloatBufferMatrix matrix = create(rows, columns, null);
+		matrix.addi(1f);
+		return matrix;
+	}
+
+	@Override
+	public Matrix createOnes(int rows) {
+		return createOnes(rows, 1);
+	}
+
+	@Override
+	public Matrix createZeros(int rows, int columns) {
+		// Direct buffers are allocated zeroed
+		return create(rows, columns, null);
+	}
+
+	@Override
+	public Matrix createRandn(int rows, int columns) {
+		return createRandn(rows, columns, ThreadLocalRandom.current().nextLong());
+	}
+
+	@Override
+	public Matrix createRand(int rows, int columns) {
+		return createRand(rows, columns, ThreadLocalRandom.current().nextLong());
+	}
+
+	@Override
+	public Matrix createMatrixFromRows(float[][] data) {
+		int rows = data.length;
+		int columns = rows == 0 ? 0 : data[0].length;
+		float[] rowByRowData = new float[getLength(rows, columns)];
+		for (int r = 0; r < rows; r++) {
+			if (data[r].length != columns) {
+				throw new IllegalArgumentException("Row " + r + " has " + data[r].length + " values but row 0 has "
+						+ columns);
+			}
+			System.arraycopy(data[r], 0, rowByRowData, r * columns, columns);
+		}
+		return create(rows, columns, rowByRowData);
+	}
+
+	@Override
+	public Matrix createMatrix(int rows, int cols) {
+		return create(rows, cols, null);
+	}
+
+	@Override
+	public Matrix createMatrixFromColumnsByColumnsArray(int rows, int cols, float[] data) {
+		if (data.length != getLength(rows, cols)) {
+			throw new IllegalArgumentException("Data must contain " + getLength(rows, cols) + " elements but contains "
+					+ data.length);
+		}
+		float[] rowByRowData = new float[data.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				rowByRowData[r * cols + c] = data[c * rows + r];
+			}
+		}
+		return create(rows, cols, rowByRowData);
+	}
+
+	@Override
+	public Matrix createMatrixFromRowsByRowsArray(int rows, int cols, float[] data) {
+		return create(rows, cols, data);
+	}
+
+	@Override
+	public Matrix createMatrix() {
+		return create(0, 0, null);
+	}
+
+	/**
+	 * @return A new column vector containing the data.
+	 */
+	@Override
+	public Matrix createMatrix(float[] data) {
+		return create(data.length, 1, data);
+	}
+
+	@Override
+	public Matrix createHorizontalConcatenation(Matrix matrix1, Matrix matrix2) {
+		if (matrix1.getRows() != matrix2.getRows()) {
+			throw new IllegalArgumentException("A matrix of " + matrix2.getRows()
+					+ " rows cannot be concatenated with a matrix of " + matrix1.getRows() + " rows");
+		}
+		int rows = matrix1.getRows();
+		int columns1 = matrix1.getColumns();
+		int columns2 = matrix2.getColumns();
+		float[] data1 = matrix1.getRowByRowArray();
+		float[] data2 = matrix2.getRowByRowArray();
+		float[] data = new float[getLength(rows, columns1 + columns2)];
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(data1, r * columns1, data, r * (columns1 + columns2), columns1);
+			System.arraycopy(data2, r * columns2, data, r * (columns1 + columns2) + columns1, columns2);
+		}
+		return create(rows, columns1 + columns2, data);
+	}
+
+	@Override
+	public Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2) {
+		if (matrix1.getColumns() != matrix2.getColumns()) {
+			throw new IllegalArgumentException("A matrix of " + matrix2.getColumns()
+					+ " columns cannot be concatenated with a matrix of " + matrix1.getColumns() + " columns");
+		}
+		float[] data1 = matrix1.getRowByRowArray();
+		float[] data2 = matrix2.getRowByRowArray();
+		float[] data = new float[getLength(matrix1.getRows() + matrix2.getRows(), matrix1.getColumns())];
+		System.arraycopy(data1, 0, data, 0, data1.length);
+		System.arraycopy(data2, 0, data, data1.length, data2.length);
+		return create(matrix1.getRows() + matrix2.getRows(), matrix1.getColumns(), data);
+	}
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import org.ml4j.ElementwiseExpression.UnaryOperation;
+import org.ml4j.kernels.ElementwiseOperation;
+
+/**
+ * A Matrix whose element-wise operations are deferred.
+ *
+ * Element-wise operations (scalar and matrix add, sub, mul and div, the row and column vector
+ * broadcast variants, sigmoid and log) return a new LazyMatrix which records the operation
+ * in an expression tree rather than allocating a result.  The expression is evaluated in a single
+ * fused pass over memory when the values are first required - by any other operation on this
+ * Matrix, such as get, mmul or asEditableMatrix - and the result is retained for subsequent
+ * operations.
+ *
+ * The operands of a LazyMatrix must not be modified or closed until it has been materialised.
+ *
+ * Obtain a LazyMatrix using {@link MatrixFactory#createLazyMatrix(Matrix)}.
+ */
+public class LazyMatrix implements Matrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory matrixFactory;
+	private ElementwiseExpression expression;
+	private Matrix materialised;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create materialised matrices.
+	 * @param matrix The initial operand of this LazyMatrix.
+	 */
+	public LazyMatrix(MatrixFactory matrixFactory, Matrix matrix) {
+		this(matrixFactory, expressionOf(matrix));
+	}
+
+	private LazyMatrix(MatrixFactory matrixFactory, ElementwiseExpression expression) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		this.matrixFactory = matrixFactory;
+		this.expression = expression;
+	}
+
+	/**
+	 * @return Whether the values of this LazyMatrix have been evaluated.
+	 */
+	public synchronized boolean isMaterialised() {
+		return materialised != null;
+	}
+
+	/**
+	 * Evaluate this LazyMatrix, if it has not already been evaluated.
+	 *
+	 * @return The Matrix containing the values of this LazyMatrix.
+	 */
+	public synchronized Matrix materialise() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+		if (materialised == null) {
+			materialised = expression.materialise(matrixFactory);
+			if (immutable) {
+				materialised.setImmutable(true);
+			}
+			expression = null;
+		}
+		return materialised;
+	}
+
+	private static ElementwiseExpression expressionOf(Matrix matrix) {
+		if (matrix instanceof LazyMatrix) {
+			LazyMatrix lazyMatrix = (LazyMatrix) matrix;
+			synchronized (lazyMatrix) {
+				if (lazyMatrix.materialised == null) {
+					return lazyMatrix.expression;
+				}
+				return ElementwiseExpression.leaf(lazyMatrix.materialised);
+			}
+		}
+		return ElementwiseExpression.leaf(matrix);
+	}
+
+	private static Matrix materialised(Matrix matrix) {
+		return matrix instanceof LazyMatrix ? ((LazyMatrix) matrix).materialise() : matrix;
+	}
+
+	private synchronized ElementwiseExpression getExpression() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+		return materialised == null ? expression : ElementwiseExpression.leaf(materialised);
+	}
+
+	private Matrix defer(ElementwiseExpression result) {
+		return new LazyMatrix(matrixFactory, result);
+	}
+
+	// Deferred element-wise operations
+
+	@Override
+	public Matrix mul(float v) {
+		return defer(getExpression().apply(ElementwiseOperation.MUL, v));
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return defer(getExpression().apply(ElementwiseOperation.ADD, v));
+	}
+
+	@Override
+	public Matrix div(float v) {
+		return defer(getExpression().apply(ElementwiseOperation.DIV, v));
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return defer(getExpression().apply(ElementwiseOperation.SUB, v));
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return defer(getExpression().apply(ElementwiseOperation.DIV, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return defer(getExpression().apply(ElementwiseOperation.SUB, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix mul(Matrix other) {
+		return defer(getExpression().apply(ElementwiseOperation.MUL, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix add(Matrix other) {
+		return defer(getExpression().apply(ElementwiseOperation.ADD, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		return defer(getExpression().applyColumnVector(ElementwiseOperation.MUL, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		return defer(getExpression().applyRowVector(ElementwiseOperation.MUL, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return defer(getExpression().applyColumnVector(ElementwiseOperation.ADD, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return defer(getExpression().applyRowVector(ElementwiseOperation.ADD, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return defer(getExpression().applyColumnVector(ElementwiseOperation.DIV, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return defer(getExpression().applyRowVector(ElementwiseOperation.DIV, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return defer(getExpression().applyColumnVector(ElementwiseOperation.SUB, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return defer(getExpression().applyRowVector(ElementwiseOperation.SUB, expressionOf(other)));
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		return defer(getExpression().apply(UnaryOperation.SIGMOID));
+	}
+
+	@Override
+	public Matrix log() {
+		return defer(getExpression().apply(UnaryOperation.LOG));
+	}
+
+	@Override
+	public synchronized Matrix logi() {
+		if (immutable) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+		if (materialised == null) {
+			expression = getExpression().apply(UnaryOperation.LOG);
+		} else {
+			materialised.logi();
+		}
+		return this;
+	}
+
+	/**
+	 * @return The sum of the element values, evaluated in a single pass without materialising
+	 * this LazyMatrix.
+	 */
+	@Override
+	public float sum() {
+		return getExpression().sum();
+	}
+
+	@Override
+	public synchronized Matrix dup() {
+		return materialised == null ? new LazyMatrix(matrixFactory, getExpression()) : materialised.dup();
+	}
+
+	// Shape - available without materialising
+
+	@Override
+	public int getLength() {
+		return getRows() * getColumns();
+	}
+
+	@Override
+	public synchronized int getRows() {
+		return materialised == null ? getExpression().getRows() : materialised.getRows();
+	}
+
+	@Override
+	public synchronized int getColumns() {
+		return materialised == null ? getExpression().getColumns() : materialised.getColumns();
+	}
+
+	// Lifecycle
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			if (materialised != null) {
+				materialised.close();
+			}
+			materialised = null;
+			expression = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable;
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+		if (materialised != null) {
+			materialised.setImmutable(immutable);
+		}
+	}
+
+	// Operations requiring the values of this Matrix
+
+	@Override
+	public int argmax() {
+		return materialise().argmax();
+	}
+
+	@Override
+	public float get(int i) {
+		return materialise().get(i);
+	}
+
+	@Override
+	public float get(int r, int c) {
+		return materialise().get(r, c);
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return materialise().asEditableMatrix();
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return materialise().asInterrimMatrix();
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		return materialise().getRowByRowArray();
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return materialise().getColumnByColumnArray();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		return materialise().toColumnByColumnArray();
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		return materialise().getColumn(columnIndex);
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		return materialise().getRow(rowIndex);
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		return materialise().appendVertically(materialised(other));
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		return materialise().appendHorizontally(materialised(other));
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		return materialise().get(rows, columns);
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		return materialise().getColumns(columns);
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		return materialise().getRows(rows);
+	}
+
+	@Override
+	public Matrix transpose() {
+		return materialise().transpose();
+	}
+
+	@Override
+	public Matrix columnSums() {
+		return materialise().columnSums();
+	}
+
+	@Override
+	public Matrix rowSums() {
+		return materialise().rowSums();
+	}
+
+	@Override
+	public int[] columnArgmaxs() {
+		return materialise().columnArgmaxs();
+	}
+
+	@Override
+	public Matrix mmul(Matrix other) {
+		return materialise().mmul(materialised(other));
+	}
+
+	@Override
+	public Matrix softDup() {
+		return materialise().softDup();
+	}
+}
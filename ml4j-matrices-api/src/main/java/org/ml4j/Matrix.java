@@ -44,6 +44,11 @@ public interface Matrix extends Tensor<Matrix, EditableMatrix, InterrimMatrix>,
 
 	Matrix mmul(Matrix other);
 	
+	/**
+	 * @return A new handle to the values of this matrix which does not copy them - writes through
+	 * either are visible through the other, as for a MatrixView of the whole matrix - and which may
+	 * be closed without closing this matrix.  Use dup for an independent copy.
+	 */
 	Matrix softDup();
 
 	float get(int r, int c);
@@ -51,6 +56,23 @@ public interface Matrix extends Tensor<Matrix, EditableMatrix, InterrimMatrix>,
 	Matrix getColumns(int[] columns);
 	Matrix getRows(int[] rows);
 
+	/**
+	 * @return The order in which the values of this matrix are stored - so that
+	 * getLayout().getArray(this) returns the values without a re-layout, and kernels may operate
+	 * on them in that order.  Implementations storing values column by column override this.
+	 */
+	default MatrixLayout getLayout() {
+		return MatrixLayout.ROW_MAJOR;
+	}
+
+	/**
+	 * @return This matrix as a two-dimensional StridedTensor over its values in their stored layout,
+	 * which may be reshaped, permuted and sliced as views.
+	 */
+	default StridedTensor asTensor() {
+		return StridedTensor.of(this);
+	}
+
 	
 	
 	
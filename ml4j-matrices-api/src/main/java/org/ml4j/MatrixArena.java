@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * A scope for the InterrimMatrix instances created during a single unit of work, such as one
+ * forward or backward propagation.
+ *
+ * All InterrimMatrix instances handed out by an arena are released together when the arena
+ * is closed - callers should not close them individually, and must not use them once the
+ * arena has been closed.
+ *
+ * Arenas are not thread-safe, and are intended to be used by a single thread.
+ */
+public interface MatrixArena extends AutoCloseable {
+
+	/**
+	 * Obtain an uninitialised InterrimMatrix for the provided shape, valid until this
+	 * arena is closed.
+	 *
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 * @return An InterrimMatrix of size (rows, columns) whose element values are undefined.
+	 */
+	InterrimMatrix createInterrimMatrix(int rows, int columns);
+
+	/**
+	 * Release all the InterrimMatrix instances handed out by this arena.
+	 */
+	@Override
+	void close();
+}
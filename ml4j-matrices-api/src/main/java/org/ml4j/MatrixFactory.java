@@ -16,7 +16,20 @@
 
 package org.ml4j;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ml4j.kernels.ConvolutionAlgorithm;
+import org.ml4j.kernels.ConvolutionGeometry;
+import org.ml4j.kernels.ConvolutionKernel;
+import org.ml4j.kernels.GemmKernel;
+import org.ml4j.kernels.RandomKernel;
+import org.ml4j.kernels.SoftmaxKernel;
 
 /**
  * A Matrix factory.
@@ -71,6 +84,62 @@ public interface MatrixFactory extends Serializable {
    *         distributed random number
    */
   Matrix createRand(int rows, int columns);
+
+  /**
+   * Create a new Matrix with every element value set to a normally distributed random number,
+   * generated reproducibly from a seed.
+   * 
+   * The default implementation generates the values in parallel using the RandomKernel on the
+   * parallelism configured by getConfig(), so that the values are identical for a given seed
+   * whatever the parallelism.
+   * 
+   * @param rows The number of rows of this Matrix
+   * @param columns The number of columns of this Matrix
+   * @param seed The seed
+   * @return A new Matrix of size (rows, columns) with every element value set to a normally
+   *         distributed random number
+   */
+  default Matrix createRandn(int rows, int columns, long seed) {
+    if (rows < 0 || columns < 0) {
+      throw new IllegalArgumentException("Rows and columns must be >= 0");
+    }
+    long length = (long) rows * columns;
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Matrix of size (" + rows + ", " + columns + ") has " + length
+          + " values, which exceeds the maximum array length");
+    }
+    float[] values = new float[(int) length];
+    new RandomKernel(getConfig().getForkJoinPool()).fillGaussian(values, seed);
+    return createMatrixFromRowsByRowsArray(rows, columns, values);
+  }
+
+  /**
+   * Create a new Matrix with every element value set to a uniformly distributed random number in
+   * [0, 1), generated reproducibly from a seed.
+   * 
+   * The default implementation generates the values in parallel using the RandomKernel on the
+   * parallelism configured by getConfig(), so that the values are identical for a given seed
+   * whatever the parallelism.
+   * 
+   * @param rows The number of rows of this Matrix
+   * @param columns The number of columns of this Matrix
+   * @param seed The seed
+   * @return A new Matrix of size (rows, columns) with every element value set to a uniformly
+   *         distributed random number
+   */
+  default Matrix createRand(int rows, int columns, long seed) {
+    if (rows < 0 || columns < 0) {
+      throw new IllegalArgumentException("Rows and columns must be >= 0");
+    }
+    long length = (long) rows * columns;
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Matrix of size (" + rows + ", " + columns + ") has " + length
+          + " values, which exceeds the maximum array length");
+    }
+    float[] values = new float[(int) length];
+    new RandomKernel(getConfig().getForkJoinPool()).fillUniform(values, seed);
+    return createMatrixFromRowsByRowsArray(rows, columns, values);
+  }
   
   /**
    * Create a new Matrix from the provided double array
@@ -140,4 +209,421 @@ public interface MatrixFactory extends Serializable {
    * @return The vertical concatenation
    */
   Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2);
+  
+  /**
+   * Create a new MatrixPool which serves MatrixArenas of InterrimMatrix instances created by this factory.
+   * 
+   * @return A new MatrixPool backed by this factory
+   */
+  default MatrixPool createMatrixPool() {
+    return new MatrixPool(this);
+  }
+  
+  /**
+   * Create a new LazyMatrix, whose element-wise operations are deferred and evaluated in a single
+   * fused pass when the result is required.
+   * 
+   * @param matrix The initial operand of the LazyMatrix
+   * @return A new LazyMatrix with the same values as the provided Matrix
+   */
+  default Matrix createLazyMatrix(Matrix matrix) {
+    return new LazyMatrix(this, matrix);
+  }
+  
+  /**
+   * Obtain the transpose of a matrix without copying or re-laying out its values, by tagging its
+   * values with the transposed layout.  Transposing the result returns the original matrix.
+   * 
+   * @param matrix The matrix
+   * @return A TransposedMatrix, or the wrapped matrix if the matrix is itself a TransposedMatrix
+   */
+  default Matrix createTransposedMatrix(Matrix matrix) {
+    return matrix instanceof TransposedMatrix ? matrix.transpose() : new TransposedMatrix(this, matrix);
+  }
+  
+  /**
+   * Create a zero-copy view of a window of a matrix, sharing its storage.  Writes to the view
+   * are written through to the matrix where the matrix is an EditableMatrix.
+   * 
+   * @param matrix The matrix
+   * @param firstRow The first row of the window
+   * @param firstColumn The first column of the window
+   * @param rows The number of rows of the window
+   * @param columns The number of columns of the window
+   * @return A MatrixView of the window
+   */
+  default MatrixView createMatrixView(Matrix matrix, int firstRow, int firstColumn, int rows, int columns) {
+    return createMatrixView(matrix, firstRow, firstColumn, rows, columns, 1, 1);
+  }
+  
+  /**
+   * Create a zero-copy view of a strided window of a matrix, sharing its storage, with element
+   * (r, c) of the view being element (firstRow + r * rowStride, firstColumn + c * columnStride) of
+   * the matrix.
+   * 
+   * @param matrix The matrix
+   * @param firstRow The first row of the window
+   * @param firstColumn The first column of the window
+   * @param rows The number of rows of the window
+   * @param columns The number of columns of the window
+   * @param rowStride The distance between the rows of the matrix in the window
+   * @param columnStride The distance between the columns of the matrix in the window
+   * @return A MatrixView of the window
+   */
+  default MatrixView createMatrixView(Matrix matrix, int firstRow, int firstColumn, int rows, int columns, 
+      int rowStride, int columnStride) {
+    return new MatrixView(this, matrix, firstRow, firstColumn, rows, columns, rowStride, columnStride);
+  }
+  
+  /**
+   * Create a zero-copy view of a contiguous range of the rows of a matrix - for example a 
+   * mini-batch of a dataset held in a single matrix - in O(1).
+   * 
+   * @param matrix The matrix
+   * @param fromRow The first row of the range, inclusive
+   * @param toRow The last row of the range, exclusive
+   * @return A MatrixView of the rows
+   */
+  default MatrixView createRowRangeView(Matrix matrix, int fromRow, int toRow) {
+    return createMatrixView(matrix, fromRow, 0, toRow - fromRow, matrix.getColumns());
+  }
+  
+  /**
+   * Create a zero-copy view of a contiguous range of the columns of a matrix - for example a 
+   * mini-batch of a dataset held in a single matrix with an example per column - in O(1).
+   * 
+   * @param matrix The matrix
+   * @param fromColumn The first column of the range, inclusive
+   * @param toColumn The last column of the range, exclusive
+   * @return A MatrixView of the columns
+   */
+  default MatrixView createColumnRangeView(Matrix matrix, int fromColumn, int toColumn) {
+    return createMatrixView(matrix, 0, fromColumn, matrix.getRows(), toColumn - fromColumn);
+  }
+  
+  /**
+   * Create a copy-on-write handle to an immutable matrix, which shares the values of the matrix
+   * until the handle is first written to - for implementations of dup for immutable matrices, and
+   * for callers duplicating a matrix which is rarely modified.
+   * 
+   * @param matrix The immutable matrix
+   * @return The CopyOnWriteMatrix
+   */
+  default CopyOnWriteMatrix createCopyOnWriteMatrix(Matrix matrix) {
+    return new CopyOnWriteMatrix(this, matrix);
+  }
+  
+  /**
+   * @return The MatrixFactoryConfig which configures the compute behaviour of this factory
+   */
+  default MatrixFactoryConfig getConfig() {
+    return MatrixFactoryConfig.defaultConfig();
+  }
+  
+  /**
+   * Obtain a MatrixFactory with the same behaviour as this factory, but configured with the
+   * provided MatrixFactoryConfig.
+   * 
+   * The default implementation returns a ConfiguredMatrixFactory delegating the creation of
+   * matrices to this factory, so that the default compute methods, which read getConfig(), use the
+   * provided config.  Factories whose own methods read their config override this.
+   * 
+   * @param config The MatrixFactoryConfig
+   * @return A MatrixFactory configured with the provided config
+   */
+  default MatrixFactory withConfig(MatrixFactoryConfig config) {
+    if (config == null) {
+      throw new IllegalArgumentException("Config cannot be null");
+    }
+    if (config.equals(getConfig())) {
+      return this;
+    }
+    return new ConfiguredMatrixFactory(this, config);
+  }
+  
+  /**
+   * BLAS-style general matrix multiplication into an existing destination matrix:
+   * 
+   * c = alpha * op(a) * op(b) + beta * c
+   * 
+   * where op(X) is either X or the transpose of X.  Transposition is applied while reading the
+   * operands, so unlike mmul this requires neither a transposed copy of an operand nor the
+   * allocation of a result - eg. for backpropagation through, and accumulation of weight
+   * gradients for, FullyConnectedAxons.
+   * 
+   * The default implementation uses the pure-Java GemmKernel on the parallelism configured by
+   * getConfig().
+   * 
+   * @param transA Whether op(a) is the transpose of a
+   * @param transB Whether op(b) is the transpose of b
+   * @param alpha The scalar multiplier of the product
+   * @param a The matrix a
+   * @param b The matrix b
+   * @param beta The scalar multiplier of c - if zero, the initial values of c are ignored
+   * @param c The destination matrix, which is updated with the result
+   * @return The destination matrix
+   */
+  default EditableMatrix gemm(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta,
+      EditableMatrix c) {
+    new GemmKernel(getConfig().getForkJoinPool()).gemm(transA, transB, alpha, a, b, beta, c);
+    return c;
+  }
+  
+  /**
+   * Multiply each matrix of a batch by the corresponding matrix of a second batch - for example
+   * the per-group multiplications of a grouped or depthwise convolution - as a single parallel
+   * computation, rather than as a sequence of small multiplications each too small to be run in
+   * parallel.
+   * 
+   * The default implementation uses the pure-Java GemmKernel on the parallelism configured by
+   * getConfig(); implementations backed by a native library may override this to use a batched
+   * BLAS routine.
+   * 
+   * @param a The left operands
+   * @param b The right operands, which must be as many as the left operands
+   * @return The products a[i] * b[i]
+   */
+  default List<Matrix> batchMmul(List<? extends Matrix> a, List<? extends Matrix> b) {
+    List<float[]> products = new GemmKernel(getConfig().getForkJoinPool()).batchMmul(a, b);
+    List<Matrix> results = new ArrayList<>(products.size());
+    for (int i = 0; i < products.size(); i++) {
+      results.add(createMatrixFromRowsByRowsArray(a.get(i).getRows(), b.get(i).getColumns(),
+          products.get(i)));
+    }
+    return results;
+  }
+  
+  /**
+   * Compute the convolution of a batch of inputs with a bank of filters by the given algorithm -
+   * for example for the forward propagation of ConvolutionalAxons without the im2col matrix of
+   * filterHeight x filterWidth times the size of the inputs, for algorithms other than IM2COL.
+   * 
+   * The default implementation uses the pure-Java ConvolutionKernel on the parallelism configured
+   * by getConfig().
+   * 
+   * @param algorithm The algorithm, which must support the geometry
+   * @param geometry The dimensions of the convolution
+   * @param input The inputs, with a row per input feature - ordered by channel, then row, then
+   *        column - and a column per example
+   * @param weights The filters, with a row per filter and a column per filter weight, ordered as
+   *        the rows of an im2col matrix
+   * @return The outputs, with a row per output feature and a column per example
+   */
+  default Matrix convolve(ConvolutionAlgorithm algorithm, ConvolutionGeometry geometry, Matrix input,
+      Matrix weights) {
+    float[] values = new ConvolutionKernel(getConfig().getForkJoinPool()).convolve(algorithm, geometry, input,
+        weights);
+    return createMatrixFromRowsByRowsArray(geometry.getOutputFeatures(), input.getColumns(), values);
+  }
+  
+  /**
+   * Compute the gradient of a cost with respect to the inputs of a convolution, given its gradient
+   * with respect to the outputs - as the im2colConvImport of the product of the transposed weights
+   * and the output gradient does, but without materialising the product.
+   * 
+   * The default implementation uses the pure-Java ConvolutionKernel on the parallelism configured
+   * by getConfig().
+   * 
+   * @param geometry The dimensions of the convolution
+   * @param outputGradient The gradient with respect to the outputs, with a row per output feature
+   *        and a column per example
+   * @param weights The filters, with a row per filter and a column per filter weight
+   * @return The gradient with respect to the inputs, with a row per input feature and a column per
+   *         example
+   */
+  default Matrix convolutionInputGradient(ConvolutionGeometry geometry, Matrix outputGradient, Matrix weights) {
+    float[] values = new ConvolutionKernel(getConfig().getForkJoinPool()).inputGradient(geometry,
+        outputGradient, weights);
+    return createMatrixFromRowsByRowsArray(geometry.getInputFeatures(), outputGradient.getColumns(), values);
+  }
+
+  /**
+   * Compute the gradient of a cost with respect to the weights of a convolution, given its gradient
+   * with respect to the outputs - the product of the output gradient and the transposed im2col
+   * matrix of the inputs - without materialising the im2col matrix.
+   * 
+   * The default implementation uses the pure-Java ConvolutionKernel on the parallelism configured
+   * by getConfig().
+   * 
+   * @param geometry The dimensions of the convolution
+   * @param input The inputs, with a row per input feature and a column per example
+   * @param outputGradient The gradient with respect to the outputs, with a row per output feature
+   *        and a column per example
+   * @return The gradient with respect to the weights, with a row per filter and a column per
+   *         filter weight
+   */
+  default Matrix convolutionWeightGradient(ConvolutionGeometry geometry, Matrix input, Matrix outputGradient) {
+    float[] values = new ConvolutionKernel(getConfig().getForkJoinPool()).weightGradient(geometry, input,
+        outputGradient);
+    return createMatrixFromRowsByRowsArray(geometry.getOutputDepth(), geometry.getFilterFeatures(), values);
+  }
+  
+  /**
+   * Compute the softmax of each column of a matrix - exp(x) / the sum of exp(x) over the column -
+   * as a single fused, numerically stable kernel, for output layers whose columns hold the
+   * activations of each example.
+   * 
+   * The default implementation uses the pure-Java SoftmaxKernel on the parallelism configured by
+   * getConfig().  The column-wise softmax of the transpose of a matrix created by
+   * createTransposedMatrix is the row-wise softmax of the matrix.
+   * 
+   * @param matrix The matrix
+   * @return The column-wise softmax, in the layout of the matrix
+   */
+  default Matrix columnSoftmax(Matrix matrix) {
+    float[] values = new SoftmaxKernel(getConfig().getForkJoinPool()).columnSoftmax(matrix);
+    return createMatrixInLayout(matrix, values);
+  }
+
+  /**
+   * Compute the log-softmax of each column of a matrix - x less the log of the sum of exp(x) over
+   * the column - as a single fused, numerically stable kernel.
+   * 
+   * @param matrix The matrix
+   * @return The column-wise log-softmax, in the layout of the matrix
+   */
+  default Matrix columnLogSoftmax(Matrix matrix) {
+    float[] values = new SoftmaxKernel(getConfig().getForkJoinPool()).columnLogSoftmax(matrix);
+    return createMatrixInLayout(matrix, values);
+  }
+
+  /**
+   * Compute the total cross-entropy cost of the column-wise softmax of a matrix of
+   * pre-activations given desired probabilities, without materialising the softmax.
+   * 
+   * @param matrix The pre-activations
+   * @param desired The desired probabilities, of the same shape as the pre-activations
+   * @return The total cost over all columns
+   */
+  default float columnSoftmaxCrossEntropy(Matrix matrix, Matrix desired) {
+    return new SoftmaxKernel(getConfig().getForkJoinPool()).columnSoftmaxCrossEntropy(matrix, desired);
+  }
+
+  /**
+   * Compute the gradient of the cross-entropy cost of the column-wise softmax of a matrix of
+   * pre-activations with respect to the pre-activations - the softmax less the desired
+   * probabilities - as a single fused kernel.
+   * 
+   * @param matrix The pre-activations
+   * @param desired The desired probabilities, of the same shape as the pre-activations
+   * @return The gradient, in the layout of the pre-activations
+   */
+  default Matrix columnSoftmaxCrossEntropyGradient(Matrix matrix, Matrix desired) {
+    float[] values = new SoftmaxKernel(getConfig().getForkJoinPool())
+        .columnSoftmaxCrossEntropyGradient(matrix, desired);
+    return createMatrixInLayout(matrix, values);
+  }
+
+  /**
+   * Create a matrix of the shape of an existing matrix from values in the layout of the existing
+   * matrix.
+   * 
+   * @param matrix The existing matrix
+   * @param values The values, in the layout of the existing matrix
+   * @return The matrix
+   */
+  default Matrix createMatrixInLayout(Matrix matrix, float[] values) {
+    return matrix.getLayout() == MatrixLayout.COLUMN_MAJOR
+        ? createMatrixFromColumnsByColumnsArray(matrix.getRows(), matrix.getColumns(), values)
+        : createMatrixFromRowsByRowsArray(matrix.getRows(), matrix.getColumns(), values);
+  }
+
+  /**
+   * Create a SparseMatrix from compressed sparse row or column arrays.
+   * 
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @param values The non-zero values
+   * @param indices The column (CSR) or row (CSC) index of each value
+   * @param pointers The index of the first value of each row (CSR) or column (CSC), followed by
+   *        the number of values
+   * @param format The format of the arrays
+   * @return The SparseMatrix
+   */
+  default SparseMatrix createSparseMatrix(int rows, int columns, float[] values, int[] indices, 
+      int[] pointers, SparseMatrixFormat format) {
+    return new CompressedSparseMatrix(this, rows, columns, values, indices, pointers, format);
+  }
+  
+  /**
+   * Create a SparseMatrix containing the non-zero values of a dense row-by-row array.
+   * 
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @param data The values of the matrix in row-by-row order
+   * @param format The format of the SparseMatrix
+   * @return The SparseMatrix
+   */
+  default SparseMatrix createSparseMatrixFromRowsByRowsArray(int rows, int columns, float[] data, 
+      SparseMatrixFormat format) {
+    return CompressedSparseMatrix.compress(this, rows, columns, data, format);
+  }
+  
+  /**
+   * Create a Matrix for long-lived storage of the values of the given matrix - such as
+   * activations retained for backpropagation, or inference-only weights - in the storage
+   * precision of getConfig().
+   * 
+   * For reduced storage precisions, values are rounded to the storage precision and widened to
+   * float32 when read, so are round-tripped through getRowByRowArray().  For FLOAT32 storage
+   * precision the given matrix is returned.
+   * 
+   * @param matrix The matrix whose values are to be stored
+   * @return A Matrix containing the values of the given matrix in the storage precision
+   */
+  default Matrix createStorageMatrix(Matrix matrix) {
+    MatrixStoragePrecision precision = getConfig().getStoragePrecision();
+    if (!precision.isReduced() || (matrix instanceof ReducedPrecisionMatrix 
+        && ((ReducedPrecisionMatrix) matrix).getPrecision() == precision)) {
+      return matrix;
+    }
+    return new ReducedPrecisionMatrix(this, precision, matrix.getRows(), matrix.getColumns(), 
+        matrix.getRowByRowArray());
+  }
+  
+  /**
+   * Write a Matrix to a file in the format defined by MatrixFileFormat - a header followed by
+   * the raw float values - which can be opened without deserialisation by readMatrix or
+   * mapMatrix.
+   * 
+   * @param matrix The matrix to write
+   * @param path The path of the file, which is replaced if it exists
+   * @throws IOException If the file cannot be written
+   */
+  default void writeMatrix(Matrix matrix, Path path) throws IOException {
+    MatrixFileFormat.write(matrix, path);
+  }
+  
+  /**
+   * Read a Matrix written by writeMatrix into a new Matrix created by this factory.
+   * 
+   * @param path The path of the file
+   * @return A new Matrix containing the values of the file
+   * @throws IOException If the file cannot be read, or is not a matrix file
+   */
+  default Matrix readMatrix(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MatrixFileFormat.Header header = MatrixFileFormat.readHeader(channel);
+      return createMatrixFromRowsByRowsArray(header.getRows(), header.getColumns(), 
+          MatrixFileFormat.readValues(channel, header));
+    }
+  }
+  
+  /**
+   * Open a Matrix written by writeMatrix as a read-only Matrix backed by the memory-mapped file,
+   * without copying, where supported by this factory - so that the values are paged in on
+   * demand, and shared through the page cache by all processes mapping the same file.
+   * 
+   * The default implementation cannot wrap a buffer, so reads the file as readMatrix does.  
+   * DirectMatrixFactory implementations map the file.
+   * 
+   * @param path The path of the file
+   * @return An immutable Matrix containing the values of the file
+   * @throws IOException If the file cannot be read, or is not a matrix file
+   */
+  default Matrix mapMatrix(Path path) throws IOException {
+    Matrix matrix = readMatrix(path);
+    matrix.setImmutable(true);
+    return matrix;
+  }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+
+/**
+ * Configuration for the compute behaviour of a MatrixFactory, and of the Matrices it creates.
+ *
+ * Configurations with the same parallelism share a single ForkJoinPool of daemon threads, created
+ * on first use and kept for the lifetime of the JVM, so that copying, reconfiguring or deserializing
+ * configurations never creates further pools which would need to be shut down.
+ */
+public class MatrixFactoryConfig implements Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private static final ConcurrentMap<Integer, ForkJoinPool> SHARED_POOLS = new ConcurrentHashMap<>();
+
+	private volatile Integer parallelism;
+	private MatrixStoragePrecision storagePrecision;
+	private transient ResourceTracker leakTracker;
+
+	/**
+	 * Create a MatrixFactoryConfig with default settings.
+	 */
+	public MatrixFactoryConfig() {
+		this.storagePrecision = MatrixStoragePrecision.FLOAT32;
+	}
+
+	/**
+	 * @return A new MatrixFactoryConfig with default settings.
+	 */
+	public static MatrixFactoryConfig defaultConfig() {
+		return new MatrixFactoryConfig();
+	}
+
+	/**
+	 * @return The number of threads used by parallel matrix operations.
+	 */
+	public int getParallelism() {
+		return parallelism == null ? ForkJoinPool.getCommonPoolParallelism() : parallelism;
+	}
+
+	/**
+	 * @param parallelism The number of threads to be used by parallel matrix operations.  If not
+	 * set, parallel operations are run on the common ForkJoinPool.
+	 * @return This MatrixFactoryConfig
+	 */
+	public MatrixFactoryConfig withParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be >= 1");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @return The ForkJoinPool on which parallel matrix operations are run - the common pool if no
+	 * parallelism is set, and otherwise the pool shared by all configurations of this parallelism.
+	 */
+	public ForkJoinPool getForkJoinPool() {
+		Integer configuredParallelism = parallelism;
+		if (configuredParallelism == null) {
+			return ForkJoinPool.commonPool();
+		}
+		return SHARED_POOLS.computeIfAbsent(configuredParallelism, MatrixFactoryConfig::createPool);
+	}
+
+	private static ForkJoinPool createPool(int parallelism) {
+		return new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("ml4j-matrices-" + parallelism + "-worker-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
+	}
+
+	/**
+	 * @return The precision in which the values of matrices created for storage are held.
+	 */
+	public MatrixStoragePrecision getStoragePrecision() {
+		return storagePrecision;
+	}
+
+	/**
+	 * @param storagePrecision The precision in which the values of matrices created for storage,
+	 * such as activations retained for backpropagation or inference-only weights, are held.
+	 * Computation is always performed in float32.
+	 * @return This MatrixFactoryConfig
+	 */
+	public MatrixFactoryConfig withStoragePrecision(MatrixStoragePrecision storagePrecision) {
+		if (storagePrecision == null) {
+			throw new IllegalArgumentException("Storage precision cannot be null");
+		}
+		this.storagePrecision = storagePrecision;
+		return this;
+	}
+
+	/**
+	 * @return The ResourceTracker with which closeable resources created using this configuration
+	 * are tracked, if leak tracking is enabled.
+	 */
+	public Optional<ResourceTracker> getLeakTracker() {
+		return Optional.ofNullable(leakTracker);
+	}
+
+	/**
+	 * @param leakTracker The ResourceTracker with which closeable resources created using this
+	 * configuration, such as InterrimMatrix and NeuronsActivation instances, are to be tracked - or
+	 * null to disable leak tracking.  The ResourceTracker is not serialized.
+	 * @return This MatrixFactoryConfig
+	 */
+	public MatrixFactoryConfig withLeakTracker(ResourceTracker leakTracker) {
+		this.leakTracker = leakTracker;
+		return this;
+	}
+
+	/**
+	 * @return A copy of this MatrixFactoryConfig.
+	 */
+	public MatrixFactoryConfig dup() {
+		MatrixFactoryConfig config = new MatrixFactoryConfig();
+		config.parallelism = parallelism;
+		config.storagePrecision = storagePrecision;
+		config.leakTracker = leakTracker;
+		return config;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		MatrixFactoryConfig other = (MatrixFactoryConfig) obj;
+		return Objects.equals(parallelism, other.parallelism) && storagePrecision == other.storagePrecision
+				&& leakTracker == other.leakTracker;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(parallelism, storagePrecision, leakTracker);
+	}
+}
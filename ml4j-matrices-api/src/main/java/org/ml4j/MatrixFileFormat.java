@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A simple file format for persisting a Matrix, which may be memory-mapped without copying.
+ *
+ * A file consists of a header of four little-endian 32 bit integers - the magic number
+ * 0x4D4C344A ("ML4J"), the format version, the number of rows and the number of columns - followed
+ * by the values of the matrix in row-by-row order as little-endian 32 bit floats.
+ */
+public final class MatrixFileFormat {
+
+	/**
+	 * The magic number identifying a matrix file.
+	 */
+	public static final int MAGIC = 0x4D4C344A;
+
+	/**
+	 * The version of the format written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The length of the header in bytes - a multiple of 4 so that the values are aligned.
+	 */
+	public static final int HEADER_BYTES = 16;
+
+	/**
+	 * The byte order of the header and the values.
+	 */
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * The number of values copied through the write buffer at a time.
+	 */
+	private static final int WRITE_BUFFER_FLOATS = 1 << 14;
+
+	private MatrixFileFormat() {
+	}
+
+	/**
+	 * The header of a matrix file.
+	 */
+	public static class Header {
+
+		private final int rows;
+		private final int columns;
+
+		Header(int rows, int columns) {
+			this.rows = rows;
+			this.columns = columns;
+		}
+
+		/**
+		 * @return The number of rows.
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return The number of columns.
+		 */
+		public int getColumns() {
+			return columns;
+		}
+
+		/**
+		 * @return The number of values, which is validated by readHeader to fit in an int.
+		 */
+		public int getLength() {
+			return rows * columns;
+		}
+
+		/**
+		 * @return The number of bytes of values following the header.
+		 */
+		public long getValueBytes() {
+			return (long) rows * columns * Float.BYTES;
+		}
+	}
+
+	/**
+	 * Write a Matrix to a file, replacing any existing file.
+	 *
+	 * @param matrix The Matrix.
+	 * @param path The path of the file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void write(Matrix matrix, Path path) throws IOException {
+		float[] values = matrix.getRowByRowArray();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(BYTE_ORDER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(matrix.getRows()).putInt(matrix.getColumns());
+			header.flip();
+			writeFully(channel, header);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_FLOATS * Float.BYTES).order(BYTE_ORDER);
+			FloatBuffer floats = buffer.asFloatBuffer();
+			for (int offset = 0; offset < values.length; offset += WRITE_BUFFER_FLOATS) {
+				int length = Math.min(WRITE_BUFFER_FLOATS, values.length - offset);
+				floats.clear();
+				floats.put(values, offset, length);
+				buffer.clear().limit(Math.multiplyExact(length, Float.BYTES));
+				writeFully(channel, buffer);
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Read and validate the header of a matrix file.
+	 *
+	 * @param channel A channel to the file.
+	 * @return The header.
+	 * @throws IOException If the header cannot be read, or the file is not a valid matrix file.
+	 */
+	public static Header readHeader(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(BYTE_ORDER);
+		readFully(channel, buffer, 0);
+		buffer.flip();
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a matrix file");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported matrix file version:" + version);
+		}
+		Header header = new Header(buffer.getInt(), buffer.getInt());
+		if (header.getRows() < 0 || header.getColumns() < 0) {
+			throw new IOException("Invalid matrix shape: (" + header.getRows() + ", " + header.getColumns() + ")");
+		}
+		try {
+			Math.multiplyExact(header.getRows(), header.getColumns());
+		} catch (ArithmeticException e) {
+			throw new IOException("Matrix of shape (" + header.getRows() + ", " + header.getColumns()
+					+ ") has more than " + Integer.MAX_VALUE + " values");
+		}
+		checkSize(channel, header);
+		return header;
+	}
+
+	private static void checkSize(FileChannel channel, Header header) throws IOException {
+		if (channel.size() < HEADER_BYTES + header.getValueBytes()) {
+			throw new IOException("Matrix file of " + channel.size() + " bytes is truncated - a header and "
+					+ header.getValueBytes() + " bytes of values are required");
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of matrix file");
+			}
+		}
+	}
+
+	/**
+	 * Read the values of a matrix file into a row-by-row array.
+	 *
+	 * @param channel A channel to the file.
+	 * @param header The header of the file.
+	 * @return The values.
+	 * @throws IOException If the values cannot be read.
+	 */
+	public static float[] readValues(FileChannel channel, Header header) throws IOException {
+		checkSize(channel, header);
+		float[] values = new float[header.getLength()];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_FLOATS * Float.BYTES).order(BYTE_ORDER);
+		for (int offset = 0; offset < values.length; offset += WRITE_BUFFER_FLOATS) {
+			int length = Math.min(WRITE_BUFFER_FLOATS, values.length - offset);
+			buffer.clear().limit(Math.multiplyExact(length, Float.BYTES));
+			readFully(channel, buffer, HEADER_BYTES + (long) offset * Float.BYTES);
+			buffer.flip();
+			buffer.asFloatBuffer().get(values, offset, length);
+		}
+		return values;
+	}
+
+	/**
+	 * Memory-map the values of a matrix file read-only, without copying.
+	 *
+	 * The mapping remains valid after the channel is closed.  As a single mapping is limited to
+	 * Integer.MAX_VALUE bytes, so is the size of the values of a mapped matrix.
+	 *
+	 * @param channel A channel to the file, opened for reading.
+	 * @param header The header of the file.
+	 * @return A read-only FloatBuffer of the values in row-by-row order.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	public static FloatBuffer mapValues(FileChannel channel, Header header) throws IOException {
+		if (header.getValueBytes() > Integer.MAX_VALUE) {
+			throw new IOException("Matrix of " + header.getValueBytes() + " bytes is too large to be mapped");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, header.getValueBytes()).order(BYTE_ORDER)
+				.asFloatBuffer();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * The order in which the values of a Matrix are stored.
+ */
+public enum MatrixLayout {
+
+	/**
+	 * The values are stored row by row, with the value for row r, column c at index
+	 * r * columns + c.
+	 */
+	ROW_MAJOR,
+
+	/**
+	 * The values are stored column by column, with the value for row r, column c at index
+	 * c * rows + r.
+	 */
+	COLUMN_MAJOR;
+
+	/**
+	 * @return The layout in which the values of a matrix stored in this layout represent its
+	 * transpose.
+	 */
+	public MatrixLayout transpose() {
+		return this == ROW_MAJOR ? COLUMN_MAJOR : ROW_MAJOR;
+	}
+
+	/**
+	 * @param r The row.
+	 * @param c The column.
+	 * @param rows The number of rows of the matrix.
+	 * @param columns The number of columns of the matrix.
+	 * @return The index of the value for row r, column c in this layout.
+	 */
+	public int index(int r, int c, int rows, int columns) {
+		return this == ROW_MAJOR ? r * columns + c : c * rows + r;
+	}
+
+	/**
+	 * @param rows The number of rows of the matrix.
+	 * @param columns The number of columns of the matrix.
+	 * @return The distance between the starts of consecutive rows (for ROW_MAJOR) or columns (for
+	 * COLUMN_MAJOR) in this layout.
+	 */
+	public int getLeadingDimension(int rows, int columns) {
+		return this == ROW_MAJOR ? columns : rows;
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @return The values of the matrix in this layout - without a re-layout where this is the
+	 * layout of the matrix.
+	 */
+	public float[] getArray(Matrix matrix) {
+		return this == ROW_MAJOR ? matrix.getRowByRowArray() : matrix.getColumnByColumnArray();
+	}
+}
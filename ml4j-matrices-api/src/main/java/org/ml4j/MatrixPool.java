@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of InterrimMatrix instances, keyed by shape, from which MatrixArenas are served.
+ *
+ * When an arena is closed, the matrices it handed out are returned to this pool and are reused
+ * by subsequent arenas requesting the same shape - so that repeated forward and backward
+ * propagations over mini-batches of the same size allocate almost nothing once warmed up.
+ *
+ * The pool is thread-safe, and may be shared by arenas opened on different threads.
+ */
+public class MatrixPool {
+
+	private final MatrixFactory matrixFactory;
+	private final long maxPooledBytes;
+	private final Map<Long, Deque<InterrimMatrix>> pooledMatrices;
+	private final AtomicLong pooledBytes;
+	private final AtomicLong bytesAllocated;
+	private final AtomicLong bytesReused;
+
+	/**
+	 * Create a new unbounded MatrixPool.
+	 *
+	 * @param matrixFactory The MatrixFactory used to allocate new matrices.
+	 */
+	public MatrixPool(MatrixFactory matrixFactory) {
+		this(matrixFactory, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create a new MatrixPool.
+	 *
+	 * @param matrixFactory The MatrixFactory used to allocate new matrices.
+	 * @param maxPooledBytes The maximum number of bytes held by idle matrices in this pool - matrices
+	 * returned to the pool beyond this limit are closed.
+	 */
+	public MatrixPool(MatrixFactory matrixFactory, long maxPooledBytes) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (maxPooledBytes < 0) {
+			throw new IllegalArgumentException("Max pooled bytes must be >= 0");
+		}
+		this.matrixFactory = matrixFactory;
+		this.maxPooledBytes = maxPooledBytes;
+		this.pooledMatrices = new ConcurrentHashMap<>();
+		this.pooledBytes = new AtomicLong();
+		this.bytesAllocated = new AtomicLong();
+		this.bytesReused = new AtomicLong();
+	}
+
+	/**
+	 * @return A new MatrixArena served from this pool.
+	 */
+	public MatrixArena openArena() {
+		return new PooledMatrixArena();
+	}
+
+	/**
+	 * @return The total number of bytes of matrices newly allocated by this pool.
+	 */
+	public long getBytesAllocated() {
+		return bytesAllocated.get();
+	}
+
+	/**
+	 * @return The total number of bytes of matrices handed out by this pool that were
+	 * reused rather than newly allocated.
+	 */
+	public long getBytesReused() {
+		return bytesReused.get();
+	}
+
+	/**
+	 * @return The number of bytes currently held by idle matrices in this pool.
+	 */
+	public long getPooledBytes() {
+		return pooledBytes.get();
+	}
+
+	/**
+	 * Close and discard all idle matrices held by this pool.
+	 */
+	public void clear() {
+		for (Deque<InterrimMatrix> matrices : pooledMatrices.values()) {
+			InterrimMatrix matrix = matrices.pollFirst();
+			while (matrix != null) {
+				pooledBytes.addAndGet(-getByteSize(matrix.getRows(), matrix.getColumns()));
+				matrix.close();
+				matrix = matrices.pollFirst();
+			}
+		}
+	}
+
+	private InterrimMatrix acquire(int rows, int columns) {
+		long byteSize = getByteSize(rows, columns);
+		Deque<InterrimMatrix> matrices = pooledMatrices.get(getKey(rows, columns));
+		InterrimMatrix matrix = matrices == null ? null : matrices.pollFirst();
+		while (matrix != null) {
+			pooledBytes.addAndGet(-byteSize);
+			if (!matrix.isClosed()) {
+				bytesReused.addAndGet(byteSize);
+				return matrix;
+			}
+			matrix = matrices.pollFirst();
+		}
+		bytesAllocated.addAndGet(byteSize);
+		return matrixFactory.createMatrix(rows, columns).asInterrimMatrix();
+	}
+
+	private void release(InterrimMatrix matrix) {
+		if (matrix.isClosed()) {
+			return;
+		}
+		long byteSize = getByteSize(matrix.getRows(), matrix.getColumns());
+		if (pooledBytes.addAndGet(byteSize) > maxPooledBytes) {
+			pooledBytes.addAndGet(-byteSize);
+			matrix.close();
+		} else {
+			if (matrix.isImmutable()) {
+				matrix.setImmutable(false);
+			}
+			pooledMatrices.computeIfAbsent(getKey(matrix.getRows(), matrix.getColumns()),
+					k -> new ConcurrentLinkedDeque<>()).addFirst(matrix);
+		}
+	}
+
+	private static long getKey(int rows, int columns) {
+		return ((long) rows << 32) | (columns & 0xffffffffL);
+	}
+
+	private static long getByteSize(int rows, int columns) {
+		return (long) rows * columns * Float.BYTES;
+	}
+
+	private class PooledMatrixArena implements MatrixArena {
+
+		private final List<InterrimMatrix> handedOut = new ArrayList<>();
+		private boolean closed;
+
+		@Override
+		public InterrimMatrix createInterrimMatrix(int rows, int columns) {
+			if (closed) {
+				throw new IllegalStateException("Arena has been closed");
+			}
+			InterrimMatrix matrix = acquire(rows, columns);
+			handedOut.add(matrix);
+			return matrix;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				handedOut.forEach(MatrixPool.this::release);
+				handedOut.clear();
+			}
+		}
+	}
+}
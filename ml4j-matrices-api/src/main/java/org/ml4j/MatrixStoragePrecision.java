@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * The precision in which the values of stored matrices are held.
+ *
+ * Reduced precision values are widened to float32 for computation, so only storage and memory
+ * bandwidth are reduced - values are rounded to the nearest representable value, with ties
+ * rounded to even, when stored.
+ */
+public enum MatrixStoragePrecision {
+
+	/**
+	 * IEEE 754 single precision - values are stored unchanged.
+	 */
+	FLOAT32,
+
+	/**
+	 * bfloat16 - the sign, the 8 exponent bits and the 7 most significant mantissa bits of a
+	 * float32, so preserving its range with reduced precision.
+	 */
+	BFLOAT16,
+
+	/**
+	 * IEEE 754 half precision - 5 exponent bits and 10 mantissa bits, so with greater precision
+	 * than bfloat16 but a range of approximately +/- 65504.
+	 */
+	FLOAT16;
+
+	/**
+	 * @return The number of bytes used to store each value.
+	 */
+	public int getBytesPerElement() {
+		return this == FLOAT32 ? 4 : 2;
+	}
+
+	/**
+	 * @return Whether values are stored with fewer than 32 bits.
+	 */
+	public boolean isReduced() {
+		return this != FLOAT32;
+	}
+
+	/**
+	 * @param value The float32 value.
+	 * @return The 16 bit representation of the value.
+	 */
+	public short encode(float value) {
+		switch (this) {
+			case BFLOAT16:
+				return floatToBfloat16(value);
+			case FLOAT16:
+				return floatToFloat16(value);
+			default:
+				throw new IllegalStateException("FLOAT32 values are not stored as 16 bits");
+		}
+	}
+
+	/**
+	 * @param bits The 16 bit representation of a value.
+	 * @return The float32 value.
+	 */
+	public float decode(short bits) {
+		switch (this) {
+			case BFLOAT16:
+				return bfloat16ToFloat(bits);
+			case FLOAT16:
+				return float16ToFloat(bits);
+			default:
+				throw new IllegalStateException("FLOAT32 values are not stored as 16 bits");
+		}
+	}
+
+	/**
+	 * @param value The float32 value.
+	 * @return The value rounded to this precision, as a float32.
+	 */
+	public float round(float value) {
+		return isReduced() ? decode(encode(value)) : value;
+	}
+
+	/**
+	 * Encode a range of float32 values.
+	 *
+	 * @param source The float32 values.
+	 * @param sourceOffset The index of the first value to encode.
+	 * @param destination The array to which the 16 bit values are written.
+	 * @param destinationOffset The index of the first 16 bit value to write.
+	 * @param length The number of values.
+	 */
+	public void encode(float[] source, int sourceOffset, short[] destination, int destinationOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			destination[destinationOffset + i] = encode(source[sourceOffset + i]);
+		}
+	}
+
+	/**
+	 * Decode a range of 16 bit values.
+	 *
+	 * @param source The 16 bit values.
+	 * @param sourceOffset The index of the first value to decode.
+	 * @param destination The array to which the float32 values are written.
+	 * @param destinationOffset The index of the first float32 value to write.
+	 * @param length The number of values.
+	 */
+	public void decode(short[] source, int sourceOffset, float[] destination, int destinationOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			destination[destinationOffset + i] = decode(source[sourceOffset + i]);
+		}
+	}
+
+	private static short floatToBfloat16(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		if ((bits & 0x7FFFFFFF) > 0x7F800000) {
+			// Preserve NaN, ensuring the truncated mantissa is non-zero
+			return (short) ((bits >>> 16) | 0x40);
+		}
+		return (short) ((bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16);
+	}
+
+	private static float bfloat16ToFloat(short bits) {
+		return Float.intBitsToFloat((bits & 0xFFFF) << 16);
+	}
+
+	private static short floatToFloat16(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xFF;
+		int mantissa = bits & 0x7FFFFF;
+		if (exponent == 0xFF) {
+			return (short) (sign | 0x7C00 | (mantissa == 0 ? 0 : 0x200 | (mantissa >>> 13)));
+		}
+		int halfExponent = exponent - 127 + 15;
+		if (halfExponent >= 0x1F) {
+			return (short) (sign | 0x7C00);
+		}
+		if (halfExponent > 0) {
+			// A carry out of the mantissa when rounding correctly increments the exponent
+			return (short) (sign | roundShifted((halfExponent << 23) | mantissa, 13));
+		}
+		// Subnormal in half precision - the implicit leading bit becomes explicit
+		int shift = 14 - halfExponent;
+		if (shift > 24) {
+			return (short) sign;
+		}
+		return (short) (sign | roundShifted(mantissa | 0x800000, shift));
+	}
+
+	/**
+	 * @return value >>> shift, rounded to nearest with ties to even.
+	 */
+	private static int roundShifted(int value, int shift) {
+		int result = value >>> shift;
+		int remainder = value & ((1 << shift) - 1);
+		int half = 1 << (shift - 1);
+		if (remainder > half || (remainder == half && (result & 1) != 0)) {
+			result++;
+		}
+		return result;
+	}
+
+	private static float float16ToFloat(short bits) {
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x3FF;
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+		if (exponent == 0) {
+			float magnitude = mantissa * 0x1p-24f;
+			return sign == 0 ? magnitude : -magnitude;
+		}
+		return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+	}
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.nio.FloatBuffer;
+
+import org.ml4j.kernels.ElementwiseOperation;
+
+/**
+ * A zero-copy view of a strided window of a parent Matrix - a range of rows or columns, a
+ * sub-matrix, or every n-th row or column - sharing the storage of the parent.
+ *
+ * Element (r, c) of a view is element (firstRow + r * rowStride, firstColumn + c * columnStride)
+ * of the parent, so creating a view, or a view of a view, costs O(1) regardless of its size.  Where
+ * the parent is an EditableMatrix, writes to the view - through put, putRow, putColumn and the
+ * in-place operations - are written through to the parent, so that the outputs of several
+ * operations may be written directly into windows of one preallocated result.  Views of a
+ * DirectMatrix read the values directly from its buffer.
+ *
+ * Operations whose result is a new Matrix are computed on the values of the view, read into a float
+ * array, and only the result is created using the MatrixFactory.  The in-place operations read and
+ * write the values of the view directly.  Closing a view does not close the parent, which must
+ * remain open for as long as the view is in use.
+ *
+ * Obtain a MatrixView using {@link MatrixFactory#createMatrixView(Matrix, int, int, int, int)} or
+ * the related methods of MatrixFactory.
+ */
+public class MatrixView extends AbstractArrayMatrix implements EditableMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private Matrix parent;
+	private int firstRow;
+	private int firstColumn;
+	private int rows;
+	private int columns;
+	private int rowStride;
+	private int columnStride;
+	private transient FloatBuffer parentBuffer;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the results of operations.
+	 * @param matrix The parent Matrix.  If the parent is itself a MatrixView, this view is created
+	 * directly over the parent of that view.
+	 * @param firstRow The row of the parent corresponding to the first row of this view.
+	 * @param firstColumn The column of the parent corresponding to the first column of this view.
+	 * @param rows The number of rows of this view.
+	 * @param columns The number of columns of this view.
+	 * @param rowStride The distance between the rows of the parent corresponding to consecutive
+	 * rows of this view.
+	 * @param columnStride The distance between the columns of the parent corresponding to
+	 * consecutive columns of this view.
+	 */
+	public MatrixView(MatrixFactory matrixFactory, Matrix matrix, int firstRow, int firstColumn, int rows,
+			int columns, int rowStride, int columnStride) {
+		super(matrixFactory);
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid view shape: (" + rows + ", " + columns + ")");
+		}
+		if (rowStride < 1 || columnStride < 1) {
+			throw new IllegalArgumentException("Strides must be >= 1");
+		}
+		checkRange(firstRow, rows, rowStride, matrix.getRows(), "Rows");
+		checkRange(firstColumn, columns, columnStride, matrix.getColumns(), "Columns");
+		this.rows = rows;
+		this.columns = columns;
+		if (matrix instanceof MatrixView) {
+			MatrixView view = (MatrixView) matrix;
+			this.parent = view.parent;
+			this.firstRow = view.firstRow + firstRow * view.rowStride;
+			this.firstColumn = view.firstColumn + firstColumn * view.columnStride;
+			this.rowStride = rowStride * view.rowStride;
+			this.columnStride = columnStride * view.columnStride;
+		} else {
+			this.parent = matrix;
+			this.firstRow = firstRow;
+			this.firstColumn = firstColumn;
+			this.rowStride = rowStride;
+			this.columnStride = columnStride;
+		}
+	}
+
+	private static void checkRange(int first, int count, int stride, int parentCount, String name) {
+		if (first < 0 || (count > 0 && (long) first + (long) (count - 1) * stride >= parentCount)) {
+			throw new IndexOutOfBoundsException(name + " of the view are outside the " + parentCount + " "
+					+ name.toLowerCase() + " of the matrix");
+		}
+	}
+
+	/**
+	 * @return The Matrix whose storage is shared by this view.
+	 */
+	public Matrix getParent() {
+		return parent;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= getLength()) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + getLength());
+		}
+	}
+
+	private void checkIndex(int r, int c) {
+		if (r < 0 || r >= rows || c < 0 || c >= columns) {
+			throw new IndexOutOfBoundsException("(" + r + ", " + c + ") is outside a matrix of shape (" + rows + ", "
+					+ columns + ")");
+		}
+	}
+
+	private EditableMatrix getEditableParent() {
+		checkOpen();
+		if (isImmutable()) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+		if (!(parent instanceof EditableMatrix)) {
+			throw new IllegalStateException("Matrix is a view of a matrix which is not editable");
+		}
+		return (EditableMatrix) parent;
+	}
+
+	private FloatBuffer getParentBuffer() {
+		if (parentBuffer == null && parent instanceof DirectMatrix) {
+			parentBuffer = ((DirectMatrix) parent).getBuffer();
+		}
+		return parentBuffer;
+	}
+
+	private float getValue(int r, int c) {
+		int parentRow = firstRow + r * rowStride;
+		int parentColumn = firstColumn + c * columnStride;
+		FloatBuffer buffer = getParentBuffer();
+		return buffer == null ? parent.get(parentRow, parentColumn)
+				: buffer.get(parentRow * parent.getColumns() + parentColumn);
+	}
+
+	/**
+	 * @return A new Matrix created by the MatrixFactory containing the values of this view, owned by
+	 * the caller.
+	 */
+	private Matrix copy() {
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, getRowByRowArray());
+	}
+
+	/**
+	 * Write the values of a matrix of the same shape into this view.
+	 */
+	private EditableMatrix assign(Matrix values) {
+		EditableMatrix editableParent = getEditableParent();
+		float[] data = values.getRowByRowArray();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				editableParent.put(firstRow + r * rowStride, firstColumn + c * columnStride, data[r * columns + c]);
+			}
+		}
+		return this;
+	}
+
+	private EditableMatrix modify(FloatModifier modifier) {
+		EditableMatrix editableParent = getEditableParent();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				editableParent.put(firstRow + r * rowStride, firstColumn + c * columnStride,
+						modifier.acceptAndModify(getValue(r, c)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Combine each value of this view with a value of the operand, writing the result in place.
+	 *
+	 * @param operation The operation to apply.
+	 * @param operand The operand values - value (r, c) of this view is combined with the value at
+	 * index r * rowStep + c * columnStep.
+	 */
+	private EditableMatrix modify(ElementwiseOperation operation, float[] operand, int rowStep, int columnStep) {
+		EditableMatrix editableParent = getEditableParent();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				editableParent.put(firstRow + r * rowStride, firstColumn + c * columnStride,
+						operation.apply(getValue(r, c), operand[r * rowStep + c * columnStep]));
+			}
+		}
+		return this;
+	}
+
+	private EditableMatrix modify(ElementwiseOperation operation, Matrix other) {
+		if (other.getRows() != rows || other.getColumns() != columns) {
+			throw new IllegalArgumentException("A matrix of shape (" + other.getRows() + ", " + other.getColumns()
+					+ ") does not match the shape (" + rows + ", " + columns + ")");
+		}
+		return modify(operation, other.getRowByRowArray(), columns, 1);
+	}
+
+	private EditableMatrix modifyRowVector(ElementwiseOperation operation, Matrix rowVector) {
+		if (rowVector.getLength() != columns) {
+			throw new IllegalArgumentException("Row vector must have " + columns + " elements but has "
+					+ rowVector.getLength());
+		}
+		return modify(operation, rowVector.getRowByRowArray(), 0, 1);
+	}
+
+	private EditableMatrix modifyColumnVector(ElementwiseOperation operation, Matrix columnVector) {
+		if (columnVector.getLength() != rows) {
+			throw new IllegalArgumentException("Column vector must have " + rows + " elements but has "
+					+ columnVector.getLength());
+		}
+		return modify(operation, columnVector.getRowByRowArray(), 1, 0);
+	}
+
+	// Operations on the shared storage
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public int getLength() {
+		return rows * columns;
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return matrixFactory.getConfig();
+	}
+
+	@Override
+	public float get(int r, int c) {
+		checkOpen();
+		checkIndex(r, c);
+		return getValue(r, c);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		checkOpen();
+		float[] data = new float[rows * columns];
+		FloatBuffer buffer = getParentBuffer();
+		if (buffer != null && columnStride == 1) {
+			FloatBuffer source = buffer.duplicate();
+			for (int r = 0; r < rows; r++) {
+				source.position((firstRow + r * rowStride) * parent.getColumns() + firstColumn);
+				source.get(data, r * columns, columns);
+			}
+		} else {
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < columns; c++) {
+					data[r * columns + c] = getValue(r, c);
+				}
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public float sum() {
+		checkOpen();
+		double sum = 0;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				sum += getValue(r, c);
+			}
+		}
+		return (float) sum;
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		checkOpen();
+		return new MatrixView(matrixFactory, this, rowIndex, 0, 1, columns, 1, 1);
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		checkOpen();
+		return new MatrixView(matrixFactory, this, 0, columnIndex, rows, 1, 1, 1);
+	}
+
+	@Override
+	public Matrix softDup() {
+		checkOpen();
+		return new MatrixView(matrixFactory, this, 0, 0, rows, columns, 1, 1);
+	}
+
+	/**
+	 * The values are shared with a copy-on-write handle only when the parent is immutable - a view
+	 * which is itself immutable may still see writes made to its parent, so is copied.
+	 */
+	@Override
+	public Matrix dup() {
+		return parent.isImmutable() ? matrixFactory.createCopyOnWriteMatrix(this) : copy();
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return parent instanceof EditableMatrix && !isImmutable() ? this : copy().asEditableMatrix();
+	}
+
+	@Override
+	public void put(int r, int c, float v) {
+		checkIndex(r, c);
+		getEditableParent().put(firstRow + r * rowStride, firstColumn + c * columnStride, v);
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public void put(int i, float v) {
+		checkIndex(i);
+		put(i / columns, i % columns, v);
+	}
+
+	@Override
+	public void putRow(int r, Matrix matrix) {
+		((MatrixView) getRow(r)).assign(matrix);
+	}
+
+	@Override
+	public void putColumn(int c, Matrix matrix) {
+		((MatrixView) getColumn(c)).assign(matrix);
+	}
+
+	@Override
+	public EditableMatrix subi(float v) {
+		return modify(value -> value - v);
+	}
+
+	@Override
+	public EditableMatrix divi(float v) {
+		return modify(value -> value / v);
+	}
+
+	@Override
+	public EditableMatrix addi(float v) {
+		return modify(value -> value + v);
+	}
+
+	@Override
+	public EditableMatrix muli(float v) {
+		return modify(value -> value * v);
+	}
+
+	@Override
+	public EditableMatrix expi() {
+		return modify(value -> (float) Math.exp(value));
+	}
+
+	@Override
+	public Matrix logi() {
+		return modify(value -> (float) Math.log(value));
+	}
+
+	@Override
+	public EditableMatrix subiColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public EditableMatrix subiRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.SUB, other);
+	}
+
+	@Override
+	public EditableMatrix diviColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix diviRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix addiRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix addiColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix muliColumnVector(Matrix other) {
+		return modifyColumnVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix muliRowVector(Matrix other) {
+		return modifyRowVector(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix muli(Matrix other) {
+		return modify(ElementwiseOperation.MUL, other);
+	}
+
+	@Override
+	public EditableMatrix addi(Matrix other) {
+		return modify(ElementwiseOperation.ADD, other);
+	}
+
+	@Override
+	public EditableMatrix divi(Matrix other) {
+		return modify(ElementwiseOperation.DIV, other);
+	}
+
+	@Override
+	public EditableMatrix subi(Matrix other) {
+		return modify(ElementwiseOperation.SUB, other);
+	}
+
+	/**
+	 * Reshape this view, keeping its values in row-by-row order.
+	 *
+	 * A view of more than one value reshaped to a different shape is not a window of its parent,
+	 * so its values are copied into a new matrix of the new shape, created by the MatrixFactory, which
+	 * becomes the parent of this view - subsequent writes to this view are no longer written through
+	 * to the original parent.
+	 */
+	@Override
+	public synchronized void reshape(int r, int c) {
+		checkOpen();
+		if (r < 0 || c < 0 || (long) r * c != getLength()) {
+			throw new IllegalArgumentException("A matrix of shape (" + rows + ", " + columns
+					+ ") cannot be reshaped to (" + r + ", " + c + ")");
+		}
+		if ((r != rows || c != columns) && getLength() > 1) {
+			parent = matrixFactory.createMatrixFromRowsByRowsArray(r, c, getRowByRowArray()).asEditableMatrix();
+			parentBuffer = null;
+			firstRow = 0;
+			firstColumn = 0;
+		}
+		rowStride = r == rows ? rowStride : 1;
+		columnStride = c == columns ? columnStride : 1;
+		rows = r;
+		columns = c;
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable || parent.isImmutable();
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+	}
+
+	// Operations computed on the values of the view
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public float get(int i) {
+		checkOpen();
+		checkIndex(i);
+		return getValue(i / columns, i % columns);
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return copy().asInterrimMatrix();
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * A Matrix storing its values with 16 bits per element, in bfloat16 or float16 precision.
+ *
+ * Values are widened to float32 for computation - operations decode the stored values into a
+ * float array, compute on it, and return a float32 matrix created by the MatrixFactory from the
+ * result, so that the memory footprint of this matrix remains halved for as long as it is stored.
+ *
+ * Obtain a ReducedPrecisionMatrix using {@link MatrixFactory#createStorageMatrix(Matrix)}.
+ */
+public class ReducedPrecisionMatrix extends AbstractArrayMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixStoragePrecision precision;
+	private final int rows;
+	private final int columns;
+	private final short[] values;
+	private boolean immutable;
+	private boolean closed;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create float32 matrices.
+	 * @param precision The reduced precision in which values are stored.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowByRowData The float32 values in row-by-row order, which are rounded to the
+	 * storage precision.
+	 */
+	public ReducedPrecisionMatrix(MatrixFactory matrixFactory, MatrixStoragePrecision precision, int rows,
+			int columns, float[] rowByRowData) {
+		this(matrixFactory, precision, rows, columns, new short[checkedLength(rows, columns, rowByRowData)]);
+		precision.encode(rowByRowData, 0, values, 0, values.length);
+	}
+
+	private ReducedPrecisionMatrix(MatrixFactory matrixFactory, MatrixStoragePrecision precision, int rows,
+			int columns, short[] values) {
+		super(matrixFactory);
+		if (precision == null || !precision.isReduced()) {
+			throw new IllegalArgumentException("A reduced storage precision is required");
+		}
+		this.precision = precision;
+		this.rows = rows;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	private static int checkedLength(int rows, int columns, float[] rowByRowData) {
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix shape: (" + rows + ", " + columns + ")");
+		}
+		long length = (long) rows * columns;
+		if (rowByRowData.length != length) {
+			throw new IllegalArgumentException("Data must contain " + length + " elements but contains "
+					+ rowByRowData.length);
+		}
+		return rowByRowData.length;
+	}
+
+	/**
+	 * @return The precision in which values are stored.
+	 */
+	public MatrixStoragePrecision getPrecision() {
+		return precision;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Matrix has been closed");
+		}
+	}
+
+	// Operations on the stored values
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public int getLength() {
+		return values.length;
+	}
+
+	@Override
+	public float get(int r, int c) {
+		checkOpen();
+		if (r < 0 || r >= rows || c < 0 || c >= columns) {
+			throw new IndexOutOfBoundsException("(" + r + ", " + c + ") is outside a matrix of shape (" + rows + ", "
+					+ columns + ")");
+		}
+		return precision.decode(values[r * columns + c]);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		checkOpen();
+		float[] data = new float[values.length];
+		precision.decode(values, 0, data, 0, values.length);
+		return data;
+	}
+
+	@Override
+	public float sum() {
+		checkOpen();
+		double sum = 0;
+		for (short value : values) {
+			sum += precision.decode(value);
+		}
+		return (float) sum;
+	}
+
+	@Override
+	public Matrix transpose() {
+		checkOpen();
+		short[] transposed = new short[values.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				transposed[c * rows + r] = values[r * columns + c];
+			}
+		}
+		return new ReducedPrecisionMatrix(matrixFactory, precision, columns, rows, transposed);
+	}
+
+	@Override
+	public Matrix dup() {
+		checkOpen();
+		if (isImmutable()) {
+			return matrixFactory.createCopyOnWriteMatrix(this);
+		}
+		return new ReducedPrecisionMatrix(matrixFactory, precision, rows, columns, values.clone());
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized boolean isImmutable() {
+		return immutable;
+	}
+
+	@Override
+	public synchronized void setImmutable(boolean immutable) {
+		this.immutable = immutable;
+	}
+
+	@Override
+	public Matrix logi() {
+		if (isImmutable()) {
+			throw new IllegalStateException("Matrix is immutable");
+		}
+		checkOpen();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = precision.encode((float) Math.log(precision.decode(values[i])));
+		}
+		return this;
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public float get(int i) {
+		checkOpen();
+		if (i < 0 || i >= values.length) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + values.length);
+		}
+		return precision.decode(values[i]);
+	}
+
+	/**
+	 * @return The row-by-row index of the first maximum value.
+	 */
+	@Override
+	public int argmax() {
+		checkOpen();
+		int argmax = -1;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			float value = precision.decode(values[i]);
+			if (value > max || (argmax < 0 && value == max)) {
+				max = value;
+				argmax = i;
+			}
+		}
+		return argmax;
+	}
+
+	/**
+	 * @return A ReducedPrecisionMatrix sharing the stored values of this matrix, so that writes
+	 * through either matrix are visible through both.
+	 */
+	@Override
+	public Matrix softDup() {
+		checkOpen();
+		ReducedPrecisionMatrix softDup = new ReducedPrecisionMatrix(matrixFactory, precision, rows, columns, values);
+		softDup.setImmutable(isImmutable());
+		return softDup;
+	}
+
+	// Operations computed in float32
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, getRowByRowArray()).asEditableMatrix();
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, getRowByRowArray()).asInterrimMatrix();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * Listens for the allocation and closing of closeable resources - such as InterrimMatrix,
+ * NeuronsActivation and CostAndGradients instances - so that resources which are never closed may
+ * be detected.
+ *
+ * A ResourceTracker is configured with {@link MatrixFactoryConfig#withLeakTracker(ResourceTracker)};
+ * org.ml4j.metrics.LeakTracker is the implementation reporting leaked resources with the stack
+ * traces of their allocation.
+ */
+public interface ResourceTracker {
+
+	/**
+	 * Track a newly allocated resource.
+	 *
+	 * @param resource The resource.
+	 * @param type The type of the resource.
+	 * @param bytes The estimated number of bytes held by the resource.
+	 * @return A callback to be run when the resource is closed, which may be run more than once.
+	 */
+	Runnable track(Object resource, String type, long bytes);
+}
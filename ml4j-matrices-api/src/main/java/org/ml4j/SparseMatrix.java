@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * A Matrix storing only its non-zero values, in a compressed row or column format.
+ *
+ * For a matrix in CSR format, the non-zero values of row r are stored in getValues() at indexes
+ * [getPointers()[r], getPointers()[r + 1]), with their column indexes at the same positions in
+ * getIndices().  CSC format is the same with the roles of rows and columns exchanged.
+ *
+ * Multiplication of a SparseMatrix by a dense Matrix only computes the products of the non-zero
+ * values, and element-wise operations which would not preserve sparsity return dense matrices.
+ */
+public interface SparseMatrix extends Matrix {
+
+	/**
+	 * @return The compressed storage format of this SparseMatrix.
+	 */
+	SparseMatrixFormat getFormat();
+
+	/**
+	 * @return The number of stored non-zero values.
+	 */
+	int getNonZeroCount();
+
+	/**
+	 * @return The stored non-zero values, in row order for CSR or column order for CSC.
+	 */
+	float[] getValues();
+
+	/**
+	 * @return The column (CSR) or row (CSC) index of each stored value.
+	 */
+	int[] getIndices();
+
+	/**
+	 * @return The index within getValues() of the first value of each row (CSR) or
+	 * column (CSC), followed by the number of stored values.
+	 */
+	int[] getPointers();
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+/**
+ * The compressed storage formats of a SparseMatrix.
+ */
+public enum SparseMatrixFormat {
+
+	/**
+	 * Compressed sparse row - the non-zero values are stored row by row, with the column index
+	 * of each value, and a pointer to the first value of each row.
+	 */
+	CSR,
+
+	/**
+	 * Compressed sparse column - the non-zero values are stored column by column, with the row
+	 * index of each value, and a pointer to the first value of each column.
+	 */
+	CSC;
+
+	/**
+	 * @return The format in which the arrays of a matrix in this format represent its transpose.
+	 */
+	public SparseMatrixFormat transpose() {
+		return this == CSR ? CSC : CSR;
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An N-dimensional tensor of float values - a shape, a stride for each dimension and an offset
+ * into a backing array - of which a Matrix is the two-dimensional special case.
+ *
+ * The element at indices (i0, i1, ..., iN-1) is located at offset + i0 * stride0 + ... +
+ * iN-1 * strideN-1 of the backing array.  Reshaping a contiguous tensor, permuting its dimensions,
+ * slicing a range of a dimension and selecting a single index of a dimension all create views in
+ * O(1) which share the backing array, so that, for example, a range of channels of a batch of
+ * images in (channels, height, width, examples) order can be read, or written, without copying.
+ *
+ * Results of operations combining several tensors, such as the channel concatenation of the
+ * outputs of the paths of a FILTER_CONCAT combination, may be written directly into slices of one
+ * preallocated tensor using {@link #assign(StridedTensor)}.
+ */
+public class StridedTensor implements Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final float[] data;
+	private final int offset;
+	private final int[] shape;
+	private final int[] strides;
+
+	/**
+	 * @param data The backing array.
+	 * @param offset The index of the first element within the backing array.
+	 * @param shape The size of each dimension.
+	 * @param strides The distance within the backing array between consecutive indices of each
+	 * dimension.
+	 */
+	public StridedTensor(float[] data, int offset, int[] shape, int[] strides) {
+		if (data == null) {
+			throw new IllegalArgumentException("Data cannot be null");
+		}
+		if (shape.length != strides.length) {
+			throw new IllegalArgumentException("Shape and strides must have the same rank: " + shape.length
+					+ " and " + strides.length);
+		}
+		long last = offset;
+		boolean empty = false;
+		for (int axis = 0; axis < shape.length; axis++) {
+			if (shape[axis] < 0 || strides[axis] < 0) {
+				throw new IllegalArgumentException("Invalid shape " + Arrays.toString(shape) + " or strides "
+						+ Arrays.toString(strides));
+			}
+			empty |= shape[axis] == 0;
+			last += (long) (shape[axis] - 1) * strides[axis];
+		}
+		if (offset < 0 || (!empty && last >= data.length)) {
+			throw new IndexOutOfBoundsException("Tensor of shape " + Arrays.toString(shape) + " and strides "
+					+ Arrays.toString(strides) + " at offset " + offset + " exceeds backing array of length "
+					+ data.length);
+		}
+		this.data = data;
+		this.offset = offset;
+		this.shape = shape.clone();
+		this.strides = strides.clone();
+	}
+
+	/**
+	 * @param data The backing array, holding the values in row-major order - the last dimension
+	 * varying fastest.
+	 * @param shape The size of each dimension.
+	 * @return A contiguous tensor over the backing array.
+	 */
+	public static StridedTensor of(float[] data, int... shape) {
+		if (getLength(shape) != data.length) {
+			throw new IllegalArgumentException("Shape " + Arrays.toString(shape) + " does not match data of length "
+					+ data.length);
+		}
+		return new StridedTensor(data, 0, shape, getContiguousStrides(shape));
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @return A two-dimensional tensor over the values of the matrix in its stored layout, which is
+	 * a view of the matrix where the matrix returns its own storage from getRowByRowArray or
+	 * getColumnByColumnArray.
+	 */
+	public static StridedTensor of(Matrix matrix) {
+		int rows = matrix.getRows();
+		int columns = matrix.getColumns();
+		if (matrix.getLayout() == MatrixLayout.COLUMN_MAJOR) {
+			return new StridedTensor(matrix.getColumnByColumnArray(), 0, new int[] { rows, columns },
+					new int[] { 1, rows });
+		}
+		return new StridedTensor(matrix.getRowByRowArray(), 0, new int[] { rows, columns },
+				new int[] { columns, 1 });
+	}
+
+	/**
+	 * @param shape The size of each dimension.
+	 * @return A new contiguous tensor of zeros.
+	 */
+	public static StridedTensor zeros(int... shape) {
+		return of(new float[getLength(shape)], shape);
+	}
+
+	private static int getLength(int[] shape) {
+		long length = 1;
+		for (int size : shape) {
+			if (size < 0) {
+				throw new IllegalArgumentException("Invalid shape " + Arrays.toString(shape));
+			}
+			length *= size;
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Shape " + Arrays.toString(shape) + " has too many elements");
+		}
+		return (int) length;
+	}
+
+	private static int[] getContiguousStrides(int[] shape) {
+		int[] strides = new int[shape.length];
+		int stride = 1;
+		for (int axis = shape.length - 1; axis >= 0; axis--) {
+			strides[axis] = stride;
+			stride *= shape[axis];
+		}
+		return strides;
+	}
+
+	/**
+	 * @return The number of dimensions.
+	 */
+	public int getRank() {
+		return shape.length;
+	}
+
+	/**
+	 * @return The size of each dimension.
+	 */
+	public int[] getShape() {
+		return shape.clone();
+	}
+
+	/**
+	 * @param axis The dimension.
+	 * @return The size of the dimension.
+	 */
+	public int getSize(int axis) {
+		return shape[axis];
+	}
+
+	/**
+	 * @return The distance within the backing array between consecutive indices of each dimension.
+	 */
+	public int[] getStrides() {
+		return strides.clone();
+	}
+
+	/**
+	 * @return The index of the first element within the backing array.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return The backing array, shared with any views of this tensor.
+	 */
+	public float[] getData() {
+		return data;
+	}
+
+	/**
+	 * @return The number of elements.
+	 */
+	public int getLength() {
+		return getLength(shape);
+	}
+
+	/**
+	 * @return Whether the elements of this tensor occupy a contiguous range of the backing array in
+	 * row-major order.
+	 */
+	public boolean isContiguous() {
+		int stride = 1;
+		for (int axis = shape.length - 1; axis >= 0; axis--) {
+			if (shape[axis] != 1 && strides[axis] != stride) {
+				return false;
+			}
+			stride *= shape[axis];
+		}
+		return true;
+	}
+
+	/**
+	 * @param indices The index of each dimension.
+	 * @return The index of the element within the backing array.
+	 */
+	public int getIndex(int... indices) {
+		if (indices.length != shape.length) {
+			throw new IllegalArgumentException("Expected " + shape.length + " indices but was " + indices.length);
+		}
+		int index = offset;
+		for (int axis = 0; axis < shape.length; axis++) {
+			if (indices[axis] < 0 || indices[axis] >= shape[axis]) {
+				throw new IndexOutOfBoundsException("Index " + indices[axis] + " out of bounds for dimension "
+						+ axis + " of size " + shape[axis]);
+			}
+			index += indices[axis] * strides[axis];
+		}
+		return index;
+	}
+
+	/**
+	 * @param indices The index of each dimension.
+	 * @return The value of the element.
+	 */
+	public float get(int... indices) {
+		return data[getIndex(indices)];
+	}
+
+	/**
+	 * @param indices The index of each dimension.
+	 * @param value The value of the element, written to the backing array.
+	 */
+	public void put(int[] indices, float value) {
+		data[getIndex(indices)] = value;
+	}
+
+	/**
+	 * Obtain a tensor of a different shape with the same elements in row-major order - a view if
+	 * this tensor is contiguous, and otherwise a reshaped copy.
+	 *
+	 * @param shape The size of each dimension, one of which may be -1 to infer its size.
+	 * @return The reshaped tensor.
+	 */
+	public StridedTensor reshape(int... shape) {
+		int[] newShape = shape.clone();
+		int inferredAxis = -1;
+		long knownLength = 1;
+		for (int axis = 0; axis < newShape.length; axis++) {
+			if (newShape[axis] == -1 && inferredAxis == -1) {
+				inferredAxis = axis;
+			} else {
+				if (newShape[axis] < 0) {
+					throw new IllegalArgumentException("Invalid shape " + Arrays.toString(shape));
+				}
+				knownLength *= newShape[axis];
+			}
+		}
+		int length = getLength();
+		if (inferredAxis != -1 && knownLength != 0) {
+			newShape[inferredAxis] = (int) (length / knownLength);
+			knownLength *= newShape[inferredAxis];
+		}
+		if (knownLength != length) {
+			throw new IllegalArgumentException("Cannot reshape tensor of shape " + Arrays.toString(this.shape)
+					+ " to " + Arrays.toString(shape));
+		}
+		if (!isContiguous()) {
+			return copy().reshape(newShape);
+		}
+		return new StridedTensor(data, offset, newShape, getContiguousStrides(newShape));
+	}
+
+	/**
+	 * @param axes The dimension of this tensor to become each dimension of the view.
+	 * @return A view with permuted dimensions.
+	 */
+	public StridedTensor permute(int... axes) {
+		if (axes.length != shape.length) {
+			throw new IllegalArgumentException("Expected " + shape.length + " axes but was " + axes.length);
+		}
+		int[] newShape = new int[axes.length];
+		int[] newStrides = new int[axes.length];
+		boolean[] used = new boolean[axes.length];
+		for (int axis = 0; axis < axes.length; axis++) {
+			if (axes[axis] < 0 || axes[axis] >= axes.length || used[axes[axis]]) {
+				throw new IllegalArgumentException("Invalid permutation " + Arrays.toString(axes));
+			}
+			used[axes[axis]] = true;
+			newShape[axis] = shape[axes[axis]];
+			newStrides[axis] = strides[axes[axis]];
+		}
+		return new StridedTensor(data, offset, newShape, newStrides);
+	}
+
+	/**
+	 * @param axis The dimension to slice.
+	 * @param from The first index of the dimension, inclusive.
+	 * @param to The last index of the dimension, exclusive.
+	 * @return A view of the range of indices of the dimension.
+	 */
+	public StridedTensor slice(int axis, int from, int to) {
+		if (from < 0 || to > shape[axis] || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for dimension "
+					+ axis + " of size " + shape[axis]);
+		}
+		int[] newShape = shape.clone();
+		newShape[axis] = to - from;
+		return new StridedTensor(data, to == from ? offset : offset + from * strides[axis], newShape, strides);
+	}
+
+	/**
+	 * @param axis The dimension.
+	 * @param index The index of the dimension.
+	 * @return A view, of one fewer dimensions, of the elements at the index of the dimension.
+	 */
+	public StridedTensor select(int axis, int index) {
+		if (index < 0 || index >= shape[axis]) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for dimension " + axis
+					+ " of size " + shape[axis]);
+		}
+		int[] newShape = new int[shape.length - 1];
+		int[] newStrides = new int[shape.length - 1];
+		for (int i = 0, j = 0; i < shape.length; i++) {
+			if (i != axis) {
+				newShape[j] = shape[i];
+				newStrides[j++] = strides[i];
+			}
+		}
+		return new StridedTensor(data, offset + index * strides[axis], newShape, newStrides);
+	}
+
+	/**
+	 * Copy the elements of a tensor of the same shape into this tensor, and so into the backing
+	 * array.
+	 *
+	 * @param source The tensor to copy.
+	 * @return This tensor.
+	 */
+	public StridedTensor assign(StridedTensor source) {
+		if (!Arrays.equals(shape, source.shape)) {
+			throw new IllegalArgumentException("Cannot assign tensor of shape " + Arrays.toString(source.shape)
+					+ " to tensor of shape " + Arrays.toString(shape));
+		}
+		if (getLength() == 0) {
+			return this;
+		}
+		if (isContiguous() && source.isContiguous()) {
+			System.arraycopy(source.data, source.offset, data, offset, getLength());
+		} else {
+			copy(source, 0, source.offset, offset);
+		}
+		return this;
+	}
+
+	private void copy(StridedTensor source, int axis, int sourceIndex, int index) {
+		if (axis == shape.length - 1) {
+			int sourceStride = source.strides[axis];
+			int stride = strides[axis];
+			for (int i = 0; i < shape[axis]; i++) {
+				data[index + i * stride] = source.data[sourceIndex + i * sourceStride];
+			}
+		} else {
+			for (int i = 0; i < shape[axis]; i++) {
+				copy(source, axis + 1, sourceIndex + i * source.strides[axis], index + i * strides[axis]);
+			}
+		}
+	}
+
+	/**
+	 * @return A contiguous copy of this tensor, with a new backing array.
+	 */
+	public StridedTensor copy() {
+		return of(toArray(), shape);
+	}
+
+	/**
+	 * @return A new array containing the elements of this tensor in row-major order.
+	 */
+	public float[] toArray() {
+		float[] values = new float[getLength()];
+		of(values, shape).assign(this);
+		return values;
+	}
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the Matrix.
+	 * @return This two-dimensional tensor as a Matrix, created column-by-column if the values are
+	 * stored in column-major order, and otherwise row-by-row.
+	 */
+	public Matrix asMatrix(MatrixFactory matrixFactory) {
+		if (shape.length != 2) {
+			throw new IllegalStateException("Only a tensor of rank 2 can be a Matrix, but rank was " + shape.length);
+		}
+		StridedTensor transpose = permute(1, 0);
+		if (!isContiguous() && transpose.isContiguous()) {
+			return matrixFactory.createMatrixFromColumnsByColumnsArray(shape[0], shape[1], transpose.toArray());
+		}
+		return matrixFactory.createMatrixFromRowsByRowsArray(shape[0], shape[1], toArray());
+	}
+
+	/**
+	 * Concatenate tensors along a dimension, copying each once into a slice of the result.
+	 *
+	 * @param axis The dimension along which to concatenate.
+	 * @param tensors The tensors, of the same shape other than in the dimension.
+	 * @return A new contiguous tensor.
+	 */
+	public static StridedTensor concatenate(int axis, List<StridedTensor> tensors) {
+		if (tensors.isEmpty()) {
+			throw new IllegalArgumentException("Tensors cannot be empty");
+		}
+		int[] shape = tensors.get(0).getShape();
+		int size = 0;
+		for (StridedTensor tensor : tensors) {
+			size += tensor.getSize(axis);
+		}
+		shape[axis] = size;
+		StridedTensor result = zeros(shape);
+		int from = 0;
+		for (StridedTensor tensor : tensors) {
+			int to = from + tensor.getSize(axis);
+			result.slice(axis, from, to).assign(tensor);
+			from = to;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "StridedTensor [shape=" + Arrays.toString(shape) + ", strides=" + Arrays.toString(strides)
+				+ ", offset=" + offset + "]";
+	}
+}
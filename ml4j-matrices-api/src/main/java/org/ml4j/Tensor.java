@@ -41,6 +41,12 @@ public interface Tensor<T extends Tensor<T, E, I>, E extends T, I extends T> ext
 	boolean isClosed();
 
 	
+	/**
+	 * @return A copy of this tensor, independent of it - writes to either are not visible in the
+	 * other.  For an immutable matrix, implementations may return a copy-on-write handle sharing
+	 * its values, created by MatrixFactory.createCopyOnWriteMatrix, so that the values are copied
+	 * only if the copy is written to.
+	 */
 	T dup();
 
 	E asEditableMatrix();
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j;
+
+import java.util.function.Function;
+
+/**
+ * The transpose of a Matrix, represented without copying or re-laying out its values - the
+ * values of the wrapped matrix in its layout are the values of this matrix in the transposed
+ * layout.
+ *
+ * Transposing a TransposedMatrix returns the wrapped matrix.  Element-wise operations, broadcast
+ * operations and reductions are applied to the wrapped matrix in its own layout - a row vector
+ * operation on this matrix being the column vector operation on the wrapped matrix, and so on -
+ * and mmul reads the values in place through the gemm of the MatrixFactory.  Only asEditableMatrix
+ * and asInterrimMatrix, whose results are owned by the caller, materialise the transpose.  The
+ * Matrix operands of binary operations are passed to the wrapped matrix as their own transpose -
+ * the backing matrix of an operand which is itself a TransposedMatrix, and otherwise a transpose
+ * materialised by the operand, which is closed once the operation returns.
+ *
+ * Obtain a TransposedMatrix using {@link MatrixFactory#createTransposedMatrix(Matrix)}.
+ */
+public class TransposedMatrix implements Matrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory matrixFactory;
+	private final Matrix matrix;
+
+	/**
+	 * @param matrixFactory The MatrixFactory used to create the results of operations.
+	 * @param matrix The matrix to transpose.
+	 */
+	public TransposedMatrix(MatrixFactory matrixFactory, Matrix matrix) {
+		if (matrixFactory == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (matrix == null) {
+			throw new IllegalArgumentException("Matrix cannot be null");
+		}
+		this.matrixFactory = matrixFactory;
+		this.matrix = matrix;
+	}
+
+	/**
+	 * @return The transpose of a result computed on the wrapped matrix, without copying.
+	 */
+	private Matrix transposed(Matrix result) {
+		return result instanceof TransposedMatrix ? ((TransposedMatrix) result).matrix
+				: new TransposedMatrix(matrixFactory, result);
+	}
+
+	/**
+	 * Apply an operation of the wrapped matrix to the transpose of an operand - the backing matrix of
+	 * an operand which is itself a TransposedMatrix, and otherwise the transpose materialised by the
+	 * operand, so that the wrapped matrix is never passed a TransposedMatrix whose values it would
+	 * read in the transposed order.  A materialised transpose is closed once the operation returns.
+	 */
+	private static Matrix withOperand(Matrix other, Function<Matrix, Matrix> operation) {
+		if (other instanceof TransposedMatrix) {
+			return operation.apply(((TransposedMatrix) other).matrix);
+		}
+		Matrix operand = other.transpose();
+		try {
+			return operation.apply(operand);
+		} finally {
+			if (operand != other && !(operand instanceof TransposedMatrix)) {
+				operand.close();
+			}
+		}
+	}
+
+	/**
+	 * @return The transpose of this matrix, materialised by the wrapped matrix.
+	 */
+	private Matrix materialise() {
+		return matrix.transpose();
+	}
+
+	// Metadata
+
+	@Override
+	public MatrixLayout getLayout() {
+		return matrix.getLayout().transpose();
+	}
+
+	@Override
+	public int getRows() {
+		return matrix.getColumns();
+	}
+
+	@Override
+	public int getColumns() {
+		return matrix.getRows();
+	}
+
+	@Override
+	public int getLength() {
+		return matrix.getLength();
+	}
+
+	@Override
+	public Matrix transpose() {
+		return matrix;
+	}
+
+	@Override
+	public void close() {
+		matrix.close();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return matrix.isClosed();
+	}
+
+	@Override
+	public boolean isImmutable() {
+		return matrix.isImmutable();
+	}
+
+	@Override
+	public void setImmutable(boolean immutable) {
+		matrix.setImmutable(immutable);
+	}
+
+	// Operations on the wrapped matrix in its own layout
+
+	@Override
+	public float get(int r, int c) {
+		return matrix.get(c, r);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		return matrix.getColumnByColumnArray();
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return matrix.getRowByRowArray();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		return matrix.getRowByRowArray().clone();
+	}
+
+	@Override
+	public float sum() {
+		return matrix.sum();
+	}
+
+	@Override
+	public Matrix mul(float v) {
+		return transposed(matrix.mul(v));
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return transposed(matrix.add(v));
+	}
+
+	@Override
+	public Matrix div(float v) {
+		return transposed(matrix.div(v));
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return transposed(matrix.sub(v));
+	}
+
+	@Override
+	public Matrix mul(Matrix other) {
+		return transposed(withOperand(other, matrix::mul));
+	}
+
+	@Override
+	public Matrix add(Matrix other) {
+		return transposed(withOperand(other, matrix::add));
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return transposed(withOperand(other, matrix::div));
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return transposed(withOperand(other, matrix::sub));
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		return transposed(matrix.sigmoid());
+	}
+
+	@Override
+	public Matrix log() {
+		return transposed(matrix.log());
+	}
+
+	@Override
+	public Matrix logi() {
+		matrix.logi();
+		return this;
+	}
+
+	@Override
+	public Matrix dup() {
+		return transposed(matrix.dup());
+	}
+
+	@Override
+	public Matrix softDup() {
+		return transposed(matrix.softDup());
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		return transposed(matrix.getRow(columnIndex));
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		return transposed(matrix.getColumn(rowIndex));
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		return transposed(matrix.get(columns, rows));
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		return transposed(matrix.getRows(columns));
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		return transposed(matrix.getColumns(rows));
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		return transposed(withOperand(other, matrix::appendHorizontally));
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		return transposed(withOperand(other, matrix::appendVertically));
+	}
+
+	@Override
+	public Matrix columnSums() {
+		return transposed(matrix.rowSums());
+	}
+
+	@Override
+	public Matrix rowSums() {
+		return transposed(matrix.columnSums());
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		return transposed(withOperand(other, matrix::mulRowVector));
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		return transposed(withOperand(other, matrix::mulColumnVector));
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return transposed(withOperand(other, matrix::addRowVector));
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return transposed(withOperand(other, matrix::addColumnVector));
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return transposed(withOperand(other, matrix::divRowVector));
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return transposed(withOperand(other, matrix::divColumnVector));
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return transposed(withOperand(other, matrix::subRowVector));
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return transposed(withOperand(other, matrix::subColumnVector));
+	}
+
+	@Override
+	public Matrix mmul(Matrix other) {
+		EditableMatrix result = matrixFactory.createMatrix(getRows(), other.getColumns()).asEditableMatrix();
+		if (other instanceof TransposedMatrix) {
+			return matrixFactory.gemm(true, true, 1f, matrix, ((TransposedMatrix) other).matrix, 0f, result);
+		}
+		return matrixFactory.gemm(true, false, 1f, matrix, other, 0f, result);
+	}
+
+	/**
+	 * @return The row-by-row index of the first maximum value, read in the wrapped layout.
+	 */
+	@Override
+	public int argmax() {
+		float[] values = matrix.getColumnByColumnArray();
+		int argmax = -1;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] > max || (argmax < 0 && values[i] == max)) {
+				max = values[i];
+				argmax = i;
+			}
+		}
+		return argmax;
+	}
+
+	/**
+	 * @param i The index of the value in row-by-row order.
+	 */
+	@Override
+	public float get(int i) {
+		if (i < 0 || i >= getLength()) {
+			throw new IndexOutOfBoundsException("Index " + i + " is outside a matrix of length " + getLength());
+		}
+		return matrix.get(i % getColumns(), i / getColumns());
+	}
+
+	/**
+	 * @return The index of the maximum value of each column - of each row of the wrapped matrix.
+	 */
+	@Override
+	public int[] columnArgmaxs() {
+		int rows = matrix.getRows();
+		int columns = matrix.getColumns();
+		float[] values = matrix.getRowByRowArray();
+		int[] argmaxs = new int[rows];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 1; c < columns; c++) {
+				if (values[r * columns + c] > values[r * columns + argmaxs[r]]) {
+					argmaxs[r] = c;
+				}
+			}
+		}
+		return argmaxs;
+	}
+
+	// Operations requiring the materialised transpose
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return materialise().asEditableMatrix();
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return materialise().asInterrimMatrix();
+	}
+}
@@ -1,8 +1,17 @@
 package org.ml4j.images;
 
+import org.ml4j.StridedTensor;
+
 public interface Image extends ImageContainer<Image> {
 	
 	Image getChannels(int channelRangeStart, int channelRangeEnd);
 	Images asImages();
 
+	/**
+	 * @return A view of the data of this Image as a StridedTensor of shape (channels, height,
+	 * width), through which channels may be sliced without copying.
+	 */
+	default StridedTensor asTensor() {
+		return StridedTensor.of(getData(), getChannels(), getHeight(), getWidth());
+	}
 }
@@ -19,10 +19,24 @@ public interface ImageContainer<I extends ImageContainer<I>> {
 	void populateData(float[] data, int startIndex);
 	void populateDataSubImage(float[] data, int startIndex, int startHeight, int startWidth, int height, int width, int strideHeight, int strideWidth, boolean pooling);
 	void populateDataSubImageReverse(float[] data, int startIndex, int startHeight, int startWidth, int height, int width, int strideHeight, int strideWidth, boolean pooling);
+	/**
+	 * Populate these images from a convolution im2col matrix, summing overlapping receptive fields.
+	 */
 	void populateIm2colConvImport(float[] data, int startIndex, int filterHeight, int filterWidth, int strideHeight, int strideWidth, int channels);
+	/**
+	 * Populate data from startIndex with the convolution im2col matrix of these images.  This and the
+	 * other im2col methods may delegate to {@link org.ml4j.kernels.Im2colKernel}, which runs in parallel
+	 * across examples and channels.
+	 */
 	void populateIm2colConvExport(float[] data, int startIndex, int filterHeight, int filterWidth, int strideHeight, int strideWidth, int channels);
 
+	/**
+	 * Populate data from startIndex with the pooling im2col matrix of these images.
+	 */
 	void populateIm2colPoolExport(float[] data, int startIndex, int filterHeight, int filterWidth, int strideHeight, int strideWidth, int channels);
+	/**
+	 * Populate these images from a pooling im2col matrix, summing overlapping receptive fields.
+	 */
 	void populateIm2colPoolImport(float[] data, int startIndex, int filterHeight, int filterWidth, int strideHeight, int strideWidth, int channels);
 	
 	
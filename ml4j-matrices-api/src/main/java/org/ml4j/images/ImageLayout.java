@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.images;
+
+/**
+ * The order in which the values of a batch of multi-channel images are stored.
+ */
+public enum ImageLayout {
+
+	/**
+	 * By channel, then row, then column, then example - so that the value of channel c, row y,
+	 * column x of example e is at index ((c * height + y) * width + x) * examples + e.  This is the
+	 * layout of ImageContainer data, and of the rows of a matrix with a row per feature and a column
+	 * per example.
+	 */
+	CHANNELS_FIRST,
+
+	/**
+	 * By example, then row, then column, then channel (NHWC) - so that the value of channel c, row
+	 * y, column x of example e is at index ((e * height + y) * width + x) * channels + c.  The
+	 * channels of each pixel, and so each row of an im2col patch, are contiguous - which suits
+	 * convolutions with many channels.  This is the layout of a matrix with a row per example and a
+	 * column per feature, with features ordered by height, width and then depth.
+	 */
+	CHANNELS_LAST;
+
+	/**
+	 * The least number of channels for which CHANNELS_LAST is selected.
+	 */
+	static final int CHANNELS_LAST_MIN_CHANNELS = 16;
+
+	/**
+	 * @param channel The channel.
+	 * @param y The row.
+	 * @param x The column.
+	 * @param example The example.
+	 * @param channels The number of channels.
+	 * @param height The height of each image.
+	 * @param width The width of each image.
+	 * @param examples The number of examples.
+	 * @return The index in this layout of the value of the channel, row and column of the example.
+	 */
+	public int index(int channel, int y, int x, int example, int channels, int height, int width, int examples) {
+		return this == CHANNELS_FIRST ? ((channel * height + y) * width + x) * examples + example
+				: ((example * height + y) * width + x) * channels + channel;
+	}
+
+	/**
+	 * Select the layout expected to be fastest for the convolution of images with the given number
+	 * of channels - CHANNELS_LAST for many channels, for which gathering a contiguous run of
+	 * channels per pixel outweighs the cost of changing layout, and CHANNELS_FIRST otherwise.
+	 *
+	 * @param channels The number of channels.
+	 * @return The selected layout.
+	 */
+	public static ImageLayout select(int channels) {
+		return channels >= CHANNELS_LAST_MIN_CHANNELS ? CHANNELS_LAST : CHANNELS_FIRST;
+	}
+}
@@ -1,9 +1,31 @@
 package org.ml4j.images;
 
+import org.ml4j.StridedTensor;
+
 public interface Images extends ImageContainer<Images> {
 
 	int getExamples();
 	
 	Images getChannels(int channelRangeStart, int channelRangeEnd);
 
+	/**
+	 * @return The order in which the values of these Images are stored - implementations storing
+	 * values channels last override this, and provide kernels which operate on them in that order.
+	 */
+	default ImageLayout getLayout() {
+		return ImageLayout.CHANNELS_FIRST;
+	}
+
+	/**
+	 * @return A view of the data of these Images as a StridedTensor of shape (channels, height,
+	 * width, examples), whatever their layout, through which channels may be sliced, and dimensions
+	 * permuted, without copying.
+	 */
+	default StridedTensor asTensor() {
+		if (getLayout() == ImageLayout.CHANNELS_LAST) {
+			return StridedTensor.of(getData(), getExamples(), getHeight(), getWidth(), getChannels())
+					.permute(3, 1, 2, 0);
+		}
+		return StridedTensor.of(getData(), getChannels(), getHeight(), getWidth(), getExamples());
+	}
 }
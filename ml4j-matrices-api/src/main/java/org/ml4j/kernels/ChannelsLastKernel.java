@@ -0,0 +1,539 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import org.ml4j.images.ImageLayout;
+
+/**
+ * Pure-Java single-precision im2col, convolution, pooling and space-to-depth kernels for batches of
+ * images in the CHANNELS_LAST (NHWC) ImageLayout, and conversion between ImageLayouts.
+ *
+ * In this layout the channels of each pixel are contiguous, so each row of a receptive field -
+ * filterWidth pixels of all channels - is a single contiguous run of the input, and the im2col
+ * matrix is gathered with one copy per filter row rather than one per filter weight.  The im2col
+ * matrix has a row per example and output position, ordered by example, then output row, then
+ * output column, and a column per filter weight, ordered by filter row, then filter column, then
+ * channel - so weights are (filters, filterHeight x filterWidth x channels) matrices stored row by
+ * row, and the product of the im2col matrix and the transposed weights is itself the output in the
+ * CHANNELS_LAST layout.  The backward transfers - scattering an im2col matrix of gradients back
+ * into images, and routing pooled gradients back to the pixels of their windows - are provided
+ * alongside.
+ *
+ * Pooling geometries are ConvolutionGeometries whose output depth is their input depth.
+ */
+public class ChannelsLastKernel {
+
+	/**
+	 * The number of rows of the im2col matrix gathered and multiplied at a time by convolve.
+	 */
+	static final int ROW_BLOCK = 256;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which the kernels are run.
+	 */
+	public ChannelsLastKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Copy a batch of images from one layout to another.
+	 *
+	 * @param from The layout of the input.
+	 * @param to The layout of the output.
+	 * @param channels The number of channels.
+	 * @param height The height of each image.
+	 * @param width The width of each image.
+	 * @param examples The number of examples.
+	 * @param input The images, in the from layout.
+	 * @param output The array to which the images are written in the to layout, which must not be
+	 * the input.
+	 */
+	public void convert(ImageLayout from, ImageLayout to, int channels, int height, int width, int examples,
+			float[] input, float[] output) {
+		int length = channels * height * width * examples;
+		checkLength("Input", input, length);
+		checkLength("Output", output, length);
+		if (from == to) {
+			System.arraycopy(input, 0, output, 0, length);
+			return;
+		}
+		ParallelRange.forEach(forkJoinPool, height, length, y -> {
+			for (int x = 0; x < width; x++) {
+				for (int channel = 0; channel < channels; channel++) {
+					for (int example = 0; example < examples; example++) {
+						output[to.index(channel, y, x, example, channels, height, width, examples)] = input[from
+								.index(channel, y, x, example, channels, height, width, examples)];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param from The layout of the images the weights are applied to.
+	 * @param to The layout of the images the converted weights are to be applied to.
+	 * @param geometry The dimensions of the convolution.
+	 * @param weights The (filters, filter weights) weights for images in the from layout - with
+	 * filter weights ordered by channel, then filter row, then filter column for CHANNELS_FIRST,
+	 * and by filter row, then filter column, then channel for CHANNELS_LAST.
+	 * @return The weights for images in the to layout.
+	 */
+	public static float[] convertWeights(ImageLayout from, ImageLayout to, ConvolutionGeometry geometry,
+			float[] weights) {
+		int channels = geometry.getInputDepth();
+		int filterHeight = geometry.getFilterHeight();
+		int filterWidth = geometry.getFilterWidth();
+		int filterFeatures = geometry.getFilterFeatures();
+		checkLength("Weights", weights, geometry.getOutputDepth() * filterFeatures);
+		float[] converted = new float[geometry.getOutputDepth() * filterFeatures];
+		for (int filter = 0; filter < geometry.getOutputDepth(); filter++) {
+			for (int channel = 0; channel < channels; channel++) {
+				for (int filterY = 0; filterY < filterHeight; filterY++) {
+					for (int filterX = 0; filterX < filterWidth; filterX++) {
+						int channelsFirst = (channel * filterHeight + filterY) * filterWidth + filterX;
+						int channelsLast = (filterY * filterWidth + filterX) * channels + channel;
+						converted[filter * filterFeatures + (to == ImageLayout.CHANNELS_LAST ? channelsLast
+								: channelsFirst)] = weights[filter * filterFeatures
+										+ (from == ImageLayout.CHANNELS_LAST ? channelsLast : channelsFirst)];
+					}
+				}
+			}
+		}
+		return converted;
+	}
+
+	/**
+	 * Gather the im2col matrix of a batch of CHANNELS_LAST images.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param input The images.
+	 * @param columns The array to which the (examples x outputHeight x outputWidth, filterHeight x
+	 * filterWidth x channels) im2col matrix is written row by row.
+	 */
+	public void im2colConvExport(ConvolutionGeometry geometry, int examples, float[] input, float[] columns) {
+		int rows = examples * geometry.getOutputHeight() * geometry.getOutputWidth();
+		int filterFeatures = geometry.getFilterFeatures();
+		checkLength("Input", input, geometry.getInputFeatures() * examples);
+		checkLength("Columns", columns, rows * filterFeatures);
+		ParallelRange.forEach(forkJoinPool, rows, (long) rows * filterFeatures,
+				row -> gatherPatch(geometry, input, row, columns, row * filterFeatures));
+	}
+
+	/**
+	 * Populate a batch of CHANNELS_LAST images from an im2col matrix, each image value being the sum
+	 * of the values of the im2col matrix at the receptive field positions it occupies - so that an
+	 * im2col matrix of gradients is imported as the gradient of the images.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param columns The (examples x outputHeight x outputWidth, filterHeight x filterWidth x
+	 * channels) im2col matrix, row by row.
+	 * @param images The array to which the images are written, in the CHANNELS_LAST layout.
+	 */
+	public void im2colConvImport(ConvolutionGeometry geometry, int examples, float[] columns, float[] images) {
+		int outputPositions = geometry.getOutputHeight() * geometry.getOutputWidth();
+		int filterFeatures = geometry.getFilterFeatures();
+		int inputFeatures = geometry.getInputFeatures();
+		checkLength("Columns", columns, (long) examples * outputPositions * filterFeatures);
+		checkLength("Images", images, (long) inputFeatures * examples);
+		// The receptive fields of different examples never overlap, so examples are scattered in
+		// parallel
+		ParallelRange.forEach(forkJoinPool, examples, (long) examples * outputPositions * filterFeatures, example -> {
+			Arrays.fill(images, example * inputFeatures, (example + 1) * inputFeatures, 0f);
+			for (int position = 0; position < outputPositions; position++) {
+				int row = example * outputPositions + position;
+				scatterPatch(geometry, columns, row * filterFeatures, row, images);
+			}
+		});
+	}
+
+	/**
+	 * Compute the convolution of a batch of CHANNELS_LAST images with a bank of filters, gathering
+	 * and multiplying ROW_BLOCK rows of the im2col matrix at a time, so that the whole matrix is
+	 * never materialised.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param input The images.
+	 * @param weights The (filters, filterHeight x filterWidth x channels) weights.
+	 * @param output The outputs, in the CHANNELS_LAST layout, which are overwritten.
+	 */
+	public void convolve(ConvolutionGeometry geometry, int examples, float[] input, float[] weights,
+			float[] output) {
+		int rows = examples * geometry.getOutputHeight() * geometry.getOutputWidth();
+		int filterFeatures = geometry.getFilterFeatures();
+		int filters = geometry.getOutputDepth();
+		checkLength("Input", input, geometry.getInputFeatures() * examples);
+		checkLength("Weights", weights, filters * filterFeatures);
+		checkLength("Output", output, rows * filters);
+		GemmKernel gemmKernel = new GemmKernel(forkJoinPool);
+		int blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+		ParallelRange.forEach(forkJoinPool, blocks, geometry.getMultiplyAdds(examples), block -> {
+			int firstRow = block * ROW_BLOCK;
+			int blockRows = Math.min(ROW_BLOCK, rows - firstRow);
+			float[] patches = new float[blockRows * filterFeatures];
+			for (int row = 0; row < blockRows; row++) {
+				gatherPatch(geometry, input, firstRow + row, patches, row * filterFeatures);
+			}
+			gemmKernel.gemm(false, true, blockRows, filters, filterFeatures, 1f, patches, 0, filterFeatures, weights,
+					0, filterFeatures, 0f, output, firstRow * filters, filters);
+		});
+	}
+
+	/**
+	 * Copy the receptive field of a row of the im2col matrix - an example and output position -
+	 * with a contiguous copy per filter row, writing zeros for the padding.
+	 */
+	private static void gatherPatch(ConvolutionGeometry geometry, float[] input, int row, float[] destination,
+			int destinationOffset) {
+		int channels = geometry.getInputDepth();
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int filterWidth = geometry.getFilterWidth();
+		int outputPositions = geometry.getOutputHeight() * geometry.getOutputWidth();
+		int example = row / outputPositions;
+		int outputY = row % outputPositions / geometry.getOutputWidth();
+		int outputX = row % outputPositions % geometry.getOutputWidth();
+		int firstInputX = outputX * geometry.getStrideWidth() - geometry.getPaddingWidth();
+		// The filter columns whose input columns are within the image
+		int firstFilterX = Math.max(0, -firstInputX);
+		int endFilterX = Math.min(filterWidth, inputWidth - firstInputX);
+		int filterRowLength = filterWidth * channels;
+		for (int filterY = 0; filterY < geometry.getFilterHeight(); filterY++) {
+			int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+			int to = destinationOffset + filterY * filterRowLength;
+			if (inputY < 0 || inputY >= inputHeight || firstFilterX >= endFilterX) {
+				Arrays.fill(destination, to, to + filterRowLength, 0f);
+				continue;
+			}
+			Arrays.fill(destination, to, to + firstFilterX * channels, 0f);
+			System.arraycopy(input, ((example * inputHeight + inputY) * inputWidth + firstInputX + firstFilterX)
+					* channels, destination, to + firstFilterX * channels, (endFilterX - firstFilterX) * channels);
+			Arrays.fill(destination, to + endFilterX * channels, to + filterRowLength, 0f);
+		}
+	}
+
+	/**
+	 * Add a row of the im2col matrix - an example and output position - to its receptive field,
+	 * with a contiguous run per filter row, skipping the padding.
+	 */
+	private static void scatterPatch(ConvolutionGeometry geometry, float[] source, int sourceOffset, int row,
+			float[] images) {
+		int channels = geometry.getInputDepth();
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int filterWidth = geometry.getFilterWidth();
+		int outputPositions = geometry.getOutputHeight() * geometry.getOutputWidth();
+		int example = row / outputPositions;
+		int outputY = row % outputPositions / geometry.getOutputWidth();
+		int outputX = row % outputPositions % geometry.getOutputWidth();
+		int firstInputX = outputX * geometry.getStrideWidth() - geometry.getPaddingWidth();
+		int firstFilterX = Math.max(0, -firstInputX);
+		int endFilterX = Math.min(filterWidth, inputWidth - firstInputX);
+		int runLength = (endFilterX - firstFilterX) * channels;
+		for (int filterY = 0; filterY < geometry.getFilterHeight(); filterY++) {
+			int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+			if (inputY < 0 || inputY >= inputHeight || runLength <= 0) {
+				continue;
+			}
+			int from = sourceOffset + (filterY * filterWidth + firstFilterX) * channels;
+			int to = ((example * inputHeight + inputY) * inputWidth + firstInputX + firstFilterX) * channels;
+			for (int i = 0; i < runLength; i++) {
+				images[to + i] += source[from + i];
+			}
+		}
+	}
+
+	/**
+	 * Compute the maximum of each channel over each pooling window of a batch of CHANNELS_LAST
+	 * images, ignoring padding.
+	 *
+	 * @param geometry The dimensions of the pooling, whose output depth must be its input depth.
+	 * @param examples The number of examples.
+	 * @param input The images.
+	 * @param output The pooled images, in the CHANNELS_LAST layout, which are overwritten.
+	 */
+	public void maxPool(ConvolutionGeometry geometry, int examples, float[] input, float[] output) {
+		pool(geometry, examples, input, output, true);
+	}
+
+	/**
+	 * Compute the mean of each channel over each pooling window of a batch of CHANNELS_LAST images,
+	 * over the positions of each window within the image - so excluding padding.
+	 *
+	 * @param geometry The dimensions of the pooling, whose output depth must be its input depth.
+	 * @param examples The number of examples.
+	 * @param input The images.
+	 * @param output The pooled images, in the CHANNELS_LAST layout, which are overwritten.
+	 */
+	public void averagePool(ConvolutionGeometry geometry, int examples, float[] input, float[] output) {
+		pool(geometry, examples, input, output, false);
+	}
+
+	private void pool(ConvolutionGeometry geometry, int examples, float[] input, float[] output, boolean max) {
+		checkPooling(geometry);
+		int channels = geometry.getInputDepth();
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int outputPositions = geometry.getOutputHeight() * geometry.getOutputWidth();
+		int rows = examples * outputPositions;
+		checkLength("Input", input, geometry.getInputFeatures() * examples);
+		checkLength("Output", output, rows * channels);
+		ParallelRange.forEach(forkJoinPool, rows,
+				(long) rows * channels * geometry.getFilterHeight() * geometry.getFilterWidth(), row -> {
+					int example = row / outputPositions;
+					int outputY = row % outputPositions / geometry.getOutputWidth();
+					int outputX = row % outputPositions % geometry.getOutputWidth();
+					int to = row * channels;
+					int count = 0;
+					for (int filterY = 0; filterY < geometry.getFilterHeight(); filterY++) {
+						int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+						if (inputY < 0 || inputY >= inputHeight) {
+							continue;
+						}
+						for (int filterX = 0; filterX < geometry.getFilterWidth(); filterX++) {
+							int inputX = outputX * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+							if (inputX < 0 || inputX >= inputWidth) {
+								continue;
+							}
+							int from = ((example * inputHeight + inputY) * inputWidth + inputX) * channels;
+							if (count == 0) {
+								System.arraycopy(input, from, output, to, channels);
+							} else if (max) {
+								for (int channel = 0; channel < channels; channel++) {
+									output[to + channel] = Math.max(output[to + channel], input[from + channel]);
+								}
+							} else {
+								for (int channel = 0; channel < channels; channel++) {
+									output[to + channel] += input[from + channel];
+								}
+							}
+							count++;
+						}
+					}
+					if (count == 0) {
+						Arrays.fill(output, to, to + channels, 0f);
+					} else if (!max && count > 1) {
+						float scale = 1f / count;
+						for (int channel = 0; channel < channels; channel++) {
+							output[to + channel] *= scale;
+						}
+					}
+				});
+	}
+
+	/**
+	 * Route the gradient of each output of maxPool back to the pixel of its pooling window which
+	 * held the maximum - the first such pixel in the case of ties.
+	 *
+	 * @param geometry The dimensions of the pooling, whose output depth must be its input depth.
+	 * @param examples The number of examples.
+	 * @param input The images which were pooled.
+	 * @param outputGradient The gradient of the pooled images, in the CHANNELS_LAST layout.
+	 * @param inputGradient The array to which the gradient of the images is written, in the
+	 * CHANNELS_LAST layout.
+	 */
+	public void maxPoolGradient(ConvolutionGeometry geometry, int examples, float[] input, float[] outputGradient,
+			float[] inputGradient) {
+		checkLength("Input", input, (long) geometry.getInputFeatures() * examples);
+		poolGradient(geometry, examples, input, outputGradient, inputGradient);
+	}
+
+	/**
+	 * Spread the gradient of each output of averagePool evenly over the pixels of its pooling window
+	 * within the image.
+	 *
+	 * @param geometry The dimensions of the pooling, whose output depth must be its input depth.
+	 * @param examples The number of examples.
+	 * @param outputGradient The gradient of the pooled images, in the CHANNELS_LAST layout.
+	 * @param inputGradient The array to which the gradient of the images is written, in the
+	 * CHANNELS_LAST layout.
+	 */
+	public void averagePoolGradient(ConvolutionGeometry geometry, int examples, float[] outputGradient,
+			float[] inputGradient) {
+		poolGradient(geometry, examples, null, outputGradient, inputGradient);
+	}
+
+	/**
+	 * Scatter pooled gradients, to the maximum of each window when the pooled input is provided and
+	 * evenly over each window otherwise.
+	 */
+	private void poolGradient(ConvolutionGeometry geometry, int examples, float[] input, float[] outputGradient,
+			float[] inputGradient) {
+		checkPooling(geometry);
+		int channels = geometry.getInputDepth();
+		int inputFeatures = geometry.getInputFeatures();
+		int outputPositions = geometry.getOutputHeight() * geometry.getOutputWidth();
+		checkLength("Output gradient", outputGradient, (long) examples * outputPositions * channels);
+		checkLength("Input gradient", inputGradient, (long) inputFeatures * examples);
+		// The windows of different examples never overlap, so examples are scattered in parallel
+		ParallelRange.forEach(forkJoinPool, examples,
+				(long) examples * outputPositions * channels * geometry.getFilterHeight() * geometry.getFilterWidth(),
+				example -> {
+					Arrays.fill(inputGradient, example * inputFeatures, (example + 1) * inputFeatures, 0f);
+					int[] maxIndexes = new int[channels];
+					for (int position = 0; position < outputPositions; position++) {
+						int from = (example * outputPositions + position) * channels;
+						if (input != null) {
+							Arrays.fill(maxIndexes, -1);
+							forEachPixel(geometry, example, position, pixel -> {
+								for (int channel = 0; channel < channels; channel++) {
+									if (maxIndexes[channel] < 0 || input[pixel + channel] > input[maxIndexes[channel]]) {
+										maxIndexes[channel] = pixel + channel;
+									}
+								}
+							});
+							for (int channel = 0; channel < channels && maxIndexes[channel] >= 0; channel++) {
+								inputGradient[maxIndexes[channel]] += outputGradient[from + channel];
+							}
+						} else {
+							int count = forEachPixel(geometry, example, position, pixel -> {
+							});
+							if (count > 0) {
+								float scale = 1f / count;
+								forEachPixel(geometry, example, position, pixel -> {
+									for (int channel = 0; channel < channels; channel++) {
+										inputGradient[pixel + channel] += outputGradient[from + channel] * scale;
+									}
+								});
+							}
+						}
+					}
+				});
+	}
+
+	/**
+	 * Run body with the index in the images of the first channel of each pixel of the pooling
+	 * window of an example and output position which is within the image.
+	 *
+	 * @return The number of pixels of the window within the image.
+	 */
+	private static int forEachPixel(ConvolutionGeometry geometry, int example, int position, IntConsumer body) {
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int outputY = position / geometry.getOutputWidth();
+		int outputX = position % geometry.getOutputWidth();
+		int count = 0;
+		for (int filterY = 0; filterY < geometry.getFilterHeight(); filterY++) {
+			int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+			if (inputY < 0 || inputY >= inputHeight) {
+				continue;
+			}
+			for (int filterX = 0; filterX < geometry.getFilterWidth(); filterX++) {
+				int inputX = outputX * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+				if (inputX >= 0 && inputX < inputWidth) {
+					body.accept(((example * inputHeight + inputY) * inputWidth + inputX) * geometry.getInputDepth());
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Rearrange each (blockHeight, blockWidth) block of pixels of a batch of CHANNELS_LAST images
+	 * into the channels of a single pixel, with channel (blockY x blockWidth + blockX) x channels
+	 * + c of an output pixel holding channel c of the pixel at (blockY, blockX) of its block.
+	 *
+	 * @param channels The number of channels of the input.
+	 * @param height The height of each input image, which must be a multiple of blockHeight.
+	 * @param width The width of each input image, which must be a multiple of blockWidth.
+	 * @param examples The number of examples.
+	 * @param blockHeight The height of each block.
+	 * @param blockWidth The width of each block.
+	 * @param input The images.
+	 * @param output The (height / blockHeight, width / blockWidth, blockHeight x blockWidth x
+	 * channels) images, in the CHANNELS_LAST layout.
+	 */
+	public void spaceToDepthExport(int channels, int height, int width, int examples, int blockHeight,
+			int blockWidth, float[] input, float[] output) {
+		spaceToDepth(channels, height, width, examples, blockHeight, blockWidth, input, output, true);
+	}
+
+	/**
+	 * The inverse of spaceToDepthExport - rearranging the channels of each pixel of a batch of
+	 * CHANNELS_LAST images back into a (blockHeight, blockWidth) block of pixels.
+	 *
+	 * @param channels The number of channels of the output.
+	 * @param height The height of each output image, which must be a multiple of blockHeight.
+	 * @param width The width of each output image, which must be a multiple of blockWidth.
+	 * @param examples The number of examples.
+	 * @param blockHeight The height of each block.
+	 * @param blockWidth The width of each block.
+	 * @param input The (height / blockHeight, width / blockWidth, blockHeight x blockWidth x
+	 * channels) images.
+	 * @param output The (height, width, channels) images, in the CHANNELS_LAST layout.
+	 */
+	public void spaceToDepthImport(int channels, int height, int width, int examples, int blockHeight,
+			int blockWidth, float[] input, float[] output) {
+		spaceToDepth(channels, height, width, examples, blockHeight, blockWidth, input, output, false);
+	}
+
+	private void spaceToDepth(int channels, int height, int width, int examples, int blockHeight, int blockWidth,
+			float[] input, float[] output, boolean export) {
+		if (blockHeight < 1 || blockWidth < 1 || height % blockHeight != 0 || width % blockWidth != 0) {
+			throw new IllegalArgumentException("Image of shape (" + height + ", " + width
+					+ ") cannot be divided into blocks of shape (" + blockHeight + ", " + blockWidth + ")");
+		}
+		int length = channels * height * width * examples;
+		checkLength("Input", input, length);
+		checkLength("Output", output, length);
+		int outputHeight = height / blockHeight;
+		int outputWidth = width / blockWidth;
+		int outputChannels = blockHeight * blockWidth * channels;
+		ParallelRange.forEach(forkJoinPool, examples * outputHeight, length, task -> {
+			int example = task / outputHeight;
+			int outputY = task % outputHeight;
+			for (int outputX = 0; outputX < outputWidth; outputX++) {
+				for (int blockY = 0; blockY < blockHeight; blockY++) {
+					for (int blockX = 0; blockX < blockWidth; blockX++) {
+						int spaceIndex = ((example * height + outputY * blockHeight + blockY) * width
+								+ outputX * blockWidth + blockX) * channels;
+						int depthIndex = ((example * outputHeight + outputY) * outputWidth + outputX) * outputChannels
+								+ (blockY * blockWidth + blockX) * channels;
+						if (export) {
+							System.arraycopy(input, spaceIndex, output, depthIndex, channels);
+						} else {
+							System.arraycopy(input, depthIndex, output, spaceIndex, channels);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	private static void checkPooling(ConvolutionGeometry geometry) {
+		if (geometry.getOutputDepth() != geometry.getInputDepth()) {
+			throw new IllegalArgumentException("Pooling output depth must equal input depth of "
+					+ geometry.getInputDepth() + " but is " + geometry.getOutputDepth());
+		}
+	}
+
+	private static void checkLength(String name, float[] array, long length) {
+		if (array.length < length) {
+			throw new IllegalArgumentException(name + " array must have at least " + length + " values but has "
+					+ array.length);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * The algorithms by which a ConvolutionKernel may compute a convolution.
+ */
+public enum ConvolutionAlgorithm {
+
+	/**
+	 * Copy each receptive field of the input into a column of a matrix of filterHeight x
+	 * filterWidth times the size of the input, and multiply the weights by that matrix.  Supports
+	 * any convolution, and makes the most of a fast matrix multiplication, at the cost of the
+	 * largest workspace.
+	 */
+	IM2COL,
+
+	/**
+	 * Multiply the weights by the im2col matrix without materialising it - copying the receptive
+	 * fields of the input into the packed blocks of the multiplication as each block is packed - so
+	 * that the workspace is of the size of a packed block rather than filterHeight x filterWidth
+	 * times the size of the input.  Supports any convolution.
+	 */
+	IMPLICIT_IM2COL,
+
+	/**
+	 * Accumulate each output directly from the input, for a block of output channels at a time, with
+	 * no workspace.  Suited to inputs with few channels - such as the first layer of an image
+	 * model - for which the multiplication of an im2col matrix is too thin to be efficient.
+	 */
+	DIRECT,
+
+	/**
+	 * Winograd minimal filtering F(2x2, 3x3), computing each 2x2 tile of output with 16 rather than
+	 * 36 multiplications per channel.  Supports only 3x3 filters at stride 1.
+	 */
+	WINOGRAD_2X2_3X3,
+
+	/**
+	 * Winograd minimal filtering F(4x4, 3x3), computing each 4x4 tile of output with 36 rather than
+	 * 144 multiplications per channel, with slightly larger rounding errors than F(2x2, 3x3).
+	 * Supports only 3x3 filters at stride 1.
+	 */
+	WINOGRAD_4X4_3X3;
+
+	/**
+	 * The greatest number of input channels for which DIRECT is selected.
+	 */
+	static final int DIRECT_MAX_INPUT_DEPTH = 4;
+
+	/**
+	 * The least output height and width for which WINOGRAD_4X4_3X3 rather than WINOGRAD_2X2_3X3 is
+	 * selected - below this, the padding of partial tiles outweighs the saving.
+	 */
+	static final int WINOGRAD_4X4_MIN_OUTPUT_SIZE = 8;
+
+	/**
+	 * @param geometry The dimensions of a convolution.
+	 * @return Whether this algorithm can compute the convolution.
+	 */
+	public boolean isSupported(ConvolutionGeometry geometry) {
+		switch (this) {
+			case WINOGRAD_2X2_3X3:
+			case WINOGRAD_4X4_3X3:
+				return geometry.getFilterHeight() == 3 && geometry.getFilterWidth() == 3
+						&& geometry.getStrideHeight() == 1 && geometry.getStrideWidth() == 1;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Select the algorithm expected to be fastest for a convolution - DIRECT for inputs with few
+	 * channels, Winograd for 3x3 filters at stride 1, and IM2COL otherwise.
+	 *
+	 * @param geometry The dimensions of a convolution.
+	 * @return The selected algorithm.
+	 */
+	public static ConvolutionAlgorithm select(ConvolutionGeometry geometry) {
+		if (geometry.getInputDepth() <= DIRECT_MAX_INPUT_DEPTH) {
+			return DIRECT;
+		}
+		if (WINOGRAD_4X4_3X3.isSupported(geometry)) {
+			return geometry.getOutputHeight() >= WINOGRAD_4X4_MIN_OUTPUT_SIZE
+					&& geometry.getOutputWidth() >= WINOGRAD_4X4_MIN_OUTPUT_SIZE ? WINOGRAD_4X4_3X3
+							: WINOGRAD_2X2_3X3;
+		}
+		return IM2COL;
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.io.Serializable;
+
+/**
+ * The dimensions of a two-dimensional, multi-channel convolution - of inputs of shape
+ * (inputDepth, inputHeight, inputWidth) with outputDepth filters of shape (inputDepth,
+ * filterHeight, filterWidth), at the given strides, over inputs zero-padded by the given
+ * padding on each side.
+ */
+public final class ConvolutionGeometry implements Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final int inputDepth;
+	private final int inputHeight;
+	private final int inputWidth;
+	private final int outputDepth;
+	private final int filterHeight;
+	private final int filterWidth;
+	private final int strideHeight;
+	private final int strideWidth;
+	private final int paddingHeight;
+	private final int paddingWidth;
+
+	/**
+	 * @param inputDepth The number of input channels.
+	 * @param inputHeight The height of each input channel, excluding padding.
+	 * @param inputWidth The width of each input channel, excluding padding.
+	 * @param outputDepth The number of filters, and so of output channels.
+	 * @param filterHeight The height of each filter.
+	 * @param filterWidth The width of each filter.
+	 * @param strideHeight The vertical distance between the positions of the filters.
+	 * @param strideWidth The horizontal distance between the positions of the filters.
+	 * @param paddingHeight The number of rows of zeros above and below each input channel.
+	 * @param paddingWidth The number of columns of zeros to the left and right of each input channel.
+	 */
+	public ConvolutionGeometry(int inputDepth, int inputHeight, int inputWidth, int outputDepth, int filterHeight,
+			int filterWidth, int strideHeight, int strideWidth, int paddingHeight, int paddingWidth) {
+		if (inputDepth < 1 || inputHeight < 1 || inputWidth < 1 || outputDepth < 1) {
+			throw new IllegalArgumentException("Input and output dimensions must be >= 1");
+		}
+		if (filterHeight < 1 || filterWidth < 1) {
+			throw new IllegalArgumentException("Filter dimensions must be >= 1");
+		}
+		if (strideHeight < 1 || strideWidth < 1) {
+			throw new IllegalArgumentException("Strides must be >= 1");
+		}
+		if (paddingHeight < 0 || paddingWidth < 0) {
+			throw new IllegalArgumentException("Padding must be >= 0");
+		}
+		if (filterHeight > inputHeight + 2 * paddingHeight || filterWidth > inputWidth + 2 * paddingWidth) {
+			throw new IllegalArgumentException("Filter of shape (" + filterHeight + ", " + filterWidth
+					+ ") is larger than the padded input of shape (" + (inputHeight + 2 * paddingHeight) + ", "
+					+ (inputWidth + 2 * paddingWidth) + ")");
+		}
+		this.inputDepth = inputDepth;
+		this.inputHeight = inputHeight;
+		this.inputWidth = inputWidth;
+		this.outputDepth = outputDepth;
+		this.filterHeight = filterHeight;
+		this.filterWidth = filterWidth;
+		this.strideHeight = strideHeight;
+		this.strideWidth = strideWidth;
+		this.paddingHeight = paddingHeight;
+		this.paddingWidth = paddingWidth;
+	}
+
+	public int getInputDepth() {
+		return inputDepth;
+	}
+
+	public int getInputHeight() {
+		return inputHeight;
+	}
+
+	public int getInputWidth() {
+		return inputWidth;
+	}
+
+	public int getOutputDepth() {
+		return outputDepth;
+	}
+
+	public int getFilterHeight() {
+		return filterHeight;
+	}
+
+	public int getFilterWidth() {
+		return filterWidth;
+	}
+
+	public int getStrideHeight() {
+		return strideHeight;
+	}
+
+	public int getStrideWidth() {
+		return strideWidth;
+	}
+
+	public int getPaddingHeight() {
+		return paddingHeight;
+	}
+
+	public int getPaddingWidth() {
+		return paddingWidth;
+	}
+
+	public int getOutputHeight() {
+		return (inputHeight + 2 * paddingHeight - filterHeight) / strideHeight + 1;
+	}
+
+	public int getOutputWidth() {
+		return (inputWidth + 2 * paddingWidth - filterWidth) / strideWidth + 1;
+	}
+
+	/**
+	 * @return The number of values of each input example - the number of rows of an input matrix.
+	 */
+	public int getInputFeatures() {
+		return inputDepth * inputHeight * inputWidth;
+	}
+
+	/**
+	 * @return The number of values of each output example - the number of rows of an output matrix.
+	 */
+	public int getOutputFeatures() {
+		return outputDepth * getOutputHeight() * getOutputWidth();
+	}
+
+	/**
+	 * @return The number of weights of each filter - the number of columns of a weights matrix.
+	 */
+	public int getFilterFeatures() {
+		return inputDepth * filterHeight * filterWidth;
+	}
+
+	/**
+	 * @param examples The number of examples.
+	 * @return The number of multiply-adds of a direct or im2col convolution of the examples.
+	 */
+	public long getMultiplyAdds(int examples) {
+		return (long) getOutputFeatures() * getFilterFeatures() * examples;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ConvolutionGeometry)) {
+			return false;
+		}
+		ConvolutionGeometry other = (ConvolutionGeometry) obj;
+		return inputDepth == other.inputDepth && inputHeight == other.inputHeight && inputWidth == other.inputWidth
+				&& outputDepth == other.outputDepth && filterHeight == other.filterHeight
+				&& filterWidth == other.filterWidth && strideHeight == other.strideHeight
+				&& strideWidth == other.strideWidth && paddingHeight == other.paddingHeight
+				&& paddingWidth == other.paddingWidth;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = inputDepth;
+		for (int value : new int[] { inputHeight, inputWidth, outputDepth, filterHeight, filterWidth, strideHeight,
+				strideWidth, paddingHeight, paddingWidth }) {
+			hash = 31 * hash + value;
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "ConvolutionGeometry [input=(" + inputDepth + ", " + inputHeight + ", " + inputWidth + "), filters="
+				+ outputDepth + "x(" + filterHeight + ", " + filterWidth + "), stride=(" + strideHeight + ", "
+				+ strideWidth + "), padding=(" + paddingHeight + ", " + paddingWidth + ")]";
+	}
+}
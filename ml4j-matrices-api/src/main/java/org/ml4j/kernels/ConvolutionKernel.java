@@ -0,0 +1,573 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixLayout;
+
+/**
+ * Pure-Java single-precision convolution kernels, computing the convolution of a batch of
+ * multi-channel inputs with a bank of filters by any of the ConvolutionAlgorithms.
+ *
+ * Inputs are in the layout of a matrix with a row per input feature and a column per example,
+ * stored row by row - so the value of channel c, row y, column x of example e of an input of
+ * shape (depth, height, width) is at index ((c * height + y) * width + x) * examples + e - and
+ * outputs are in the same layout.  Weights are in the layout of a matrix with a row per filter and
+ * a column per filter weight, stored row by row - so the weight of channel c, row y, column x of
+ * filter f is at index f * depth * filterHeight * filterWidth + (c * filterHeight + y) *
+ * filterWidth + x.  These are the layouts of the im2col convolutions of ImageContainer, so the
+ * algorithms are interchangeable.
+ *
+ * IM2COL copies the receptive fields of the input into a matrix filterHeight x filterWidth times
+ * the size of the input and multiplies the weights by it using the GemmKernel, and IMPLICIT_IM2COL
+ * multiplies the weights by that matrix as an ImplicitMatrix, never materialising it.  DIRECT accumulates
+ * the outputs of a block of filters for a row of output at a time directly from the input, with no
+ * workspace, loading each input value once for the whole block.  The Winograd algorithms transform
+ * 3x3 filters and overlapping tiles of the input, multiply the transformed filters and tiles for
+ * each of the positions of a tile as a single batched GemmKernel multiplication, and transform the
+ * products back into tiles of output - needing a workspace of (tileSize + 2)^2 / tileSize^2
+ * rather than 9 times the output size.  All of the examples of a batch are processed together,
+ * so that the innermost loops of every algorithm run over contiguous values.
+ *
+ * The gradients of a convolution with respect to its inputs and weights are computed by implicit
+ * col2im and im2col respectively, with workspaces of the size of a block of the multiplication.
+ */
+public class ConvolutionKernel {
+
+	/**
+	 * The number of filters whose outputs are accumulated together by DIRECT.
+	 */
+	static final int FILTER_BLOCK = 4;
+
+	/**
+	 * The number of columns of the im2col matrix of a channel computed at a time by inputGradient.
+	 */
+	static final int COL2IM_BLOCK_COLUMNS = 1024;
+
+	private static final float[][] WINOGRAD_2X2_BT = {
+			{ 1, 0, -1, 0 },
+			{ 0, 1, 1, 0 },
+			{ 0, -1, 1, 0 },
+			{ 0, 1, 0, -1 } };
+
+	private static final float[][] WINOGRAD_2X2_G = {
+			{ 1, 0, 0 },
+			{ 0.5f, 0.5f, 0.5f },
+			{ 0.5f, -0.5f, 0.5f },
+			{ 0, 0, 1 } };
+
+	private static final float[][] WINOGRAD_2X2_AT = {
+			{ 1, 1, 1, 0 },
+			{ 0, 1, -1, -1 } };
+
+	private static final float[][] WINOGRAD_4X4_BT = {
+			{ 4, 0, -5, 0, 1, 0 },
+			{ 0, -4, -4, 1, 1, 0 },
+			{ 0, 4, -4, -1, 1, 0 },
+			{ 0, -2, -1, 2, 1, 0 },
+			{ 0, 2, -1, -2, 1, 0 },
+			{ 0, 4, 0, -5, 0, 1 } };
+
+	private static final float[][] WINOGRAD_4X4_G = {
+			{ 1 / 4f, 0, 0 },
+			{ -1 / 6f, -1 / 6f, -1 / 6f },
+			{ -1 / 6f, 1 / 6f, -1 / 6f },
+			{ 1 / 24f, 1 / 12f, 1 / 6f },
+			{ 1 / 24f, -1 / 12f, 1 / 6f },
+			{ 0, 0, 1 } };
+
+	private static final float[][] WINOGRAD_4X4_AT = {
+			{ 1, 1, 1, 1, 1, 0 },
+			{ 0, 1, -1, 2, -2, 0 },
+			{ 0, 1, 1, 4, 4, 0 },
+			{ 0, 1, -1, 8, -8, 1 } };
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which the stages of convolutions are computed.
+	 */
+	public ConvolutionKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Compute the convolution of a batch of inputs with a bank of filters.
+	 *
+	 * @param algorithm The algorithm, which must support the geometry.
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param input The inputs, of geometry.getInputFeatures() values per example.
+	 * @param weights The filters, of geometry.getFilterFeatures() values per filter.
+	 * @param output The outputs, of geometry.getOutputFeatures() values per example, which are
+	 * overwritten.
+	 */
+	public void convolve(ConvolutionAlgorithm algorithm, ConvolutionGeometry geometry, int examples, float[] input,
+			float[] weights, float[] output) {
+		if (!algorithm.isSupported(geometry)) {
+			throw new IllegalArgumentException(algorithm + " does not support " + geometry);
+		}
+		if (examples < 0) {
+			throw new IllegalArgumentException("Number of examples must be >= 0");
+		}
+		checkLength("Input", input, (long) geometry.getInputFeatures() * examples);
+		checkLength("Weights", weights, (long) geometry.getOutputDepth() * geometry.getFilterFeatures());
+		checkLength("Output", output, (long) geometry.getOutputFeatures() * examples);
+		if (examples == 0) {
+			return;
+		}
+		switch (algorithm) {
+			case IM2COL:
+				im2col(geometry, examples, input, weights, output);
+				break;
+			case IMPLICIT_IM2COL:
+				new GemmKernel(forkJoinPool).gemm(false, false, geometry.getOutputDepth(), 1f, weights, 0,
+						geometry.getFilterFeatures(), new Im2colMatrix(geometry, examples, input), 0f, output, 0,
+						geometry.getOutputHeight() * geometry.getOutputWidth() * examples);
+				break;
+			case DIRECT:
+				direct(geometry, examples, input, weights, output);
+				break;
+			case WINOGRAD_2X2_3X3:
+				winograd(2, WINOGRAD_2X2_BT, WINOGRAD_2X2_G, WINOGRAD_2X2_AT, geometry, examples, input, weights, output);
+				break;
+			case WINOGRAD_4X4_3X3:
+				winograd(4, WINOGRAD_4X4_BT, WINOGRAD_4X4_G, WINOGRAD_4X4_AT, geometry, examples, input, weights, output);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported convolution algorithm: " + algorithm);
+		}
+	}
+
+	/**
+	 * Compute the convolution of a matrix of inputs, with a row per input feature and a column per
+	 * example, with a matrix of filters, with a row per filter - reading the values of each
+	 * matrix in row-by-row order.
+	 *
+	 * @param algorithm The algorithm, which must support the geometry.
+	 * @param geometry The dimensions of the convolution.
+	 * @param input The inputs.
+	 * @param weights The filters.
+	 * @return The row-by-row array of the outputs, with a row per output feature and a column per
+	 * example.
+	 */
+	public float[] convolve(ConvolutionAlgorithm algorithm, ConvolutionGeometry geometry, Matrix input,
+			Matrix weights) {
+		checkRows("Input", input, geometry.getInputFeatures());
+		checkWeights(geometry, weights);
+		float[] output = new float[geometry.getOutputFeatures() * input.getColumns()];
+		convolve(algorithm, geometry, input.getColumns(), MatrixLayout.ROW_MAJOR.getArray(input),
+				MatrixLayout.ROW_MAJOR.getArray(weights), output);
+		return output;
+	}
+
+	/**
+	 * Compute the gradient of a cost with respect to the inputs of a convolution, given its gradient
+	 * with respect to the outputs - the col2im import of the product of the transposed weights and
+	 * the output gradient - without materialising the product.
+	 *
+	 * The product is computed for a block of output columns of one channel at a time, and each
+	 * block is accumulated into the input gradient before the next is computed, so that the
+	 * workspace is of the size of a block rather than filterHeight x filterWidth times the size of
+	 * the input.  Channels are computed in parallel, so that no two blocks accumulated at once
+	 * overlap.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param outputGradient The gradient with respect to the outputs.
+	 * @param weights The filters.
+	 * @param inputGradient The gradient with respect to the inputs, which is overwritten.
+	 */
+	public void inputGradient(ConvolutionGeometry geometry, int examples, float[] outputGradient, float[] weights,
+			float[] inputGradient) {
+		if (examples < 0) {
+			throw new IllegalArgumentException("Number of examples must be >= 0");
+		}
+		checkLength("Output gradient", outputGradient, (long) geometry.getOutputFeatures() * examples);
+		checkLength("Weights", weights, (long) geometry.getOutputDepth() * geometry.getFilterFeatures());
+		checkLength("Input gradient", inputGradient, (long) geometry.getInputFeatures() * examples);
+		int channelFeatures = geometry.getInputHeight() * geometry.getInputWidth() * examples;
+		Arrays.fill(inputGradient, 0, geometry.getInputDepth() * channelFeatures, 0f);
+		if (examples == 0) {
+			return;
+		}
+		GemmKernel gemmKernel = new GemmKernel(forkJoinPool);
+		parallelFor(geometry.getInputDepth(), geometry.getMultiplyAdds(examples), channel -> {
+			int filterPositions = geometry.getFilterHeight() * geometry.getFilterWidth();
+			int columns = geometry.getOutputHeight() * geometry.getOutputWidth() * examples;
+			float[] block = new float[filterPositions * Math.min(COL2IM_BLOCK_COLUMNS, columns)];
+			for (int firstColumn = 0; firstColumn < columns; firstColumn += COL2IM_BLOCK_COLUMNS) {
+				int blockColumns = Math.min(COL2IM_BLOCK_COLUMNS, columns - firstColumn);
+				gemmKernel.gemm(true, false, filterPositions, blockColumns, geometry.getOutputDepth(), 1f, weights,
+						channel * filterPositions, geometry.getFilterFeatures(), outputGradient, firstColumn, columns,
+						0f, block, 0, blockColumns);
+				col2imAccumulate(geometry, examples, channel, firstColumn, blockColumns, block, inputGradient);
+			}
+		});
+	}
+
+	/**
+	 * Accumulate a block of the rows of one channel of an im2col matrix into the corresponding
+	 * positions of the input.
+	 */
+	private static void col2imAccumulate(ConvolutionGeometry geometry, int examples, int channel, int firstColumn,
+			int blockColumns, float[] block, float[] inputGradient) {
+		int filterWidth = geometry.getFilterWidth();
+		int outputWidth = geometry.getOutputWidth();
+		for (int filterPosition = 0; filterPosition < geometry.getFilterHeight() * filterWidth; filterPosition++) {
+			int filterY = filterPosition / filterWidth;
+			int filterX = filterPosition % filterWidth;
+			int column = firstColumn;
+			int endColumn = firstColumn + blockColumns;
+			while (column < endColumn) {
+				int position = column / examples;
+				int example = column % examples;
+				int run = Math.min(examples - example, endColumn - column);
+				int inputY = position / outputWidth * geometry.getStrideHeight() + filterY
+						- geometry.getPaddingHeight();
+				int inputX = position % outputWidth * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+				if (inputY >= 0 && inputY < geometry.getInputHeight() && inputX >= 0
+						&& inputX < geometry.getInputWidth()) {
+					int to = ((channel * geometry.getInputHeight() + inputY) * geometry.getInputWidth() + inputX)
+							* examples + example;
+					int from = filterPosition * blockColumns + column - firstColumn;
+					for (int i = 0; i < run; i++) {
+						inputGradient[to + i] += block[from + i];
+					}
+				}
+				column += run;
+			}
+		}
+	}
+
+	/**
+	 * Compute the gradient of a cost with respect to the weights of a convolution, given its
+	 * gradient with respect to the outputs - the product of the output gradient and the transposed
+	 * im2col matrix of the inputs - copying the receptive fields of the inputs into the packed blocks
+	 * of the multiplication rather than materialising the im2col matrix.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param input The inputs.
+	 * @param outputGradient The gradient with respect to the outputs.
+	 * @param weightGradient The gradient with respect to the weights, which is overwritten.
+	 */
+	public void weightGradient(ConvolutionGeometry geometry, int examples, float[] input, float[] outputGradient,
+			float[] weightGradient) {
+		if (examples < 0) {
+			throw new IllegalArgumentException("Number of examples must be >= 0");
+		}
+		checkLength("Input", input, (long) geometry.getInputFeatures() * examples);
+		checkLength("Output gradient", outputGradient, (long) geometry.getOutputFeatures() * examples);
+		checkLength("Weight gradient", weightGradient, (long) geometry.getOutputDepth() * geometry.getFilterFeatures());
+		new GemmKernel(forkJoinPool).gemm(false, true, geometry.getOutputDepth(), 1f, outputGradient, 0,
+				geometry.getOutputHeight() * geometry.getOutputWidth() * examples,
+				new Im2colMatrix(geometry, examples, input), 0f, weightGradient, 0, geometry.getFilterFeatures());
+	}
+
+	/**
+	 * Compute the gradient of a cost with respect to the inputs of a convolution, as
+	 * inputGradient does, for matrices with a row per feature and a column per example.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param outputGradient The gradient with respect to the outputs.
+	 * @param weights The filters.
+	 * @return The row-by-row array of the gradient with respect to the inputs.
+	 */
+	public float[] inputGradient(ConvolutionGeometry geometry, Matrix outputGradient, Matrix weights) {
+		checkRows("Output gradient", outputGradient, geometry.getOutputFeatures());
+		checkWeights(geometry, weights);
+		float[] inputGradient = new float[geometry.getInputFeatures() * outputGradient.getColumns()];
+		inputGradient(geometry, outputGradient.getColumns(), MatrixLayout.ROW_MAJOR.getArray(outputGradient),
+				MatrixLayout.ROW_MAJOR.getArray(weights), inputGradient);
+		return inputGradient;
+	}
+
+	/**
+	 * Compute the gradient of a cost with respect to the weights of a convolution, as
+	 * weightGradient does, for matrices with a row per feature and a column per example.
+	 *
+	 * @param geometry The dimensions of the convolution.
+	 * @param input The inputs.
+	 * @param outputGradient The gradient with respect to the outputs.
+	 * @return The row-by-row array of the gradient with respect to the weights.
+	 */
+	public float[] weightGradient(ConvolutionGeometry geometry, Matrix input, Matrix outputGradient) {
+		checkRows("Input", input, geometry.getInputFeatures());
+		checkRows("Output gradient", outputGradient, geometry.getOutputFeatures());
+		if (input.getColumns() != outputGradient.getColumns()) {
+			throw new IllegalArgumentException("Input and output gradient matrices must have the same number of "
+					+ "columns but have " + input.getColumns() + " and " + outputGradient.getColumns());
+		}
+		float[] weightGradient = new float[geometry.getOutputDepth() * geometry.getFilterFeatures()];
+		weightGradient(geometry, input.getColumns(), MatrixLayout.ROW_MAJOR.getArray(input),
+				MatrixLayout.ROW_MAJOR.getArray(outputGradient), weightGradient);
+		return weightGradient;
+	}
+
+	private static void checkRows(String name, Matrix matrix, int rows) {
+		if (matrix.getRows() != rows) {
+			throw new IllegalArgumentException(name + " matrix must have " + rows + " rows but has "
+					+ matrix.getRows());
+		}
+	}
+
+	private static void checkWeights(ConvolutionGeometry geometry, Matrix weights) {
+		if (weights.getRows() != geometry.getOutputDepth() || weights.getColumns() != geometry.getFilterFeatures()) {
+			throw new IllegalArgumentException("Weights matrix must have shape (" + geometry.getOutputDepth() + ", "
+					+ geometry.getFilterFeatures() + ") but has shape (" + weights.getRows() + ", "
+					+ weights.getColumns() + ")");
+		}
+	}
+
+	private static void checkLength(String name, float[] array, long length) {
+		if (array.length < length) {
+			throw new IllegalArgumentException(name + " array must have at least " + length + " values but has "
+					+ array.length);
+		}
+	}
+
+	private void im2col(ConvolutionGeometry geometry, int examples, float[] input, float[] weights, float[] output) {
+		int rows = geometry.getFilterFeatures();
+		int columns = geometry.getOutputHeight() * geometry.getOutputWidth() * examples;
+		float[] receptiveFields = new float[rows * columns];
+		new Im2colKernel(forkJoinPool).im2colConvExport(geometry, examples, input, receptiveFields, 0);
+		new GemmKernel(forkJoinPool).gemm(false, false, geometry.getOutputDepth(), columns, rows, 1f, weights, 0,
+				rows, receptiveFields, 0, columns, 0f, output, 0, columns);
+	}
+
+	private void direct(ConvolutionGeometry geometry, int examples, float[] input, float[] weights, float[] output) {
+		int outputHeight = geometry.getOutputHeight();
+		int filterBlocks = (geometry.getOutputDepth() + FILTER_BLOCK - 1) / FILTER_BLOCK;
+		parallelFor(filterBlocks * outputHeight, geometry.getMultiplyAdds(examples),
+				task -> directRow(geometry, examples, input, weights, output, task / outputHeight * FILTER_BLOCK,
+						task % outputHeight));
+	}
+
+	/**
+	 * Compute a row of output of a block of up to FILTER_BLOCK filters.
+	 */
+	private static void directRow(ConvolutionGeometry geometry, int examples, float[] input, float[] weights,
+			float[] output, int firstFilter, int outputY) {
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int filterHeight = geometry.getFilterHeight();
+		int filterWidth = geometry.getFilterWidth();
+		int outputWidth = geometry.getOutputWidth();
+		int filterFeatures = geometry.getFilterFeatures();
+		int filters = Math.min(FILTER_BLOCK, geometry.getOutputDepth() - firstFilter);
+		int rowLength = outputWidth * examples;
+		int filterStride = geometry.getOutputHeight() * rowLength;
+		int firstOutputIndex = (firstFilter * geometry.getOutputHeight() + outputY) * rowLength;
+		for (int f = 0; f < filters; f++) {
+			Arrays.fill(output, firstOutputIndex + f * filterStride, firstOutputIndex + f * filterStride + rowLength,
+					0f);
+		}
+		for (int channel = 0; channel < geometry.getInputDepth(); channel++) {
+			for (int filterY = 0; filterY < filterHeight; filterY++) {
+				int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+				if (inputY < 0 || inputY >= inputHeight) {
+					continue;
+				}
+				for (int filterX = 0; filterX < filterWidth; filterX++) {
+					int weightIndex = firstFilter * filterFeatures + (channel * filterHeight + filterY) * filterWidth
+							+ filterX;
+					for (int outputX = 0; outputX < outputWidth; outputX++) {
+						int inputX = outputX * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+						if (inputX < 0 || inputX >= inputWidth) {
+							continue;
+						}
+						int inputIndex = ((channel * inputHeight + inputY) * inputWidth + inputX) * examples;
+						int outputIndex = firstOutputIndex + outputX * examples;
+						if (filters == FILTER_BLOCK) {
+							accumulateBlock(examples, input, inputIndex, weights[weightIndex],
+									weights[weightIndex + filterFeatures], weights[weightIndex + 2 * filterFeatures],
+									weights[weightIndex + 3 * filterFeatures], output, outputIndex, filterStride);
+						} else {
+							for (int f = 0; f < filters; f++) {
+								float weight = weights[weightIndex + f * filterFeatures];
+								int filterOutputIndex = outputIndex + f * filterStride;
+								for (int e = 0; e < examples; e++) {
+									output[filterOutputIndex + e] += weight * input[inputIndex + e];
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accumulate the products of a run of input values with the corresponding weights of
+	 * FILTER_BLOCK filters, loading each input value once.
+	 */
+	private static void accumulateBlock(int examples, float[] input, int inputIndex, float weight0, float weight1,
+			float weight2, float weight3, float[] output, int outputIndex, int filterStride) {
+		int outputIndex1 = outputIndex + filterStride;
+		int outputIndex2 = outputIndex1 + filterStride;
+		int outputIndex3 = outputIndex2 + filterStride;
+		for (int e = 0; e < examples; e++) {
+			float value = input[inputIndex + e];
+			output[outputIndex + e] += weight0 * value;
+			output[outputIndex1 + e] += weight1 * value;
+			output[outputIndex2 + e] += weight2 * value;
+			output[outputIndex3 + e] += weight3 * value;
+		}
+	}
+
+	private void winograd(int tileSize, float[][] inputTransform, float[][] filterTransform,
+			float[][] outputTransform, ConvolutionGeometry geometry, int examples, float[] input, float[] weights,
+			float[] output) {
+		int inputDepth = geometry.getInputDepth();
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int outputDepth = geometry.getOutputDepth();
+		int outputHeight = geometry.getOutputHeight();
+		int outputWidth = geometry.getOutputWidth();
+		int transformSize = tileSize + 2;
+		int positions = transformSize * transformSize;
+		int tilesWide = (outputWidth + tileSize - 1) / tileSize;
+		int tiles = (outputHeight + tileSize - 1) / tileSize * tilesWide;
+		int columns = tiles * examples;
+
+		// U[position] = (outputDepth, inputDepth) transformed filters
+		float[] transformedFilters = new float[positions * outputDepth * inputDepth];
+		parallelFor(outputDepth, (long) outputDepth * inputDepth * positions * 3, filter -> {
+			float[] partial = new float[transformSize * 3];
+			float[] transformed = new float[positions];
+			for (int channel = 0; channel < inputDepth; channel++) {
+				transform(filterTransform, weights, (filter * inputDepth + channel) * 9, 3, 1, partial, transformed);
+				for (int position = 0; position < positions; position++) {
+					transformedFilters[(position * outputDepth + filter) * inputDepth + channel] = transformed[position];
+				}
+			}
+		});
+
+		// V[position] = (inputDepth, tiles x examples) transformed input tiles
+		float[] transformedInputs = new float[positions * inputDepth * columns];
+		parallelFor(inputDepth * tiles, (long) inputDepth * columns * positions * transformSize, task -> {
+			int channel = task / tiles;
+			int tile = task % tiles;
+			int firstInputY = tile / tilesWide * tileSize - geometry.getPaddingHeight();
+			int firstInputX = tile % tilesWide * tileSize - geometry.getPaddingWidth();
+			float[] values = new float[positions * examples];
+			for (int y = 0; y < transformSize; y++) {
+				int inputY = firstInputY + y;
+				for (int x = 0; x < transformSize && inputY >= 0 && inputY < inputHeight; x++) {
+					int inputX = firstInputX + x;
+					if (inputX >= 0 && inputX < inputWidth) {
+						System.arraycopy(input, ((channel * inputHeight + inputY) * inputWidth + inputX) * examples,
+								values, (y * transformSize + x) * examples, examples);
+					}
+				}
+			}
+			float[] transformed = new float[positions * examples];
+			transform(inputTransform, values, 0, transformSize, examples, new float[positions * examples],
+					transformed);
+			for (int position = 0; position < positions; position++) {
+				System.arraycopy(transformed, position * examples, transformedInputs,
+						(position * inputDepth + channel) * columns + tile * examples, examples);
+			}
+		});
+
+		// M[position] = U[position] * V[position]
+		float[] products = new float[positions * outputDepth * columns];
+		new GemmKernel(forkJoinPool).batchGemm(false, false, positions, outputDepth, columns, inputDepth, 1f,
+				transformedFilters, 0, inputDepth, outputDepth * inputDepth, transformedInputs, 0, columns,
+				inputDepth * columns, 0f, products, 0, columns, outputDepth * columns);
+
+		parallelFor(outputDepth * tiles, (long) outputDepth * columns * positions * tileSize, task -> {
+			int filter = task / tiles;
+			int tile = task % tiles;
+			int firstOutputY = tile / tilesWide * tileSize;
+			int firstOutputX = tile % tilesWide * tileSize;
+			float[] values = new float[positions * examples];
+			for (int position = 0; position < positions; position++) {
+				System.arraycopy(products, (position * outputDepth + filter) * columns + tile * examples, values,
+						position * examples, examples);
+			}
+			float[] transformed = new float[tileSize * tileSize * examples];
+			transform(outputTransform, values, 0, transformSize, examples, new float[tileSize * transformSize
+					* examples], transformed);
+			for (int y = 0; y < tileSize && firstOutputY + y < outputHeight; y++) {
+				for (int x = 0; x < tileSize && firstOutputX + x < outputWidth; x++) {
+					System.arraycopy(transformed, (y * tileSize + x) * examples, output,
+							((filter * outputHeight + firstOutputY + y) * outputWidth + firstOutputX + x) * examples,
+							examples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Compute L * X * transpose(L) for each of a run of (size, size) matrices X whose elements are
+	 * interleaved - so that element (r, c) of matrix i is at index offset + (r * size + c) * count + i.
+	 *
+	 * @param transform The (rows, size) matrix L.
+	 * @param x The matrices X.
+	 * @param offset The index of the first element of the first matrix X.
+	 * @param size The number of rows and columns of each matrix X.
+	 * @param count The number of matrices X.
+	 * @param partial A workspace of at least rows * size * count values.
+	 * @param result The (rows, rows) results, interleaved as the matrices X are.
+	 */
+	private static void transform(float[][] transform, float[] x, int offset, int size, int count, float[] partial,
+			float[] result) {
+		int rows = transform.length;
+		Arrays.fill(partial, 0, rows * size * count, 0f);
+		for (int r = 0; r < rows; r++) {
+			for (int k = 0; k < size; k++) {
+				float coefficient = transform[r][k];
+				if (coefficient == 0f) {
+					continue;
+				}
+				for (int c = 0; c < size; c++) {
+					int from = offset + (k * size + c) * count;
+					int to = (r * size + c) * count;
+					for (int i = 0; i < count; i++) {
+						partial[to + i] += coefficient * x[from + i];
+					}
+				}
+			}
+		}
+		Arrays.fill(result, 0, rows * rows * count, 0f);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < rows; c++) {
+				int to = (r * rows + c) * count;
+				for (int k = 0; k < size; k++) {
+					float coefficient = transform[c][k];
+					if (coefficient == 0f) {
+						continue;
+					}
+					int from = (r * size + k) * count;
+					for (int i = 0; i < count; i++) {
+						result[to + i] += coefficient * partial[from + i];
+					}
+				}
+			}
+		}
+	}
+
+	private void parallelFor(int count, long multiplyAdds, IntConsumer body) {
+		ParallelRange.forEach(forkJoinPool, count, multiplyAdds, body);
+	}
+}
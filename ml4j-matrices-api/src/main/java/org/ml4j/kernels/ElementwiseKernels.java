@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * Element-wise kernels over float arrays, for use by Matrix implementations to provide the
+ * element-wise and broadcast operations of Tensor and EditableMatrix.
+ *
+ * Each method reads its operands from the given offsets and writes to the result array, which
+ * may be one of the operand arrays for an in-place operation such as addi or expi.
+ *
+ * Broadcast operations are defined for matrices in row-by-row order.  A column-by-column
+ * array of an (r, c) matrix is the row-by-row array of its (c, r) transpose, so implementations
+ * storing matrices column-by-column should apply a row vector using applyColumnVector, and a
+ * column vector using applyRowVector, with the dimensions swapped.
+ *
+ * The default instance is obtained from {@link #getDefault()}.
+ */
+public interface ElementwiseKernels {
+
+	/**
+	 * Obtain the ElementwiseKernels for this platform - the first supported implementation
+	 * registered with java.util.ServiceLoader, such as the Vector API implementation provided by
+	 * the ml4j-matrices-vector module, or otherwise the scalar implementation.
+	 *
+	 * @return The default ElementwiseKernels
+	 */
+	static ElementwiseKernels getDefault() {
+		return ElementwiseKernelsLoader.DEFAULT;
+	}
+
+	/**
+	 * @return Whether this implementation can be used on the current platform.
+	 */
+	default boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * result[i] = x[i] op y[i]
+	 *
+	 * @param operation The operation.
+	 * @param x The left operand array.
+	 * @param xOffset The index of the first element of the left operand.
+	 * @param y The right operand array.
+	 * @param yOffset The index of the first element of the right operand.
+	 * @param result The result array.
+	 * @param resultOffset The index of the first element of the result.
+	 * @param length The number of elements.
+	 */
+	void apply(ElementwiseOperation operation, float[] x, int xOffset, float[] y, int yOffset, float[] result,
+			int resultOffset, int length);
+
+	/**
+	 * result[i] = x[i] op value
+	 *
+	 * @param operation The operation.
+	 * @param x The left operand array.
+	 * @param xOffset The index of the first element of the left operand.
+	 * @param value The right operand.
+	 * @param result The result array.
+	 * @param resultOffset The index of the first element of the result.
+	 * @param length The number of elements.
+	 */
+	void apply(ElementwiseOperation operation, float[] x, int xOffset, float value, float[] result,
+			int resultOffset, int length);
+
+	/**
+	 * result[r, c] = x[r, c] op rowVector[c]
+	 *
+	 * @param operation The operation.
+	 * @param rows The number of rows of x.
+	 * @param columns The number of columns of x, and length of the row vector.
+	 * @param x The row-by-row matrix array.
+	 * @param xOffset The index of the first element of the matrix.
+	 * @param rowVector The row vector array.
+	 * @param rowVectorOffset The index of the first element of the row vector.
+	 * @param result The row-by-row result array.
+	 * @param resultOffset The index of the first element of the result.
+	 */
+	void applyRowVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] rowVector, int rowVectorOffset, float[] result, int resultOffset);
+
+	/**
+	 * result[r, c] = x[r, c] op columnVector[r]
+	 *
+	 * @param operation The operation.
+	 * @param rows The number of rows of x, and length of the column vector.
+	 * @param columns The number of columns of x.
+	 * @param x The row-by-row matrix array.
+	 * @param xOffset The index of the first element of the matrix.
+	 * @param columnVector The column vector array.
+	 * @param columnVectorOffset The index of the first element of the column vector.
+	 * @param result The row-by-row result array.
+	 * @param resultOffset The index of the first element of the result.
+	 */
+	void applyColumnVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] columnVector, int columnVectorOffset, float[] result, int resultOffset);
+
+	/**
+	 * result[i] = 1 / (1 + exp(-x[i]))
+	 *
+	 * @param x The operand array.
+	 * @param xOffset The index of the first element of the operand.
+	 * @param result The result array.
+	 * @param resultOffset The index of the first element of the result.
+	 * @param length The number of elements.
+	 */
+	void sigmoid(float[] x, int xOffset, float[] result, int resultOffset, int length);
+
+	/**
+	 * result[i] = log(x[i])
+	 *
+	 * @param x The operand array.
+	 * @param xOffset The index of the first element of the operand.
+	 * @param result The result array.
+	 * @param resultOffset The index of the first element of the result.
+	 * @param length The number of elements.
+	 */
+	void log(float[] x, int xOffset, float[] result, int resultOffset, int length);
+
+	/**
+	 * result[i] = exp(x[i])
+	 *
+	 * @param x The operand array.
+	 * @param xOffset The index of the first element of the operand.
+	 * @param result The result array.
+	 * @param resultOffset The index of the first element of the result.
+	 * @param length The number of elements.
+	 */
+	void exp(float[] x, int xOffset, float[] result, int resultOffset, int length);
+}
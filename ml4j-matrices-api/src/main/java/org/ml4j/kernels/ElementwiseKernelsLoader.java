@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Locates the default ElementwiseKernels.
+ */
+final class ElementwiseKernelsLoader {
+
+	static final ElementwiseKernels DEFAULT = load();
+
+	private ElementwiseKernelsLoader() {
+	}
+
+	private static ElementwiseKernels load() {
+		Iterator<ElementwiseKernels> iterator = ServiceLoader.load(ElementwiseKernels.class,
+				ElementwiseKernels.class.getClassLoader()).iterator();
+		while (true) {
+			try {
+				if (!iterator.hasNext()) {
+					break;
+				}
+				ElementwiseKernels kernels = iterator.next();
+				if (kernels.isSupported()) {
+					return kernels;
+				}
+			} catch (ServiceConfigurationError | LinkageError e) {
+				// Provider cannot be loaded on this platform - eg. jdk.incubator.vector is not
+				// available - so try the next
+			}
+		}
+		return new ScalarElementwiseKernels();
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * The binary element-wise operations supported by ElementwiseKernels.
+ */
+public enum ElementwiseOperation {
+
+	/**
+	 * left + right
+	 */
+	ADD,
+
+	/**
+	 * left - right
+	 */
+	SUB,
+
+	/**
+	 * left * right
+	 */
+	MUL,
+
+	/**
+	 * left / right
+	 */
+	DIV;
+
+	/**
+	 * @param left The left operand.
+	 * @param right The right operand.
+	 * @return The result of applying this operation to the operands.
+	 */
+	public float apply(float left, float right) {
+		switch (this) {
+			case ADD: return left + right;
+			case SUB: return left - right;
+			case MUL: return left * right;
+			default: return left / right;
+		}
+	}
+}
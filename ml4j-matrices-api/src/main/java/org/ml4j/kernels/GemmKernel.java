@@ -0,0 +1,835 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.ml4j.EditableMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixLayout;
+import org.ml4j.SparseMatrix;
+
+/**
+ * A pure-Java single-precision matrix multiplication kernel, for use by MatrixFactory
+ * implementations which cannot delegate to a native BLAS library.
+ *
+ * The output matrix is divided into tiles which are computed in parallel on a ForkJoinPool.
+ * Within each tile, blocks of the operands are packed into contiguous panels sized to remain
+ * in cache, and the panels are multiplied by a register-blocked micro-kernel which computes
+ * a MR x NR block of the output at a time.
+ *
+ * All matrices are in row-by-row order, with the element at row r, column c of a matrix
+ * with leading dimension ld and offset o located at index o + r * ld + c.  Transposed operands
+ * are read in transposed order while being packed, so are never copied.
+ */
+public class GemmKernel {
+
+	/**
+	 * The number of rows of the output block computed by the micro-kernel.
+	 */
+	static final int MR = 4;
+
+	/**
+	 * The number of columns of the output block computed by the micro-kernel.
+	 */
+	static final int NR = 4;
+
+	/**
+	 * The number of rows of A packed at a time - the packed block of A is sized for the L2 cache.
+	 */
+	static final int MC = 128;
+
+	/**
+	 * The number of columns of A (and rows of B) packed at a time.
+	 */
+	static final int KC = 256;
+
+	/**
+	 * The number of columns of B packed at a time.
+	 */
+	static final int NC = 256;
+
+	/**
+	 * The number of multiply-adds below which a multiplication is run on the calling thread.
+	 */
+	private static final long PARALLEL_THRESHOLD = 1L << 18;
+
+	/**
+	 * The maximum number of values of the result computed at a time by the Matrix gemm when the
+	 * destination does not expose its storage.
+	 */
+	static final int SCRATCH_FLOATS = MC * NC;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which output tiles are computed.
+	 */
+	public GemmKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Compute C = A * B for densely packed row-by-row arrays.
+	 *
+	 * @param m The number of rows of A and C.
+	 * @param n The number of columns of B and C.
+	 * @param k The number of columns of A and rows of B.
+	 * @param a The (m, k) matrix A.
+	 * @param b The (k, n) matrix B.
+	 * @param c The (m, n) matrix C, which is overwritten with the product.
+	 */
+	public void mmul(int m, int n, int k, float[] a, float[] b, float[] c) {
+		mmul(m, n, k, a, 0, k, b, 0, n, c, 0, n);
+	}
+
+	/**
+	 * Compute C = A * B.
+	 *
+	 * @param m The number of rows of A and C.
+	 * @param n The number of columns of B and C.
+	 * @param k The number of columns of A and rows of B.
+	 * @param a The array containing the (m, k) matrix A.
+	 * @param aOffset The index of the first element of A.
+	 * @param lda The leading dimension of A.
+	 * @param b The array containing the (k, n) matrix B.
+	 * @param bOffset The index of the first element of B.
+	 * @param ldb The leading dimension of B.
+	 * @param c The array containing the (m, n) matrix C, which is overwritten with the product.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void mmul(int m, int n, int k, float[] a, int aOffset, int lda, float[] b, int bOffset, int ldb,
+			float[] c, int cOffset, int ldc) {
+		gemm(false, false, m, n, k, 1f, a, aOffset, lda, b, bOffset, ldb, 0f, c, cOffset, ldc);
+	}
+
+	/**
+	 * Compute C = alpha * op(A) * op(B) + beta * C, where op(X) is X or the transpose of X.
+	 *
+	 * If beta is zero, C need not be initialised.
+	 *
+	 * @param transA Whether op(A) is the transpose of A.
+	 * @param transB Whether op(B) is the transpose of B.
+	 * @param m The number of rows of op(A) and C.
+	 * @param n The number of columns of op(B) and C.
+	 * @param k The number of columns of op(A) and rows of op(B).
+	 * @param alpha The scalar multiplier of the product.
+	 * @param a The array containing the matrix A - (m, k) or, if transposed, (k, m).
+	 * @param aOffset The index of the first element of A.
+	 * @param lda The leading dimension of A.
+	 * @param b The array containing the matrix B - (k, n) or, if transposed, (n, k).
+	 * @param bOffset The index of the first element of B.
+	 * @param ldb The leading dimension of B.
+	 * @param beta The scalar multiplier of C.
+	 * @param c The array containing the (m, n) matrix C, which is updated with the result.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void gemm(boolean transA, boolean transB, int m, int n, int k, float alpha, float[] a, int aOffset,
+			int lda, float[] b, int bOffset, int ldb, float beta, float[] c, int cOffset, int ldc) {
+		if (m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		if (m == 0 || n == 0) {
+			return;
+		}
+		compute(new Multiplication(transA, transB, m, n, k, alpha, a, aOffset, lda, b, bOffset, ldb, beta, c,
+				cOffset, ldc));
+	}
+
+	private void compute(Multiplication multiplication) {
+		int tiles = multiplication.getTileCount();
+		if (tiles == 1 || (long) multiplication.m * multiplication.n * multiplication.k < PARALLEL_THRESHOLD) {
+			Workspace workspace = new Workspace();
+			for (int tile = 0; tile < tiles; tile++) {
+				multiplication.computeTile(tile, workspace);
+			}
+		} else {
+			int grain = Math.max(1, tiles / (forkJoinPool.getParallelism() * 4));
+			forkJoinPool.invoke(new TileTask(multiplication, 0, tiles, grain));
+		}
+	}
+
+	/**
+	 * Compute C = alpha * op(A) * op(B) + beta * C, where B is an ImplicitMatrix whose values are
+	 * computed block by block as they are packed - so that, for example, the im2col matrix of a
+	 * convolution is multiplied without ever being materialised, with a workspace of a packed block
+	 * per tile.
+	 *
+	 * @param transA Whether op(A) is the transpose of A.
+	 * @param transB Whether op(B) is the transpose of B.
+	 * @param m The number of rows of op(A) and C.
+	 * @param alpha The scalar multiplier of the product.
+	 * @param a The array containing the matrix A - (m, k) or, if transposed, (k, m).
+	 * @param aOffset The index of the first element of A.
+	 * @param lda The leading dimension of A.
+	 * @param b The matrix B - (k, n) or, if transposed, (n, k).
+	 * @param beta The scalar multiplier of C.
+	 * @param c The array containing the (m, n) matrix C, which is updated with the result.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void gemm(boolean transA, boolean transB, int m, float alpha, float[] a, int aOffset, int lda,
+			ImplicitMatrix b, float beta, float[] c, int cOffset, int ldc) {
+		int n = transB ? b.getRows() : b.getColumns();
+		int k = transB ? b.getColumns() : b.getRows();
+		if (m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		if (m == 0 || n == 0) {
+			return;
+		}
+		compute(new Multiplication(transA, transB, m, n, k, alpha, a, aOffset, lda, b, beta, c, cOffset, ldc));
+	}
+
+	/**
+	 * Compute C[i] = alpha * op(A[i]) * op(B[i]) + beta * C[i] for a batch of equally sized
+	 * matrices stored at fixed strides within single arrays - such as the groups of a grouped
+	 * convolution, or the examples of a per-example computation.
+	 *
+	 * The tiles of all of the outputs are computed as a single parallel computation, so that
+	 * a batch of multiplications each too small to be parallelised alone is still parallelised.
+	 *
+	 * @param transA Whether op(A[i]) is the transpose of A[i].
+	 * @param transB Whether op(B[i]) is the transpose of B[i].
+	 * @param batchCount The number of multiplications.
+	 * @param m The number of rows of each op(A[i]) and C[i].
+	 * @param n The number of columns of each op(B[i]) and C[i].
+	 * @param k The number of columns of each op(A[i]) and rows of each op(B[i]).
+	 * @param alpha The scalar multiplier of the products.
+	 * @param a The array containing the matrices A[i].
+	 * @param aOffset The index of the first element of A[0].
+	 * @param lda The leading dimension of each A[i].
+	 * @param strideA The distance between the first elements of A[i] and A[i + 1].
+	 * @param b The array containing the matrices B[i].
+	 * @param bOffset The index of the first element of B[0].
+	 * @param ldb The leading dimension of each B[i].
+	 * @param strideB The distance between the first elements of B[i] and B[i + 1].
+	 * @param beta The scalar multiplier of each C[i].
+	 * @param c The array containing the matrices C[i], which are updated with the results.
+	 * @param cOffset The index of the first element of C[0].
+	 * @param ldc The leading dimension of each C[i].
+	 * @param strideC The distance between the first elements of C[i] and C[i + 1].
+	 */
+	public void batchGemm(boolean transA, boolean transB, int batchCount, int m, int n, int k, float alpha,
+			float[] a, int aOffset, int lda, int strideA, float[] b, int bOffset, int ldb, int strideB, float beta,
+			float[] c, int cOffset, int ldc, int strideC) {
+		if (batchCount < 0 || m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Batch count and matrix dimensions must be >= 0");
+		}
+		Multiplication[] multiplications = new Multiplication[batchCount];
+		for (int i = 0; i < batchCount; i++) {
+			multiplications[i] = new Multiplication(transA, transB, m, n, k, alpha, a, aOffset + i * strideA, lda, b,
+					bOffset + i * strideB, ldb, beta, c, cOffset + i * strideC, ldc);
+		}
+		computeAll(multiplications, (long) batchCount * m * n * k);
+	}
+
+	/**
+	 * Compute the products a[i] * b[i] of lists of dense matrices, which may be of different
+	 * sizes, as a single parallel computation - reading the values of each matrix in its stored
+	 * layout.
+	 *
+	 * @param a The left operands.
+	 * @param b The right operands.
+	 * @return The row-by-row arrays of the products.
+	 */
+	public List<float[]> batchMmul(List<? extends Matrix> a, List<? extends Matrix> b) {
+		if (a.size() != b.size()) {
+			throw new IllegalArgumentException("Batches must have the same size: " + a.size() + " and " + b.size());
+		}
+		Multiplication[] multiplications = new Multiplication[a.size()];
+		List<float[]> products = new ArrayList<>(a.size());
+		long multiplyAdds = 0;
+		for (int i = 0; i < multiplications.length; i++) {
+			Matrix left = a.get(i);
+			Matrix right = b.get(i);
+			int m = left.getRows();
+			int k = left.getColumns();
+			int n = right.getColumns();
+			if (right.getRows() != k) {
+				throw new IllegalArgumentException("Inner dimensions of matrices at index " + i + " do not match: "
+						+ k + " and " + right.getRows());
+			}
+			MatrixLayout leftLayout = getLayout(left);
+			MatrixLayout rightLayout = getLayout(right);
+			float[] product = new float[m * n];
+			multiplications[i] = new Multiplication(leftLayout == MatrixLayout.COLUMN_MAJOR,
+					rightLayout == MatrixLayout.COLUMN_MAJOR, m, n, k, 1f, leftLayout.getArray(left), 0,
+					leftLayout.getLeadingDimension(m, k), rightLayout.getArray(right), 0,
+					rightLayout.getLeadingDimension(k, n), 0f, product, 0, n);
+			products.add(product);
+			multiplyAdds += (long) m * n * k;
+		}
+		computeAll(multiplications, multiplyAdds);
+		return products;
+	}
+
+	private void computeAll(Multiplication[] multiplications, long multiplyAdds) {
+		int[] firstTiles = new int[multiplications.length + 1];
+		for (int i = 0; i < multiplications.length; i++) {
+			firstTiles[i + 1] = firstTiles[i] + multiplications[i].getTileCount();
+		}
+		int tiles = firstTiles[multiplications.length];
+		if (tiles <= 1 || multiplyAdds < PARALLEL_THRESHOLD) {
+			Workspace workspace = new Workspace();
+			for (Multiplication multiplication : multiplications) {
+				for (int tile = 0; tile < multiplication.getTileCount(); tile++) {
+					multiplication.computeTile(tile, workspace);
+				}
+			}
+		} else {
+			// Leaves of several tiles amortise the cost of a task over batches of tiny outputs
+			int grain = Math.max(1, tiles / (forkJoinPool.getParallelism() * 8));
+			forkJoinPool.invoke(new BatchTileTask(multiplications, firstTiles, 0, tiles, grain));
+		}
+	}
+
+	/**
+	 * Compute c = alpha * op(a) * op(b) + beta * c, where op(X) is X or the transpose of X,
+	 * reading the values of dense Matrices in their stored layout, or using the SparseGemmKernel if
+	 * either a or b is a SparseMatrix.
+	 *
+	 * The result is accumulated directly into the storage array of c where c exposes one, and
+	 * otherwise computed a block of at most SCRATCH_FLOATS values at a time and put into c - so
+	 * that no array the size of the result is allocated.
+	 *
+	 * @param transA Whether op(a) is the transpose of a.
+	 * @param transB Whether op(b) is the transpose of b.
+	 * @param alpha The scalar multiplier of the product.
+	 * @param a The Matrix a.
+	 * @param b The Matrix b.
+	 * @param beta The scalar multiplier of c.
+	 * @param c The destination Matrix, which is updated with the result.
+	 */
+	public void gemm(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta,
+			EditableMatrix c) {
+		int m = transA ? a.getColumns() : a.getRows();
+		int k = transA ? a.getRows() : a.getColumns();
+		int n = transB ? b.getRows() : b.getColumns();
+		int bRows = transB ? b.getColumns() : b.getRows();
+		if (bRows != k) {
+			throw new IllegalArgumentException("Inner dimensions of op(a) and op(b) do not match: " + k + " and "
+					+ bRows);
+		}
+		if (c.getRows() != m || c.getColumns() != n) {
+			throw new IllegalArgumentException("Destination matrix must have shape (" + m + ", " + n
+					+ ") but has shape (" + c.getRows() + ", " + c.getColumns() + ")");
+		}
+		if (m == 0 || n == 0) {
+			return;
+		}
+		// Dense operands are read in their stored layout - a column-major matrix is the row-major
+		// array of its transpose, so is read without a re-layout by flipping its transpose flag.
+		Operand left = new Operand(a, transA);
+		Operand right = new Operand(b, transB);
+		Optional<float[]> storage = c.getStorageArray();
+		if (storage.isPresent() && storage.get().length >= m * n) {
+			if (getLayout(c) == MatrixLayout.ROW_MAJOR) {
+				multiply(left, right, m, n, k, alpha, beta, storage.get(), 0, n);
+				return;
+			}
+			if (left.sparse == null && right.sparse == null) {
+				// A column-major c is the row-major array of its transpose, op(b)^T * op(a)^T
+				gemm(!right.trans, !left.trans, n, m, k, alpha, right.values, 0, right.ld, left.values, 0, left.ld,
+						beta, storage.get(), 0, m);
+				return;
+			}
+		}
+		if (right.sparse != null) {
+			// Blocks of whole rows, as op(a) is dense and may be offset by rows
+			int blockRows = Math.max(1, Math.min(m, SCRATCH_FLOATS / n));
+			float[] scratch = new float[blockRows * n];
+			for (int firstRow = 0; firstRow < m; firstRow += blockRows) {
+				int rows = Math.min(blockRows, m - firstRow);
+				computeBlock(left.offsetRows(firstRow), right, c, firstRow, 0, rows, n, k, alpha, beta, scratch);
+			}
+		} else {
+			// Blocks of whole columns, as op(b) is dense and may be offset by columns
+			int blockColumns = Math.max(1, Math.min(n, SCRATCH_FLOATS / m));
+			float[] scratch = new float[m * blockColumns];
+			for (int firstColumn = 0; firstColumn < n; firstColumn += blockColumns) {
+				int columns = Math.min(blockColumns, n - firstColumn);
+				computeBlock(left, right.offsetColumns(firstColumn), c, 0, firstColumn, m, columns, k, alpha, beta,
+						scratch);
+			}
+		}
+	}
+
+	private void computeBlock(Operand left, Operand right, EditableMatrix c, int firstRow, int firstColumn,
+			int rows, int columns, int k, float alpha, float beta, float[] scratch) {
+		if (beta != 0f) {
+			for (int r = 0; r < rows; r++) {
+				for (int col = 0; col < columns; col++) {
+					scratch[r * columns + col] = c.get(firstRow + r, firstColumn + col);
+				}
+			}
+		}
+		multiply(left, right, rows, columns, k, alpha, beta, scratch, 0, columns);
+		for (int r = 0; r < rows; r++) {
+			for (int col = 0; col < columns; col++) {
+				c.put(firstRow + r, firstColumn + col, scratch[r * columns + col]);
+			}
+		}
+	}
+
+	private void multiply(Operand left, Operand right, int m, int n, int k, float alpha, float beta, float[] c,
+			int cOffset, int ldc) {
+		if (left.sparse != null) {
+			new SparseGemmKernel(forkJoinPool).gemm(left.sparse.getFormat(), left.trans, right.trans, m, n, k, alpha,
+					left.sparse.getValues(), left.sparse.getIndices(), left.sparse.getPointers(), right.values,
+					right.offset, right.ld, beta, c, cOffset, ldc);
+		} else if (right.sparse != null) {
+			new SparseGemmKernel(forkJoinPool).gemm(left.trans, right.trans, m, n, k, alpha, left.values,
+					left.offset, left.ld, right.sparse.getFormat(), right.sparse.getValues(), right.sparse.getIndices(),
+					right.sparse.getPointers(), beta, c, cOffset, ldc);
+		} else {
+			gemm(left.trans, right.trans, m, n, k, alpha, left.values, left.offset, left.ld, right.values,
+					right.offset, right.ld, beta, c, cOffset, ldc);
+		}
+	}
+
+	/**
+	 * An operand of a Matrix gemm - either a SparseMatrix, or the array of a dense Matrix in its
+	 * stored layout, with the transpose flag adjusted for that layout.
+	 */
+	private static class Operand {
+
+		private final SparseMatrix sparse;
+		private final boolean trans;
+		private final float[] values;
+		private final int offset;
+		private final int ld;
+
+		Operand(Matrix matrix, boolean trans) {
+			MatrixLayout layout = getLayout(matrix);
+			if (matrix instanceof SparseMatrix) {
+				this.sparse = (SparseMatrix) matrix;
+				this.trans = trans;
+				this.values = null;
+				this.ld = 0;
+			} else {
+				this.sparse = null;
+				this.trans = trans ^ (layout == MatrixLayout.COLUMN_MAJOR);
+				this.values = layout.getArray(matrix);
+				this.ld = layout.getLeadingDimension(matrix.getRows(), matrix.getColumns());
+			}
+			this.offset = 0;
+		}
+
+		private Operand(Operand operand, int offset) {
+			this.sparse = operand.sparse;
+			this.trans = operand.trans;
+			this.values = operand.values;
+			this.offset = offset;
+			this.ld = operand.ld;
+		}
+
+		/**
+		 * @return This dense operand starting at the given row of op(X).
+		 */
+		Operand offsetRows(int row) {
+			return new Operand(this, offset + (trans ? row : row * ld));
+		}
+
+		/**
+		 * @return This dense operand starting at the given column of op(X).
+		 */
+		Operand offsetColumns(int column) {
+			return new Operand(this, offset + (trans ? column * ld : column));
+		}
+	}
+
+	private static MatrixLayout getLayout(Matrix matrix) {
+		return matrix.getLayout() == MatrixLayout.COLUMN_MAJOR ? MatrixLayout.COLUMN_MAJOR : MatrixLayout.ROW_MAJOR;
+	}
+
+	private static class TileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Multiplication multiplication;
+		private final int fromTile;
+		private final int toTile;
+		private final int grain;
+
+		TileTask(Multiplication multiplication, int fromTile, int toTile, int grain) {
+			this.multiplication = multiplication;
+			this.fromTile = fromTile;
+			this.toTile = toTile;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (toTile - fromTile <= grain) {
+				Workspace workspace = new Workspace();
+				for (int tile = fromTile; tile < toTile; tile++) {
+					multiplication.computeTile(tile, workspace);
+				}
+			} else {
+				int middle = (fromTile + toTile) >>> 1;
+				invokeAll(new TileTask(multiplication, fromTile, middle, grain),
+						new TileTask(multiplication, middle, toTile, grain));
+			}
+		}
+	}
+
+	private static class BatchTileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Multiplication[] multiplications;
+		private final int[] firstTiles;
+		private final int fromTile;
+		private final int toTile;
+		private final int grain;
+
+		BatchTileTask(Multiplication[] multiplications, int[] firstTiles, int fromTile, int toTile, int grain) {
+			this.multiplications = multiplications;
+			this.firstTiles = firstTiles;
+			this.fromTile = fromTile;
+			this.toTile = toTile;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (toTile - fromTile <= grain) {
+				int index = getMultiplicationIndex(fromTile);
+				Workspace workspace = new Workspace();
+				for (int tile = fromTile; tile < toTile; tile++) {
+					while (tile >= firstTiles[index + 1]) {
+						index++;
+					}
+					multiplications[index].computeTile(tile - firstTiles[index], workspace);
+				}
+			} else {
+				int middle = (fromTile + toTile) >>> 1;
+				invokeAll(new BatchTileTask(multiplications, firstTiles, fromTile, middle, grain),
+						new BatchTileTask(multiplications, firstTiles, middle, toTile, grain));
+			}
+		}
+
+		/**
+		 * @return The index of the multiplication containing the tile - the greatest index whose
+		 * first tile is at most the tile.
+		 */
+		private int getMultiplicationIndex(int tile) {
+			int low = 0;
+			int high = multiplications.length - 1;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (firstTiles[middle] <= tile) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * The packing buffers of a task, reused across the tiles it computes and grown as required.
+	 */
+	private static class Workspace {
+
+		private final float[] edge = new float[MR * NR];
+		private float[] packedA = new float[0];
+		private float[] packedB = new float[0];
+		private float[] implicitValues = new float[0];
+
+		float[] getPackedA(int length) {
+			if (packedA.length < length) {
+				packedA = new float[length];
+			}
+			return packedA;
+		}
+
+		float[] getPackedB(int length) {
+			if (packedB.length < length) {
+				packedB = new float[length];
+			}
+			return packedB;
+		}
+
+		float[] getImplicitValues(int length) {
+			if (implicitValues.length < length) {
+				implicitValues = new float[length];
+			}
+			return implicitValues;
+		}
+	}
+
+	private static class Multiplication {
+
+		private final boolean transA;
+		private final boolean transB;
+		private final int m;
+		private final int n;
+		private final int k;
+		private final float alpha;
+		private final float[] a;
+		private final int aOffset;
+		private final int lda;
+		private final float[] b;
+		private final int bOffset;
+		private final int ldb;
+		private final ImplicitMatrix implicitB;
+		private final float beta;
+		private final float[] c;
+		private final int cOffset;
+		private final int ldc;
+		private final int tileColumns;
+
+		Multiplication(boolean transA, boolean transB, int m, int n, int k, float alpha, float[] a, int aOffset,
+				int lda, float[] b, int bOffset, int ldb, float beta, float[] c, int cOffset, int ldc) {
+			this.transA = transA;
+			this.transB = transB;
+			this.m = m;
+			this.n = n;
+			this.k = k;
+			this.alpha = alpha;
+			this.a = a;
+			this.aOffset = aOffset;
+			this.lda = lda;
+			this.b = b;
+			this.bOffset = bOffset;
+			this.ldb = ldb;
+			this.implicitB = null;
+			this.beta = beta;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.ldc = ldc;
+			this.tileColumns = (n + NC - 1) / NC;
+		}
+
+		Multiplication(boolean transA, boolean transB, int m, int n, int k, float alpha, float[] a, int aOffset,
+				int lda, ImplicitMatrix implicitB, float beta, float[] c, int cOffset, int ldc) {
+			this.transA = transA;
+			this.transB = transB;
+			this.m = m;
+			this.n = n;
+			this.k = k;
+			this.alpha = alpha;
+			this.a = a;
+			this.aOffset = aOffset;
+			this.lda = lda;
+			this.b = null;
+			this.bOffset = 0;
+			this.ldb = 0;
+			this.implicitB = implicitB;
+			this.beta = beta;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.ldc = ldc;
+			this.tileColumns = (n + NC - 1) / NC;
+		}
+
+		int getTileCount() {
+			return ((m + MC - 1) / MC) * tileColumns;
+		}
+
+		void computeTile(int tile, Workspace workspace) {
+			int ic = (tile / tileColumns) * MC;
+			int jc = (tile % tileColumns) * NC;
+			int mc = Math.min(MC, m - ic);
+			int nc = Math.min(NC, n - jc);
+
+			scaleC(ic, jc, mc, nc);
+			if (k == 0 || alpha == 0f) {
+				return;
+			}
+
+			int kcMax = Math.min(KC, k);
+			float[] packedA = workspace.getPackedA(roundUp(mc, MR) * kcMax);
+			float[] packedB = workspace.getPackedB(roundUp(nc, NR) * kcMax);
+			float[] edge = workspace.edge;
+			float[] implicitValues = implicitB == null ? null : workspace.getImplicitValues(Math.max(nc, kcMax));
+
+			for (int pc = 0; pc < k; pc += KC) {
+				int kc = Math.min(KC, k - pc);
+				packA(ic, pc, mc, kc, packedA);
+				if (implicitB == null) {
+					packB(pc, jc, kc, nc, packedB);
+				} else {
+					packImplicitB(pc, jc, kc, nc, packedB, implicitValues);
+				}
+				for (int jr = 0; jr < nc; jr += NR) {
+					int columns = Math.min(NR, nc - jr);
+					int packedBIndex = (jr / NR) * kc * NR;
+					for (int ir = 0; ir < mc; ir += MR) {
+						int rows = Math.min(MR, mc - ir);
+						int packedAIndex = (ir / MR) * kc * MR;
+						int cIndex = cOffset + (ic + ir) * ldc + jc + jr;
+						if (rows == MR && columns == NR) {
+							microKernel(kc, packedA, packedAIndex, packedB, packedBIndex, c, cIndex, ldc);
+						} else {
+							microKernelEdge(kc, packedA, packedAIndex, packedB, packedBIndex, c, cIndex, ldc,
+									rows, columns, edge);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Scale the (mc, nc) block of C at (ic, jc) by beta, so that the products of each block of
+		 * the operands may then be accumulated into it.
+		 */
+		private void scaleC(int ic, int jc, int mc, int nc) {
+			if (beta == 1f) {
+				return;
+			}
+			for (int i = 0; i < mc; i++) {
+				int rowStart = cOffset + (ic + i) * ldc + jc;
+				if (beta == 0f) {
+					Arrays.fill(c, rowStart, rowStart + nc, 0f);
+				} else {
+					for (int j = rowStart; j < rowStart + nc; j++) {
+						c[j] *= beta;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Pack the (mc, kc) block of op(A) at (ic, pc), scaled by alpha, into panels of MR rows,
+		 * stored column-by-column within each panel and padded with zeros.
+		 */
+		private void packA(int ic, int pc, int mc, int kc, float[] packedA) {
+			int rowStride = transA ? 1 : lda;
+			int columnStride = transA ? lda : 1;
+			int index = 0;
+			for (int ir = 0; ir < mc; ir += MR) {
+				int rows = Math.min(MR, mc - ir);
+				for (int p = 0; p < kc; p++) {
+					int aIndex = aOffset + (ic + ir) * rowStride + (pc + p) * columnStride;
+					for (int i = 0; i < MR; i++) {
+						packedA[index++] = i < rows ? alpha * a[aIndex + i * rowStride] : 0f;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Pack the (kc, nc) block of op(B) at (pc, jc) into panels of NR columns, stored
+		 * row-by-row within each panel and padded with zeros.
+		 */
+		private void packB(int pc, int jc, int kc, int nc, float[] packedB) {
+			int rowStride = transB ? 1 : ldb;
+			int columnStride = transB ? ldb : 1;
+			int index = 0;
+			for (int jr = 0; jr < nc; jr += NR) {
+				int columns = Math.min(NR, nc - jr);
+				for (int p = 0; p < kc; p++) {
+					int bIndex = bOffset + (pc + p) * rowStride + (jc + jr) * columnStride;
+					for (int j = 0; j < NR; j++) {
+						packedB[index++] = j < columns ? b[bIndex + j * columnStride] : 0f;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Pack the (kc, nc) block of op(B) at (pc, jc) of an ImplicitMatrix B as packB does, reading
+		 * a run of the values of B at a time into a workspace.
+		 */
+		private void packImplicitB(int pc, int jc, int kc, int nc, float[] packedB, float[] values) {
+			Arrays.fill(packedB, 0, roundUp(nc, NR) * kc, 0f);
+			if (transB) {
+				// Column j of the block is a run of row jc + j of B
+				for (int j = 0; j < nc; j++) {
+					implicitB.getRow(jc + j, pc, kc, values, 0);
+					int index = (j / NR) * kc * NR + j % NR;
+					for (int p = 0; p < kc; p++) {
+						packedB[index + p * NR] = values[p];
+					}
+				}
+			} else {
+				for (int p = 0; p < kc; p++) {
+					implicitB.getRow(pc + p, jc, nc, values, 0);
+					for (int j = 0; j < nc; j++) {
+						packedB[(j / NR) * kc * NR + p * NR + j % NR] = values[j];
+					}
+				}
+			}
+		}
+	}
+
+	private static void microKernel(int kc, float[] packedA, int aIndex, float[] packedB, int bIndex, float[] c,
+			int cIndex, int ldc) {
+		float c00 = 0f, c01 = 0f, c02 = 0f, c03 = 0f;
+		float c10 = 0f, c11 = 0f, c12 = 0f, c13 = 0f;
+		float c20 = 0f, c21 = 0f, c22 = 0f, c23 = 0f;
+		float c30 = 0f, c31 = 0f, c32 = 0f, c33 = 0f;
+		for (int p = 0; p < kc; p++) {
+			float a0 = packedA[aIndex];
+			float a1 = packedA[aIndex + 1];
+			float a2 = packedA[aIndex + 2];
+			float a3 = packedA[aIndex + 3];
+			float b0 = packedB[bIndex];
+			float b1 = packedB[bIndex + 1];
+			float b2 = packedB[bIndex + 2];
+			float b3 = packedB[bIndex + 3];
+			c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+			c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+			c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+			c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+			aIndex += MR;
+			bIndex += NR;
+		}
+		int row1 = cIndex + ldc;
+		int row2 = row1 + ldc;
+		int row3 = row2 + ldc;
+		c[cIndex] += c00; c[cIndex + 1] += c01; c[cIndex + 2] += c02; c[cIndex + 3] += c03;
+		c[row1] += c10; c[row1 + 1] += c11; c[row1 + 2] += c12; c[row1 + 3] += c13;
+		c[row2] += c20; c[row2 + 1] += c21; c[row2 + 2] += c22; c[row2 + 3] += c23;
+		c[row3] += c30; c[row3 + 1] += c31; c[row3 + 2] += c32; c[row3 + 3] += c33;
+	}
+
+	private static void microKernelEdge(int kc, float[] packedA, int aIndex, float[] packedB, int bIndex,
+			float[] c, int cIndex, int ldc, int rows, int columns, float[] edge) {
+		Arrays.fill(edge, 0f);
+		for (int p = 0; p < kc; p++) {
+			for (int i = 0; i < MR; i++) {
+				float aValue = packedA[aIndex + i];
+				for (int j = 0; j < NR; j++) {
+					edge[i * NR + j] += aValue * packedB[bIndex + j];
+				}
+			}
+			aIndex += MR;
+			bIndex += NR;
+		}
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				c[cIndex + i * ldc + j] += edge[i * NR + j];
+			}
+		}
+	}
+
+	private static int roundUp(int value, int multiple) {
+		return ((value + multiple - 1) / multiple) * multiple;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pure-Java single-precision im2col and col2im kernels for batches of images in the CHANNELS_FIRST
+ * ImageLayout, as populated by ImageContainer, run in parallel across examples and channels.
+ *
+ * The work is partitioned into tasks of one channel and a contiguous range of examples.  As the
+ * examples of each pixel are contiguous in the images, each task reads and writes contiguous runs
+ * of its examples, and the values written by each task - both in the im2col matrix on export and in
+ * the images on import - are disjoint from those written by every other task, so no locking is
+ * needed.
+ *
+ * For convolution, the im2col matrix has a row per filter weight, ordered by channel, then filter
+ * row, then filter column, and a column per output position and example, ordered by output row,
+ * then output column, then example.  For pooling, the channels are moved from the rows to the
+ * columns - the matrix has a row per filter position, and a column per channel, output position and
+ * example, ordered by channel, then output row, then output column, then example - so that
+ * each column is the receptive field of a single pooled output.  Pooling geometries are
+ * ConvolutionGeometries whose output depth is their input depth.
+ *
+ * Padded positions are exported as zero, and ignored on import.
+ */
+public class Im2colKernel {
+
+	/**
+	 * The minimum number of examples in a task, so that each contiguous run copied is long enough
+	 * to amortise its overhead.
+	 */
+	static final int MIN_EXAMPLE_BLOCK = 16;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which the kernels are run.
+	 */
+	public Im2colKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Populate the convolution im2col matrix of a batch of images.
+	 *
+	 * @param geometry The geometry of the convolution.
+	 * @param examples The number of examples.
+	 * @param images The images, of length inputFeatures x examples.
+	 * @param columns The array to which the im2col matrix is written, row by row.
+	 * @param offset The index in columns at which the im2col matrix starts.
+	 */
+	public void im2colConvExport(ConvolutionGeometry geometry, int examples, float[] images, float[] columns,
+			int offset) {
+		transfer(geometry, examples, images, columns, offset, false, true);
+	}
+
+	/**
+	 * Populate a batch of images from a convolution im2col matrix, each image value being the sum of
+	 * the values of the im2col matrix at the receptive field positions it occupies - so that an
+	 * im2col matrix of gradients is imported as the gradient of the images.
+	 *
+	 * @param geometry The geometry of the convolution.
+	 * @param examples The number of examples.
+	 * @param columns The im2col matrix, row by row.
+	 * @param offset The index in columns at which the im2col matrix starts.
+	 * @param images The array to which the images are written, of length inputFeatures x examples.
+	 */
+	public void im2colConvImport(ConvolutionGeometry geometry, int examples, float[] columns, int offset,
+			float[] images) {
+		transfer(geometry, examples, images, columns, offset, false, false);
+	}
+
+	/**
+	 * Populate the pooling im2col matrix of a batch of images.
+	 *
+	 * @param geometry The geometry of the pooling, whose output depth is its input depth.
+	 * @param examples The number of examples.
+	 * @param images The images, of length inputFeatures x examples.
+	 * @param columns The array to which the im2col matrix is written, row by row.
+	 * @param offset The index in columns at which the im2col matrix starts.
+	 */
+	public void im2colPoolExport(ConvolutionGeometry geometry, int examples, float[] images, float[] columns,
+			int offset) {
+		checkPooling(geometry);
+		transfer(geometry, examples, images, columns, offset, true, true);
+	}
+
+	/**
+	 * Populate a batch of images from a pooling im2col matrix, each image value being the sum of
+	 * the values of the im2col matrix at the receptive field positions it occupies.
+	 *
+	 * @param geometry The geometry of the pooling, whose output depth is its input depth.
+	 * @param examples The number of examples.
+	 * @param columns The im2col matrix, row by row.
+	 * @param offset The index in columns at which the im2col matrix starts.
+	 * @param images The array to which the images are written, of length inputFeatures x examples.
+	 */
+	public void im2colPoolImport(ConvolutionGeometry geometry, int examples, float[] columns, int offset,
+			float[] images) {
+		checkPooling(geometry);
+		transfer(geometry, examples, images, columns, offset, true, false);
+	}
+
+	private static void checkPooling(ConvolutionGeometry geometry) {
+		if (geometry.getOutputDepth() != geometry.getInputDepth()) {
+			throw new IllegalArgumentException("Pooling output depth must equal input depth of "
+					+ geometry.getInputDepth() + " but is " + geometry.getOutputDepth());
+		}
+	}
+
+	private static void checkLength(String name, float[] array, long length) {
+		if (array.length < length) {
+			throw new IllegalArgumentException(name + " array must have at least " + length + " values but has "
+					+ array.length);
+		}
+	}
+
+	/**
+	 * @return The number of examples in each task, so that there are enough tasks across the
+	 * channels to occupy the pool without runs shorter than MIN_EXAMPLE_BLOCK.
+	 */
+	int getExampleBlock(int channels, int examples) {
+		int tasksPerChannel = (forkJoinPool.getParallelism() * 4 + channels - 1) / channels;
+		int maxBlocks = Math.max(1, (examples + MIN_EXAMPLE_BLOCK - 1) / MIN_EXAMPLE_BLOCK);
+		int blocks = Math.min(tasksPerChannel, maxBlocks);
+		return (examples + blocks - 1) / blocks;
+	}
+
+	private void transfer(ConvolutionGeometry geometry, int examples, float[] images, float[] columns, int offset,
+			boolean pooling, boolean export) {
+		if (examples < 0) {
+			throw new IllegalArgumentException("Examples must be >= 0");
+		}
+		if (offset < 0) {
+			throw new IllegalArgumentException("Offset must be >= 0");
+		}
+		int channels = geometry.getInputDepth();
+		int inputHeight = geometry.getInputHeight();
+		int inputWidth = geometry.getInputWidth();
+		int filterHeight = geometry.getFilterHeight();
+		int filterWidth = geometry.getFilterWidth();
+		int outputHeight = geometry.getOutputHeight();
+		int outputWidth = geometry.getOutputWidth();
+		int positions = outputHeight * outputWidth * examples;
+		long length = (long) geometry.getFilterFeatures() * positions;
+		checkLength("Images", images, (long) geometry.getInputFeatures() * examples);
+		checkLength("Columns", columns, offset + length);
+		if (examples == 0) {
+			return;
+		}
+		int columnCount = pooling ? channels * positions : positions;
+		int exampleBlock = getExampleBlock(channels, examples);
+		int exampleBlocks = (examples + exampleBlock - 1) / exampleBlock;
+
+		ParallelRange.forEach(forkJoinPool, channels * exampleBlocks, length, task -> {
+			int channel = task / exampleBlocks;
+			int firstExample = task % exampleBlocks * exampleBlock;
+			int count = Math.min(exampleBlock, examples - firstExample);
+			int channelStart = channel * inputHeight * inputWidth * examples;
+			if (!export) {
+				for (int pixel = 0; pixel < inputHeight * inputWidth; pixel++) {
+					int start = channelStart + pixel * examples + firstExample;
+					Arrays.fill(images, start, start + count, 0f);
+				}
+			}
+			for (int filterY = 0; filterY < filterHeight; filterY++) {
+				for (int filterX = 0; filterX < filterWidth; filterX++) {
+					int row = pooling ? filterY * filterWidth + filterX
+							: (channel * filterHeight + filterY) * filterWidth + filterX;
+					int rowStart = offset + row * columnCount + (pooling ? channel * positions : 0) + firstExample;
+					for (int outputY = 0; outputY < outputHeight; outputY++) {
+						int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+						boolean rowInside = inputY >= 0 && inputY < inputHeight;
+						for (int outputX = 0; outputX < outputWidth; outputX++) {
+							int inputX = outputX * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+							int columnIndex = rowStart + (outputY * outputWidth + outputX) * examples;
+							if (rowInside && inputX >= 0 && inputX < inputWidth) {
+								int imageIndex = channelStart + (inputY * inputWidth + inputX) * examples
+										+ firstExample;
+								if (export) {
+									System.arraycopy(images, imageIndex, columns, columnIndex, count);
+								} else {
+									for (int i = 0; i < count; i++) {
+										images[imageIndex + i] += columns[columnIndex + i];
+									}
+								}
+							} else if (export) {
+								Arrays.fill(columns, columnIndex, columnIndex + count, 0f);
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+
+/**
+ * The im2col matrix of a convolution as an ImplicitMatrix - with a row per filter weight, ordered
+ * by channel, then filter row, then filter column, and a column per output position and example,
+ * ordered by output row, then output column, then example - whose values are copied from the
+ * input as they are requested.
+ */
+class Im2colMatrix implements ImplicitMatrix {
+
+	private final ConvolutionGeometry geometry;
+	private final int examples;
+	private final float[] input;
+
+	/**
+	 * @param geometry The dimensions of the convolution.
+	 * @param examples The number of examples.
+	 * @param input The inputs, in the layout of the ConvolutionKernel.
+	 */
+	Im2colMatrix(ConvolutionGeometry geometry, int examples, float[] input) {
+		this.geometry = geometry;
+		this.examples = examples;
+		this.input = input;
+	}
+
+	@Override
+	public int getRows() {
+		return geometry.getFilterFeatures();
+	}
+
+	@Override
+	public int getColumns() {
+		return geometry.getOutputHeight() * geometry.getOutputWidth() * examples;
+	}
+
+	@Override
+	public void getRow(int row, int firstColumn, int columns, float[] destination, int destinationOffset) {
+		int filterHeight = geometry.getFilterHeight();
+		int filterWidth = geometry.getFilterWidth();
+		int outputWidth = geometry.getOutputWidth();
+		int channel = row / (filterHeight * filterWidth);
+		int filterY = row / filterWidth % filterHeight;
+		int filterX = row % filterWidth;
+		int column = firstColumn;
+		int endColumn = firstColumn + columns;
+		while (column < endColumn) {
+			// Copy the run of examples of one output position at a time
+			int position = column / examples;
+			int example = column % examples;
+			int run = Math.min(examples - example, endColumn - column);
+			int inputY = position / outputWidth * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+			int inputX = position % outputWidth * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+			int to = destinationOffset + column - firstColumn;
+			if (inputY >= 0 && inputY < geometry.getInputHeight() && inputX >= 0 && inputX < geometry.getInputWidth()) {
+				System.arraycopy(input, ((channel * geometry.getInputHeight() + inputY) * geometry.getInputWidth()
+						+ inputX) * examples + example, destination, to, run);
+			} else {
+				Arrays.fill(destination, to, to + run, 0f);
+			}
+			column += run;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * An operand of a GemmKernel multiplication whose values are computed as they are packed, rather
+ * than read from an array - such as the im2col matrix of a convolution, whose values are copied
+ * from the input a block at a time, so that the whole matrix never exists in memory.
+ */
+public interface ImplicitMatrix {
+
+	/**
+	 * @return The number of rows of the matrix.
+	 */
+	int getRows();
+
+	/**
+	 * @return The number of columns of the matrix.
+	 */
+	int getColumns();
+
+	/**
+	 * Write the values of a run of the columns of a row of the matrix to an array.
+	 *
+	 * @param row The index of the row.
+	 * @param firstColumn The index of the first column of the run.
+	 * @param columns The number of columns of the run.
+	 * @param destination The array to which the values are written.
+	 * @param destinationOffset The index at which the value of the first column is written.
+	 */
+	void getRow(int row, int firstColumn, int columns, float[] destination, int destinationOffset);
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A pure-Java kernel for the multiplication of int8 quantized matrices, accumulating the
+ * products in int32 and dequantizing each element of the result to float once.
+ *
+ * The element at (i, j) of the result is aScale(i) * bScale(j) * sum_p A[i, p] * B[p, j],
+ * where A has either a single scale or a scale per row, and B either a single scale or a scale
+ * per column - so that weights quantized per output channel may be used as either operand.
+ *
+ * All matrices are in row-by-row order.  Rows of the result are computed in parallel on a
+ * ForkJoinPool.
+ */
+public class Int8GemmKernel {
+
+	/**
+	 * The number of multiply-adds below which a multiplication is run on the calling thread.
+	 */
+	private static final long PARALLEL_THRESHOLD = 1L << 18;
+
+	/**
+	 * The number of rows of the result computed by each parallel task.
+	 */
+	private static final int ROWS_PER_TASK = 8;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which rows of the result are computed.
+	 */
+	public Int8GemmKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Compute C = dequantize(A * B).
+	 *
+	 * @param m The number of rows of A and C.
+	 * @param n The number of columns of B and C.
+	 * @param k The number of columns of A and rows of B.
+	 * @param a The array containing the (m, k) quantized matrix A.
+	 * @param aOffset The index of the first element of A.
+	 * @param lda The leading dimension of A.
+	 * @param aScales A single scale for A, or the scale of each of its m rows.
+	 * @param b The array containing the (k, n) quantized matrix B.
+	 * @param bOffset The index of the first element of B.
+	 * @param ldb The leading dimension of B.
+	 * @param bScales A single scale for B, or the scale of each of its n columns.
+	 * @param c The array containing the (m, n) matrix C, which is overwritten with the product.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void gemm(int m, int n, int k, byte[] a, int aOffset, int lda, float[] aScales, byte[] b, int bOffset,
+			int ldb, float[] bScales, float[] c, int cOffset, int ldc) {
+		if (m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		if (aScales.length != 1 && aScales.length != m) {
+			throw new IllegalArgumentException("A must have a single scale or " + m + " row scales");
+		}
+		if (bScales.length != 1 && bScales.length != n) {
+			throw new IllegalArgumentException("B must have a single scale or " + n + " column scales");
+		}
+		Multiplication multiplication = new Multiplication(n, k, a, aOffset, lda, aScales, b, bOffset, ldb, bScales,
+				c, cOffset, ldc);
+		if (m <= ROWS_PER_TASK || (long) m * n * k < PARALLEL_THRESHOLD) {
+			multiplication.computeRows(0, m);
+		} else {
+			forkJoinPool.invoke(new RowsTask(multiplication, 0, m));
+		}
+	}
+
+	private static class RowsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Multiplication multiplication;
+		private final int fromRow;
+		private final int toRow;
+
+		RowsTask(Multiplication multiplication, int fromRow, int toRow) {
+			this.multiplication = multiplication;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= ROWS_PER_TASK) {
+				multiplication.computeRows(fromRow, toRow);
+			} else {
+				int middle = (fromRow + toRow) >>> 1;
+				invokeAll(new RowsTask(multiplication, fromRow, middle), new RowsTask(multiplication, middle, toRow));
+			}
+		}
+	}
+
+	private static class Multiplication {
+
+		private final int n;
+		private final int k;
+		private final byte[] a;
+		private final int aOffset;
+		private final int lda;
+		private final float[] aScales;
+		private final byte[] b;
+		private final int bOffset;
+		private final int ldb;
+		private final float[] bScales;
+		private final float[] c;
+		private final int cOffset;
+		private final int ldc;
+
+		Multiplication(int n, int k, byte[] a, int aOffset, int lda, float[] aScales, byte[] b, int bOffset, int ldb,
+				float[] bScales, float[] c, int cOffset, int ldc) {
+			this.n = n;
+			this.k = k;
+			this.a = a;
+			this.aOffset = aOffset;
+			this.lda = lda;
+			this.aScales = aScales;
+			this.b = b;
+			this.bOffset = bOffset;
+			this.ldb = ldb;
+			this.bScales = bScales;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.ldc = ldc;
+		}
+
+		/**
+		 * Compute rows [fromRow, toRow) of C, accumulating each row in int32 by adding the rows of
+		 * B scaled by the elements of the row of A.
+		 */
+		void computeRows(int fromRow, int toRow) {
+			int[] accumulator = new int[n];
+			for (int i = fromRow; i < toRow; i++) {
+				Arrays.fill(accumulator, 0);
+				int aIndex = aOffset + i * lda;
+				for (int p = 0; p < k; p++) {
+					int aValue = a[aIndex + p];
+					if (aValue != 0) {
+						int bIndex = bOffset + p * ldb;
+						for (int j = 0; j < n; j++) {
+							accumulator[j] += aValue * b[bIndex + j];
+						}
+					}
+				}
+				float aScale = aScales.length == 1 ? aScales[0] : aScales[i];
+				int cIndex = cOffset + i * ldc;
+				if (bScales.length == 1) {
+					float scale = aScale * bScales[0];
+					for (int j = 0; j < n; j++) {
+						c[cIndex + j] = accumulator[j] * scale;
+					}
+				} else {
+					for (int j = 0; j < n; j++) {
+						c[cIndex + j] = accumulator[j] * aScale * bScales[j];
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * Symmetric linear quantization of float values to signed 8 bit integers, in which a value v is
+ * represented by the integer round(v / scale) in [-127, 127].
+ */
+public final class Int8Quantization {
+
+	/**
+	 * The largest magnitude of a quantized value.
+	 */
+	public static final int MAX_QUANTIZED_VALUE = 127;
+
+	private Int8Quantization() {
+	}
+
+	/**
+	 * @param maxAbsoluteValue The largest magnitude of the values to be quantized.
+	 * @return The scale mapping the largest magnitude to MAX_QUANTIZED_VALUE - or 1 if all values
+	 * are zero.
+	 */
+	public static float getScale(float maxAbsoluteValue) {
+		return maxAbsoluteValue > 0 ? maxAbsoluteValue / MAX_QUANTIZED_VALUE : 1f;
+	}
+
+	/**
+	 * @param value The value.
+	 * @param scale The quantization scale.
+	 * @return The quantized value, rounded to nearest and saturated to [-127, 127].
+	 */
+	public static byte quantize(float value, float scale) {
+		int quantized = Math.round(value / scale);
+		return (byte) Math.max(-MAX_QUANTIZED_VALUE, Math.min(MAX_QUANTIZED_VALUE, quantized));
+	}
+
+	/**
+	 * Quantize a range of values with a single scale.
+	 *
+	 * @param values The values.
+	 * @param offset The index of the first value.
+	 * @param length The number of values.
+	 * @param scale The quantization scale.
+	 * @param quantized The array to which the quantized values are written.
+	 * @param quantizedOffset The index of the first quantized value to write.
+	 */
+	public static void quantize(float[] values, int offset, int length, float scale, byte[] quantized,
+			int quantizedOffset) {
+		float inverseScale = 1f / scale;
+		for (int i = 0; i < length; i++) {
+			int value = Math.round(values[offset + i] * inverseScale);
+			quantized[quantizedOffset + i] = (byte) Math.max(-MAX_QUANTIZED_VALUE,
+					Math.min(MAX_QUANTIZED_VALUE, value));
+		}
+	}
+
+	/**
+	 * @param values The values.
+	 * @return The largest magnitude of the values.
+	 */
+	public static float getMaxAbsoluteValue(float[] values) {
+		float max = 0f;
+		for (float value : values) {
+			max = Math.max(max, Math.abs(value));
+		}
+		return max;
+	}
+
+	/**
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowByRowData The values of the matrix in row-by-row order.
+	 * @return The quantization scale of each row.
+	 */
+	public static float[] getRowScales(int rows, int columns, float[] rowByRowData) {
+		float[] scales = new float[rows];
+		for (int r = 0; r < rows; r++) {
+			float max = 0f;
+			for (int c = 0; c < columns; c++) {
+				max = Math.max(max, Math.abs(rowByRowData[r * columns + c]));
+			}
+			scales[r] = getScale(max);
+		}
+		return scales;
+	}
+
+	/**
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowByRowData The values of the matrix in row-by-row order.
+	 * @return The quantization scale of each column.
+	 */
+	public static float[] getColumnScales(int rows, int columns, float[] rowByRowData) {
+		float[] max = new float[columns];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				max[c] = Math.max(max[c], Math.abs(rowByRowData[r * columns + c]));
+			}
+		}
+		float[] scales = new float[columns];
+		for (int c = 0; c < columns; c++) {
+			scales[c] = getScale(max[c]);
+		}
+		return scales;
+	}
+
+	/**
+	 * Quantize a matrix with a scale per row or per column.
+	 *
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowByRowData The values of the matrix in row-by-row order.
+	 * @param scales The scale of each row, or of each column.
+	 * @param perRow Whether the scales are per row, rather than per column.
+	 * @return The quantized values in row-by-row order.
+	 */
+	public static byte[] quantize(int rows, int columns, float[] rowByRowData, float[] scales, boolean perRow) {
+		byte[] quantized = new byte[rows * columns];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				int index = r * columns + c;
+				quantized[index] = quantize(rowByRowData[index], scales[perRow ? r : c]);
+			}
+		}
+		return quantized;
+	}
+}
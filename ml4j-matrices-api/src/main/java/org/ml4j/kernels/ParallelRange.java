@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the iterations of a loop over a range of indices in parallel on a ForkJoinPool, for
+ * kernels whose work divides into independent iterations.
+ */
+final class ParallelRange {
+
+	/**
+	 * The number of operations below which a loop is run on the calling thread.
+	 */
+	static final long PARALLEL_THRESHOLD = 1L << 16;
+
+	private ParallelRange() {
+	}
+
+	/**
+	 * Run body for each index from 0 to count, in parallel unless the work is too small to benefit.
+	 *
+	 * @param forkJoinPool The ForkJoinPool on which the iterations are run.
+	 * @param count The number of iterations.
+	 * @param operations The estimated number of operations of the whole loop.
+	 * @param body The body of the loop, accepting the index of an iteration.
+	 */
+	static void forEach(ForkJoinPool forkJoinPool, int count, long operations, IntConsumer body) {
+		if (count <= 1 || operations < PARALLEL_THRESHOLD) {
+			for (int i = 0; i < count; i++) {
+				body.accept(i);
+			}
+		} else {
+			int grain = Math.max(1, count / (forkJoinPool.getParallelism() * 4));
+			forkJoinPool.invoke(new RangeTask(body, 0, count, grain));
+		}
+	}
+
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IntConsumer body;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		RangeTask(IntConsumer body, int from, int to, int grain) {
+			this.body = body;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				for (int i = from; i < to; i++) {
+					body.accept(i);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(body, from, middle, grain), new RangeTask(body, middle, to, grain));
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A parallel, reproducible generator of uniformly and normally distributed random values, for
+ * use by MatrixFactory implementations creating random matrices such as initial weights and
+ * dropout masks.
+ *
+ * Values are generated in fixed-size blocks, each from its own SplittableRandom split in turn
+ * from a SplittableRandom seeded with the given seed.  Since the division into blocks and the
+ * stream of each block depend only on the seed and the number of values, the blocks may be
+ * filled in parallel on a ForkJoinPool while the values generated remain bit-identical for a
+ * given seed, whatever the parallelism.
+ */
+public class RandomKernel {
+
+	/**
+	 * The number of values generated from each split stream - an even number, so that normally
+	 * distributed values are generated in whole pairs.
+	 */
+	static final int BLOCK_SIZE = 1 << 14;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which blocks of values are generated.
+	 */
+	public RandomKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Fill an array with values uniformly distributed in [0, 1).
+	 *
+	 * @param values The array to fill.
+	 * @param seed The seed.
+	 */
+	public void fillUniform(float[] values, long seed) {
+		fill(values, seed, false);
+	}
+
+	/**
+	 * Fill an array with values normally distributed with mean 0 and standard deviation 1.
+	 *
+	 * @param values The array to fill.
+	 * @param seed The seed.
+	 */
+	public void fillGaussian(float[] values, long seed) {
+		fill(values, seed, true);
+	}
+
+	private void fill(float[] values, long seed, boolean gaussian) {
+		int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		SplittableRandom random = new SplittableRandom(seed);
+		SplittableRandom[] streams = new SplittableRandom[blocks];
+		for (int block = 0; block < blocks; block++) {
+			streams[block] = random.split();
+		}
+		BlockTask task = new BlockTask(values, streams, gaussian, 0, blocks);
+		if (blocks <= 1) {
+			task.compute();
+		} else {
+			forkJoinPool.invoke(task);
+		}
+	}
+
+	private static class BlockTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[] values;
+		private final SplittableRandom[] streams;
+		private final boolean gaussian;
+		private final int fromBlock;
+		private final int toBlock;
+
+		BlockTask(float[] values, SplittableRandom[] streams, boolean gaussian, int fromBlock, int toBlock) {
+			this.values = values;
+			this.streams = streams;
+			this.gaussian = gaussian;
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+		}
+
+		@Override
+		protected void compute() {
+			if (toBlock - fromBlock > 1) {
+				int middle = (fromBlock + toBlock) >>> 1;
+				invokeAll(new BlockTask(values, streams, gaussian, fromBlock, middle),
+						new BlockTask(values, streams, gaussian, middle, toBlock));
+				return;
+			}
+			for (int block = fromBlock; block < toBlock; block++) {
+				int start = block * BLOCK_SIZE;
+				int end = Math.min(values.length, start + BLOCK_SIZE);
+				if (gaussian) {
+					fillGaussian(streams[block], start, end);
+				} else {
+					fillUniform(streams[block], start, end);
+				}
+			}
+		}
+
+		private void fillUniform(SplittableRandom random, int start, int end) {
+			for (int i = start; i < end; i++) {
+				// 24 random bits, so that the value is exactly representable and never rounded up to 1
+				values[i] = (random.nextInt() >>> 8) * 0x1.0p-24f;
+			}
+		}
+
+		/**
+		 * Box-Muller transform, generating a pair of values from each pair of uniform values.
+		 */
+		private void fillGaussian(SplittableRandom random, int start, int end) {
+			for (int i = start; i < end; i += 2) {
+				double radius = Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+				double angle = 2 * Math.PI * random.nextDouble();
+				values[i] = (float) (radius * Math.cos(angle));
+				if (i + 1 < end) {
+					values[i + 1] = (float) (radius * Math.sin(angle));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+/**
+ * ElementwiseKernels implemented with scalar loops, used when no vectorised implementation
+ * is available.
+ */
+public class ScalarElementwiseKernels implements ElementwiseKernels {
+
+	@Override
+	public void apply(ElementwiseOperation operation, float[] x, int xOffset, float[] y, int yOffset,
+			float[] result, int resultOffset, int length) {
+		switch (operation) {
+			case ADD:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] + y[yOffset + i];
+				}
+				break;
+			case SUB:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] - y[yOffset + i];
+				}
+				break;
+			case MUL:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] * y[yOffset + i];
+				}
+				break;
+			default:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] / y[yOffset + i];
+				}
+		}
+	}
+
+	@Override
+	public void apply(ElementwiseOperation operation, float[] x, int xOffset, float value, float[] result,
+			int resultOffset, int length) {
+		switch (operation) {
+			case ADD:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] + value;
+				}
+				break;
+			case SUB:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] - value;
+				}
+				break;
+			case MUL:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] * value;
+				}
+				break;
+			default:
+				for (int i = 0; i < length; i++) {
+					result[resultOffset + i] = x[xOffset + i] / value;
+				}
+		}
+	}
+
+	@Override
+	public void applyRowVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] rowVector, int rowVectorOffset, float[] result, int resultOffset) {
+		for (int r = 0; r < rows; r++) {
+			apply(operation, x, xOffset + r * columns, rowVector, rowVectorOffset, result,
+					resultOffset + r * columns, columns);
+		}
+	}
+
+	@Override
+	public void applyColumnVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] columnVector, int columnVectorOffset, float[] result, int resultOffset) {
+		for (int r = 0; r < rows; r++) {
+			apply(operation, x, xOffset + r * columns, columnVector[columnVectorOffset + r], result,
+					resultOffset + r * columns, columns);
+		}
+	}
+
+	@Override
+	public void sigmoid(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			result[resultOffset + i] = (float) (1d / (1d + Math.exp(-x[xOffset + i])));
+		}
+	}
+
+	@Override
+	public void log(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			result[resultOffset + i] = (float) Math.log(x[xOffset + i]);
+		}
+	}
+
+	@Override
+	public void exp(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			result[resultOffset + i] = (float) Math.exp(x[xOffset + i]);
+		}
+	}
+}
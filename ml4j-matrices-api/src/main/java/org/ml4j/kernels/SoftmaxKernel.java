@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixLayout;
+
+/**
+ * Fused, numerically stable column-wise softmax, log-softmax and softmax cross-entropy kernels,
+ * for the output layers of classifiers in which each column of a matrix holds the activations of
+ * one example.
+ *
+ * Each column is normalised in three passes over its values - one for the column maximum, one
+ * for the sum of the exponentials of the values less the maximum, and one writing the
+ * normalised values - rather than by composing element-wise and broadcast operations which each
+ * allocate and traverse a whole matrix.  Subtracting the maximum ensures that no exponential
+ * overflows, however large the values.
+ *
+ * Matrices may be in either layout.  Row-by-row matrices are traversed a row at a time for a
+ * block of columns, keeping the running maxima and sums of the block in arrays, so that the
+ * values are always read in the order in which they are stored.  Blocks of columns are
+ * normalised in parallel on a ForkJoinPool.
+ */
+public class SoftmaxKernel {
+
+	/**
+	 * The number of elements below which a block of columns is normalised without being split.
+	 */
+	private static final int LEAF_ELEMENTS = 1 << 14;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which blocks of columns are normalised.
+	 */
+	public SoftmaxKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * result[r, c] = exp(x[r, c]) / sum over i of exp(x[i, c])
+	 *
+	 * @param rows The number of rows of x.
+	 * @param columns The number of columns of x.
+	 * @param layout The layout of x and of the result.
+	 * @param x The values of the matrix.
+	 * @param result The result array, which may be x.
+	 */
+	public void columnSoftmax(int rows, int columns, MatrixLayout layout, float[] x, float[] result) {
+		compute(Reduction.SOFTMAX, rows, columns, layout, x, null, result);
+	}
+
+	/**
+	 * result[r, c] = x[r, c] - log(sum over i of exp(x[i, c]))
+	 *
+	 * @param rows The number of rows of x.
+	 * @param columns The number of columns of x.
+	 * @param layout The layout of x and of the result.
+	 * @param x The values of the matrix.
+	 * @param result The result array, which may be x.
+	 */
+	public void columnLogSoftmax(int rows, int columns, MatrixLayout layout, float[] x, float[] result) {
+		compute(Reduction.LOG_SOFTMAX, rows, columns, layout, x, null, result);
+	}
+
+	/**
+	 * Compute the total cross-entropy cost of the column-wise softmax of x given desired
+	 * probabilities - the sum over all elements of -desired[r, c] * logSoftmax(x)[r, c] - and
+	 * optionally its gradient with respect to x, softmax(x)[r, c] - desired[r, c], without
+	 * materialising the softmax.
+	 *
+	 * @param rows The number of rows of x.
+	 * @param columns The number of columns of x.
+	 * @param layout The layout of x, of desired and of the gradient.
+	 * @param x The values of the matrix.
+	 * @param desired The desired probabilities.
+	 * @param gradient The gradient array, which may be x, or null if the gradient is not required.
+	 * @return The total cost.
+	 */
+	public float columnSoftmaxCrossEntropy(int rows, int columns, MatrixLayout layout, float[] x,
+			float[] desired, float[] gradient) {
+		if (desired == null) {
+			throw new IllegalArgumentException("Desired values cannot be null");
+		}
+		return (float) compute(Reduction.CROSS_ENTROPY, rows, columns, layout, x, desired, gradient);
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @return The column-wise softmax of the matrix, in the layout of the matrix.
+	 */
+	public float[] columnSoftmax(Matrix matrix) {
+		MatrixLayout layout = getLayout(matrix);
+		float[] result = new float[matrix.getLength()];
+		columnSoftmax(matrix.getRows(), matrix.getColumns(), layout, layout.getArray(matrix), result);
+		return result;
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @return The column-wise log-softmax of the matrix, in the layout of the matrix.
+	 */
+	public float[] columnLogSoftmax(Matrix matrix) {
+		MatrixLayout layout = getLayout(matrix);
+		float[] result = new float[matrix.getLength()];
+		columnLogSoftmax(matrix.getRows(), matrix.getColumns(), layout, layout.getArray(matrix), result);
+		return result;
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @param desired The desired probabilities, of the same shape as the matrix.
+	 * @return The total cross-entropy cost of the column-wise softmax of the matrix.
+	 */
+	public float columnSoftmaxCrossEntropy(Matrix matrix, Matrix desired) {
+		MatrixLayout layout = getLayout(matrix);
+		return columnSoftmaxCrossEntropy(matrix.getRows(), matrix.getColumns(), layout, layout.getArray(matrix),
+				getArray(layout, matrix, desired), null);
+	}
+
+	/**
+	 * @param matrix The matrix.
+	 * @param desired The desired probabilities, of the same shape as the matrix.
+	 * @return The gradient of the cross-entropy cost of the column-wise softmax of the matrix with
+	 * respect to the matrix - the softmax less the desired probabilities - in the layout of the
+	 * matrix.
+	 */
+	public float[] columnSoftmaxCrossEntropyGradient(Matrix matrix, Matrix desired) {
+		MatrixLayout layout = getLayout(matrix);
+		float[] gradient = new float[matrix.getLength()];
+		columnSoftmaxCrossEntropy(matrix.getRows(), matrix.getColumns(), layout, layout.getArray(matrix),
+				getArray(layout, matrix, desired), gradient);
+		return gradient;
+	}
+
+	private static MatrixLayout getLayout(Matrix matrix) {
+		return matrix.getLayout() == MatrixLayout.COLUMN_MAJOR ? MatrixLayout.COLUMN_MAJOR : MatrixLayout.ROW_MAJOR;
+	}
+
+	private static float[] getArray(MatrixLayout layout, Matrix matrix, Matrix desired) {
+		if (desired.getRows() != matrix.getRows() || desired.getColumns() != matrix.getColumns()) {
+			throw new IllegalArgumentException("Desired values must have shape (" + matrix.getRows() + ", "
+					+ matrix.getColumns() + ") but had shape (" + desired.getRows() + ", " + desired.getColumns()
+					+ ")");
+		}
+		return layout.getArray(desired);
+	}
+
+	private double compute(Reduction reduction, int rows, int columns, MatrixLayout layout, float[] x,
+			float[] desired, float[] result) {
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		if (layout == null) {
+			throw new IllegalArgumentException("Layout cannot be null");
+		}
+		int length = rows * columns;
+		if (x.length < length || (desired != null && desired.length < length)
+				|| (result != null && result.length < length)) {
+			throw new IllegalArgumentException("Arrays must have at least " + length + " elements");
+		}
+		if (rows == 0) {
+			return 0;
+		}
+		ColumnTask task = new ColumnTask(reduction, rows, columns, layout == MatrixLayout.ROW_MAJOR, x, desired,
+				result, 0, columns);
+		return (long) rows * columns <= LEAF_ELEMENTS ? task.compute() : forkJoinPool.invoke(task);
+	}
+
+	private enum Reduction {
+		SOFTMAX, LOG_SOFTMAX, CROSS_ENTROPY
+	}
+
+	private static class ColumnTask extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Reduction reduction;
+		private final int rows;
+		private final int columns;
+		private final boolean rowMajor;
+		private final float[] x;
+		private final float[] desired;
+		private final float[] result;
+		private final int fromColumn;
+		private final int toColumn;
+
+		ColumnTask(Reduction reduction, int rows, int columns, boolean rowMajor, float[] x, float[] desired,
+				float[] result, int fromColumn, int toColumn) {
+			this.reduction = reduction;
+			this.rows = rows;
+			this.columns = columns;
+			this.rowMajor = rowMajor;
+			this.x = x;
+			this.desired = desired;
+			this.result = result;
+			this.fromColumn = fromColumn;
+			this.toColumn = toColumn;
+		}
+
+		@Override
+		protected Double compute() {
+			int width = toColumn - fromColumn;
+			if (width <= 1 || (long) width * rows <= LEAF_ELEMENTS) {
+				return rowMajor ? computeRowMajor() : computeColumnMajor();
+			}
+			int middle = (fromColumn + toColumn) >>> 1;
+			ColumnTask left = new ColumnTask(reduction, rows, columns, rowMajor, x, desired, result, fromColumn,
+					middle);
+			ColumnTask right = new ColumnTask(reduction, rows, columns, rowMajor, x, desired, result, middle,
+					toColumn);
+			left.fork();
+			double cost = right.compute();
+			return left.join() + cost;
+		}
+
+		private double computeColumnMajor() {
+			double cost = 0;
+			for (int c = fromColumn; c < toColumn; c++) {
+				int start = c * rows;
+				int end = start + rows;
+				float max = Float.NEGATIVE_INFINITY;
+				for (int i = start; i < end; i++) {
+					max = Math.max(max, x[i]);
+				}
+				double sum = 0;
+				double desiredDot = 0;
+				double desiredSum = 0;
+				for (int i = start; i < end; i++) {
+					float shifted = x[i] - max;
+					float exp = (float) Math.exp(shifted);
+					sum += exp;
+					if (desired != null) {
+						desiredDot += desired[i] * shifted;
+						desiredSum += desired[i];
+					}
+					if (result != null && reduction != Reduction.LOG_SOFTMAX) {
+						result[i] = exp;
+					}
+				}
+				double logSum = Math.log(sum);
+				if (result != null) {
+					float scale = (float) (1d / sum);
+					float shift = (float) (max + logSum);
+					for (int i = start; i < end; i++) {
+						result[i] = normalise(i, scale, shift);
+					}
+				}
+				cost += desiredSum * logSum - desiredDot;
+			}
+			return cost;
+		}
+
+		private double computeRowMajor() {
+			int width = toColumn - fromColumn;
+			float[] max = new float[width];
+			Arrays.fill(max, Float.NEGATIVE_INFINITY);
+			for (int r = 0; r < rows; r++) {
+				int offset = r * columns + fromColumn;
+				for (int j = 0; j < width; j++) {
+					max[j] = Math.max(max[j], x[offset + j]);
+				}
+			}
+			double[] sum = new double[width];
+			double[] desiredDot = desired == null ? null : new double[width];
+			double[] desiredSum = desired == null ? null : new double[width];
+			for (int r = 0; r < rows; r++) {
+				int offset = r * columns + fromColumn;
+				for (int j = 0; j < width; j++) {
+					int i = offset + j;
+					float shifted = x[i] - max[j];
+					float exp = (float) Math.exp(shifted);
+					sum[j] += exp;
+					if (desired != null) {
+						desiredDot[j] += desired[i] * shifted;
+						desiredSum[j] += desired[i];
+					}
+					if (result != null && reduction != Reduction.LOG_SOFTMAX) {
+						result[i] = exp;
+					}
+				}
+			}
+			double cost = 0;
+			float[] scale = new float[width];
+			float[] shift = new float[width];
+			for (int j = 0; j < width; j++) {
+				double logSum = Math.log(sum[j]);
+				scale[j] = (float) (1d / sum[j]);
+				shift[j] = (float) (max[j] + logSum);
+				if (desired != null) {
+					cost += desiredSum[j] * logSum - desiredDot[j];
+				}
+			}
+			if (result != null) {
+				for (int r = 0; r < rows; r++) {
+					int offset = r * columns + fromColumn;
+					for (int j = 0; j < width; j++) {
+						result[offset + j] = normalise(offset + j, scale[j], shift[j]);
+					}
+				}
+			}
+			return cost;
+		}
+
+		/**
+		 * @param i The index of the element.
+		 * @param scale The reciprocal of the sum of the exponentials of the column.
+		 * @param shift The log of the sum of the exponentials of the column.
+		 * @return The value of the element written by the final pass.
+		 */
+		private float normalise(int i, float scale, float shift) {
+			switch (reduction) {
+				case SOFTMAX:
+					return result[i] * scale;
+				case LOG_SOFTMAX:
+					return x[i] - shift;
+				default:
+					return result[i] * scale - desired[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.ml4j.SparseMatrixFormat;
+
+/**
+ * A pure-Java kernel for the multiplication of a sparse matrix in CSR or CSC format and a dense
+ * row-by-row matrix, in either order, computing only the products of the stored non-zero values.
+ *
+ * Rows of the output are computed in parallel on a ForkJoinPool, except for a sparse left operand
+ * stored by column, where each non-zero value scatters a row of the dense operand into the output
+ * and the product is computed on the calling thread.
+ */
+public class SparseGemmKernel {
+
+	/**
+	 * The number of multiply-adds below which a multiplication is run on the calling thread.
+	 */
+	private static final long PARALLEL_THRESHOLD = 1L << 16;
+
+	/**
+	 * The number of output rows computed by each parallel task.
+	 */
+	private static final int ROWS_PER_TASK = 16;
+
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * @param forkJoinPool The ForkJoinPool on which output rows are computed.
+	 */
+	public SparseGemmKernel(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null");
+		}
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Compute C = alpha * op(A) * op(B) + beta * C, where A is sparse, B and C are dense, and
+	 * op(X) is X or the transpose of X.
+	 *
+	 * @param format The format of A.
+	 * @param transA Whether op(A) is the transpose of A.
+	 * @param transB Whether op(B) is the transpose of B.
+	 * @param m The number of rows of op(A) and C.
+	 * @param n The number of columns of op(B) and C.
+	 * @param k The number of columns of op(A) and rows of op(B).
+	 * @param alpha The scalar multiplier of the product.
+	 * @param values The non-zero values of A.
+	 * @param indices The column (CSR) or row (CSC) index of each value of A.
+	 * @param pointers The index of the first value of each row (CSR) or column (CSC) of A.
+	 * @param b The array containing the matrix B - (k, n) or, if transposed, (n, k).
+	 * @param bOffset The index of the first element of B.
+	 * @param ldb The leading dimension of B.
+	 * @param beta The scalar multiplier of C - if zero, C need not be initialised.
+	 * @param c The array containing the (m, n) matrix C, which is updated with the result.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void gemm(SparseMatrixFormat format, boolean transA, boolean transB, int m, int n, int k, float alpha,
+			float[] values, int[] indices, int[] pointers, float[] b, int bOffset, int ldb, float beta, float[] c,
+			int cOffset, int ldc) {
+		if (m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		// The arrays of a CSR matrix are the arrays of its transpose in CSC format
+		boolean compressedRows = (format == SparseMatrixFormat.CSR) != transA;
+		if (pointers.length != (compressedRows ? m : k) + 1) {
+			throw new IllegalArgumentException("Pointers must contain " + ((compressedRows ? m : k) + 1)
+					+ " elements but contains " + pointers.length);
+		}
+		SparseDenseMultiplication multiplication = new SparseDenseMultiplication(transB, n, alpha, values, indices,
+				pointers, b, bOffset, ldb, c, cOffset, ldc);
+		for (int i = 0; i < m; i++) {
+			scaleRow(c, cOffset + i * ldc, n, beta);
+		}
+		if (alpha == 0f) {
+			return;
+		}
+		if (!compressedRows) {
+			for (int j = 0; j < k; j++) {
+				multiplication.scatterColumn(j);
+			}
+		} else {
+			computeRows(multiplication, m, (long) (pointers[m] - pointers[0]) * n);
+		}
+	}
+
+	/**
+	 * Compute C = alpha * op(A) * op(B) + beta * C, where B is sparse, A and C are dense, and
+	 * op(X) is X or the transpose of X.
+	 *
+	 * @param transA Whether op(A) is the transpose of A.
+	 * @param transB Whether op(B) is the transpose of B.
+	 * @param m The number of rows of op(A) and C.
+	 * @param n The number of columns of op(B) and C.
+	 * @param k The number of columns of op(A) and rows of op(B).
+	 * @param alpha The scalar multiplier of the product.
+	 * @param a The array containing the matrix A - (m, k) or, if transposed, (k, m).
+	 * @param aOffset The index of the first element of A.
+	 * @param lda The leading dimension of A.
+	 * @param format The format of B.
+	 * @param values The non-zero values of B.
+	 * @param indices The column (CSR) or row (CSC) index of each value of B.
+	 * @param pointers The index of the first value of each row (CSR) or column (CSC) of B.
+	 * @param beta The scalar multiplier of C - if zero, C need not be initialised.
+	 * @param c The array containing the (m, n) matrix C, which is updated with the result.
+	 * @param cOffset The index of the first element of C.
+	 * @param ldc The leading dimension of C.
+	 */
+	public void gemm(boolean transA, boolean transB, int m, int n, int k, float alpha, float[] a, int aOffset,
+			int lda, SparseMatrixFormat format, float[] values, int[] indices, int[] pointers, float beta,
+			float[] c, int cOffset, int ldc) {
+		if (m < 0 || n < 0 || k < 0) {
+			throw new IllegalArgumentException("Matrix dimensions must be >= 0");
+		}
+		boolean compressedRows = (format == SparseMatrixFormat.CSR) != transB;
+		if (pointers.length != (compressedRows ? k : n) + 1) {
+			throw new IllegalArgumentException("Pointers must contain " + ((compressedRows ? k : n) + 1)
+					+ " elements but contains " + pointers.length);
+		}
+		for (int i = 0; i < m; i++) {
+			scaleRow(c, cOffset + i * ldc, n, beta);
+		}
+		if (alpha == 0f) {
+			return;
+		}
+		DenseSparseMultiplication multiplication = new DenseSparseMultiplication(transA, compressedRows, k,
+				alpha, a, aOffset, lda, values, indices, pointers, c, cOffset, ldc);
+		computeRows(multiplication, m, (long) (pointers[pointers.length - 1] - pointers[0]) * m);
+	}
+
+	private void computeRows(RowComputation computation, int m, long work) {
+		if (m <= ROWS_PER_TASK || work < PARALLEL_THRESHOLD) {
+			computation.computeRows(0, m);
+		} else {
+			forkJoinPool.invoke(new RowsTask(computation, 0, m));
+		}
+	}
+
+	private static void scaleRow(float[] c, int rowStart, int n, float beta) {
+		if (beta == 0f) {
+			Arrays.fill(c, rowStart, rowStart + n, 0f);
+		} else if (beta != 1f) {
+			for (int j = rowStart; j < rowStart + n; j++) {
+				c[j] *= beta;
+			}
+		}
+	}
+
+	private static class RowsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RowComputation computation;
+		private final int fromRow;
+		private final int toRow;
+
+		RowsTask(RowComputation computation, int fromRow, int toRow) {
+			this.computation = computation;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= ROWS_PER_TASK) {
+				computation.computeRows(fromRow, toRow);
+			} else {
+				int middle = (fromRow + toRow) >>> 1;
+				invokeAll(new RowsTask(computation, fromRow, middle), new RowsTask(computation, middle, toRow));
+			}
+		}
+	}
+
+	private interface RowComputation {
+
+		/**
+		 * Compute rows [fromRow, toRow) of C.
+		 */
+		void computeRows(int fromRow, int toRow);
+	}
+
+	private static class SparseDenseMultiplication implements RowComputation {
+
+		private final boolean transB;
+		private final int n;
+		private final float alpha;
+		private final float[] values;
+		private final int[] indices;
+		private final int[] pointers;
+		private final float[] b;
+		private final int bOffset;
+		private final int ldb;
+		private final float[] c;
+		private final int cOffset;
+		private final int ldc;
+
+		SparseDenseMultiplication(boolean transB, int n, float alpha, float[] values, int[] indices, int[] pointers,
+				float[] b, int bOffset, int ldb, float[] c, int cOffset, int ldc) {
+			this.transB = transB;
+			this.n = n;
+			this.alpha = alpha;
+			this.values = values;
+			this.indices = indices;
+			this.pointers = pointers;
+			this.b = b;
+			this.bOffset = bOffset;
+			this.ldb = ldb;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.ldc = ldc;
+		}
+
+		/**
+		 * Compute rows [fromRow, toRow) of C, where the rows of op(A) are compressed.
+		 */
+		@Override
+		public void computeRows(int fromRow, int toRow) {
+			for (int i = fromRow; i < toRow; i++) {
+				int cIndex = cOffset + i * ldc;
+				for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+					addScaledRowOfB(indices[p], alpha * values[p], cIndex);
+				}
+			}
+		}
+
+		/**
+		 * Add the contribution of column j of op(A) to C, where the columns of op(A) are compressed.
+		 */
+		void scatterColumn(int j) {
+			for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+				addScaledRowOfB(j, alpha * values[p], cOffset + indices[p] * ldc);
+			}
+		}
+
+		/**
+		 * C[row, :] += value * op(B)[bRow, :]
+		 */
+		private void addScaledRowOfB(int bRow, float value, int cIndex) {
+			if (transB) {
+				int bIndex = bOffset + bRow;
+				for (int j = 0; j < n; j++) {
+					c[cIndex + j] += value * b[bIndex + j * ldb];
+				}
+			} else {
+				int bIndex = bOffset + bRow * ldb;
+				for (int j = 0; j < n; j++) {
+					c[cIndex + j] += value * b[bIndex + j];
+				}
+			}
+		}
+	}
+
+	private static class DenseSparseMultiplication implements RowComputation {
+
+		private final boolean transA;
+		private final boolean compressedRows;
+		private final int k;
+		private final float alpha;
+		private final float[] a;
+		private final int aOffset;
+		private final int lda;
+		private final float[] values;
+		private final int[] indices;
+		private final int[] pointers;
+		private final float[] c;
+		private final int cOffset;
+		private final int ldc;
+
+		DenseSparseMultiplication(boolean transA, boolean compressedRows, int k, float alpha, float[] a, int aOffset,
+				int lda, float[] values, int[] indices, int[] pointers, float[] c, int cOffset, int ldc) {
+			this.transA = transA;
+			this.compressedRows = compressedRows;
+			this.k = k;
+			this.alpha = alpha;
+			this.a = a;
+			this.aOffset = aOffset;
+			this.lda = lda;
+			this.values = values;
+			this.indices = indices;
+			this.pointers = pointers;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.ldc = ldc;
+		}
+
+		/**
+		 * Compute rows [fromRow, toRow) of C - where the rows of op(B) are compressed, by adding
+		 * each row of op(B) scaled by the corresponding element of the row of op(A), and otherwise
+		 * from the dot product of the row of op(A) with the non-zero values of each column of op(B).
+		 */
+		@Override
+		public void computeRows(int fromRow, int toRow) {
+			int rowStride = transA ? 1 : lda;
+			int columnStride = transA ? lda : 1;
+			for (int i = fromRow; i < toRow; i++) {
+				int aIndex = aOffset + i * rowStride;
+				int cIndex = cOffset + i * ldc;
+				if (compressedRows) {
+					for (int p = 0; p < k; p++) {
+						float aValue = a[aIndex + p * columnStride];
+						if (aValue != 0f) {
+							aValue *= alpha;
+							for (int q = pointers[p]; q < pointers[p + 1]; q++) {
+								c[cIndex + indices[q]] += aValue * values[q];
+							}
+						}
+					}
+				} else {
+					for (int j = 0; j < pointers.length - 1; j++) {
+						float sum = 0f;
+						for (int q = pointers[j]; q < pointers[j + 1]; q++) {
+							sum += a[aIndex + indices[q] * columnStride] * values[q];
+						}
+						c[cIndex + j] += alpha * sum;
+					}
+				}
+			}
+		}
+	}
+}
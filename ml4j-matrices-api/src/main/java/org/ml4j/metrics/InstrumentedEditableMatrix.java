@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.ml4j.EditableMatrix;
+import org.ml4j.InterrimMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactoryConfig;
+
+/**
+ * An EditableMatrix created by an InstrumentedMatrixFactory, recording MatrixMetrics for its
+ * operations, including its in-place operations.
+ */
+class InstrumentedEditableMatrix extends InstrumentedMatrix implements EditableMatrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final EditableMatrix delegate;
+
+	InstrumentedEditableMatrix(InstrumentedMatrixFactory matrixFactory, EditableMatrix delegate, Runnable onClose) {
+		super(matrixFactory, delegate, onClose);
+		this.delegate = delegate;
+	}
+
+	private EditableMatrix recordInPlace(String operation, long flops, Supplier<Matrix> supplier) {
+		matrixFactory.getMetrics().instrument(operation, flops, supplier);
+		return this;
+	}
+
+	@Override
+	public void putRow(int r, Matrix matrix) {
+		delegate.putRow(r, unwrap(matrix));
+	}
+
+	@Override
+	public void putColumn(int c, Matrix matrix) {
+		delegate.putColumn(c, unwrap(matrix));
+	}
+
+	@Override
+	public void put(int r, int c, float v) {
+		delegate.put(r, c, v);
+	}
+
+	@Override
+	public void put(int i, float v) {
+		delegate.put(i, v);
+	}
+
+	@Override
+	public void reshape(int r, int c) {
+		delegate.reshape(r, c);
+	}
+
+	@Override
+	public EditableMatrix subi(float v) {
+		return recordInPlace("subi", getElementwiseFlops(), () -> delegate.subi(v));
+	}
+
+	@Override
+	public EditableMatrix divi(float v) {
+		return recordInPlace("divi", getElementwiseFlops(), () -> delegate.divi(v));
+	}
+
+	@Override
+	public EditableMatrix addi(float v) {
+		return recordInPlace("addi", getElementwiseFlops(), () -> delegate.addi(v));
+	}
+
+	@Override
+	public EditableMatrix muli(float v) {
+		return recordInPlace("muli", getElementwiseFlops(), () -> delegate.muli(v));
+	}
+
+	@Override
+	public EditableMatrix subiColumnVector(Matrix other) {
+		return recordInPlace("subiColumnVector", getElementwiseFlops(), () -> delegate.subiColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix subiRowVector(Matrix other) {
+		return recordInPlace("subiRowVector", getElementwiseFlops(), () -> delegate.subiRowVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix diviColumnVector(Matrix other) {
+		return recordInPlace("diviColumnVector", getElementwiseFlops(), () -> delegate.diviColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix diviRowVector(Matrix other) {
+		return recordInPlace("diviRowVector", getElementwiseFlops(), () -> delegate.diviRowVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix addiRowVector(Matrix other) {
+		return recordInPlace("addiRowVector", getElementwiseFlops(), () -> delegate.addiRowVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix addiColumnVector(Matrix other) {
+		return recordInPlace("addiColumnVector", getElementwiseFlops(), () -> delegate.addiColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix muliColumnVector(Matrix other) {
+		return recordInPlace("muliColumnVector", getElementwiseFlops(), () -> delegate.muliColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix muliRowVector(Matrix other) {
+		return recordInPlace("muliRowVector", getElementwiseFlops(), () -> delegate.muliRowVector(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix muli(Matrix other) {
+		return recordInPlace("muli", getElementwiseFlops(), () -> delegate.muli(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix addi(Matrix other) {
+		return recordInPlace("addi", getElementwiseFlops(), () -> delegate.addi(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix divi(Matrix other) {
+		return recordInPlace("divi", getElementwiseFlops(), () -> delegate.divi(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix subi(Matrix other) {
+		return recordInPlace("subi", getElementwiseFlops(), () -> delegate.subi(unwrap(other)));
+	}
+
+	@Override
+	public EditableMatrix expi() {
+		return recordInPlace("expi", getElementwiseFlops(), delegate::expi);
+	}
+
+	@Override
+	public Optional<float[]> getStorageArray() {
+		return delegate.getStorageArray();
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return delegate.getConfig();
+	}
+
+	@Override
+	public EditableMatrix gemmi(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta) {
+		long flops = 2L * delegate.getRows() * delegate.getColumns() * (transA ? a.getRows() : a.getColumns());
+		return recordInPlace("gemmi", flops, () -> delegate.gemmi(transA, transB, alpha, unwrap(a), unwrap(b), beta));
+	}
+
+	/**
+	 * An instrumented EditableMatrix which is also an InterrimMatrix.
+	 */
+	static class Interrim extends InstrumentedEditableMatrix implements InterrimMatrix {
+
+		private static final long serialVersionUID = 1L;
+
+		Interrim(InstrumentedMatrixFactory matrixFactory, EditableMatrix delegate, Runnable onClose) {
+			super(matrixFactory, delegate, onClose);
+		}
+	}
+}
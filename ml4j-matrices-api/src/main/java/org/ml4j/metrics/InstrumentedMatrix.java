@@ -0,0 +1,352 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.util.function.Supplier;
+
+import org.ml4j.EditableMatrix;
+import org.ml4j.InterrimMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixLayout;
+
+/**
+ * A Matrix created by an InstrumentedMatrixFactory, recording MatrixMetrics for its operations.
+ */
+class InstrumentedMatrix implements Matrix {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	protected final InstrumentedMatrixFactory matrixFactory;
+	private final Matrix delegate;
+	private transient Runnable onClose;
+
+	InstrumentedMatrix(InstrumentedMatrixFactory matrixFactory, Matrix delegate, Runnable onClose) {
+		this.matrixFactory = matrixFactory;
+		this.delegate = delegate;
+		this.onClose = onClose;
+	}
+
+	Matrix getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * @param callback A further callback to be run when this matrix is closed.
+	 */
+	synchronized void addCloseCallback(Runnable callback) {
+		Runnable existing = onClose;
+		onClose = existing == null ? callback : () -> {
+			existing.run();
+			callback.run();
+		};
+	}
+
+	protected static Matrix unwrap(Matrix matrix) {
+		return InstrumentedMatrixFactory.unwrap(matrix);
+	}
+
+	/**
+	 * Record an operation, wrapping its result if the result is a new matrix.
+	 */
+	protected Matrix record(String operation, long flops, Supplier<Matrix> supplier) {
+		Matrix result = matrixFactory.getMetrics().instrument(operation, flops, supplier);
+		return result == delegate ? this
+				: matrixFactory.wrap(operation, result, InstrumentedMatrixFactory.getBytes(result));
+	}
+
+	protected long getElementwiseFlops() {
+		return (long) delegate.getRows() * delegate.getColumns();
+	}
+
+	// Accessors
+
+	@Override
+	public int getRows() {
+		return delegate.getRows();
+	}
+
+	@Override
+	public int getColumns() {
+		return delegate.getColumns();
+	}
+
+	@Override
+	public int getLength() {
+		return delegate.getLength();
+	}
+
+	@Override
+	public MatrixLayout getLayout() {
+		return delegate.getLayout();
+	}
+
+	@Override
+	public float get(int i) {
+		return delegate.get(i);
+	}
+
+	@Override
+	public float get(int r, int c) {
+		return delegate.get(r, c);
+	}
+
+	@Override
+	public float[] getRowByRowArray() {
+		return delegate.getRowByRowArray();
+	}
+
+	@Override
+	public float[] getColumnByColumnArray() {
+		return delegate.getColumnByColumnArray();
+	}
+
+	@Override
+	public float[] toColumnByColumnArray() {
+		return delegate.toColumnByColumnArray();
+	}
+
+	// Lifecycle
+
+	@Override
+	public void close() {
+		delegate.close();
+		Runnable callback;
+		synchronized (this) {
+			callback = onClose;
+			onClose = null;
+		}
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return delegate.isClosed();
+	}
+
+	@Override
+	public boolean isImmutable() {
+		return delegate.isImmutable();
+	}
+
+	@Override
+	public void setImmutable(boolean immutable) {
+		delegate.setImmutable(immutable);
+	}
+
+	// Instrumented operations
+
+	@Override
+	public int argmax() {
+		return matrixFactory.getMetrics().instrument("argmax", getElementwiseFlops(), delegate::argmax);
+	}
+
+	@Override
+	public float sum() {
+		return matrixFactory.getMetrics().instrument("sum", getElementwiseFlops(), delegate::sum);
+	}
+
+	@Override
+	public int[] columnArgmaxs() {
+		return matrixFactory.getMetrics().instrument("columnArgmaxs", getElementwiseFlops(), delegate::columnArgmaxs);
+	}
+
+	@Override
+	public Matrix mul(float v) {
+		return record("mul", getElementwiseFlops(), () -> delegate.mul(v));
+	}
+
+	@Override
+	public Matrix add(float v) {
+		return record("add", getElementwiseFlops(), () -> delegate.add(v));
+	}
+
+	@Override
+	public Matrix div(float v) {
+		return record("div", getElementwiseFlops(), () -> delegate.div(v));
+	}
+
+	@Override
+	public Matrix sub(float v) {
+		return record("sub", getElementwiseFlops(), () -> delegate.sub(v));
+	}
+
+	@Override
+	public Matrix mul(Matrix other) {
+		return record("mul", getElementwiseFlops(), () -> delegate.mul(unwrap(other)));
+	}
+
+	@Override
+	public Matrix add(Matrix other) {
+		return record("add", getElementwiseFlops(), () -> delegate.add(unwrap(other)));
+	}
+
+	@Override
+	public Matrix div(Matrix other) {
+		return record("div", getElementwiseFlops(), () -> delegate.div(unwrap(other)));
+	}
+
+	@Override
+	public Matrix sub(Matrix other) {
+		return record("sub", getElementwiseFlops(), () -> delegate.sub(unwrap(other)));
+	}
+
+	@Override
+	public Matrix sigmoid() {
+		return record("sigmoid", getElementwiseFlops(), delegate::sigmoid);
+	}
+
+	@Override
+	public Matrix log() {
+		return record("log", getElementwiseFlops(), delegate::log);
+	}
+
+	@Override
+	public Matrix logi() {
+		return record("logi", getElementwiseFlops(), delegate::logi);
+	}
+
+	@Override
+	public Matrix dup() {
+		return record("dup", 0, delegate::dup);
+	}
+
+	@Override
+	public Matrix softDup() {
+		Matrix result = matrixFactory.getMetrics().instrument("softDup", 0, delegate::softDup);
+		return result == delegate ? this : matrixFactory.wrap("softDup", result, 0);
+	}
+
+	@Override
+	public EditableMatrix asEditableMatrix() {
+		return (EditableMatrix) record("asEditableMatrix", 0, delegate::asEditableMatrix);
+	}
+
+	@Override
+	public InterrimMatrix asInterrimMatrix() {
+		return (InterrimMatrix) record("asInterrimMatrix", 0, delegate::asInterrimMatrix);
+	}
+
+	@Override
+	public Matrix getColumn(int columnIndex) {
+		return record("getColumn", 0, () -> delegate.getColumn(columnIndex));
+	}
+
+	@Override
+	public Matrix getRow(int rowIndex) {
+		return record("getRow", 0, () -> delegate.getRow(rowIndex));
+	}
+
+	@Override
+	public Matrix appendVertically(Matrix other) {
+		return record("appendVertically", 0, () -> delegate.appendVertically(unwrap(other)));
+	}
+
+	@Override
+	public Matrix appendHorizontally(Matrix other) {
+		return record("appendHorizontally", 0, () -> delegate.appendHorizontally(unwrap(other)));
+	}
+
+	@Override
+	public Matrix get(int[] rows, int[] columns) {
+		return record("get", 0, () -> delegate.get(rows, columns));
+	}
+
+	@Override
+	public Matrix getColumns(int[] columns) {
+		return record("getColumns", 0, () -> delegate.getColumns(columns));
+	}
+
+	@Override
+	public Matrix getRows(int[] rows) {
+		return record("getRows", 0, () -> delegate.getRows(rows));
+	}
+
+	@Override
+	public Matrix transpose() {
+		return record("transpose", 0, delegate::transpose);
+	}
+
+	@Override
+	public Matrix columnSums() {
+		return record("columnSums", getElementwiseFlops(), delegate::columnSums);
+	}
+
+	@Override
+	public Matrix rowSums() {
+		return record("rowSums", getElementwiseFlops(), delegate::rowSums);
+	}
+
+	@Override
+	public Matrix mulColumnVector(Matrix other) {
+		return record("mulColumnVector", getElementwiseFlops(), () -> delegate.mulColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix mulRowVector(Matrix other) {
+		return record("mulRowVector", getElementwiseFlops(), () -> delegate.mulRowVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix addColumnVector(Matrix other) {
+		return record("addColumnVector", getElementwiseFlops(), () -> delegate.addColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix addRowVector(Matrix other) {
+		return record("addRowVector", getElementwiseFlops(), () -> delegate.addRowVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix divColumnVector(Matrix other) {
+		return record("divColumnVector", getElementwiseFlops(), () -> delegate.divColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix divRowVector(Matrix other) {
+		return record("divRowVector", getElementwiseFlops(), () -> delegate.divRowVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix subColumnVector(Matrix other) {
+		return record("subColumnVector", getElementwiseFlops(), () -> delegate.subColumnVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix subRowVector(Matrix other) {
+		return record("subRowVector", getElementwiseFlops(), () -> delegate.subRowVector(unwrap(other)));
+	}
+
+	@Override
+	public Matrix mmul(Matrix other) {
+		long flops = 2L * delegate.getRows() * delegate.getColumns() * other.getColumns();
+		return record("mmul", flops, () -> delegate.mmul(unwrap(other)));
+	}
+
+	/**
+	 * An instrumented InterrimMatrix.
+	 */
+	static class Interrim extends InstrumentedMatrix implements InterrimMatrix {
+
+		private static final long serialVersionUID = 1L;
+
+		Interrim(InstrumentedMatrixFactory matrixFactory, Matrix delegate, Runnable onClose) {
+			super(matrixFactory, delegate, onClose);
+		}
+	}
+}
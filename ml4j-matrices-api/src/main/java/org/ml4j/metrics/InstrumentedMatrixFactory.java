@@ -0,0 +1,306 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.ml4j.DirectMatrix;
+import org.ml4j.EditableMatrix;
+import org.ml4j.InterrimMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.MatrixFactoryConfig;
+import org.ml4j.SparseMatrix;
+import org.ml4j.kernels.ConvolutionAlgorithm;
+import org.ml4j.kernels.ConvolutionGeometry;
+
+/**
+ * A MatrixFactory decorator which records MatrixMetrics for the matrices it creates, and for the
+ * operations performed on them.
+ *
+ * Matrices created by this factory, and the matrices returned by their operations, are wrapped
+ * so that each operation records a call, its wall time, its estimated floating point operations
+ * and the estimated bytes allocated for its result, and so that matrices which are never closed
+ * are counted against the operation which created them.  Matrices created by the factory within a
+ * block instrumented by {@link MatrixMetrics#instrument(String, long, Supplier)} are attributed to
+ * that block.
+ *
+ * SparseMatrix and DirectMatrix results are returned unwrapped, so that kernels dispatching on
+ * their type continue to do so.  As their closing cannot be observed, only the bytes allocated for
+ * them are recorded - they are not counted as unclosed matrices.
+ *
+ * When the configuration of the delegate has a leak tracker, each InterrimMatrix created is tracked
+ * by it, so that interrim matrices which are garbage collected without being closed are reported
+ * with the stack trace of their allocation.
+ */
+public class InstrumentedMatrixFactory implements MatrixFactory {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final MatrixFactory delegate;
+	private final MatrixMetrics metrics;
+
+	/**
+	 * @param delegate The MatrixFactory to instrument.
+	 * @param metrics The MatrixMetrics to which metrics are recorded.
+	 */
+	public InstrumentedMatrixFactory(MatrixFactory delegate, MatrixMetrics metrics) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("Matrix factory cannot be null");
+		}
+		if (metrics == null) {
+			throw new IllegalArgumentException("Metrics cannot be null");
+		}
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return The MatrixMetrics to which metrics are recorded.
+	 */
+	public MatrixMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return The instrumented MatrixFactory.
+	 */
+	public MatrixFactory getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * @param matrix A Matrix, which may have been created by an InstrumentedMatrixFactory.
+	 * @return The uninstrumented Matrix.
+	 */
+	static Matrix unwrap(Matrix matrix) {
+		return matrix instanceof InstrumentedMatrix ? ((InstrumentedMatrix) matrix).getDelegate() : matrix;
+	}
+
+	static long getBytes(Matrix matrix) {
+		return (long) matrix.getRows() * matrix.getColumns() * Float.BYTES;
+	}
+
+	/**
+	 * Record the creation of a matrix, and wrap it so that its operations are instrumented.
+	 *
+	 * @param operation The operation to which the matrix is attributed.
+	 * @param matrix The matrix created.
+	 * @param bytes The estimated number of bytes allocated for the matrix.
+	 * @return The instrumented matrix.
+	 */
+	Matrix wrap(String operation, Matrix matrix, long bytes) {
+		if (matrix == null || matrix instanceof InstrumentedMatrix) {
+			return matrix;
+		}
+		if (matrix instanceof SparseMatrix || matrix instanceof DirectMatrix) {
+			metrics.recordAllocation(operation, bytes);
+			return matrix;
+		}
+		Runnable onClose = metrics.recordCreation(operation, bytes);
+		if (!(matrix instanceof InterrimMatrix)) {
+			return matrix instanceof EditableMatrix
+					? new InstrumentedEditableMatrix(this, (EditableMatrix) matrix, onClose)
+					: new InstrumentedMatrix(this, matrix, onClose);
+		}
+		InstrumentedMatrix interrim = matrix instanceof EditableMatrix
+				? new InstrumentedEditableMatrix.Interrim(this, (EditableMatrix) matrix, onClose)
+				: new InstrumentedMatrix.Interrim(this, matrix, onClose);
+		MatrixFactoryConfig config = getConfig();
+		if (config != null) {
+			config.getLeakTracker().ifPresent(
+					leakTracker -> interrim.addCloseCallback(leakTracker.track(interrim, "InterrimMatrix", bytes)));
+		}
+		return interrim;
+	}
+
+	private Matrix create(String operation, long bytes, Supplier<Matrix> creation) {
+		String enclosingOperation = metrics.getCurrentOperation();
+		Matrix matrix = metrics.instrument(operation, 0, creation);
+		return wrap(enclosingOperation == null ? operation : enclosingOperation, matrix, bytes);
+	}
+
+	private Matrix create(String operation, int rows, int columns, Supplier<Matrix> creation) {
+		return create(operation, (long) rows * columns * Float.BYTES, creation);
+	}
+
+	@Override
+	public Matrix createOnes(int rows, int columns) {
+		return create("createOnes", rows, columns, () -> delegate.createOnes(rows, columns));
+	}
+
+	@Override
+	public Matrix createOnes(int rows) {
+		return create("createOnes", rows, 1, () -> delegate.createOnes(rows));
+	}
+
+	@Override
+	public Matrix createZeros(int rows, int columns) {
+		return create("createZeros", rows, columns, () -> delegate.createZeros(rows, columns));
+	}
+
+	@Override
+	public Matrix createRandn(int rows, int columns) {
+		return create("createRandn", rows, columns, () -> delegate.createRandn(rows, columns));
+	}
+
+	@Override
+	public Matrix createRand(int rows, int columns) {
+		return create("createRand", rows, columns, () -> delegate.createRand(rows, columns));
+	}
+
+	@Override
+	public Matrix createRandn(int rows, int columns, long seed) {
+		return create("createRandn", rows, columns, () -> delegate.createRandn(rows, columns, seed));
+	}
+
+	@Override
+	public Matrix createRand(int rows, int columns, long seed) {
+		return create("createRand", rows, columns, () -> delegate.createRand(rows, columns, seed));
+	}
+
+	@Override
+	public Matrix createMatrixFromRows(float[][] data) {
+		return create("createMatrixFromRows", data.length, data.length == 0 ? 0 : data[0].length,
+				() -> delegate.createMatrixFromRows(data));
+	}
+
+	@Override
+	public Matrix createMatrix(int rows, int cols) {
+		return create("createMatrix", rows, cols, () -> delegate.createMatrix(rows, cols));
+	}
+
+	@Override
+	public Matrix createMatrixFromColumnsByColumnsArray(int rows, int cols, float[] data) {
+		return create("createMatrixFromColumnsByColumnsArray", rows, cols,
+				() -> delegate.createMatrixFromColumnsByColumnsArray(rows, cols, data));
+	}
+
+	@Override
+	public Matrix createMatrixFromRowsByRowsArray(int rows, int cols, float[] data) {
+		return create("createMatrixFromRowsByRowsArray", rows, cols,
+				() -> delegate.createMatrixFromRowsByRowsArray(rows, cols, data));
+	}
+
+	@Override
+	public Matrix createMatrix() {
+		return create("createMatrix", 0, () -> delegate.createMatrix());
+	}
+
+	@Override
+	public Matrix createMatrix(float[] data) {
+		return create("createMatrix", 0, () -> delegate.createMatrix(data));
+	}
+
+	@Override
+	public Matrix createHorizontalConcatenation(Matrix matrix1, Matrix matrix2) {
+		return create("createHorizontalConcatenation", matrix1.getRows(), matrix1.getColumns() + matrix2.getColumns(),
+				() -> delegate.createHorizontalConcatenation(unwrap(matrix1), unwrap(matrix2)));
+	}
+
+	@Override
+	public Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2) {
+		return create("createVerticalConcatenation", matrix1.getRows() + matrix2.getRows(), matrix1.getColumns(),
+				() -> delegate.createVerticalConcatenation(unwrap(matrix1), unwrap(matrix2)));
+	}
+
+	@Override
+	public Matrix readMatrix(Path path) throws IOException {
+		Matrix matrix = delegate.readMatrix(path);
+		return wrap("readMatrix", matrix, getBytes(matrix));
+	}
+
+	@Override
+	public Matrix mapMatrix(Path path) throws IOException {
+		return wrap("mapMatrix", delegate.mapMatrix(path), 0);
+	}
+
+	/**
+	 * @return The destination matrix c if the delegate returns the destination passed to it, and
+	 * otherwise the instrumented result of the delegate.
+	 */
+	@Override
+	public EditableMatrix gemm(boolean transA, boolean transB, float alpha, Matrix a, Matrix b, float beta,
+			EditableMatrix c) {
+		long flops = 2L * c.getRows() * c.getColumns() * (transA ? a.getRows() : a.getColumns());
+		EditableMatrix destination = (EditableMatrix) unwrap(c);
+		EditableMatrix result = metrics.instrument("gemm", flops,
+				() -> delegate.gemm(transA, transB, alpha, unwrap(a), unwrap(b), beta, destination));
+		if (result == destination || result == c) {
+			return c;
+		}
+		Matrix wrapped = wrap("gemm", result, getBytes(result));
+		return wrapped instanceof EditableMatrix ? (EditableMatrix) wrapped : result;
+	}
+
+	@Override
+	public List<Matrix> batchMmul(List<? extends Matrix> a, List<? extends Matrix> b) {
+		long flops = 0;
+		for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+			flops += 2L * a.get(i).getRows() * a.get(i).getColumns() * b.get(i).getColumns();
+		}
+		List<Matrix> products = metrics.instrument("batchMmul", flops, () -> delegate.batchMmul(
+				a.stream().map(InstrumentedMatrixFactory::unwrap).collect(Collectors.toList()),
+				b.stream().map(InstrumentedMatrixFactory::unwrap).collect(Collectors.toList())));
+		List<Matrix> results = new ArrayList<>(products.size());
+		for (Matrix product : products) {
+			results.add(wrap("batchMmul", product, getBytes(product)));
+		}
+		return results;
+	}
+
+	@Override
+	public Matrix convolve(ConvolutionAlgorithm algorithm, ConvolutionGeometry geometry, Matrix input,
+			Matrix weights) {
+		long flops = 2L * geometry.getMultiplyAdds(input.getColumns());
+		Matrix output = metrics.instrument("convolve", flops,
+				() -> delegate.convolve(algorithm, geometry, unwrap(input), unwrap(weights)));
+		return wrap("convolve", output, getBytes(output));
+	}
+
+	@Override
+	public Matrix convolutionInputGradient(ConvolutionGeometry geometry, Matrix outputGradient, Matrix weights) {
+		long flops = 2L * geometry.getMultiplyAdds(outputGradient.getColumns());
+		Matrix inputGradient = metrics.instrument("convolutionInputGradient", flops,
+				() -> delegate.convolutionInputGradient(geometry, unwrap(outputGradient), unwrap(weights)));
+		return wrap("convolutionInputGradient", inputGradient, getBytes(inputGradient));
+	}
+
+	@Override
+	public Matrix convolutionWeightGradient(ConvolutionGeometry geometry, Matrix input, Matrix outputGradient) {
+		long flops = 2L * geometry.getMultiplyAdds(input.getColumns());
+		Matrix weightGradient = metrics.instrument("convolutionWeightGradient", flops,
+				() -> delegate.convolutionWeightGradient(geometry, unwrap(input), unwrap(outputGradient)));
+		return wrap("convolutionWeightGradient", weightGradient, getBytes(weightGradient));
+	}
+
+	@Override
+	public MatrixFactoryConfig getConfig() {
+		return delegate.getConfig();
+	}
+
+	@Override
+	public MatrixFactory withConfig(MatrixFactoryConfig config) {
+		MatrixFactory configured = delegate.withConfig(config);
+		return configured == delegate ? this : new InstrumentedMatrixFactory(configured, metrics);
+	}
+}
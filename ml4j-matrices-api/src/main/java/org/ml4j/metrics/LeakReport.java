@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+/**
+ * A report of a tracked resource which became unreachable without having been closed, identifying
+ * where it was allocated.
+ */
+public final class LeakReport {
+
+	private final String type;
+	private final long bytes;
+	private final StackTraceElement[] allocationStackTrace;
+
+	/**
+	 * @param type The type of the leaked resource.
+	 * @param bytes The estimated number of bytes held by the leaked resource.
+	 * @param allocationStackTrace The stack trace of the allocation of the leaked resource.
+	 */
+	public LeakReport(String type, long bytes, StackTraceElement[] allocationStackTrace) {
+		this.type = type;
+		this.bytes = bytes;
+		this.allocationStackTrace = allocationStackTrace;
+	}
+
+	/**
+	 * @return The type of the leaked resource.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return The estimated number of bytes held by the leaked resource.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return The stack trace of the allocation of the leaked resource.
+	 */
+	public StackTraceElement[] getAllocationStackTrace() {
+		return allocationStackTrace.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Leaked ").append(type).append(" of ").append(bytes)
+				.append(" bytes, which was never closed, allocated at:");
+		for (StackTraceElement element : allocationStackTrace) {
+			builder.append(System.lineSeparator()).append("\tat ").append(element);
+		}
+		return builder.toString();
+	}
+}
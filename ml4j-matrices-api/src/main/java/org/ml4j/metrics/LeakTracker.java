@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ml4j.ResourceTracker;
+
+/**
+ * Detects resources - such as InterrimMatrix, NeuronsActivation and CostAndGradients instances -
+ * which are garbage collected without having been closed, and keeps gauges of the resources and
+ * bytes which are live for a session, such as a training run.
+ *
+ * Each resource is registered with {@link #track(Object, String, long)} when allocated, capturing
+ * the stack trace of the allocation, and the callback returned is run when the resource is
+ * closed.  The tracker holds only a phantom reference to each resource, so tracking never delays
+ * its collection; resources found to have been collected without being closed are reported to
+ * the listener, with their allocation stack traces, whenever a resource is tracked or
+ * {@link #poll()} is called.
+ *
+ * Capturing a stack trace for each resource is expensive, so a LeakTracker is intended to be
+ * enabled while diagnosing a leak - for example by configuring a MatrixFactory with
+ * {@link org.ml4j.MatrixFactoryConfig#withLeakTracker(org.ml4j.ResourceTracker)}.
+ */
+public class LeakTracker implements ResourceTracker, LeakTrackerMXBean {
+
+	private final ReferenceQueue<Object> referenceQueue;
+	private final Set<TrackedReference> liveReferences;
+	private final ConcurrentMap<String, TypeCounters> counters;
+	private final Consumer<LeakReport> listener;
+
+	/**
+	 * @param listener The listener to which each LeakReport is passed - for example one which logs
+	 * the report with the logging framework of the application.
+	 */
+	public LeakTracker(Consumer<LeakReport> listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null");
+		}
+		this.referenceQueue = new ReferenceQueue<>();
+		this.liveReferences = ConcurrentHashMap.newKeySet();
+		this.counters = new ConcurrentHashMap<>();
+		this.listener = listener;
+	}
+
+	/**
+	 * Track a newly allocated resource.
+	 *
+	 * @param resource The resource.
+	 * @param type The type of the resource, by which the gauges are keyed.
+	 * @param bytes The estimated number of bytes held by the resource.
+	 * @return A callback to be run when the resource is closed, which may be run more than once.
+	 */
+	@Override
+	public Runnable track(Object resource, String type, long bytes) {
+		if (resource == null) {
+			throw new IllegalArgumentException("Resource cannot be null");
+		}
+		if (type == null) {
+			throw new IllegalArgumentException("Type cannot be null");
+		}
+		poll();
+		TrackedReference reference = new TrackedReference(resource, referenceQueue, getCounters(type), type, bytes,
+				getAllocationStackTrace());
+		reference.counters.liveCount.increment();
+		reference.counters.liveBytes.add(bytes);
+		liveReferences.add(reference);
+		return () -> untrack(reference);
+	}
+
+	private static StackTraceElement[] getAllocationStackTrace() {
+		StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+		// Omit the frames of this tracker
+		return Arrays.copyOfRange(stackTrace, Math.min(2, stackTrace.length), stackTrace.length);
+	}
+
+	private boolean untrack(TrackedReference reference) {
+		if (!liveReferences.remove(reference)) {
+			return false;
+		}
+		reference.counters.liveCount.decrement();
+		reference.counters.liveBytes.add(-reference.bytes);
+		reference.clear();
+		return true;
+	}
+
+	@Override
+	public int poll() {
+		int leaks = 0;
+		Reference<?> reference;
+		while ((reference = referenceQueue.poll()) != null) {
+			TrackedReference trackedReference = (TrackedReference) reference;
+			if (untrack(trackedReference)) {
+				trackedReference.counters.leakCount.increment();
+				trackedReference.counters.leakedBytes.add(trackedReference.bytes);
+				listener.accept(new LeakReport(trackedReference.type, trackedReference.bytes,
+						trackedReference.allocationStackTrace));
+				leaks++;
+			}
+		}
+		return leaks;
+	}
+
+	private TypeCounters getCounters(String type) {
+		return counters.computeIfAbsent(type, t -> new TypeCounters());
+	}
+
+	private Map<String, Long> getValues(Function<TypeCounters, LongAdder> value) {
+		poll();
+		Map<String, Long> values = new TreeMap<>();
+		counters.forEach((type, typeCounters) -> values.put(type, value.apply(typeCounters).sum()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getLiveCounts() {
+		return getValues(c -> c.liveCount);
+	}
+
+	@Override
+	public Map<String, Long> getLiveBytes() {
+		return getValues(c -> c.liveBytes);
+	}
+
+	@Override
+	public Map<String, Long> getLeakCounts() {
+		return getValues(c -> c.leakCount);
+	}
+
+	@Override
+	public Map<String, Long> getLeakedBytes() {
+		return getValues(c -> c.leakedBytes);
+	}
+
+	/**
+	 * Register this LeakTracker with the platform MBeanServer.
+	 *
+	 * @param name The value of the name key of the ObjectName, distinguishing this LeakTracker
+	 * from those of other sessions in the same JVM.
+	 * @return The ObjectName under which this LeakTracker is registered.
+	 */
+	public ObjectName registerMBean(String name) {
+		try {
+			ObjectName objectName = new ObjectName("org.ml4j:type=LeakTracker,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register LeakTracker MBean", e);
+		}
+	}
+
+	/**
+	 * Unregister an MBean registered by registerMBean.
+	 *
+	 * @param objectName The ObjectName returned by registerMBean.
+	 */
+	public void unregisterMBean(ObjectName objectName) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to unregister LeakTracker MBean", e);
+		}
+	}
+
+	private static class TrackedReference extends PhantomReference<Object> {
+
+		private final TypeCounters counters;
+		private final String type;
+		private final long bytes;
+		private final StackTraceElement[] allocationStackTrace;
+
+		TrackedReference(Object resource, ReferenceQueue<Object> referenceQueue, TypeCounters counters, String type,
+				long bytes, StackTraceElement[] allocationStackTrace) {
+			super(resource, referenceQueue);
+			this.counters = counters;
+			this.type = type;
+			this.bytes = bytes;
+			this.allocationStackTrace = allocationStackTrace;
+		}
+	}
+
+	private static class TypeCounters {
+
+		private final LongAdder liveCount = new LongAdder();
+		private final LongAdder liveBytes = new LongAdder();
+		private final LongAdder leakCount = new LongAdder();
+		private final LongAdder leakedBytes = new LongAdder();
+	}
+}
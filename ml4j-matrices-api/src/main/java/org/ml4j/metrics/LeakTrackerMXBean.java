@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX management interface exposing the gauges of a LeakTracker, keyed by resource type.
+ */
+public interface LeakTrackerMXBean {
+
+	/**
+	 * @return The number of tracked resources which have not been closed, by type.
+	 */
+	Map<String, Long> getLiveCounts();
+
+	/**
+	 * @return The estimated number of bytes held by tracked resources which have not been closed,
+	 * by type.
+	 */
+	Map<String, Long> getLiveBytes();
+
+	/**
+	 * @return The number of tracked resources which became unreachable without being closed, by
+	 * type.
+	 */
+	Map<String, Long> getLeakCounts();
+
+	/**
+	 * @return The estimated number of bytes held by tracked resources which became unreachable
+	 * without being closed, by type.
+	 */
+	Map<String, Long> getLeakedBytes();
+
+	/**
+	 * Report any tracked resources which have become unreachable without being closed.
+	 *
+	 * @return The number of leaks reported.
+	 */
+	int poll();
+}
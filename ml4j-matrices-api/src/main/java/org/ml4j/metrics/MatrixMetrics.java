@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records, per type of matrix operation, the call count, wall time, estimated floating point
+ * operations, estimated bytes allocated and the number of matrices created which have not been
+ * closed.
+ *
+ * Metrics are recorded by an InstrumentedMatrixFactory and the matrices it creates, and may be
+ * recorded for any other block of code using {@link #instrument(String, long, Supplier)} - for
+ * example an im2col export performed using an InstrumentedMatrixFactory, so that the matrices
+ * allocated within the block are attributed to it.  Metrics are available programmatically from
+ * {@link #getStatistics()}, and through JMX once {@link #registerMBean(String)} has been called.
+ */
+public class MatrixMetrics implements MatrixMetricsMXBean, Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The innermost instrumented block of the current thread.
+	 */
+	private static final ThreadLocal<Scope> CURRENT_SCOPE = new ThreadLocal<>();
+
+	private final ConcurrentMap<String, OperationCounters> counters;
+
+	/**
+	 * Create a MatrixMetrics with no recorded metrics.
+	 */
+	public MatrixMetrics() {
+		this.counters = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Run a block of code, recording a call of the named operation.
+	 *
+	 * @param operation The name of the operation.
+	 * @param flops The estimated number of floating point operations performed by the block.
+	 * @param block The block.
+	 * @param <T> The type of the result of the block.
+	 * @return The result of the block.
+	 */
+	public <T> T instrument(String operation, long flops, Supplier<T> block) {
+		OperationCounters operationCounters = getCounters(operation);
+		Scope scope = CURRENT_SCOPE.get();
+		CURRENT_SCOPE.set(new Scope(this, operation));
+		long start = System.nanoTime();
+		try {
+			return block.get();
+		} finally {
+			long nanos = System.nanoTime() - start;
+			CURRENT_SCOPE.set(scope);
+			operationCounters.callCount.increment();
+			operationCounters.totalTimeNanos.add(nanos);
+			operationCounters.flops.add(flops);
+		}
+	}
+
+	/**
+	 * @return The name of the innermost block of the current thread instrumented by this
+	 * MatrixMetrics, or null if there is none.
+	 */
+	String getCurrentOperation() {
+		Scope scope = CURRENT_SCOPE.get();
+		return scope != null && scope.metrics == this ? scope.operation : null;
+	}
+
+	/**
+	 * Record the creation of a matrix by an operation.
+	 *
+	 * @param operation The name of the operation.
+	 * @param bytes The estimated number of bytes allocated for the matrix.
+	 * @return A callback to be run when the matrix is closed.
+	 */
+	Runnable recordCreation(String operation, long bytes) {
+		OperationCounters operationCounters = getCounters(operation);
+		operationCounters.bytesAllocated.add(bytes);
+		operationCounters.createdCount.increment();
+		return operationCounters.closedCount::increment;
+	}
+
+	/**
+	 * Record the bytes allocated for a matrix created by an operation, whose closing cannot be
+	 * observed, so that it is not counted as unclosed.
+	 *
+	 * @param operation The name of the operation.
+	 * @param bytes The estimated number of bytes allocated for the matrix.
+	 */
+	void recordAllocation(String operation, long bytes) {
+		getCounters(operation).bytesAllocated.add(bytes);
+	}
+
+	private OperationCounters getCounters(String operation) {
+		return counters.computeIfAbsent(operation, o -> new OperationCounters());
+	}
+
+	/**
+	 * @return A snapshot of the statistics of each operation, keyed and ordered by operation name.
+	 */
+	public Map<String, MatrixOperationStatistics> getStatistics() {
+		Map<String, MatrixOperationStatistics> statistics = new TreeMap<>();
+		counters.forEach((operation, operationCounters) -> statistics.put(operation,
+				operationCounters.snapshot(operation)));
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	/**
+	 * @param operation The name of the operation.
+	 * @return A snapshot of the statistics of the operation, or null if none have been recorded.
+	 */
+	public MatrixOperationStatistics getStatistics(String operation) {
+		OperationCounters operationCounters = counters.get(operation);
+		return operationCounters == null ? null : operationCounters.snapshot(operation);
+	}
+
+	private Map<String, Long> getValues(Function<MatrixOperationStatistics, Long> value) {
+		Map<String, Long> values = new TreeMap<>();
+		getStatistics().forEach((operation, statistics) -> values.put(operation, value.apply(statistics)));
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getCallCounts() {
+		return getValues(MatrixOperationStatistics::getCallCount);
+	}
+
+	@Override
+	public Map<String, Long> getTotalTimeNanos() {
+		return getValues(MatrixOperationStatistics::getTotalTimeNanos);
+	}
+
+	@Override
+	public Map<String, Long> getFlops() {
+		return getValues(MatrixOperationStatistics::getFlops);
+	}
+
+	@Override
+	public Map<String, Long> getBytesAllocated() {
+		return getValues(MatrixOperationStatistics::getBytesAllocated);
+	}
+
+	@Override
+	public Map<String, Long> getUnclosedMatrixCounts() {
+		return getValues(MatrixOperationStatistics::getUnclosedMatrixCount);
+	}
+
+	@Override
+	public void reset() {
+		for (OperationCounters operationCounters : counters.values()) {
+			operationCounters.callCount.reset();
+			operationCounters.totalTimeNanos.reset();
+			operationCounters.flops.reset();
+			operationCounters.bytesAllocated.reset();
+		}
+	}
+
+	/**
+	 * Register this MatrixMetrics with the platform MBeanServer.
+	 *
+	 * @param name The value of the name key of the ObjectName, distinguishing this MatrixMetrics
+	 * from others registered in the same JVM.
+	 * @return The ObjectName under which this MatrixMetrics is registered.
+	 */
+	public ObjectName registerMBean(String name) {
+		try {
+			ObjectName objectName = new ObjectName("org.ml4j:type=MatrixMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register MatrixMetrics MBean", e);
+		}
+	}
+
+	/**
+	 * Unregister an MBean registered by registerMBean.
+	 *
+	 * @param objectName The ObjectName returned by registerMBean.
+	 */
+	public void unregisterMBean(ObjectName objectName) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to unregister MatrixMetrics MBean", e);
+		}
+	}
+
+	private static class OperationCounters implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LongAdder callCount = new LongAdder();
+		private final LongAdder totalTimeNanos = new LongAdder();
+		private final LongAdder flops = new LongAdder();
+		private final LongAdder bytesAllocated = new LongAdder();
+		private final LongAdder createdCount = new LongAdder();
+		private final LongAdder closedCount = new LongAdder();
+
+		MatrixOperationStatistics snapshot(String operation) {
+			return new MatrixOperationStatistics(operation, callCount.sum(), totalTimeNanos.sum(), flops.sum(),
+					bytesAllocated.sum(), createdCount.sum() - closedCount.sum());
+		}
+	}
+
+	private static class Scope {
+
+		private final MatrixMetrics metrics;
+		private final String operation;
+
+		Scope(MatrixMetrics metrics, String operation) {
+			this.metrics = metrics;
+			this.operation = operation;
+		}
+	}
+}
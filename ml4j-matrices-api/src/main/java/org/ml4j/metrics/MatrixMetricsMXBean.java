@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of MatrixMetrics, with each attribute keyed by operation name.
+ */
+public interface MatrixMetricsMXBean {
+
+	/**
+	 * @return The number of calls of each operation.
+	 */
+	Map<String, Long> getCallCounts();
+
+	/**
+	 * @return The total wall time of each operation, in nanoseconds.
+	 */
+	Map<String, Long> getTotalTimeNanos();
+
+	/**
+	 * @return The estimated number of floating point operations performed by each operation.
+	 */
+	Map<String, Long> getFlops();
+
+	/**
+	 * @return The estimated number of bytes allocated by each operation.
+	 */
+	Map<String, Long> getBytesAllocated();
+
+	/**
+	 * @return The number of matrices created by each operation which have not been closed.
+	 */
+	Map<String, Long> getUnclosedMatrixCounts();
+
+	/**
+	 * Reset the call counts, times, flops and bytes allocated.  The counts of unclosed matrices
+	 * are retained, as they reflect matrices which are still live.
+	 */
+	void reset();
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.metrics;
+
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of the metrics recorded for one type of matrix operation.
+ */
+public class MatrixOperationStatistics implements Serializable {
+
+	/**
+	 * Default serialization id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final String operation;
+	private final long callCount;
+	private final long totalTimeNanos;
+	private final long flops;
+	private final long bytesAllocated;
+	private final long unclosedMatrixCount;
+
+	/**
+	 * @param operation The name of the operation.
+	 * @param callCount The number of calls.
+	 * @param totalTimeNanos The total wall time of the calls, in nanoseconds.
+	 * @param flops The estimated number of floating point operations performed.
+	 * @param bytesAllocated The estimated number of bytes allocated for the matrices created.
+	 * @param unclosedMatrixCount The number of matrices created which have not been closed.
+	 */
+	public MatrixOperationStatistics(String operation, long callCount, long totalTimeNanos, long flops,
+			long bytesAllocated, long unclosedMatrixCount) {
+		this.operation = operation;
+		this.callCount = callCount;
+		this.totalTimeNanos = totalTimeNanos;
+		this.flops = flops;
+		this.bytesAllocated = bytesAllocated;
+		this.unclosedMatrixCount = unclosedMatrixCount;
+	}
+
+	/**
+	 * @return The name of the operation - the name of the Matrix or MatrixFactory method, or the
+	 * name given to an instrumented block.
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return The number of calls.
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+
+	/**
+	 * @return The total wall time of the calls, in nanoseconds.
+	 */
+	public long getTotalTimeNanos() {
+		return totalTimeNanos;
+	}
+
+	/**
+	 * @return The estimated number of floating point operations performed - 2mnk for a
+	 * multiplication of (m, k) and (k, n) matrices, and one per element for element-wise
+	 * operations and reductions.
+	 */
+	public long getFlops() {
+		return flops;
+	}
+
+	/**
+	 * @return The estimated number of bytes allocated for the values of the matrices created.
+	 */
+	public long getBytesAllocated() {
+		return bytesAllocated;
+	}
+
+	/**
+	 * @return The number of matrices created which have not yet been closed - such as interrim
+	 * matrices which are never returned to the factory.
+	 */
+	public long getUnclosedMatrixCount() {
+		return unclosedMatrixCount;
+	}
+
+	@Override
+	public String toString() {
+		return "MatrixOperationStatistics [operation=" + operation + ", callCount=" + callCount + ", totalTimeNanos="
+				+ totalTimeNanos + ", flops=" + flops + ", bytesAllocated=" + bytesAllocated + ", unclosedMatrixCount="
+				+ unclosedMatrixCount + "]";
+	}
+}
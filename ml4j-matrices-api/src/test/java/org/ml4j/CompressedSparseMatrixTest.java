@@ -0,0 +1,215 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class CompressedSparseMatrixTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Mock
+	private Matrix denseMatrix;
+
+	private static final float[] DATA = new float[] { 0, 2, 0, 0, 0, 0, 3, 0, 4 };
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(matrixFactory.getConfig()).thenReturn(MatrixFactoryConfig.defaultConfig());
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.anyInt(), Mockito.anyInt(),
+				Mockito.any())).thenReturn(denseMatrix);
+	}
+
+	@Test
+	public void testCompressCsr() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		Assert.assertEquals(3, matrix.getNonZeroCount());
+		Assert.assertArrayEquals(new float[] { 2, 3, 4 }, matrix.getValues(), 0f);
+		Assert.assertArrayEquals(new int[] { 1, 0, 2 }, matrix.getIndices());
+		Assert.assertArrayEquals(new int[] { 0, 1, 1, 3 }, matrix.getPointers());
+		Assert.assertArrayEquals(DATA, matrix.getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testCompressCsc() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSC);
+		Assert.assertArrayEquals(new float[] { 3, 2, 4 }, matrix.getValues(), 0f);
+		Assert.assertArrayEquals(new int[] { 2, 0, 2 }, matrix.getIndices());
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3 }, matrix.getPointers());
+		Assert.assertArrayEquals(DATA, matrix.getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testGetAndSum() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		Assert.assertEquals(2f, matrix.get(0, 1), 0f);
+		Assert.assertEquals(0f, matrix.get(1, 1), 0f);
+		Assert.assertEquals(4f, matrix.get(2, 2), 0f);
+		Assert.assertEquals(9f, matrix.sum(), 0f);
+		Assert.assertEquals(18f, matrix.mul(2).sum(), 0f);
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test
+	public void testTransposeSharesArrays() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 2, 3, new float[] { 1, 0, 2, 0, 3, 0 },
+				SparseMatrixFormat.CSR);
+		SparseMatrix transpose = (SparseMatrix) matrix.transpose();
+		Assert.assertEquals(SparseMatrixFormat.CSC, transpose.getFormat());
+		Assert.assertEquals(3, transpose.getRows());
+		Assert.assertEquals(2, transpose.getColumns());
+		Assert.assertSame(matrix.getValues(), transpose.getValues());
+		Assert.assertArrayEquals(new float[] { 1, 0, 0, 3, 2, 0 }, transpose.getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testSoftDupSharesArrays() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 2, 3, new float[] { 1, 0, 2, 0, 3, 0 },
+				SparseMatrixFormat.CSR);
+		matrix.setImmutable(true);
+		SparseMatrix softDup = (SparseMatrix) matrix.softDup();
+		Assert.assertSame(matrix.getValues(), softDup.getValues());
+		Assert.assertSame(matrix.getIndices(), softDup.getIndices());
+		Assert.assertSame(matrix.getPointers(), softDup.getPointers());
+		Assert.assertTrue(softDup.isImmutable());
+
+		matrix.getValues()[1] = 5;
+		Assert.assertEquals(5, softDup.get(0, 2), 0f);
+
+		softDup.close();
+		Assert.assertFalse(matrix.isClosed());
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test
+	public void testMmulDense() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		Matrix other = Mockito.mock(Matrix.class);
+		Mockito.when(other.getRows()).thenReturn(3);
+		Mockito.when(other.getColumns()).thenReturn(2);
+		Mockito.when(other.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3, 4, 5, 6 });
+
+		Assert.assertSame(denseMatrix, matrix.mmul(other));
+
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(3), Mockito.eq(2), data.capture());
+		Assert.assertArrayEquals(new float[] { 6, 8, 0, 0, 23, 30 }, data.getValue(), 0f);
+	}
+
+	@Test
+	public void testDenseOperationsDelegate() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.when(denseMatrix.add(1f)).thenReturn(result);
+		Assert.assertSame(result, matrix.add(1f));
+		Assert.assertSame(result, matrix.add(1f));
+		Mockito.verify(matrixFactory, Mockito.times(1)).createMatrixFromRowsByRowsArray(Mockito.eq(3),
+				Mockito.eq(3), Mockito.any());
+
+		matrix.close();
+		Mockito.verify(denseMatrix).close();
+	}
+
+	@Test
+	public void testLinearGetAndArgmaxUseCompressedValues() {
+		for (SparseMatrixFormat format : SparseMatrixFormat.values()) {
+			SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, format);
+			Assert.assertEquals(2f, matrix.get(1), 0f);
+			Assert.assertEquals(0f, matrix.get(4), 0f);
+			Assert.assertEquals(3f, matrix.get(6), 0f);
+			Assert.assertEquals(8, matrix.argmax());
+
+			// The first zero is the maximum of a matrix of negative values
+			Assert.assertEquals(2, CompressedSparseMatrix.compress(matrixFactory, 2, 3,
+					new float[] { -1, -2, 0, 0, -3, 0 }, format).argmax());
+			Assert.assertEquals(3, CompressedSparseMatrix.compress(matrixFactory, 2, 3,
+					new float[] { -1, -2, -3, 0, -3, 0 }, format).argmax());
+			Assert.assertEquals(4, CompressedSparseMatrix.compress(matrixFactory, 2, 3,
+					new float[] { -1, -2, -3, -4, -0.5f, -6 }, format).argmax());
+		}
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test
+	public void testRowsColumnsAndSums() {
+		for (SparseMatrixFormat format : SparseMatrixFormat.values()) {
+			SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, format);
+			Assert.assertArrayEquals(new float[] { 0, 0, 3, 2, 0, 0, 0, 0, 4 }, matrix.getColumnByColumnArray(), 0f);
+			matrix.getRow(2);
+			matrix.getColumn(1);
+			matrix.rowSums();
+			matrix.columnSums();
+		}
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory, Mockito.times(4)).createMatrixFromRowsByRowsArray(Mockito.eq(1),
+				Mockito.eq(3), data.capture());
+		Mockito.verify(matrixFactory, Mockito.times(4)).createMatrixFromRowsByRowsArray(Mockito.eq(3),
+				Mockito.eq(1), data.capture());
+		float[] row = new float[] { 3, 0, 4 };
+		float[] columnSums = new float[] { 3, 2, 4 };
+		float[] column = new float[] { 2, 0, 0 };
+		float[] rowSums = new float[] { 2, 0, 7 };
+		float[][] expected = new float[][] { row, columnSums, row, columnSums, column, rowSums, column, rowSums };
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertArrayEquals(expected[i], data.getAllValues().get(i), 0f);
+		}
+	}
+
+	@Test
+	public void testElementwiseMultiplicationIsSparse() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSC);
+		Matrix other = Mockito.mock(Matrix.class);
+		Mockito.when(other.getRows()).thenReturn(3);
+		Mockito.when(other.getColumns()).thenReturn(3);
+		Mockito.when(other.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		Matrix rowVector = Mockito.mock(Matrix.class);
+		Mockito.when(rowVector.getRows()).thenReturn(1);
+		Mockito.when(rowVector.getColumns()).thenReturn(3);
+		Mockito.when(rowVector.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3 });
+		Matrix columnVector = Mockito.mock(Matrix.class);
+		Mockito.when(columnVector.getRows()).thenReturn(3);
+		Mockito.when(columnVector.getColumns()).thenReturn(1);
+		Mockito.when(columnVector.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3 });
+
+		SparseMatrix product = (SparseMatrix) matrix.mul(other);
+		Assert.assertEquals(SparseMatrixFormat.CSC, product.getFormat());
+		Assert.assertArrayEquals(new float[] { 0, 4, 0, 0, 0, 0, 21, 0, 36 }, product.getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 0, 4, 0, 0, 0, 0, 3, 0, 12 },
+				matrix.mulRowVector(rowVector).getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 0, 2, 0, 0, 0, 0, 9, 0, 12 },
+				matrix.mulColumnVector(columnVector).getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testLogiReturnsDenseResult() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		EditableMatrix editable = Mockito.mock(EditableMatrix.class);
+		Mockito.when(denseMatrix.asEditableMatrix()).thenReturn(editable);
+		Mockito.when(editable.logi()).thenReturn(editable);
+
+		Assert.assertSame(editable, matrix.logi());
+		Mockito.verify(editable).logi();
+		Assert.assertArrayEquals(DATA, matrix.getRowByRowArray(), 0f);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLogiOfImmutableMatrix() {
+		SparseMatrix matrix = CompressedSparseMatrix.compress(matrixFactory, 3, 3, DATA, SparseMatrixFormat.CSR);
+		matrix.setImmutable(true);
+		matrix.logi();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPointers() {
+		new CompressedSparseMatrix(matrixFactory, 2, 2, new float[0], new int[0], new int[2], SparseMatrixFormat.CSR);
+	}
+}
@@ -0,0 +1,127 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class CopyOnWriteMatrixTest {
+
+	private abstract static class CopyOnWriteMatrixFactory implements MatrixFactory {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public CopyOnWriteMatrix createCopyOnWriteMatrix(Matrix matrix) {
+			return MatrixFactory.super.createCopyOnWriteMatrix(matrix);
+		}
+	}
+
+	@Mock
+	private CopyOnWriteMatrixFactory matrixFactory;
+
+	@Mock
+	private Matrix shared;
+
+	@Mock
+	private EditableMatrix copy;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(shared.isImmutable()).thenReturn(true);
+		Mockito.when(shared.getRows()).thenReturn(2);
+		Mockito.when(shared.getColumns()).thenReturn(2);
+		Mockito.when(shared.get(1, 0)).thenReturn(3f);
+		Mockito.when(shared.toColumnByColumnArray()).thenReturn(new float[] { 1, 3, 2, 4 });
+		Mockito.when(matrixFactory.createMatrixFromColumnsByColumnsArray(2, 2, new float[] { 1, 3, 2, 4 }))
+				.thenReturn(copy);
+		Mockito.when(copy.asEditableMatrix()).thenReturn(copy);
+		Mockito.when(matrixFactory.createCopyOnWriteMatrix(Mockito.any())).thenCallRealMethod();
+	}
+
+	@Test
+	public void testReadsShareMatrixUntilWritten() {
+		CopyOnWriteMatrix matrix = new CopyOnWriteMatrix(matrixFactory, shared);
+
+		Assert.assertEquals(3f, matrix.get(1, 0), 0f);
+		Assert.assertFalse(matrix.isCopied());
+		Mockito.verifyNoInteractions(matrixFactory);
+
+		Assert.assertSame(matrix, matrix.addi(1f));
+		matrix.put(0, 0, 5f);
+		matrix.get(1, 0);
+
+		Assert.assertTrue(matrix.isCopied());
+		Mockito.verify(matrixFactory, Mockito.times(1)).createMatrixFromColumnsByColumnsArray(2, 2,
+				new float[] { 1, 3, 2, 4 });
+		Mockito.verify(copy).addi(1f);
+		Mockito.verify(copy).put(0, 0, 5f);
+		Mockito.verify(copy).get(1, 0);
+		Mockito.verify(shared, Mockito.times(1)).get(1, 0);
+	}
+
+	@Test
+	public void testDupSharesMatrixUntilWritten() {
+		CopyOnWriteMatrix matrix = new CopyOnWriteMatrix(matrixFactory, shared);
+
+		Matrix duplicate = matrix.dup();
+		Assert.assertTrue(duplicate instanceof CopyOnWriteMatrix);
+		duplicate.asEditableMatrix().muli(2f);
+
+		Assert.assertFalse(matrix.isCopied());
+		Assert.assertTrue(((CopyOnWriteMatrix) duplicate).isCopied());
+		Mockito.verify(copy).muli(2f);
+
+		EditableMatrix copyOfCopy = Mockito.mock(EditableMatrix.class);
+		Mockito.when(copy.dup()).thenReturn(copyOfCopy);
+		Assert.assertSame(copyOfCopy, duplicate.dup());
+	}
+
+	@Test
+	public void testSoftDupWritesThrough() {
+		CopyOnWriteMatrix matrix = new CopyOnWriteMatrix(matrixFactory, shared);
+
+		((EditableMatrix) matrix.softDup()).put(1, 1, 7f);
+
+		Mockito.verify(copy).put(1, 1, 7f);
+		Assert.assertTrue(matrix.isCopied());
+	}
+
+	@Test
+	public void testCloseClosesOnlyCopy() {
+		CopyOnWriteMatrix matrix = new CopyOnWriteMatrix(matrixFactory, shared);
+		matrix.subi(1f);
+		matrix.close();
+
+		Assert.assertTrue(matrix.isClosed());
+		Mockito.verify(copy).close();
+		Mockito.verify(shared, Mockito.never()).close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testImmutableHandleCannotBeWritten() {
+		CopyOnWriteMatrix matrix = new CopyOnWriteMatrix(matrixFactory, shared);
+		matrix.setImmutable(true);
+		matrix.put(0, 1f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMutableMatrixCannotBeShared() {
+		new CopyOnWriteMatrix(matrixFactory, Mockito.mock(Matrix.class));
+	}
+
+	@Test
+	public void testDupOfImmutableViewSharesValues() {
+		Mockito.when(shared.getRows()).thenReturn(3);
+		MatrixView view = new MatrixView(matrixFactory, shared, 0, 0, 2, 2, 1, 1);
+
+		Matrix duplicate = view.dup();
+
+		Assert.assertTrue(duplicate instanceof CopyOnWriteMatrix);
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+}
@@ -0,0 +1,22 @@
+package org.ml4j;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirectMatrixFactoryTest {
+
+	@Test
+	public void testAllocateDirect() {
+		FloatBuffer buffer = DirectMatrixFactory.allocateDirect(10);
+		Assert.assertTrue(buffer.isDirect());
+		Assert.assertEquals(10, buffer.capacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAllocateDirectRejectsLengthsBeyondMaximumBufferSize() {
+		// 2^29 floats is 2^31 bytes, one more than the largest direct buffer
+		DirectMatrixFactory.allocateDirect(1 << 29);
+	}
+}
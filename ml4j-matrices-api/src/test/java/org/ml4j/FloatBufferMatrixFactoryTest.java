@@ -0,0 +1,144 @@
+package org.ml4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FloatBufferMatrixFactoryTest {
+
+	private FloatBufferMatrixFactory matrixFactory;
+
+	@Before
+	public void setUp() {
+		matrixFactory = new FloatBufferMatrixFactory();
+	}
+
+	@Test
+	public void testAllocatedBytesAreReleasedOnClose() {
+		Matrix matrix = matrixFactory.createMatrixFromRowsByRowsArray(2, 3, new float[] { 1, 2, 3, 4, 5, 6 });
+		Assert.assertTrue(matrix instanceof DirectMatrix);
+		Assert.assertTrue(((DirectMatrix) matrix).getBuffer().isDirect());
+		Assert.assertEquals(24, matrixFactory.getAllocatedDirectBytes());
+		Assert.assertEquals(6, matrix.get(1, 2), 0f);
+
+		matrix.close();
+		matrix.close();
+		Assert.assertTrue(matrix.isClosed());
+		Assert.assertEquals(0, matrixFactory.getAllocatedDirectBytes());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedMatrixCannotBeRead() {
+		Matrix matrix = matrixFactory.createZeros(2, 2);
+		matrix.close();
+		matrix.get(0, 0);
+	}
+
+	@Test
+	public void testWrappedBufferIsNotCopiedOrCounted() {
+		FloatBuffer data = DirectMatrixFactory.allocateDirect(5);
+		data.put(new float[] { 9, 1, 2, 3, 4 });
+		data.position(1);
+		DirectMatrix matrix = matrixFactory.createMatrixFromBuffer(2, 2, data);
+		Assert.assertArrayEquals(new float[] { 1, 2, 3, 4 }, matrix.getRowByRowArray(), 0f);
+		Assert.assertEquals(0, matrixFactory.getAllocatedDirectBytes());
+
+		matrix.asEditableMatrix().put(1, 0, 7);
+		Assert.assertEquals(7, data.get(3), 0f);
+		matrix.close();
+		Assert.assertEquals(0, matrixFactory.getAllocatedDirectBytes());
+	}
+
+	@Test
+	public void testOperationsCreateDirectResults() {
+		Matrix a = matrixFactory.createMatrixFromRowsByRowsArray(2, 3, new float[] { 1, 2, 3, 4, 5, 6 });
+		Matrix b = matrixFactory.createMatrixFromRowsByRowsArray(3, 2, new float[] { 1, 0, 0, 1, 1, 1 });
+
+		Matrix product = a.mmul(b);
+		Assert.assertTrue(product instanceof FloatBufferMatrix);
+		Assert.assertArrayEquals(new float[] { 4, 5, 10, 11 }, product.getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 2, 4, 6, 8, 10, 12 }, a.add(a).getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 0, 1, 2, 3, 4, 5 }, a.sub(1).getRowByRowArray(), 0f);
+		Matrix rowVector = matrixFactory.createMatrixFromRowsByRowsArray(1, 3, new float[] { 1, 2, 3 });
+		Assert.assertArrayEquals(new float[] { 1, 4, 9, 4, 10, 18 }, a.mulRowVector(rowVector).getRowByRowArray(),
+				0f);
+		Assert.assertArrayEquals(new float[] { 5, 7, 9 }, a.columnSums().getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 6, 15 }, a.rowSums().getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 1, 4, 2, 5, 3, 6 }, a.transpose().getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 2, 5 }, a.getColumn(1).getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new int[] { 1, 1, 1 }, a.columnArgmaxs());
+		Assert.assertEquals(5, a.argmax());
+		Assert.assertEquals(21, a.sum(), 0f);
+	}
+
+	@Test
+	public void testInPlaceOperationsWriteBuffer() {
+		EditableMatrix matrix = matrixFactory.createOnes(2, 2).asEditableMatrix();
+		Matrix columnVector = matrixFactory.createMatrix(new float[] { 1, 2 });
+		matrix.muli(3).addiColumnVector(columnVector);
+		Assert.assertArrayEquals(new float[] { 4, 4, 5, 5 }, matrix.getRowByRowArray(), 0f);
+		Assert.assertEquals(5, ((DirectMatrix) matrix).getBuffer().get(3), 0f);
+	}
+
+	@Test
+	public void testSoftDupSharesWrites() {
+		EditableMatrix matrix = matrixFactory.createZeros(2, 2).asEditableMatrix();
+		Matrix softDup = matrix.softDup();
+		matrix.put(0, 1, 3);
+		Assert.assertEquals(3, softDup.get(0, 1), 0f);
+		softDup.close();
+		Assert.assertFalse(matrix.isClosed());
+		Assert.assertEquals(16, matrixFactory.getAllocatedDirectBytes());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testImmutableMatrixCannotBeWritten() {
+		EditableMatrix matrix = matrixFactory.createZeros(1, 1).asEditableMatrix();
+		matrix.setImmutable(true);
+		matrix.put(0, 0, 1);
+	}
+
+	@Test
+	public void testMapMatrix() throws Exception {
+		Path path = Files.createTempFile("float-buffer-matrix", ".bin");
+		try {
+			Matrix matrix = matrixFactory.createMatrixFromRowsByRowsArray(2, 2, new float[] { 1, 2, 3, 4 });
+			matrixFactory.writeMatrix(matrix, path);
+			DirectMatrix mapped = matrixFactory.mapMatrix(path);
+			Assert.assertTrue(mapped.isImmutable());
+			Assert.assertArrayEquals(matrix.getRowByRowArray(), mapped.getRowByRowArray(), 0f);
+			mapped.close();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		Matrix matrix = matrixFactory.createMatrixFromRowsByRowsArray(1, 3, new float[] { 1, 2, 3 });
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(matrix);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Matrix copy = (Matrix) in.readObject();
+			Assert.assertArrayEquals(matrix.getRowByRowArray(), copy.getRowByRowArray(), 0f);
+			Assert.assertTrue(((DirectMatrix) copy).getBuffer().isDirect());
+		}
+	}
+
+	@Test
+	public void testWithConfig() {
+		MatrixFactoryConfig config = new MatrixFactoryConfig().withParallelism(2);
+		Assert.assertSame(matrixFactory, matrixFactory.withConfig(MatrixFactoryConfig.defaultConfig()));
+		Assert.assertEquals(config, matrixFactory.withConfig(config).getConfig());
+	}
+}
@@ -0,0 +1,158 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class LazyMatrixTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Mock
+	private Matrix materialisedMatrix;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.anyInt(), Mockito.anyInt(),
+				Mockito.any())).thenReturn(materialisedMatrix);
+	}
+
+	private float[] captureMaterialisedData(int rows, int columns) {
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(rows), Mockito.eq(columns),
+				data.capture());
+		return data.getValue();
+	}
+
+	@Test
+	public void testElementwiseOperationsAreDeferred() {
+		Matrix x = MockMatrices.createMockMatrix(2, 2, 1, 2, 3, 4);
+		Matrix a = MockMatrices.createMockMatrix(2, 2, 2, 2, 2, 2);
+
+		Matrix result = new LazyMatrix(matrixFactory, x).mul(a).add(1).sub(0.5f).div(2);
+
+		Assert.assertTrue(result instanceof LazyMatrix);
+		Assert.assertFalse(((LazyMatrix) result).isMaterialised());
+		Assert.assertEquals(2, result.getRows());
+		Assert.assertEquals(2, result.getColumns());
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+		Mockito.verify(x, Mockito.never()).getRowByRowArray();
+
+		Assert.assertSame(materialisedMatrix, ((LazyMatrix) result).materialise());
+		Assert.assertArrayEquals(new float[] { 1.25f, 2.25f, 3.25f, 4.25f }, captureMaterialisedData(2, 2), 0f);
+	}
+
+	@Test
+	public void testMaterialisedOnGet() {
+		Matrix x = MockMatrices.createMockMatrix(1, 2, 0, 2);
+		Matrix result = new LazyMatrix(matrixFactory, x).sigmoid();
+
+		Mockito.when(materialisedMatrix.get(0, 1)).thenReturn(5f);
+		Assert.assertEquals(5f, result.get(0, 1), 0f);
+		Assert.assertEquals(5f, result.get(0, 1), 0f);
+
+		float[] data = captureMaterialisedData(1, 2);
+		Assert.assertEquals(0.5f, data[0], 0.0001f);
+		Assert.assertEquals(1f / (1f + (float) Math.exp(-2)), data[1], 0.0001f);
+	}
+
+	@Test
+	public void testBroadcastOperations() {
+		Matrix x = MockMatrices.createMockMatrix(2, 3, 1, 2, 3, 4, 5, 6);
+		Matrix rowVector = MockMatrices.createMockMatrix(1, 3, 10, 20, 30);
+		Matrix columnVector = MockMatrices.createMockMatrix(2, 1, 2, 4);
+
+		Matrix result = new LazyMatrix(matrixFactory, x).addRowVector(rowVector).divColumnVector(columnVector);
+		result.asEditableMatrix();
+
+		Assert.assertArrayEquals(new float[] { 5.5f, 11f, 16.5f, 3.5f, 6.25f, 9f },
+				captureMaterialisedData(2, 3), 0f);
+	}
+
+	@Test
+	public void testBroadcastAcrossBlocksSplittingRows() {
+		// 7 columns do not divide the block size, so blocks start and end part way through rows
+		int rows = ElementwiseExpression.BLOCK_SIZE / 7 * 3;
+		int columns = 7;
+		float[] values = new float[rows * columns];
+		float[] rowValues = new float[columns];
+		float[] columnValues = new float[rows];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i % 13;
+		}
+		for (int c = 0; c < columns; c++) {
+			rowValues[c] = c + 1;
+		}
+		for (int r = 0; r < rows; r++) {
+			columnValues[r] = r % 5 + 1;
+		}
+
+		new LazyMatrix(matrixFactory, MockMatrices.createMockMatrix(rows, columns, values))
+				.mulRowVector(MockMatrices.createMockMatrix(1, columns, rowValues))
+				.subColumnVector(MockMatrices.createMockMatrix(rows, 1, columnValues)).asEditableMatrix();
+
+		float[] data = captureMaterialisedData(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				Assert.assertEquals(values[r * columns + c] * rowValues[c] - columnValues[r], data[r * columns + c],
+						0f);
+			}
+		}
+	}
+
+	@Test
+	public void testLazyOperandsAreFused() {
+		Matrix x = MockMatrices.createMockMatrix(1, 3, 1, 2, 3);
+		Matrix y = MockMatrices.createMockMatrix(1, 3, 3, 2, 1);
+
+		Matrix left = new LazyMatrix(matrixFactory, x).mul(2);
+		Matrix right = new LazyMatrix(matrixFactory, y).log();
+		Matrix result = left.sub(right).logi();
+
+		Assert.assertFalse(((LazyMatrix) left).isMaterialised());
+		Assert.assertFalse(((LazyMatrix) right).isMaterialised());
+		result.getRowByRowArray();
+
+		float[] data = captureMaterialisedData(1, 3);
+		for (int i = 0; i < 3; i++) {
+			float expected = (float) Math.log(2 * (i + 1) - (float) Math.log(3 - i));
+			Assert.assertEquals(expected, data[i], 0.0001f);
+		}
+	}
+
+	@Test
+	public void testSumDoesNotMaterialise() {
+		float[] values = new float[ElementwiseExpression.BLOCK_SIZE * 3 + 7];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 1;
+		}
+		Matrix x = MockMatrices.createMockMatrix(values.length, 1, values);
+		Matrix result = new LazyMatrix(matrixFactory, x).mul(3);
+
+		Assert.assertEquals(values.length * 3, result.sum(), 0f);
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShapeMismatch() {
+		new LazyMatrix(matrixFactory, MockMatrices.createMockMatrix(2, 2, 1, 2, 3, 4))
+				.add(MockMatrices.createMockMatrix(1, 4, 1, 2, 3, 4));
+	}
+
+	@Test
+	public void testCloseReleasesMaterialisedMatrix() {
+		LazyMatrix result = (LazyMatrix) new LazyMatrix(matrixFactory, MockMatrices.createMockMatrix(1, 1, 1)).add(1);
+		result.materialise();
+		result.close();
+		Assert.assertTrue(result.isClosed());
+		Mockito.verify(materialisedMatrix).close();
+	}
+}
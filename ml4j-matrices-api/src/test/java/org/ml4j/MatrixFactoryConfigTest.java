@@ -0,0 +1,46 @@
+package org.ml4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatrixFactoryConfigTest {
+
+	@Test
+	public void testDefaultPoolIsCommonPool() {
+		Assert.assertSame(ForkJoinPool.commonPool(), MatrixFactoryConfig.defaultConfig().getForkJoinPool());
+	}
+
+	@Test
+	public void testPoolsAreSharedByParallelism() throws Exception {
+		MatrixFactoryConfig config = MatrixFactoryConfig.defaultConfig().withParallelism(3);
+		ForkJoinPool pool = config.getForkJoinPool();
+		Assert.assertEquals(3, pool.getParallelism());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(config);
+		}
+		MatrixFactoryConfig deserialized;
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (MatrixFactoryConfig) input.readObject();
+		}
+
+		Assert.assertSame(pool, config.dup().getForkJoinPool());
+		Assert.assertSame(pool, deserialized.getForkJoinPool());
+		Assert.assertSame(pool, MatrixFactoryConfig.defaultConfig().withParallelism(3).getForkJoinPool());
+		Assert.assertNotSame(pool, config.withParallelism(2).getForkJoinPool());
+		Assert.assertSame(pool, config.withParallelism(3).getForkJoinPool());
+	}
+
+	@Test
+	public void testPoolThreadsAreDaemons() throws Exception {
+		ForkJoinPool pool = MatrixFactoryConfig.defaultConfig().withParallelism(2).getForkJoinPool();
+		Assert.assertTrue(pool.submit(() -> Thread.currentThread().isDaemon()).get());
+	}
+}
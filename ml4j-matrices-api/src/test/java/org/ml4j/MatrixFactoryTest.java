@@ -0,0 +1,51 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MatrixFactoryTest {
+
+	private abstract static class SeededMatrixFactory implements MatrixFactory {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	private MatrixFactory matrixFactory;
+
+	@Before
+	public void setUp() {
+		matrixFactory = Mockito.mock(SeededMatrixFactory.class, Mockito.CALLS_REAL_METHODS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSeededRandnRejectsSizesBeyondMaximumArrayLength() {
+		// 2^16 * 2^16 overflows to 0 when multiplied as ints
+		matrixFactory.createRandn(1 << 16, 1 << 16, 42L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSeededRandRejectsSizesBeyondMaximumArrayLength() {
+		matrixFactory.createRand(1 << 16, 1 << 16, 42L);
+	}
+
+	@Test
+	public void testWithConfigDelegatesCreation() {
+		MatrixFactoryConfig config = new MatrixFactoryConfig().withParallelism(2);
+		Matrix created = Mockito.mock(Matrix.class);
+		Mockito.doReturn(created).when(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(2), Mockito.eq(3),
+				Mockito.any());
+
+		MatrixFactory configured = matrixFactory.withConfig(config);
+
+		Assert.assertSame(matrixFactory, matrixFactory.withConfig(MatrixFactoryConfig.defaultConfig()));
+		Assert.assertEquals(config, configured.getConfig());
+		Assert.assertSame(created, configured.createRand(2, 3, 42L));
+		Assert.assertSame(configured, configured.withConfig(config));
+		Assert.assertSame(matrixFactory, configured.withConfig(MatrixFactoryConfig.defaultConfig()));
+		Assert.assertSame(matrixFactory,
+				((ConfiguredMatrixFactory) configured.withConfig(new MatrixFactoryConfig().withParallelism(3)))
+						.getDelegate());
+	}
+}
@@ -0,0 +1,131 @@
+package org.ml4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class MatrixFileFormatTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private abstract static class ReadingMatrixFactory implements MatrixFactory {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Matrix readMatrix(Path path) throws IOException {
+			return MatrixFactory.super.readMatrix(path);
+		}
+	}
+
+	private Path writeMatrix(Matrix matrix) throws IOException {
+		Path path = new File(folder.getRoot(), "matrix.bin").toPath();
+		MatrixFileFormat.write(matrix, path);
+		return path;
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		float[] values = new float[3 * 7000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 0.5f - 100;
+		}
+		Path path = writeMatrix(MockMatrices.createMockMatrix(3, 7000, values));
+		Assert.assertEquals(MatrixFileFormat.HEADER_BYTES + values.length * 4L, Files.size(path));
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.Header header = MatrixFileFormat.readHeader(channel);
+			Assert.assertEquals(3, header.getRows());
+			Assert.assertEquals(7000, header.getColumns());
+			Assert.assertArrayEquals(values, MatrixFileFormat.readValues(channel, header), 0f);
+		}
+	}
+
+	@Test
+	public void testMapValues() throws IOException {
+		Path path = writeMatrix(MockMatrices.createMockMatrix(2, 3, 1, 2, 3, 4, 5, 6));
+		FloatBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = MatrixFileFormat.mapValues(channel, MatrixFileFormat.readHeader(channel));
+		}
+		Assert.assertTrue(buffer.isDirect());
+		Assert.assertTrue(buffer.isReadOnly());
+		Assert.assertEquals(6, buffer.remaining());
+		for (int i = 0; i < 6; i++) {
+			Assert.assertEquals(i + 1, buffer.get(i), 0f);
+		}
+	}
+
+	@Test
+	public void testFactoryReadMatrix() throws IOException {
+		Path path = writeMatrix(MockMatrices.createMockMatrix(1, 2, 7, 8));
+		MatrixFactory matrixFactory = Mockito.mock(ReadingMatrixFactory.class, Mockito.CALLS_REAL_METHODS);
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.doReturn(result).when(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(1), Mockito.eq(2),
+				Mockito.any());
+
+		Assert.assertSame(result, matrixFactory.readMatrix(path));
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(1, 2, new float[] { 7, 8 });
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidMagic() throws IOException {
+		Path path = new File(folder.getRoot(), "other.bin").toPath();
+		Files.write(path, new byte[MatrixFileFormat.HEADER_BYTES]);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.readHeader(channel);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedFile() throws IOException {
+		Path path = writeMatrix(MockMatrices.createMockMatrix(2, 2, 1, 2, 3, 4));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(MatrixFileFormat.HEADER_BYTES + 8);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.readHeader(channel);
+		}
+	}
+
+	@Test
+	public void testHeaderWithTooManyValues() throws IOException {
+		Path path = new File(folder.getRoot(), "large.bin").toPath();
+		ByteBuffer header = ByteBuffer.allocate(MatrixFileFormat.HEADER_BYTES).order(MatrixFileFormat.BYTE_ORDER);
+		header.putInt(MatrixFileFormat.MAGIC).putInt(MatrixFileFormat.VERSION).putInt(65536).putInt(65536);
+		Files.write(path, header.array());
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.readHeader(channel);
+			Assert.fail("An IOException is expected");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("more than"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadValuesOfTruncatedFile() throws IOException {
+		Path path = writeMatrix(MockMatrices.createMockMatrix(2, 2, 1, 2, 3, 4));
+		MatrixFileFormat.Header header;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			header = MatrixFileFormat.readHeader(channel);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(MatrixFileFormat.HEADER_BYTES + 8);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MatrixFileFormat.readValues(channel, header);
+		}
+	}
+}
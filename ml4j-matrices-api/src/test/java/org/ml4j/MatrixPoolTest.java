@@ -0,0 +1,104 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class MatrixPoolTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		MockMatrices.stubCreateInterrimMatrices(matrixFactory);
+	}
+
+	@Test
+	public void testMatricesAreReusedAcrossArenas() {
+		MatrixPool pool = new MatrixPool(matrixFactory);
+
+		InterrimMatrix first;
+		try (MatrixArena arena = pool.openArena()) {
+			first = arena.createInterrimMatrix(10, 20);
+		}
+
+		InterrimMatrix second;
+		try (MatrixArena arena = pool.openArena()) {
+			second = arena.createInterrimMatrix(10, 20);
+		}
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals(800, pool.getBytesAllocated());
+		Assert.assertEquals(800, pool.getBytesReused());
+		Mockito.verify(matrixFactory, Mockito.times(1)).createMatrix(10, 20);
+		Mockito.verify(first, Mockito.never()).close();
+	}
+
+	@Test
+	public void testMatricesAreNotSharedWithinAnArena() {
+		MatrixPool pool = new MatrixPool(matrixFactory);
+		try (MatrixArena arena = pool.openArena()) {
+			InterrimMatrix first = arena.createInterrimMatrix(5, 5);
+			InterrimMatrix second = arena.createInterrimMatrix(5, 5);
+			Assert.assertNotSame(first, second);
+		}
+		Assert.assertEquals(200, pool.getPooledBytes());
+	}
+
+	@Test
+	public void testDifferentShapesAreNotReused() {
+		MatrixPool pool = new MatrixPool(matrixFactory);
+		InterrimMatrix first;
+		try (MatrixArena arena = pool.openArena()) {
+			first = arena.createInterrimMatrix(10, 20);
+		}
+		try (MatrixArena arena = pool.openArena()) {
+			Assert.assertNotSame(first, arena.createInterrimMatrix(20, 10));
+		}
+		Assert.assertEquals(0, pool.getBytesReused());
+	}
+
+	@Test
+	public void testClosedMatricesAreNotReused() {
+		MatrixPool pool = new MatrixPool(matrixFactory);
+		InterrimMatrix first;
+		try (MatrixArena arena = pool.openArena()) {
+			first = arena.createInterrimMatrix(10, 20);
+			Mockito.when(first.isClosed()).thenReturn(true);
+		}
+		try (MatrixArena arena = pool.openArena()) {
+			Assert.assertNotSame(first, arena.createInterrimMatrix(10, 20));
+		}
+		Assert.assertEquals(0, pool.getBytesReused());
+	}
+
+	@Test
+	public void testMatricesBeyondMaxPooledBytesAreClosed() {
+		MatrixPool pool = new MatrixPool(matrixFactory, 100);
+		InterrimMatrix small;
+		InterrimMatrix large;
+		try (MatrixArena arena = pool.openArena()) {
+			small = arena.createInterrimMatrix(5, 5);
+			large = arena.createInterrimMatrix(10, 10);
+		}
+		Mockito.verify(small, Mockito.never()).close();
+		Mockito.verify(large).close();
+		Assert.assertEquals(100, pool.getPooledBytes());
+
+		pool.clear();
+		Mockito.verify(small).close();
+		Assert.assertEquals(0, pool.getPooledBytes());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedArena() {
+		MatrixArena arena = new MatrixPool(matrixFactory).openArena();
+		arena.close();
+		arena.createInterrimMatrix(1, 1);
+	}
+}
@@ -0,0 +1,64 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatrixStoragePrecisionTest {
+
+	@Test
+	public void testBytesPerElement() {
+		Assert.assertEquals(4, MatrixStoragePrecision.FLOAT32.getBytesPerElement());
+		Assert.assertEquals(2, MatrixStoragePrecision.BFLOAT16.getBytesPerElement());
+		Assert.assertEquals(2, MatrixStoragePrecision.FLOAT16.getBytesPerElement());
+	}
+
+	@Test
+	public void testBfloat16() {
+		MatrixStoragePrecision precision = MatrixStoragePrecision.BFLOAT16;
+		Assert.assertEquals((short) 0x3F80, precision.encode(1f));
+		Assert.assertEquals(1f, precision.decode((short) 0x3F80), 0f);
+		Assert.assertEquals(-2.5f, precision.round(-2.5f), 0f);
+		// 1 + 2^-8 is halfway between 1 and 1 + 2^-7, so rounds to even
+		Assert.assertEquals(1f, precision.round(1f + 0x1p-8f), 0f);
+		Assert.assertEquals(1f + 0x1p-6f, precision.round(1f + 0x1p-7f + 0x1p-8f), 0f);
+		Assert.assertEquals(1e30f, precision.round(1e30f), 1e28f);
+		Assert.assertEquals(Float.NEGATIVE_INFINITY, precision.round(Float.NEGATIVE_INFINITY), 0f);
+		Assert.assertTrue(Float.isNaN(precision.round(Float.NaN)));
+	}
+
+	@Test
+	public void testFloat16() {
+		MatrixStoragePrecision precision = MatrixStoragePrecision.FLOAT16;
+		Assert.assertEquals((short) 0x3C00, precision.encode(1f));
+		Assert.assertEquals((short) 0xC000, precision.encode(-2f));
+		Assert.assertEquals((short) 0x7BFF, precision.encode(65504f));
+		Assert.assertEquals(65504f, precision.decode((short) 0x7BFF), 0f);
+		Assert.assertEquals(Float.POSITIVE_INFINITY, precision.round(70000f), 0f);
+		Assert.assertEquals(0.1f, precision.round(0.1f), 0.0001f);
+		// 1 + 2^-11 is halfway between 1 and 1 + 2^-10, so rounds to even
+		Assert.assertEquals(1f, precision.round(1f + 0x1p-11f), 0f);
+		Assert.assertEquals(1f + 0x1p-9f, precision.round(1f + 0x1p-10f + 0x1p-11f), 0f);
+		// Subnormals
+		Assert.assertEquals((short) 0x0001, precision.encode(0x1p-24f));
+		Assert.assertEquals(0x1p-24f, precision.decode((short) 0x0001), 0f);
+		Assert.assertEquals(0x1p-15f + 0x1p-24f, precision.round(0x1p-15f + 0x1p-24f), 0f);
+		Assert.assertEquals(0f, precision.round(0x1p-26f), 0f);
+		Assert.assertTrue(Float.isNaN(precision.round(Float.NaN)));
+	}
+
+	@Test
+	public void testFloat16RoundTripsAllValues() {
+		MatrixStoragePrecision precision = MatrixStoragePrecision.FLOAT16;
+		for (int bits = 0; bits <= 0xFFFF; bits++) {
+			float value = precision.decode((short) bits);
+			if (!Float.isNaN(value)) {
+				Assert.assertEquals((short) bits, precision.encode(value));
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFloat32IsNotEncoded() {
+		MatrixStoragePrecision.FLOAT32.encode(1f);
+	}
+}
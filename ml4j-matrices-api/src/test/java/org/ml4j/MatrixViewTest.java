@@ -0,0 +1,218 @@
+package org.ml4j;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class MatrixViewTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	private float[] parentData;
+
+	private EditableMatrix parent;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		// A 4 x 5 parent with element (r, c) = 10 * r + c
+		parentData = new float[20];
+		for (int i = 0; i < parentData.length; i++) {
+			parentData[i] = 10 * (i / 5) + i % 5;
+		}
+		parent = Mockito.mock(EditableMatrix.class);
+		Mockito.when(parent.getRows()).thenReturn(4);
+		Mockito.when(parent.getColumns()).thenReturn(5);
+		Mockito.when(parent.get(Mockito.anyInt(), Mockito.anyInt())).thenAnswer(
+				invocation -> parentData[(Integer) invocation.getArgument(0) * 5 + (Integer) invocation.getArgument(1)]);
+		Mockito.doAnswer(invocation -> parentData[(Integer) invocation.getArgument(0) * 5
+				+ (Integer) invocation.getArgument(1)] = invocation.getArgument(2)).when(parent)
+				.put(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyFloat());
+	}
+
+	@Test
+	public void testWindow() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 1, 2, 2, 3, 1, 1);
+		Assert.assertEquals(2, view.getRows());
+		Assert.assertEquals(3, view.getColumns());
+		Assert.assertArrayEquals(new float[] { 12, 13, 14, 22, 23, 24 }, view.getRowByRowArray(), 0f);
+		Assert.assertEquals(108, view.sum(), 0f);
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test
+	public void testStridedViewOfView() {
+		MatrixView columns = new MatrixView(matrixFactory, parent, 0, 1, 4, 4, 1, 1);
+		MatrixView view = new MatrixView(matrixFactory, columns, 1, 0, 2, 2, 2, 2);
+		Assert.assertSame(parent, view.getParent());
+		Assert.assertArrayEquals(new float[] { 11, 13, 31, 33 }, view.getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 31, 33 }, view.getRow(1).getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 13, 33 }, view.getColumn(1).getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testWritesAreSharedWithParent() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 2, 0, 2, 2, 1, 1);
+		Assert.assertSame(view, view.asEditableMatrix());
+		view.put(0, 1, -1);
+		view.addi(100);
+		Assert.assertEquals(120, parentData[10], 0f);
+		Assert.assertEquals(99, parentData[11], 0f);
+		Assert.assertEquals(130, parentData[15], 0f);
+		Assert.assertEquals(131, parentData[16], 0f);
+		Assert.assertEquals(22, parentData[12], 0f);
+
+		Matrix row = Mockito.mock(Matrix.class);
+		Mockito.when(row.getRowByRowArray()).thenReturn(new float[] { 7, 8 });
+		view.putRow(1, row);
+		Assert.assertEquals(7, parentData[15], 0f);
+		Assert.assertEquals(8, parentData[16], 0f);
+	}
+
+	@Test
+	public void testLinearIndexing() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 1, 2, 2, 3, 1, 1);
+		Assert.assertEquals(24, view.get(5), 0f);
+		view.put(4, -1);
+		Assert.assertEquals(-1, parentData[13], 0f);
+		Assert.assertEquals(-1, view.get(1, 1), 0f);
+		Mockito.verify(parent).put(2, 3, -1f);
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLinearIndexOutsideView() {
+		new MatrixView(matrixFactory, parent, 1, 2, 2, 3, 1, 1).put(6, 0);
+	}
+
+	@Test
+	public void testReshapeCopiesValues() {
+		EditableMatrix copy = Mockito.mock(EditableMatrix.class);
+		Matrix created = Mockito.mock(Matrix.class);
+		Mockito.when(created.asEditableMatrix()).thenReturn(copy);
+		Mockito.when(copy.getRows()).thenReturn(3);
+		Mockito.when(copy.getColumns()).thenReturn(2);
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.eq(3), Mockito.eq(2), Mockito.any()))
+				.thenReturn(created);
+
+		MatrixView view = new MatrixView(matrixFactory, parent, 1, 2, 2, 3, 1, 1);
+		view.reshape(3, 2);
+		Assert.assertEquals(3, view.getRows());
+		Assert.assertEquals(2, view.getColumns());
+		Assert.assertSame(copy, view.getParent());
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(3, 2, new float[] { 12, 13, 14, 22, 23, 24 });
+
+		view.put(2, 1, 5f);
+		Mockito.verify(copy).put(2, 1, 5f);
+		Mockito.verify(parent, Mockito.never()).put(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyFloat());
+	}
+
+	@Test
+	public void testReshapeToSameShapeKeepsParent() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 0, 1, 2, 2, 2, 2);
+		view.reshape(2, 2);
+		Assert.assertSame(parent, view.getParent());
+		Assert.assertArrayEquals(new float[] { 1, 3, 21, 23 }, view.getRowByRowArray(), 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReshapeChangingLength() {
+		new MatrixView(matrixFactory, parent, 1, 2, 2, 3, 1, 1).reshape(2, 2);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testImmutableParent() {
+		Mockito.when(parent.isImmutable()).thenReturn(true);
+		new MatrixView(matrixFactory, parent, 0, 0, 1, 1, 1, 1).put(0, 0, 1);
+	}
+
+	@Test
+	public void testDupOfImmutableViewIsNotAffectedByWritesToParent() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 0, 0, 1, 2, 1, 1);
+		view.setImmutable(true);
+
+		view.dup();
+		parentData[0] = -1;
+
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(1, 2, new float[] { 0, 1 });
+		Mockito.verify(matrixFactory, Mockito.never()).createCopyOnWriteMatrix(Mockito.any());
+		Assert.assertEquals(-1, view.get(0, 0), 0f);
+	}
+
+	@Test
+	public void testDupOfViewOfImmutableParentSharesValues() {
+		Mockito.when(parent.isImmutable()).thenReturn(true);
+		MatrixView view = new MatrixView(matrixFactory, parent, 0, 0, 1, 2, 1, 1);
+		CopyOnWriteMatrix shared = Mockito.mock(CopyOnWriteMatrix.class);
+		Mockito.when(matrixFactory.createCopyOnWriteMatrix(view)).thenReturn(shared);
+
+		Assert.assertSame(shared, view.dup());
+	}
+
+	@Test
+	public void testDirectMatrixParent() {
+		DirectMatrix direct = Mockito.mock(DirectMatrix.class);
+		Mockito.when(direct.getRows()).thenReturn(4);
+		Mockito.when(direct.getColumns()).thenReturn(5);
+		Mockito.when(direct.getBuffer()).thenReturn(FloatBuffer.wrap(parentData).asReadOnlyBuffer());
+
+		MatrixView view = new MatrixView(matrixFactory, direct, 1, 1, 3, 2, 1, 1);
+		Assert.assertArrayEquals(new float[] { 11, 12, 21, 22, 31, 32 }, view.getRowByRowArray(), 0f);
+		Assert.assertEquals(32, view.get(2, 1), 0f);
+		Mockito.verify(direct, Mockito.never()).get(Mockito.anyInt(), Mockito.anyInt());
+	}
+
+	@Test
+	public void testOperationsCreateOnlyTheResult() {
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.eq(1), Mockito.eq(2), Mockito.any()))
+				.thenReturn(result);
+
+		Assert.assertSame(result, new MatrixView(matrixFactory, parent, 3, 3, 1, 2, 1, 1).mul(2f));
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(1, 2, new float[] { 66, 68 });
+		Mockito.verifyNoMoreInteractions(matrixFactory);
+	}
+
+	@Test
+	public void testInPlaceOperationsWriteThroughToParent() {
+		MatrixView view = new MatrixView(matrixFactory, parent, 1, 1, 2, 2, 2, 2);
+		Matrix rowVector = Mockito.mock(Matrix.class);
+		Mockito.when(rowVector.getLength()).thenReturn(2);
+		Mockito.when(rowVector.getRowByRowArray()).thenReturn(new float[] { 1, 2 });
+		Matrix columnVector = Mockito.mock(Matrix.class);
+		Mockito.when(columnVector.getLength()).thenReturn(2);
+		Mockito.when(columnVector.getRowByRowArray()).thenReturn(new float[] { 10, 100 });
+		Matrix other = Mockito.mock(Matrix.class);
+		Mockito.when(other.getRows()).thenReturn(2);
+		Mockito.when(other.getColumns()).thenReturn(2);
+		Mockito.when(other.getRowByRowArray()).thenReturn(new float[] { 1, 1, 1, 1 });
+
+		view.addiRowVector(rowVector).muliColumnVector(columnVector).subi(other);
+
+		Assert.assertArrayEquals(new float[] { 119, 149, 3199, 3499 }, view.getRowByRowArray(), 0f);
+		Assert.assertEquals(119, parentData[6], 0f);
+		Assert.assertEquals(3499, parentData[18], 0f);
+		Assert.assertEquals(12, parentData[7], 0f);
+		Mockito.verifyNoInteractions(matrixFactory);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInPlaceRowVectorLength() {
+		Matrix rowVector = Mockito.mock(Matrix.class);
+		Mockito.when(rowVector.getLength()).thenReturn(3);
+		new MatrixView(matrixFactory, parent, 0, 0, 2, 2, 1, 1).addiRowVector(rowVector);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testWindowOutsideParent() {
+		new MatrixView(matrixFactory, parent, 0, 0, 3, 2, 2, 1);
+	}
+}
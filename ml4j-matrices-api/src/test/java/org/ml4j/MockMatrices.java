@@ -0,0 +1,47 @@
+package org.ml4j;
+
+import org.mockito.Mockito;
+
+/**
+ * Mock Matrix fixtures shared by the tests of this and dependent modules.
+ */
+public final class MockMatrices {
+
+	private MockMatrices() {
+	}
+
+	/**
+	 * @return A mock of the given Matrix type with the given shape.
+	 */
+	public static <M extends Matrix> M createMockMatrix(Class<M> type, int rows, int columns) {
+		M matrix = Mockito.mock(type);
+		Mockito.when(matrix.getRows()).thenReturn(rows);
+		Mockito.when(matrix.getColumns()).thenReturn(columns);
+		return matrix;
+	}
+
+	/**
+	 * @return A mock Matrix with the given shape, whose getRowByRowArray returns the given values.
+	 */
+	public static Matrix createMockMatrix(int rows, int columns, float... rowByRowData) {
+		Matrix matrix = createMockMatrix(Matrix.class, rows, columns);
+		Mockito.when(matrix.getRowByRowArray()).thenReturn(rowByRowData);
+		return matrix;
+	}
+
+	/**
+	 * Stub createMatrix(rows, columns) of a mock MatrixFactory to return a new mock Matrix whose
+	 * asInterrimMatrix returns a mock InterrimMatrix of the same shape, as used by matrix pools.
+	 *
+	 * @param matrixFactory The mock MatrixFactory.
+	 */
+	public static void stubCreateInterrimMatrices(MatrixFactory matrixFactory) {
+		Mockito.when(matrixFactory.createMatrix(Mockito.anyInt(), Mockito.anyInt())).thenAnswer(invocation -> {
+			Matrix matrix = Mockito.mock(Matrix.class);
+			InterrimMatrix interrimMatrix = createMockMatrix(InterrimMatrix.class, invocation.getArgument(0),
+					invocation.getArgument(1));
+			Mockito.when(matrix.asInterrimMatrix()).thenReturn(interrimMatrix);
+			return matrix;
+		});
+	}
+}
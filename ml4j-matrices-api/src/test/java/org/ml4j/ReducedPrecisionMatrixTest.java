@@ -0,0 +1,145 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class ReducedPrecisionMatrixTest {
+
+	private abstract static class ConfigurableMatrixFactory implements MatrixFactory {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Matrix createStorageMatrix(Matrix matrix) {
+			return MatrixFactory.super.createStorageMatrix(matrix);
+		}
+	}
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Mock
+	private Matrix float32Matrix;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(matrixFactory.createMatrixFromRowsByRowsArray(Mockito.anyInt(), Mockito.anyInt(),
+				Mockito.any())).thenReturn(float32Matrix);
+	}
+
+	@Test
+	public void testValuesAreRoundTripped() {
+		float[] data = new float[] { 1, -2, 0.1f, 3.14159f, 1000, 0 };
+		ReducedPrecisionMatrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.BFLOAT16, 2,
+				3, data);
+		Assert.assertEquals(2, matrix.getRows());
+		Assert.assertEquals(3, matrix.getColumns());
+		float[] values = matrix.getRowByRowArray();
+		for (int i = 0; i < data.length; i++) {
+			Assert.assertEquals(MatrixStoragePrecision.BFLOAT16.round(data[i]), values[i], 0f);
+			Assert.assertEquals(data[i], values[i], Math.abs(data[i]) / 128);
+		}
+		Assert.assertEquals(values[5], matrix.get(1, 2), 0f);
+	}
+
+	@Test
+	public void testGetAndArgmaxReadStoredValues() {
+		Matrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 2, 3,
+				new float[] { -1, 2.5f, 7, 3, 7, -4 });
+		Assert.assertEquals(2.5f, matrix.get(1), 0f);
+		Assert.assertEquals(-4f, matrix.get(5), 0f);
+		Assert.assertEquals(2, matrix.argmax());
+		Mockito.verify(matrixFactory, Mockito.never()).createMatrixFromRowsByRowsArray(Mockito.anyInt(),
+				Mockito.anyInt(), Mockito.any());
+	}
+
+	@Test
+	public void testTranspose() {
+		Matrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 2, 3,
+				new float[] { 1, 2, 3, 4, 5, 6 }).transpose();
+		Assert.assertEquals(3, matrix.getRows());
+		Assert.assertArrayEquals(new float[] { 1, 4, 2, 5, 3, 6 }, matrix.getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testOperationsAreComputedInFloat32() {
+		Matrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 1, 2,
+				new float[] { 0.5f, 2 });
+		Matrix other = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 1, 2,
+				new float[] { 1, 4 });
+
+		Assert.assertSame(float32Matrix, matrix.add(other));
+
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(1), Mockito.eq(2), data.capture());
+		Assert.assertArrayEquals(new float[] { 1.5f, 6 }, data.getValue(), 0f);
+		Mockito.verifyNoMoreInteractions(matrixFactory);
+	}
+
+	@Test
+	public void testMmulCreatesOnlyTheResult() {
+		Mockito.when(matrixFactory.getConfig()).thenReturn(MatrixFactoryConfig.defaultConfig());
+		Matrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.BFLOAT16, 2, 2,
+				new float[] { 1, 2, 3, 4 });
+
+		Assert.assertSame(float32Matrix, matrix.mmul(matrix));
+
+		ArgumentCaptor<float[]> data = ArgumentCaptor.forClass(float[].class);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(Mockito.eq(2), Mockito.eq(2), data.capture());
+		Assert.assertArrayEquals(new float[] { 7, 10, 15, 22 }, data.getValue(), 0f);
+	}
+
+	@Test
+	public void testSoftDupSharesValues() {
+		Matrix matrix = new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 1, 2,
+				new float[] { 1, 2 });
+		Matrix softDup = matrix.softDup();
+		Assert.assertTrue(softDup instanceof ReducedPrecisionMatrix);
+		Assert.assertFalse(softDup.isImmutable());
+
+		softDup.logi();
+		Assert.assertEquals(0f, matrix.get(0), 0f);
+
+		softDup.close();
+		Assert.assertFalse(matrix.isClosed());
+		Assert.assertEquals(MatrixStoragePrecision.FLOAT16.round((float) Math.log(2)), matrix.get(1), 0f);
+
+		matrix.setImmutable(true);
+		Assert.assertTrue(matrix.softDup().isImmutable());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShapeIsCheckedBeforeAllocation() {
+		new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT16, 65536, 32768, new float[1]);
+	}
+
+	@Test
+	public void testCreateStorageMatrix() {
+		MatrixFactory factory = Mockito.mock(ConfigurableMatrixFactory.class, Mockito.CALLS_REAL_METHODS);
+		Matrix matrix = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.getRows()).thenReturn(1);
+		Mockito.when(matrix.getColumns()).thenReturn(1);
+		Mockito.when(matrix.getRowByRowArray()).thenReturn(new float[] { 1.5f });
+
+		Assert.assertSame(matrix, factory.createStorageMatrix(matrix));
+
+		MatrixFactoryConfig config = MatrixFactoryConfig.defaultConfig()
+				.withStoragePrecision(MatrixStoragePrecision.BFLOAT16);
+		Mockito.doReturn(config).when(factory).getConfig();
+		Matrix stored = factory.createStorageMatrix(matrix);
+		Assert.assertTrue(stored instanceof ReducedPrecisionMatrix);
+		Assert.assertEquals(MatrixStoragePrecision.BFLOAT16, ((ReducedPrecisionMatrix) stored).getPrecision());
+		Assert.assertSame(stored, factory.createStorageMatrix(stored));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFloat32IsNotReduced() {
+		new ReducedPrecisionMatrix(matrixFactory, MatrixStoragePrecision.FLOAT32, 1, 1, new float[1]);
+	}
+}
@@ -0,0 +1,163 @@
+package org.ml4j;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.images.ImageLayout;
+import org.ml4j.images.Images;
+import org.mockito.Mockito;
+
+public class StridedTensorTest {
+
+	private abstract static class TensorImages implements Images {
+
+		@Override
+		public StridedTensor asTensor() {
+			return Images.super.asTensor();
+		}
+	}
+
+	private static float[] range(int length) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = i;
+		}
+		return values;
+	}
+
+	@Test
+	public void testContiguousTensor() {
+		StridedTensor tensor = StridedTensor.of(range(24), 2, 3, 4);
+
+		Assert.assertEquals(3, tensor.getRank());
+		Assert.assertEquals(24, tensor.getLength());
+		Assert.assertArrayEquals(new int[] { 12, 4, 1 }, tensor.getStrides());
+		Assert.assertTrue(tensor.isContiguous());
+		Assert.assertEquals(23f, tensor.get(1, 2, 3), 0f);
+		tensor.put(new int[] { 1, 0, 1 }, -1f);
+		Assert.assertEquals(-1f, tensor.getData()[13], 0f);
+	}
+
+	@Test
+	public void testReshapeIsAView() {
+		StridedTensor tensor = StridedTensor.of(range(24), 2, 3, 4);
+		StridedTensor reshaped = tensor.reshape(6, -1);
+
+		Assert.assertArrayEquals(new int[] { 6, 4 }, reshaped.getShape());
+		Assert.assertSame(tensor.getData(), reshaped.getData());
+		Assert.assertEquals(9f, reshaped.get(2, 1), 0f);
+	}
+
+	@Test
+	public void testReshapeOfNonContiguousTensorCopies() {
+		StridedTensor permuted = StridedTensor.of(range(6), 2, 3).permute(1, 0);
+		StridedTensor reshaped = permuted.reshape(6);
+
+		Assert.assertNotSame(permuted.getData(), reshaped.getData());
+		Assert.assertArrayEquals(new float[] { 0, 3, 1, 4, 2, 5 }, reshaped.toArray(), 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidReshape() {
+		StridedTensor.of(range(6), 2, 3).reshape(4, 2);
+	}
+
+	@Test
+	public void testPermute() {
+		StridedTensor tensor = StridedTensor.of(range(24), 2, 3, 4);
+		StridedTensor permuted = tensor.permute(2, 0, 1);
+
+		Assert.assertArrayEquals(new int[] { 4, 2, 3 }, permuted.getShape());
+		Assert.assertArrayEquals(new int[] { 1, 12, 4 }, permuted.getStrides());
+		Assert.assertFalse(permuted.isContiguous());
+		Assert.assertEquals(tensor.get(1, 2, 3), permuted.get(3, 1, 2), 0f);
+	}
+
+	@Test
+	public void testChannelSliceOfImages() {
+		// 3 channels of 2 x 2 images, for 2 examples
+		Images images = Mockito.mock(TensorImages.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.doReturn(3).when(images).getChannels();
+		Mockito.doReturn(2).when(images).getHeight();
+		Mockito.doReturn(2).when(images).getWidth();
+		Mockito.doReturn(2).when(images).getExamples();
+		float[] data = range(24);
+		Mockito.doReturn(data).when(images).getData();
+
+		StridedTensor channels = images.asTensor().slice(0, 1, 3);
+
+		Assert.assertArrayEquals(new int[] { 2, 2, 2, 2 }, channels.getShape());
+		Assert.assertSame(data, channels.getData());
+		Assert.assertEquals(8, channels.getOffset());
+		Assert.assertTrue(channels.isContiguous());
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 8, 24), channels.toArray(), 0f);
+		Assert.assertArrayEquals(new float[] { 9, 11, 13, 15 }, channels.select(0, 0).select(2, 1).toArray(), 0f);
+	}
+
+	@Test
+	public void testChannelsLastImagesTensor() {
+		Images images = Mockito.mock(TensorImages.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.doReturn(ImageLayout.CHANNELS_LAST).when(images).getLayout();
+		Mockito.doReturn(3).when(images).getChannels();
+		Mockito.doReturn(2).when(images).getHeight();
+		Mockito.doReturn(2).when(images).getWidth();
+		Mockito.doReturn(2).when(images).getExamples();
+		float[] data = range(24);
+		Mockito.doReturn(data).when(images).getData();
+
+		StridedTensor tensor = images.asTensor();
+
+		// Shape (channels, height, width, examples) over data stored (examples, height, width, channels)
+		Assert.assertArrayEquals(new int[] { 3, 2, 2, 2 }, tensor.getShape());
+		Assert.assertSame(data, tensor.getData());
+		Assert.assertEquals(ImageLayout.CHANNELS_LAST.index(2, 1, 0, 1, 3, 2, 2, 2), tensor.getIndex(2, 1, 0, 1));
+		Assert.assertEquals(12 + 6 + 2, tensor.get(2, 1, 0, 1), 0f);
+	}
+
+	@Test
+	public void testConcatenateAndAssign() {
+		StridedTensor first = StridedTensor.of(range(4), 1, 2, 2);
+		StridedTensor second = StridedTensor.of(new float[] { 10, 11, 12, 13, 14, 15, 16, 17 }, 2, 2, 2);
+
+		StridedTensor concatenated = StridedTensor.concatenate(0, Arrays.asList(first, second));
+
+		Assert.assertArrayEquals(new int[] { 3, 2, 2 }, concatenated.getShape());
+		Assert.assertArrayEquals(new float[] { 0, 1, 2, 3, 10, 11, 12, 13, 14, 15, 16, 17 }, concatenated.toArray(),
+				0f);
+
+		StridedTensor columns = StridedTensor.concatenate(2, Arrays.asList(first, first));
+		Assert.assertArrayEquals(new float[] { 0, 1, 0, 1, 2, 3, 2, 3 }, columns.toArray(), 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAssignShapeMismatch() {
+		StridedTensor.zeros(2, 3).assign(StridedTensor.zeros(3, 2));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testStridesExceedingData() {
+		new StridedTensor(new float[5], 0, new int[] { 2, 3 }, new int[] { 3, 1 });
+	}
+
+	@Test
+	public void testMatrixAsTensor() {
+		// The 2 x 3 matrix [[1, 2, 3], [4, 5, 6]], stored column by column
+		Matrix matrix = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.getRows()).thenReturn(2);
+		Mockito.when(matrix.getColumns()).thenReturn(3);
+		Mockito.when(matrix.getLayout()).thenReturn(MatrixLayout.COLUMN_MAJOR);
+		Mockito.when(matrix.getColumnByColumnArray()).thenReturn(new float[] { 1, 4, 2, 5, 3, 6 });
+
+		StridedTensor tensor = StridedTensor.of(matrix);
+
+		Assert.assertEquals(6f, tensor.get(1, 2), 0f);
+		Assert.assertArrayEquals(new float[] { 1, 2, 3, 4, 5, 6 }, tensor.toArray(), 0f);
+
+		MatrixFactory matrixFactory = Mockito.mock(MatrixFactory.class);
+		tensor.asMatrix(matrixFactory);
+		Mockito.verify(matrixFactory).createMatrixFromColumnsByColumnsArray(2, 3, new float[] { 1, 4, 2, 5, 3, 6 });
+		StridedTensor.of(range(9), 3, 3).slice(0, 0, 2).slice(1, 0, 2).asMatrix(matrixFactory);
+		Mockito.verify(matrixFactory).createMatrixFromRowsByRowsArray(2, 2, new float[] { 0, 1, 3, 4 });
+	}
+}
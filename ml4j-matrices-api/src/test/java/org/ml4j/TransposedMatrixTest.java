@@ -0,0 +1,136 @@
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class TransposedMatrixTest {
+
+	@Mock
+	private MatrixFactory matrixFactory;
+
+	@Mock
+	private Matrix matrix;
+
+	private TransposedMatrix transposed;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		// matrix is the 2 x 3 matrix [[1, 2, 3], [4, 5, 6]]
+		Mockito.when(matrix.getRows()).thenReturn(2);
+		Mockito.when(matrix.getColumns()).thenReturn(3);
+		Mockito.when(matrix.getLayout()).thenReturn(MatrixLayout.ROW_MAJOR);
+		Mockito.when(matrix.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3, 4, 5, 6 });
+		Mockito.when(matrix.getColumnByColumnArray()).thenReturn(new float[] { 1, 4, 2, 5, 3, 6 });
+		Mockito.when(matrix.get(1, 2)).thenReturn(6f);
+		Mockito.when(matrixFactory.getConfig()).thenReturn(MatrixFactoryConfig.defaultConfig());
+		transposed = new TransposedMatrix(matrixFactory, matrix);
+	}
+
+	@Test
+	public void testTransposeIsMetadataOnly() {
+		Assert.assertEquals(3, transposed.getRows());
+		Assert.assertEquals(2, transposed.getColumns());
+		Assert.assertEquals(MatrixLayout.COLUMN_MAJOR, transposed.getLayout());
+		Assert.assertEquals(6f, transposed.get(2, 1), 0f);
+		Assert.assertArrayEquals(new float[] { 1, 2, 3, 4, 5, 6 },
+				transposed.getLayout().getArray(transposed), 0f);
+		Assert.assertSame(matrix, transposed.transpose());
+		Mockito.verify(matrix, Mockito.never()).transpose();
+		Mockito.verify(matrix, Mockito.never()).getColumnByColumnArray();
+	}
+
+	@Test
+	public void testBroadcastOperationsUseWrappedLayout() {
+		Matrix columnVector = Mockito.mock(Matrix.class);
+		Matrix rowVector = new TransposedMatrix(matrixFactory, columnVector);
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.addColumnVector(columnVector)).thenReturn(result);
+
+		Matrix sum = transposed.addRowVector(rowVector);
+
+		Assert.assertTrue(sum instanceof TransposedMatrix);
+		Assert.assertSame(result, sum.transpose());
+	}
+
+	@Test
+	public void testReductions() {
+		Matrix rowSums = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.rowSums()).thenReturn(rowSums);
+		Mockito.when(matrix.sum()).thenReturn(21f);
+
+		Assert.assertSame(rowSums, transposed.columnSums().transpose());
+		Assert.assertEquals(21f, transposed.sum(), 0f);
+	}
+
+	@Test
+	public void testOperandsAreNotWrapped() {
+		Matrix other = Mockito.mock(Matrix.class);
+		Matrix otherTranspose = Mockito.mock(Matrix.class);
+		Mockito.when(other.transpose()).thenReturn(otherTranspose);
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.add(otherTranspose)).thenReturn(result);
+
+		Assert.assertSame(result, transposed.add(other).transpose());
+		Mockito.verify(other).transpose();
+		Mockito.verify(otherTranspose).close();
+		Mockito.verify(other, Mockito.never()).close();
+		Mockito.verify(matrix, Mockito.never()).add(Mockito.any(TransposedMatrix.class));
+	}
+
+	@Test
+	public void testBackingMatrixOfOperandIsNotClosed() {
+		Matrix other = Mockito.mock(Matrix.class);
+		Matrix result = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.sub(other)).thenReturn(result);
+
+		Assert.assertSame(result, transposed.sub(new TransposedMatrix(matrixFactory, other)).transpose());
+		Mockito.verify(other, Mockito.never()).close();
+	}
+
+	@Test
+	public void testSingleIndexAccessIsNotMaterialised() {
+		Mockito.when(matrix.getLength()).thenReturn(6);
+		Mockito.when(matrix.get(0, 1)).thenReturn(2f);
+
+		Assert.assertEquals(2f, transposed.get(2), 0f);
+		Assert.assertEquals(5, transposed.argmax());
+		Assert.assertArrayEquals(new int[] { 2, 2 }, transposed.columnArgmaxs());
+		Mockito.verify(matrix, Mockito.never()).transpose();
+	}
+
+	@Test
+	public void testMmulReadsWrappedValuesInPlace() {
+		EditableMatrix result = Mockito.mock(EditableMatrix.class);
+		Mockito.when(result.asEditableMatrix()).thenReturn(result);
+		Mockito.when(matrixFactory.createMatrix(3, 1)).thenReturn(result);
+		Matrix other = Mockito.mock(Matrix.class);
+		Mockito.when(other.getRows()).thenReturn(2);
+		Mockito.when(other.getColumns()).thenReturn(1);
+		Mockito.when(matrixFactory.gemm(true, false, 1f, matrix, other, 0f, result)).thenReturn(result);
+
+		Assert.assertSame(result, transposed.mmul(other));
+
+		Mockito.verify(matrixFactory).gemm(true, false, 1f, matrix, other, 0f, result);
+		Mockito.verify(matrix, Mockito.never()).transpose();
+		Mockito.verify(matrix, Mockito.never()).getColumnByColumnArray();
+	}
+
+	@Test
+	public void testMmulOfTransposedMatrices() {
+		EditableMatrix result = Mockito.mock(EditableMatrix.class);
+		Mockito.when(result.asEditableMatrix()).thenReturn(result);
+		Mockito.when(matrixFactory.createMatrix(3, 4)).thenReturn(result);
+		Matrix other = Mockito.mock(Matrix.class);
+		Mockito.when(other.getRows()).thenReturn(4);
+		Mockito.when(other.getColumns()).thenReturn(2);
+		Mockito.when(matrixFactory.gemm(true, true, 1f, matrix, other, 0f, result)).thenReturn(result);
+
+		Assert.assertSame(result, transposed.mmul(new TransposedMatrix(matrixFactory, other)));
+		Mockito.verify(other, Mockito.never()).transpose();
+	}
+}
@@ -0,0 +1,253 @@
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.images.ImageLayout;
+
+public class ChannelsLastKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private ChannelsLastKernel channelsLastKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(3);
+		channelsLastKernel = new ChannelsLastKernel(forkJoinPool);
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextFloat() - 0.5f;
+		}
+		return values;
+	}
+
+	private float[] toChannelsLast(int channels, int height, int width, int examples, float[] channelsFirst) {
+		float[] channelsLast = new float[channelsFirst.length];
+		channelsLastKernel.convert(ImageLayout.CHANNELS_FIRST, ImageLayout.CHANNELS_LAST, channels, height, width,
+				examples, channelsFirst, channelsLast);
+		return channelsLast;
+	}
+
+	@Test
+	public void testConvert() {
+		float[] channelsFirst = randomArray(3 * 4 * 5 * 2);
+		float[] channelsLast = toChannelsLast(3, 4, 5, 2, channelsFirst);
+
+		Assert.assertEquals(channelsFirst[ImageLayout.CHANNELS_FIRST.index(2, 3, 1, 1, 3, 4, 5, 2)],
+				channelsLast[((1 * 4 + 3) * 5 + 1) * 3 + 2], 0f);
+		float[] roundTrip = new float[channelsFirst.length];
+		channelsLastKernel.convert(ImageLayout.CHANNELS_LAST, ImageLayout.CHANNELS_FIRST, 3, 4, 5, 2, channelsLast,
+				roundTrip);
+		Assert.assertArrayEquals(channelsFirst, roundTrip, 0f);
+	}
+
+	private void assertMatchesChannelsFirstConvolution(ConvolutionGeometry geometry, int examples) {
+		float[] input = randomArray(geometry.getInputFeatures() * examples);
+		float[] weights = randomArray(geometry.getOutputDepth() * geometry.getFilterFeatures());
+		float[] expected = new float[geometry.getOutputFeatures() * examples];
+		new ConvolutionKernel(forkJoinPool).convolve(ConvolutionAlgorithm.DIRECT, geometry, examples, input, weights,
+				expected);
+
+		float[] output = new float[expected.length];
+		channelsLastKernel.convolve(geometry, examples,
+				toChannelsLast(geometry.getInputDepth(), geometry.getInputHeight(), geometry.getInputWidth(),
+						examples, input),
+				ChannelsLastKernel.convertWeights(ImageLayout.CHANNELS_FIRST, ImageLayout.CHANNELS_LAST, geometry,
+						weights),
+				output);
+
+		Assert.assertArrayEquals(geometry.toString(), toChannelsLast(geometry.getOutputDepth(),
+				geometry.getOutputHeight(), geometry.getOutputWidth(), examples, expected), output, 1e-4f);
+	}
+
+	@Test
+	public void testConvolve() {
+		assertMatchesChannelsFirstConvolution(new ConvolutionGeometry(5, 7, 6, 3, 3, 3, 1, 1, 1, 1), 2);
+		assertMatchesChannelsFirstConvolution(new ConvolutionGeometry(2, 9, 9, 4, 5, 3, 2, 3, 2, 1), 3);
+		// Several blocks of rows, in parallel
+		assertMatchesChannelsFirstConvolution(new ConvolutionGeometry(16, 12, 12, 8, 3, 3, 1, 1, 1, 1), 4);
+	}
+
+	@Test
+	public void testIm2colConvExport() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(2, 3, 3, 1, 2, 2, 1, 1, 1, 1);
+		float[] input = new float[2 * 3 * 3];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = i + 1;
+		}
+		float[] columns = new float[16 * 8];
+		channelsLastKernel.im2colConvExport(geometry, 1, input, columns);
+
+		// Output position (0, 0) covers input rows -1..0 and columns -1..0
+		Assert.assertArrayEquals(new float[] { 0, 0, 0, 0, 0, 0, 1, 2 },
+				Arrays.copyOfRange(columns, 0, 8), 0f);
+		// Output position (1, 1) covers input rows 0..1 and columns 0..1
+		Assert.assertArrayEquals(new float[] { 1, 2, 3, 4, 7, 8, 9, 10 },
+				Arrays.copyOfRange(columns, 5 * 8, 6 * 8), 0f);
+	}
+
+	private static double dot(float[] a, float[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	private void assertIm2colConvImportIsAdjointOfExport(ConvolutionGeometry geometry, int examples) {
+		float[] images = randomArray(geometry.getInputFeatures() * examples);
+		float[] columns = new float[examples * geometry.getOutputHeight() * geometry.getOutputWidth()
+				* geometry.getFilterFeatures()];
+		channelsLastKernel.im2colConvExport(geometry, examples, images, columns);
+		float[] gradient = randomArray(columns.length);
+		float[] imported = randomArray(images.length);
+		channelsLastKernel.im2colConvImport(geometry, examples, gradient, imported);
+
+		// Each image value is the sum of the gradients at the positions it was exported to
+		Assert.assertEquals(geometry.toString(), dot(columns, gradient), dot(images, imported), 1e-3);
+	}
+
+	@Test
+	public void testIm2colConvImport() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(2, 3, 3, 1, 2, 2, 1, 1, 1, 1);
+		float[] columns = new float[16 * 8];
+		Arrays.fill(columns, 1);
+		float[] images = new float[2 * 3 * 3];
+		channelsLastKernel.im2colConvImport(geometry, 1, columns, images);
+		// The number of receptive fields covering each pixel, for each of the two channels
+		Assert.assertArrayEquals(new float[] { 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4 }, images, 0f);
+
+		assertIm2colConvImportIsAdjointOfExport(new ConvolutionGeometry(5, 7, 6, 3, 3, 3, 1, 1, 1, 1), 2);
+		assertIm2colConvImportIsAdjointOfExport(new ConvolutionGeometry(2, 9, 9, 4, 5, 3, 2, 3, 2, 1), 3);
+		// Enough work to be run in parallel
+		assertIm2colConvImportIsAdjointOfExport(new ConvolutionGeometry(8, 12, 12, 8, 3, 3, 1, 1, 1, 1), 6);
+	}
+
+	@Test
+	public void testPoolingGradients() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(3, 5, 5, 3, 3, 3, 2, 2, 1, 1);
+		int examples = 2;
+		float[] input = randomArray(geometry.getInputFeatures() * examples);
+		float[] outputGradient = randomArray(geometry.getOutputFeatures() * examples);
+		float[] maxGradient = randomArray(input.length);
+		float[] averageGradient = randomArray(input.length);
+		channelsLastKernel.maxPoolGradient(geometry, examples, input, outputGradient, maxGradient);
+		channelsLastKernel.averagePoolGradient(geometry, examples, outputGradient, averageGradient);
+
+		float[] expectedMaxGradient = new float[input.length];
+		for (int example = 0; example < examples; example++) {
+			for (int outputY = 0; outputY < 3; outputY++) {
+				for (int outputX = 0; outputX < 3; outputX++) {
+					for (int channel = 0; channel < 3; channel++) {
+						int maxIndex = -1;
+						for (int inputY = outputY * 2 - 1; inputY <= outputY * 2 + 1; inputY++) {
+							for (int inputX = outputX * 2 - 1; inputX <= outputX * 2 + 1; inputX++) {
+								if (inputY >= 0 && inputY < 5 && inputX >= 0 && inputX < 5) {
+									int index = ImageLayout.CHANNELS_LAST.index(channel, inputY, inputX, example, 3, 5,
+											5, examples);
+									if (maxIndex < 0 || input[index] > input[maxIndex]) {
+										maxIndex = index;
+									}
+								}
+							}
+						}
+						expectedMaxGradient[maxIndex] += outputGradient[ImageLayout.CHANNELS_LAST.index(channel,
+								outputY, outputX, example, 3, 3, 3, examples)];
+					}
+				}
+			}
+		}
+		Assert.assertArrayEquals(expectedMaxGradient, maxGradient, 1e-6f);
+
+		// Average pooling is linear, so its gradient is its adjoint
+		float[] averagePooled = new float[outputGradient.length];
+		channelsLastKernel.averagePool(geometry, examples, input, averagePooled);
+		Assert.assertEquals(dot(averagePooled, outputGradient), dot(input, averageGradient), 1e-5);
+	}
+
+	@Test
+	public void testPooling() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(3, 5, 5, 3, 3, 3, 2, 2, 1, 1);
+		int examples = 2;
+		float[] input = randomArray(geometry.getInputFeatures() * examples);
+		float[] maxPooled = new float[geometry.getOutputFeatures() * examples];
+		float[] averagePooled = new float[maxPooled.length];
+		channelsLastKernel.maxPool(geometry, examples, input, maxPooled);
+		channelsLastKernel.averagePool(geometry, examples, input, averagePooled);
+
+		for (int example = 0; example < examples; example++) {
+			for (int outputY = 0; outputY < 3; outputY++) {
+				for (int outputX = 0; outputX < 3; outputX++) {
+					for (int channel = 0; channel < 3; channel++) {
+						float max = Float.NEGATIVE_INFINITY;
+						float sum = 0;
+						int count = 0;
+						for (int inputY = outputY * 2 - 1; inputY <= outputY * 2 + 1; inputY++) {
+							for (int inputX = outputX * 2 - 1; inputX <= outputX * 2 + 1; inputX++) {
+								if (inputY >= 0 && inputY < 5 && inputX >= 0 && inputX < 5) {
+									float value = input[ImageLayout.CHANNELS_LAST.index(channel, inputY, inputX,
+											example, 3, 5, 5, examples)];
+									max = Math.max(max, value);
+									sum += value;
+									count++;
+								}
+							}
+						}
+						int index = ImageLayout.CHANNELS_LAST.index(channel, outputY, outputX, example, 3, 3, 3,
+								examples);
+						Assert.assertEquals(max, maxPooled[index], 0f);
+						Assert.assertEquals(sum / count, averagePooled[index], 1e-6f);
+					}
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPoolingRejectsChangeOfDepth() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(3, 4, 4, 6, 2, 2, 2, 2, 0, 0);
+		channelsLastKernel.maxPool(geometry, 1, new float[48], new float[24]);
+	}
+
+	@Test
+	public void testSpaceToDepth() {
+		// One example of shape (2, 4, 1), channels last
+		float[] input = { 1, 2, 3, 4, 5, 6, 7, 8 };
+		float[] depth = new float[8];
+		channelsLastKernel.spaceToDepthExport(1, 2, 4, 1, 2, 2, input, depth);
+
+		// Each output pixel holds its 2x2 block in (blockY, blockX) order
+		Assert.assertArrayEquals(new float[] { 1, 2, 5, 6, 3, 4, 7, 8 }, depth, 0f);
+
+		float[] space = new float[8];
+		channelsLastKernel.spaceToDepthImport(1, 2, 4, 1, 2, 2, depth, space);
+		Assert.assertArrayEquals(input, space, 0f);
+
+		float[] images = randomArray(3 * 4 * 6 * 2);
+		float[] exported = new float[images.length];
+		float[] imported = new float[images.length];
+		channelsLastKernel.spaceToDepthExport(3, 4, 6, 2, 2, 3, images, exported);
+		channelsLastKernel.spaceToDepthImport(3, 4, 6, 2, 2, 3, exported, imported);
+		Assert.assertArrayEquals(images, imported, 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpaceToDepthRejectsPartialBlocks() {
+		channelsLastKernel.spaceToDepthExport(1, 3, 4, 1, 2, 2, new float[12], new float[12]);
+	}
+}
@@ -0,0 +1,259 @@
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.Matrix;
+import org.mockito.Mockito;
+
+public class ConvolutionKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private ConvolutionKernel convolutionKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(3);
+		convolutionKernel = new ConvolutionKernel(forkJoinPool);
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextFloat() - 0.5f;
+		}
+		return values;
+	}
+
+	private static float[] naiveConvolution(ConvolutionGeometry geometry, int examples, float[] input,
+			float[] weights) {
+		float[] output = new float[geometry.getOutputFeatures() * examples];
+		for (int f = 0; f < geometry.getOutputDepth(); f++) {
+			for (int oy = 0; oy < geometry.getOutputHeight(); oy++) {
+				for (int ox = 0; ox < geometry.getOutputWidth(); ox++) {
+					for (int e = 0; e < examples; e++) {
+						double sum = 0;
+						for (int c = 0; c < geometry.getInputDepth(); c++) {
+							for (int ky = 0; ky < geometry.getFilterHeight(); ky++) {
+								for (int kx = 0; kx < geometry.getFilterWidth(); kx++) {
+									int iy = oy * geometry.getStrideHeight() + ky - geometry.getPaddingHeight();
+									int ix = ox * geometry.getStrideWidth() + kx - geometry.getPaddingWidth();
+									if (iy >= 0 && iy < geometry.getInputHeight() && ix >= 0
+											&& ix < geometry.getInputWidth()) {
+										sum += weights[f * geometry.getFilterFeatures()
+												+ (c * geometry.getFilterHeight() + ky) * geometry.getFilterWidth()
+												+ kx]
+												* input[((c * geometry.getInputHeight() + iy) * geometry.getInputWidth()
+														+ ix) * examples + e];
+									}
+								}
+							}
+						}
+						output[((f * geometry.getOutputHeight() + oy) * geometry.getOutputWidth() + ox) * examples
+								+ e] = (float) sum;
+					}
+				}
+			}
+		}
+		return output;
+	}
+
+	private void assertMatchesNaiveConvolution(ConvolutionAlgorithm algorithm, ConvolutionGeometry geometry,
+			int examples) {
+		float[] input = randomArray(geometry.getInputFeatures() * examples);
+		float[] weights = randomArray(geometry.getOutputDepth() * geometry.getFilterFeatures());
+		float[] expected = naiveConvolution(geometry, examples, input, weights);
+		float[] output = new float[expected.length];
+		Arrays.fill(output, Float.NaN);
+		convolutionKernel.convolve(algorithm, geometry, examples, input, weights, output);
+		Assert.assertArrayEquals(algorithm + " " + geometry, expected, output, 1e-4f);
+	}
+
+	@Test
+	public void testAllAlgorithmsMatchNaiveConvolutionFor3x3Filters() {
+		// Output sizes which are not multiples of the Winograd tile sizes, with padding
+		ConvolutionGeometry padded = new ConvolutionGeometry(5, 11, 9, 6, 3, 3, 1, 1, 1, 1);
+		ConvolutionGeometry unpadded = new ConvolutionGeometry(3, 7, 10, 9, 3, 3, 1, 1, 0, 0);
+		for (ConvolutionAlgorithm algorithm : ConvolutionAlgorithm.values()) {
+			assertMatchesNaiveConvolution(algorithm, padded, 3);
+			assertMatchesNaiveConvolution(algorithm, unpadded, 1);
+		}
+	}
+
+	@Test
+	public void testLargeConvolutionsMatchNaiveConvolution() {
+		// Large enough to be computed in parallel
+		ConvolutionGeometry geometry = new ConvolutionGeometry(16, 16, 16, 16, 3, 3, 1, 1, 1, 1);
+		for (ConvolutionAlgorithm algorithm : ConvolutionAlgorithm.values()) {
+			assertMatchesNaiveConvolution(algorithm, geometry, 8);
+		}
+	}
+
+	@Test
+	public void testStridedConvolutions() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(2, 9, 9, 5, 5, 3, 2, 3, 2, 1);
+		assertMatchesNaiveConvolution(ConvolutionAlgorithm.IM2COL, geometry, 4);
+		assertMatchesNaiveConvolution(ConvolutionAlgorithm.DIRECT, geometry, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWinogradRejectsStridedConvolutions() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(2, 9, 9, 5, 3, 3, 2, 2, 0, 0);
+		convolutionKernel.convolve(ConvolutionAlgorithm.WINOGRAD_2X2_3X3, geometry, 1,
+				new float[geometry.getInputFeatures()], new float[5 * geometry.getFilterFeatures()],
+				new float[geometry.getOutputFeatures()]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortOutputIsRejected() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(1, 4, 4, 1, 3, 3, 1, 1, 0, 0);
+		convolutionKernel.convolve(ConvolutionAlgorithm.DIRECT, geometry, 2, new float[32], new float[9],
+				new float[7]);
+	}
+
+	private static float[] naiveInputGradient(ConvolutionGeometry geometry, int examples, float[] outputGradient,
+			float[] weights) {
+		// The input gradient is the adjoint of the convolution - the gradient of the sum of the
+		// products of the outputs and the output gradient with respect to each input
+		float[] inputGradient = new float[geometry.getInputFeatures() * examples];
+		float[] unit = new float[inputGradient.length];
+		for (int i = 0; i < unit.length; i++) {
+			unit[i] = 1f;
+			float[] output = naiveConvolution(geometry, examples, unit, weights);
+			double sum = 0;
+			for (int j = 0; j < output.length; j++) {
+				sum += output[j] * outputGradient[j];
+			}
+			inputGradient[i] = (float) sum;
+			unit[i] = 0f;
+		}
+		return inputGradient;
+	}
+
+	private static float[] naiveWeightGradient(ConvolutionGeometry geometry, int examples, float[] input,
+			float[] outputGradient) {
+		float[] weightGradient = new float[geometry.getOutputDepth() * geometry.getFilterFeatures()];
+		float[] unit = new float[weightGradient.length];
+		for (int i = 0; i < unit.length; i++) {
+			unit[i] = 1f;
+			float[] output = naiveConvolution(geometry, examples, input, unit);
+			double sum = 0;
+			for (int j = 0; j < output.length; j++) {
+				sum += output[j] * outputGradient[j];
+			}
+			weightGradient[i] = (float) sum;
+			unit[i] = 0f;
+		}
+		return weightGradient;
+	}
+
+	private void assertGradients(ConvolutionGeometry geometry, int examples) {
+		float[] input = randomArray(geometry.getInputFeatures() * examples);
+		float[] weights = randomArray(geometry.getOutputDepth() * geometry.getFilterFeatures());
+		float[] outputGradient = randomArray(geometry.getOutputFeatures() * examples);
+
+		float[] inputGradient = randomArray(input.length);
+		convolutionKernel.inputGradient(geometry, examples, outputGradient, weights, inputGradient);
+		Assert.assertArrayEquals(geometry.toString(), naiveInputGradient(geometry, examples, outputGradient, weights),
+				inputGradient, 1e-4f);
+
+		float[] weightGradient = randomArray(weights.length);
+		convolutionKernel.weightGradient(geometry, examples, input, outputGradient, weightGradient);
+		Assert.assertArrayEquals(geometry.toString(), naiveWeightGradient(geometry, examples, input, outputGradient),
+				weightGradient, 1e-3f);
+	}
+
+	@Test
+	public void testGradients() {
+		assertGradients(new ConvolutionGeometry(3, 6, 5, 4, 3, 3, 1, 1, 1, 1), 2);
+		assertGradients(new ConvolutionGeometry(2, 9, 9, 3, 5, 3, 2, 3, 2, 1), 3);
+	}
+
+	@Test
+	public void testGradientsOverSeveralBlocks() {
+		// More im2col columns per channel than a col2im block, in parallel
+		ConvolutionGeometry geometry = new ConvolutionGeometry(4, 12, 12, 32, 3, 3, 1, 1, 1, 1);
+		Assert.assertTrue(geometry.getOutputHeight() * geometry.getOutputWidth() * 10
+				> ConvolutionKernel.COL2IM_BLOCK_COLUMNS);
+		float[] input = randomArray(geometry.getInputFeatures() * 10);
+		float[] weights = randomArray(geometry.getOutputDepth() * geometry.getFilterFeatures());
+		float[] outputGradient = randomArray(geometry.getOutputFeatures() * 10);
+		float[] inputGradient = new float[input.length];
+		convolutionKernel.inputGradient(geometry, 10, outputGradient, weights, inputGradient);
+
+		// The input gradient is the adjoint of the convolution, so its dot product with the inputs
+		// equals that of the outputs with the output gradient
+		float[] output = naiveConvolution(geometry, 10, input, weights);
+		double expected = 0;
+		for (int i = 0; i < output.length; i++) {
+			expected += output[i] * outputGradient[i];
+		}
+		double actual = 0;
+		for (int i = 0; i < input.length; i++) {
+			actual += input[i] * inputGradient[i];
+		}
+		Assert.assertEquals(expected, actual, 1e-2);
+	}
+
+	@Test
+	public void testSelect() {
+		Assert.assertEquals(ConvolutionAlgorithm.DIRECT,
+				ConvolutionAlgorithm.select(new ConvolutionGeometry(3, 32, 32, 64, 3, 3, 1, 1, 1, 1)));
+		Assert.assertEquals(ConvolutionAlgorithm.WINOGRAD_4X4_3X3,
+				ConvolutionAlgorithm.select(new ConvolutionGeometry(64, 32, 32, 64, 3, 3, 1, 1, 1, 1)));
+		Assert.assertEquals(ConvolutionAlgorithm.WINOGRAD_2X2_3X3,
+				ConvolutionAlgorithm.select(new ConvolutionGeometry(64, 4, 4, 64, 3, 3, 1, 1, 1, 1)));
+		Assert.assertEquals(ConvolutionAlgorithm.IM2COL,
+				ConvolutionAlgorithm.select(new ConvolutionGeometry(64, 32, 32, 64, 3, 3, 2, 2, 1, 1)));
+		Assert.assertEquals(ConvolutionAlgorithm.IM2COL,
+				ConvolutionAlgorithm.select(new ConvolutionGeometry(64, 32, 32, 64, 1, 1, 1, 1, 0, 0)));
+	}
+
+	@Test
+	public void testGeometry() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(3, 28, 28, 8, 5, 5, 2, 2, 2, 2);
+		Assert.assertEquals(14, geometry.getOutputHeight());
+		Assert.assertEquals(14, geometry.getOutputWidth());
+		Assert.assertEquals(3 * 28 * 28, geometry.getInputFeatures());
+		Assert.assertEquals(8 * 14 * 14, geometry.getOutputFeatures());
+		Assert.assertEquals(75, geometry.getFilterFeatures());
+		Assert.assertEquals(geometry, new ConvolutionGeometry(3, 28, 28, 8, 5, 5, 2, 2, 2, 2));
+		Assert.assertEquals(geometry.hashCode(), new ConvolutionGeometry(3, 28, 28, 8, 5, 5, 2, 2, 2, 2).hashCode());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGeometryRejectsFilterLargerThanInput() {
+		new ConvolutionGeometry(1, 2, 2, 1, 3, 3, 1, 1, 0, 0);
+	}
+
+	@Test
+	public void testMatrixConvolution() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(2, 5, 5, 3, 3, 3, 1, 1, 1, 1);
+		float[] inputValues = randomArray(geometry.getInputFeatures() * 2);
+		float[] weightValues = randomArray(3 * geometry.getFilterFeatures());
+		Matrix input = Mockito.mock(Matrix.class);
+		Mockito.when(input.getRows()).thenReturn(geometry.getInputFeatures());
+		Mockito.when(input.getColumns()).thenReturn(2);
+		Mockito.when(input.getRowByRowArray()).thenReturn(inputValues);
+		Matrix weights = Mockito.mock(Matrix.class);
+		Mockito.when(weights.getRows()).thenReturn(3);
+		Mockito.when(weights.getColumns()).thenReturn(geometry.getFilterFeatures());
+		Mockito.when(weights.getRowByRowArray()).thenReturn(weightValues);
+
+		float[] output = convolutionKernel.convolve(ConvolutionAlgorithm.WINOGRAD_2X2_3X3, geometry, input, weights);
+
+		Assert.assertArrayEquals(naiveConvolution(geometry, 2, inputValues, weightValues), output, 1e-4f);
+	}
+}
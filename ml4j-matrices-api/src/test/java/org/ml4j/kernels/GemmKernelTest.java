@@ -0,0 +1,502 @@
+package org.ml4j.kernels;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.CompressedSparseMatrix;
+import org.ml4j.EditableMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.MatrixLayout;
+import org.ml4j.SparseMatrixFormat;
+import org.mockito.Mockito;
+
+public class GemmKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private GemmKernel gemmKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(3);
+		gemmKernel = new GemmKernel(forkJoinPool);
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextFloat() - 0.5f;
+		}
+		return values;
+	}
+
+	private static float[] naiveMmul(int m, int n, int k, float[] a, float[] b) {
+		float[] c = new float[m * n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double sum = 0;
+				for (int p = 0; p < k; p++) {
+					sum += a[i * k + p] * b[p * n + j];
+				}
+				c[i * n + j] = (float) sum;
+			}
+		}
+		return c;
+	}
+
+	private void assertMmul(int m, int n, int k) {
+		float[] a = randomArray(m * k);
+		float[] b = randomArray(k * n);
+		float[] c = randomArray(m * n);
+		gemmKernel.mmul(m, n, k, a, b, c);
+		Assert.assertArrayEquals(naiveMmul(m, n, k, a, b), c, 0.0001f * Math.max(1, k));
+	}
+
+	@Test
+	public void testSmallAndEdgeSizes() {
+		assertMmul(1, 1, 1);
+		assertMmul(3, 5, 7);
+		assertMmul(4, 4, 4);
+		assertMmul(17, 9, 13);
+		assertMmul(1, 300, 2);
+	}
+
+	@Test
+	public void testMultipleBlocks() {
+		assertMmul(GemmKernel.MC + 3, GemmKernel.NC + 5, GemmKernel.KC * 2 + 1);
+	}
+
+	@Test
+	public void testParallelTiles() {
+		assertMmul(GemmKernel.MC * 3 + 1, GemmKernel.NC * 2 + 2, 70);
+	}
+
+	@Test
+	public void testZeroInnerDimension() {
+		float[] c = new float[] { 1, 2, 3, 4 };
+		gemmKernel.mmul(2, 2, 0, new float[0], new float[0], c);
+		Assert.assertArrayEquals(new float[4], c, 0f);
+	}
+
+	@Test
+	public void testOffsetsAndLeadingDimensions() {
+		int m = 5;
+		int n = 6;
+		int k = 7;
+		float[] a = randomArray(m * k);
+		float[] b = randomArray(k * n);
+
+		// Embed A and B within larger arrays, and write C into the interior of a larger matrix
+		int lda = k + 3;
+		int ldb = n + 2;
+		int ldc = n + 4;
+		float[] paddedA = randomArray(2 + m * lda);
+		float[] paddedB = randomArray(1 + k * ldb);
+		float[] paddedC = new float[3 + m * ldc];
+		for (int i = 0; i < m; i++) {
+			System.arraycopy(a, i * k, paddedA, 2 + i * lda, k);
+		}
+		for (int p = 0; p < k; p++) {
+			System.arraycopy(b, p * n, paddedB, 1 + p * ldb, n);
+		}
+
+		gemmKernel.mmul(m, n, k, paddedA, 2, lda, paddedB, 1, ldb, paddedC, 3, ldc);
+
+		float[] expected = naiveMmul(m, n, k, a, b);
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				Assert.assertEquals(expected[i * n + j], paddedC[3 + i * ldc + j], 0.0001f);
+			}
+			for (int j = n; j < ldc && 3 + i * ldc + j < paddedC.length; j++) {
+				Assert.assertEquals(0f, paddedC[3 + i * ldc + j], 0f);
+			}
+		}
+	}
+
+	private static float[] transpose(int rows, int columns, float[] values) {
+		float[] transposed = new float[values.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				transposed[c * rows + r] = values[r * columns + c];
+			}
+		}
+		return transposed;
+	}
+
+	@Test
+	public void testTransposedOperandsWithAlphaAndBeta() {
+		int m = GemmKernel.MC + 9;
+		int n = 37;
+		int k = GemmKernel.KC + 11;
+		float alpha = 0.5f;
+		float beta = -2f;
+		float[] a = randomArray(m * k);
+		float[] b = randomArray(k * n);
+		float[] initialC = randomArray(m * n);
+		float[] product = naiveMmul(m, n, k, a, b);
+
+		for (boolean transA : new boolean[] { false, true }) {
+			for (boolean transB : new boolean[] { false, true }) {
+				float[] c = initialC.clone();
+				gemmKernel.gemm(transA, transB, m, n, k, alpha, transA ? transpose(m, k, a) : a, 0, transA ? m : k,
+						transB ? transpose(k, n, b) : b, 0, transB ? k : n, beta, c, 0, n);
+				for (int i = 0; i < c.length; i++) {
+					Assert.assertEquals(alpha * product[i] + beta * initialC[i], c[i], 0.001f);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBetaZeroIgnoresDestination() {
+		float[] c = new float[] { Float.NaN, Float.NaN, Float.NaN, Float.NaN };
+		gemmKernel.gemm(false, false, 2, 2, 1, 2f, new float[] { 1, 2 }, 0, 1, new float[] { 3, 4 }, 0, 2, 0f, c,
+				0, 2);
+		Assert.assertArrayEquals(new float[] { 6, 8, 12, 16 }, c, 0f);
+	}
+
+	@Test
+	public void testMatrixGemm() {
+		Matrix a = Mockito.mock(Matrix.class);
+		Mockito.when(a.getRows()).thenReturn(3);
+		Mockito.when(a.getColumns()).thenReturn(2);
+		Mockito.when(a.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3, 4, 5, 6 });
+		Matrix b = Mockito.mock(Matrix.class);
+		Mockito.when(b.getRows()).thenReturn(3);
+		Mockito.when(b.getColumns()).thenReturn(1);
+		Mockito.when(b.getRowByRowArray()).thenReturn(new float[] { 1, 1, 2 });
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		Mockito.when(c.getRows()).thenReturn(2);
+		Mockito.when(c.getColumns()).thenReturn(1);
+		Mockito.when(c.get(0, 0)).thenReturn(10f);
+		Mockito.when(c.get(1, 0)).thenReturn(20f);
+
+		// c = a^T * b + c
+		gemmKernel.gemm(true, false, 1f, a, b, 1f, c);
+
+		Mockito.verify(c).put(0, 0, 24f);
+		Mockito.verify(c).put(1, 0, 38f);
+		Mockito.verify(c, Mockito.never()).getRowByRowArray();
+	}
+
+	private static Matrix createMatrix(int rows, int columns, float[] rowByRowData) {
+		Matrix matrix = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.getRows()).thenReturn(rows);
+		Mockito.when(matrix.getColumns()).thenReturn(columns);
+		Mockito.when(matrix.getRowByRowArray()).thenReturn(rowByRowData);
+		return matrix;
+	}
+
+	/**
+	 * @return A mock destination which does not expose its storage, reading and writing values
+	 * through get and put.
+	 */
+	private static EditableMatrix createDestination(int rows, int columns, float[] rowByRowData) {
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		Mockito.when(c.getRows()).thenReturn(rows);
+		Mockito.when(c.getColumns()).thenReturn(columns);
+		Mockito.when(c.get(Mockito.anyInt(), Mockito.anyInt())).thenAnswer(invocation -> rowByRowData[
+				(int) invocation.getArgument(0) * columns + (int) invocation.getArgument(1)]);
+		Mockito.doAnswer(invocation -> {
+			rowByRowData[(int) invocation.getArgument(0) * columns + (int) invocation.getArgument(1)] = invocation
+					.getArgument(2);
+			return null;
+		}).when(c).put(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyFloat());
+		return c;
+	}
+
+	private static float[] expectedGemm(int m, int n, int k, float alpha, float[] a, float[] b, float beta,
+			float[] c) {
+		float[] product = naiveMmul(m, n, k, a, b);
+		float[] expected = new float[m * n];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = alpha * product[i] + beta * c[i];
+		}
+		return expected;
+	}
+
+	@Test
+	public void testMatrixGemmIntoStorageArray() {
+		float[] a = randomArray(6 * 5);
+		float[] b = randomArray(5 * 7);
+		float[] storage = randomArray(6 * 7);
+		float[] expected = expectedGemm(6, 7, 5, 2f, a, b, 0.5f, storage);
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		Mockito.when(c.getRows()).thenReturn(6);
+		Mockito.when(c.getColumns()).thenReturn(7);
+		Mockito.when(c.getStorageArray()).thenReturn(Optional.of(storage));
+
+		gemmKernel.gemm(false, false, 2f, createMatrix(6, 5, a), createMatrix(5, 7, b), 0.5f, c);
+
+		Assert.assertArrayEquals(expected, storage, 1e-4f);
+		Mockito.verify(c, Mockito.never()).put(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyFloat());
+	}
+
+	@Test
+	public void testMatrixGemmIntoColumnMajorStorageArray() {
+		float[] a = randomArray(6 * 5);
+		float[] b = randomArray(5 * 7);
+		float[] c0 = randomArray(6 * 7);
+		float[] expected = expectedGemm(6, 7, 5, 1f, a, b, 1f, c0);
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		Mockito.when(c.getRows()).thenReturn(6);
+		Mockito.when(c.getColumns()).thenReturn(7);
+		Mockito.when(c.getLayout()).thenReturn(MatrixLayout.COLUMN_MAJOR);
+		float[] storage = transpose(6, 7, c0);
+		Mockito.when(c.getStorageArray()).thenReturn(Optional.of(storage));
+
+		gemmKernel.gemm(false, false, 1f, createMatrix(6, 5, a), createMatrix(5, 7, b), 1f, c);
+
+		Assert.assertArrayEquals(transpose(6, 7, expected), storage, 1e-4f);
+		Mockito.verify(c, Mockito.never()).put(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyFloat());
+	}
+
+	@Test
+	public void testMatrixGemmInScratchBlocks() {
+		// Enough columns for the result to be computed in several blocks of columns
+		int m = 3;
+		int n = GemmKernel.SCRATCH_FLOATS / m * 2 + 5;
+		int k = 4;
+		float[] a = randomArray(k * m);
+		float[] b = randomArray(k * n);
+		float[] values = randomArray(m * n);
+		float[] expected = expectedGemm(m, n, k, 1f, transpose(k, m, a), b, 0.5f, values);
+
+		gemmKernel.gemm(true, false, 1f, createMatrix(k, m, a), createMatrix(k, n, b), 0.5f,
+				createDestination(m, n, values));
+
+		Assert.assertArrayEquals(expected, values, 1e-4f);
+	}
+
+	@Test
+	public void testMatrixGemmWithSparseOperandsInScratchBlocks() {
+		int m = 3;
+		int n = GemmKernel.SCRATCH_FLOATS / 2 + 1;
+		int k = 4;
+		float[] dense = randomArray(m * k);
+		float[] sparse = new float[k * n];
+		for (int i = 0; i < sparse.length; i += 7) {
+			sparse[i] = i % 5 - 2;
+		}
+		float[] values = new float[m * n];
+		float[] expected = naiveMmul(m, n, k, dense, sparse);
+
+		// A sparse b is computed in blocks of rows - here of a single row
+		gemmKernel.gemm(false, false, 1f, createMatrix(m, k, dense), CompressedSparseMatrix.compress(
+				Mockito.mock(MatrixFactory.class), k, n, sparse, SparseMatrixFormat.CSR), 0f,
+				createDestination(m, n, values));
+		Assert.assertArrayEquals(expected, values, 1e-4f);
+
+		// A sparse a is computed in blocks of columns: (n, k) x (k, m)
+		float[] transposedValues = new float[n * m];
+		gemmKernel.gemm(true, true, 1f, CompressedSparseMatrix.compress(Mockito.mock(MatrixFactory.class), k, n,
+				sparse, SparseMatrixFormat.CSC), createMatrix(m, k, dense), 0f,
+				createDestination(n, m, transposedValues));
+		Assert.assertArrayEquals(transpose(m, n, expected), transposedValues, 1e-4f);
+	}
+
+	@Test
+	public void testMatrixGemmColumnMajorOperand() {
+		// a is the 2 x 3 matrix [[1, 2, 3], [4, 5, 6]], stored column by column
+		Matrix a = Mockito.mock(Matrix.class);
+		Mockito.when(a.getRows()).thenReturn(2);
+		Mockito.when(a.getColumns()).thenReturn(3);
+		Mockito.when(a.getLayout()).thenReturn(MatrixLayout.COLUMN_MAJOR);
+		Mockito.when(a.getColumnByColumnArray()).thenReturn(new float[] { 1, 4, 2, 5, 3, 6 });
+		Matrix b = Mockito.mock(Matrix.class);
+		Mockito.when(b.getRows()).thenReturn(3);
+		Mockito.when(b.getColumns()).thenReturn(1);
+		Mockito.when(b.getRowByRowArray()).thenReturn(new float[] { 1, 1, 2 });
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		Mockito.when(c.getRows()).thenReturn(2);
+		Mockito.when(c.getColumns()).thenReturn(1);
+
+		gemmKernel.gemm(false, false, 1f, a, b, 0f, c);
+
+		Mockito.verify(c).put(0, 0, 9f);
+		Mockito.verify(c).put(1, 0, 21f);
+		Mockito.verify(a, Mockito.never()).getRowByRowArray();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMatrixGemmShapeMismatch() {
+		Matrix a = Mockito.mock(Matrix.class);
+		Mockito.when(a.getRows()).thenReturn(3);
+		Mockito.when(a.getColumns()).thenReturn(2);
+		EditableMatrix c = Mockito.mock(EditableMatrix.class);
+		gemmKernel.gemm(false, false, 1f, a, a, 0f, c);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDimensions() {
+		gemmKernel.mmul(-1, 1, 1, new float[1], new float[1], new float[1]);
+	}
+
+	private void assertBatchGemm(int batchCount, int m, int n, int k) {
+		float[] a = randomArray(batchCount * m * k);
+		float[] b = randomArray(batchCount * k * n);
+		float[] c = new float[batchCount * m * n];
+		gemmKernel.batchGemm(false, false, batchCount, m, n, k, 1f, a, 0, k, m * k, b, 0, n, k * n, 0f, c, 0, n,
+				m * n);
+		for (int i = 0; i < batchCount; i++) {
+			float[] expected = naiveMmul(m, n, k, Arrays.copyOfRange(a, i * m * k, (i + 1) * m * k),
+					Arrays.copyOfRange(b, i * k * n, (i + 1) * k * n));
+			Assert.assertArrayEquals(expected, Arrays.copyOfRange(c, i * m * n, (i + 1) * m * n),
+					0.0001f * Math.max(1, k));
+		}
+	}
+
+	@Test
+	public void testBatchGemm() {
+		assertBatchGemm(1, 5, 3, 7);
+		assertBatchGemm(6, 9, 4, 3);
+		assertBatchGemm(0, 9, 4, 3);
+	}
+
+	@Test
+	public void testBatchGemmParallelTiles() {
+		// Many small multiplications, which only run in parallel as a batch
+		assertBatchGemm(512, 16, 16, 9);
+		// Multiplications of several tiles each
+		assertBatchGemm(3, 300, 140, 90);
+	}
+
+	@Test
+	public void testBatchGemmTransposedWithAlphaAndBeta() {
+		int batchCount = 3;
+		int m = 4;
+		int n = 5;
+		int k = 6;
+		float[] a = randomArray(batchCount * m * k);
+		float[] b = randomArray(batchCount * k * n);
+		float[] aTransposed = new float[a.length];
+		float[] bTransposed = new float[b.length];
+		for (int i = 0; i < batchCount; i++) {
+			System.arraycopy(transpose(m, k, Arrays.copyOfRange(a, i * m * k, (i + 1) * m * k)), 0, aTransposed,
+					i * m * k, m * k);
+			System.arraycopy(transpose(k, n, Arrays.copyOfRange(b, i * k * n, (i + 1) * k * n)), 0, bTransposed,
+					i * k * n, k * n);
+		}
+		float[] c = randomArray(batchCount * m * n);
+		float[] expected = c.clone();
+		gemmKernel.batchGemm(false, false, batchCount, m, n, k, 2f, a, 0, k, m * k, b, 0, n, k * n, 0.5f, expected,
+				0, n, m * n);
+		gemmKernel.batchGemm(true, true, batchCount, m, n, k, 2f, aTransposed, 0, m, m * k, bTransposed, 0, k,
+				k * n, 0.5f, c, 0, n, m * n);
+		Assert.assertArrayEquals(expected, c, 0.0001f);
+	}
+
+	@Test
+	public void testBatchMmul() {
+		Matrix a1 = Mockito.mock(Matrix.class);
+		Mockito.when(a1.getRows()).thenReturn(1);
+		Mockito.when(a1.getColumns()).thenReturn(2);
+		Mockito.when(a1.getRowByRowArray()).thenReturn(new float[] { 1, 2 });
+		Matrix b1 = Mockito.mock(Matrix.class);
+		Mockito.when(b1.getRows()).thenReturn(2);
+		Mockito.when(b1.getColumns()).thenReturn(2);
+		Mockito.when(b1.getRowByRowArray()).thenReturn(new float[] { 1, 2, 3, 4 });
+		// a2 is the 2 x 3 matrix [[1, 2, 3], [4, 5, 6]], stored column by column
+		Matrix a2 = Mockito.mock(Matrix.class);
+		Mockito.when(a2.getRows()).thenReturn(2);
+		Mockito.when(a2.getColumns()).thenReturn(3);
+		Mockito.when(a2.getLayout()).thenReturn(MatrixLayout.COLUMN_MAJOR);
+		Mockito.when(a2.getColumnByColumnArray()).thenReturn(new float[] { 1, 4, 2, 5, 3, 6 });
+		Matrix b2 = Mockito.mock(Matrix.class);
+		Mockito.when(b2.getRows()).thenReturn(3);
+		Mockito.when(b2.getColumns()).thenReturn(1);
+		Mockito.when(b2.getRowByRowArray()).thenReturn(new float[] { 1, 1, 2 });
+
+		List<float[]> products = gemmKernel.batchMmul(Arrays.asList(a1, a2), Arrays.asList(b1, b2));
+
+		Assert.assertEquals(2, products.size());
+		Assert.assertArrayEquals(new float[] { 7, 10 }, products.get(0), 0f);
+		Assert.assertArrayEquals(new float[] { 9, 21 }, products.get(1), 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatchMmulSizeMismatch() {
+		Matrix a = Mockito.mock(Matrix.class);
+		gemmKernel.batchMmul(Arrays.asList(a, a), Arrays.asList(a));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatchMmulShapeMismatch() {
+		Matrix a = Mockito.mock(Matrix.class);
+		Mockito.when(a.getRows()).thenReturn(3);
+		Mockito.when(a.getColumns()).thenReturn(2);
+		gemmKernel.batchMmul(Arrays.asList(a), Arrays.asList(a));
+	}
+
+	/**
+	 * An ImplicitMatrix over a row-by-row array, recording the largest run requested.
+	 */
+	private static class ArrayImplicitMatrix implements ImplicitMatrix {
+
+		private final int rows;
+		private final int columns;
+		private final float[] values;
+		private int largestRun;
+
+		ArrayImplicitMatrix(int rows, int columns, float[] values) {
+			this.rows = rows;
+			this.columns = columns;
+			this.values = values;
+		}
+
+		@Override
+		public int getRows() {
+			return rows;
+		}
+
+		@Override
+		public int getColumns() {
+			return columns;
+		}
+
+		@Override
+		public void getRow(int row, int firstColumn, int runColumns, float[] destination, int destinationOffset) {
+			largestRun = Math.max(largestRun, runColumns);
+			System.arraycopy(values, row * columns + firstColumn, destination, destinationOffset, runColumns);
+		}
+	}
+
+	@Test
+	public void testImplicitOperand() {
+		int m = GemmKernel.MC + 9;
+		int n = GemmKernel.NC + 37;
+		int k = GemmKernel.KC + 11;
+		float alpha = 0.5f;
+		float beta = -2f;
+		float[] a = randomArray(m * k);
+		float[] b = randomArray(k * n);
+		float[] initialC = randomArray(m * n);
+		float[] product = naiveMmul(m, n, k, a, b);
+
+		for (boolean transB : new boolean[] { false, true }) {
+			float[] c = initialC.clone();
+			ArrayImplicitMatrix implicitB = transB ? new ArrayImplicitMatrix(n, k, transpose(k, n, b))
+					: new ArrayImplicitMatrix(k, n, b);
+			gemmKernel.gemm(false, transB, m, alpha, a, 0, k, implicitB, beta, c, 0, n);
+			for (int i = 0; i < c.length; i++) {
+				Assert.assertEquals(alpha * product[i] + beta * initialC[i], c[i], 0.001f);
+			}
+			// The operand is only ever read a block at a time
+			Assert.assertTrue(implicitB.largestRun <= Math.max(GemmKernel.NC, GemmKernel.KC));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package org.ml4j.kernels;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class Im2colKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private Im2colKernel im2colKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(3);
+		im2colKernel = new Im2colKernel(forkJoinPool);
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextFloat() - 0.5f;
+		}
+		return values;
+	}
+
+	/**
+	 * @return The index in the images of the value at the given row and column of the im2col matrix,
+	 * or -1 for a padded position.
+	 */
+	private static int getImageIndex(ConvolutionGeometry geometry, int examples, boolean pooling, int row,
+			int column) {
+		int filterFeatures = geometry.getFilterHeight() * geometry.getFilterWidth();
+		int positions = geometry.getOutputHeight() * geometry.getOutputWidth() * examples;
+		int channel = pooling ? column / positions : row / filterFeatures;
+		int filterY = row % filterFeatures / geometry.getFilterWidth();
+		int filterX = row % geometry.getFilterWidth();
+		int example = column % examples;
+		int outputX = column / examples % geometry.getOutputWidth();
+		int outputY = column / examples / geometry.getOutputWidth() % geometry.getOutputHeight();
+		int inputY = outputY * geometry.getStrideHeight() + filterY - geometry.getPaddingHeight();
+		int inputX = outputX * geometry.getStrideWidth() + filterX - geometry.getPaddingWidth();
+		if (inputY < 0 || inputY >= geometry.getInputHeight() || inputX < 0 || inputX >= geometry.getInputWidth()) {
+			return -1;
+		}
+		return ((channel * geometry.getInputHeight() + inputY) * geometry.getInputWidth() + inputX) * examples
+				+ example;
+	}
+
+	private void assertTransfers(ConvolutionGeometry geometry, int examples, boolean pooling) {
+		int offset = 5;
+		int rows = pooling ? geometry.getFilterHeight() * geometry.getFilterWidth() : geometry.getFilterFeatures();
+		int columns = geometry.getFilterFeatures() * geometry.getOutputHeight() * geometry.getOutputWidth()
+				* examples / rows;
+		float[] images = randomArray(geometry.getInputFeatures() * examples);
+		float[] exported = new float[offset + rows * columns];
+		float[] gradient = randomArray(exported.length);
+		float[] imported = randomArray(images.length);
+		if (pooling) {
+			im2colKernel.im2colPoolExport(geometry, examples, images, exported, offset);
+			im2colKernel.im2colPoolImport(geometry, examples, gradient, offset, imported);
+		} else {
+			im2colKernel.im2colConvExport(geometry, examples, images, exported, offset);
+			im2colKernel.im2colConvImport(geometry, examples, gradient, offset, imported);
+		}
+
+		float[] expectedImport = new float[images.length];
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				int index = offset + row * columns + column;
+				int imageIndex = getImageIndex(geometry, examples, pooling, row, column);
+				Assert.assertEquals(imageIndex < 0 ? 0f : images[imageIndex], exported[index], 0f);
+				if (imageIndex >= 0) {
+					expectedImport[imageIndex] += gradient[index];
+				}
+			}
+		}
+		Assert.assertEquals(0f, exported[0], 0f);
+		Assert.assertArrayEquals(expectedImport, imported, 1e-5f);
+	}
+
+	@Test
+	public void testConvolution() {
+		assertTransfers(new ConvolutionGeometry(3, 5, 6, 4, 3, 3, 1, 1, 1, 1), 2, false);
+		assertTransfers(new ConvolutionGeometry(2, 9, 8, 3, 3, 2, 2, 3, 1, 0), 40, false);
+		// Enough work to be run in parallel, with fewer channels than threads
+		assertTransfers(new ConvolutionGeometry(1, 28, 28, 8, 5, 5, 1, 1, 2, 2), 37, false);
+	}
+
+	@Test
+	public void testPooling() {
+		assertTransfers(new ConvolutionGeometry(3, 6, 6, 3, 2, 2, 2, 2, 0, 0), 3, true);
+		assertTransfers(new ConvolutionGeometry(4, 7, 7, 4, 3, 3, 2, 2, 1, 1), 50, true);
+	}
+
+	@Test
+	public void testExampleBlock() {
+		// Three threads, so twelve tasks are sought
+		Assert.assertEquals(16, im2colKernel.getExampleBlock(1, 64));
+		Assert.assertEquals(32, im2colKernel.getExampleBlock(6, 64));
+		Assert.assertEquals(64, im2colKernel.getExampleBlock(12, 64));
+		Assert.assertEquals(10, im2colKernel.getExampleBlock(1, 10));
+		Assert.assertEquals(17, im2colKernel.getExampleBlock(1, 200));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPoolingRejectsChangeOfDepth() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(3, 4, 4, 6, 2, 2, 2, 2, 0, 0);
+		im2colKernel.im2colPoolExport(geometry, 1, new float[48], new float[48], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsShortColumns() {
+		ConvolutionGeometry geometry = new ConvolutionGeometry(1, 4, 4, 1, 3, 3, 1, 1, 0, 0);
+		im2colKernel.im2colConvExport(geometry, 1, new float[16], new float[36], 1);
+	}
+}
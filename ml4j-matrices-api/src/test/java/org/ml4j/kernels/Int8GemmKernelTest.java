@@ -0,0 +1,93 @@
+package org.ml4j.kernels;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class Int8GemmKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private Int8GemmKernel kernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(2);
+		kernel = new Int8GemmKernel(forkJoinPool);
+		random = new Random(3);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private byte[] randomBytes(int length) {
+		byte[] values = new byte[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = (byte) (random.nextInt(255) - 127);
+		}
+		return values;
+	}
+
+	@Test
+	public void testMatchesNaiveMultiplication() {
+		int m = 70;
+		int n = 90;
+		int k = 300;
+		byte[] a = randomBytes(m * k);
+		byte[] b = randomBytes(k * n);
+		float[] aScales = new float[m];
+		for (int i = 0; i < m; i++) {
+			aScales[i] = 0.01f * (i + 1);
+		}
+		float[] bScales = new float[] { 0.5f };
+		float[] c = new float[m * n];
+
+		kernel.gemm(m, n, k, a, 0, k, aScales, b, 0, n, bScales, c, 0, n);
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				int sum = 0;
+				for (int p = 0; p < k; p++) {
+					sum += a[i * k + p] * b[p * n + j];
+				}
+				Assert.assertEquals(sum * aScales[i] * 0.5f, c[i * n + j], Math.abs(sum * aScales[i]) * 1e-6f);
+			}
+		}
+	}
+
+	@Test
+	public void testColumnScales() {
+		byte[] a = new byte[] { 1, 2 };
+		byte[] b = new byte[] { 3, 4, 5, 6 };
+		float[] c = new float[2];
+		kernel.gemm(1, 2, 2, a, 0, 2, new float[] { 2f }, b, 0, 2, new float[] { 1f, 0.5f }, c, 0, 2);
+		Assert.assertArrayEquals(new float[] { 26f, 16f }, c, 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidScales() {
+		kernel.gemm(2, 2, 1, new byte[2], 0, 1, new float[3], new byte[2], 0, 2, new float[1], new float[4], 0, 2);
+	}
+
+	@Test
+	public void testQuantization() {
+		Assert.assertEquals(2f / 127, Int8Quantization.getScale(2f), 0f);
+		Assert.assertEquals(1f, Int8Quantization.getScale(0f), 0f);
+		Assert.assertEquals(127, Int8Quantization.quantize(2f, 2f / 127));
+		Assert.assertEquals(-127, Int8Quantization.quantize(-5f, 2f / 127));
+		Assert.assertEquals(64, Int8Quantization.quantize(1.0f, 2f / 127));
+
+		float[] data = new float[] { 1, -4, 0.5f, 2 };
+		Assert.assertArrayEquals(new float[] { 4f / 127, 2f / 127 }, Int8Quantization.getRowScales(2, 2, data), 0f);
+		Assert.assertArrayEquals(new float[] { 1f / 127, 4f / 127 }, Int8Quantization.getColumnScales(2, 2, data),
+				0f);
+		Assert.assertArrayEquals(new byte[] { 127, -127, 64, 64 },
+				Int8Quantization.quantize(2, 2, data, new float[] { 1f / 127, 4f / 127 }, false));
+	}
+}
@@ -0,0 +1,79 @@
+package org.ml4j.kernels;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RandomKernelTest {
+
+	private static final int LENGTH = 5 * RandomKernel.BLOCK_SIZE + 7;
+
+	private static float[] generate(int parallelism, long seed, boolean gaussian) {
+		ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+		try {
+			float[] values = new float[LENGTH];
+			RandomKernel randomKernel = new RandomKernel(forkJoinPool);
+			if (gaussian) {
+				randomKernel.fillGaussian(values, seed);
+			} else {
+				randomKernel.fillUniform(values, seed);
+			}
+			return values;
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testValuesAreIdenticalWhateverTheParallelism() {
+		for (boolean gaussian : new boolean[] { false, true }) {
+			float[] expected = generate(1, 42, gaussian);
+			Assert.assertArrayEquals(expected, generate(3, 42, gaussian), 0f);
+			Assert.assertArrayEquals(expected, generate(8, 42, gaussian), 0f);
+		}
+	}
+
+	@Test
+	public void testSeedsGenerateDifferentValues() {
+		float[] values = generate(2, 1, false);
+		float[] otherValues = generate(2, 2, false);
+		int equalCount = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			if (values[i] == otherValues[i]) {
+				equalCount++;
+			}
+		}
+		Assert.assertTrue(equalCount < LENGTH / 1000);
+	}
+
+	@Test
+	public void testUniformDistribution() {
+		float[] values = generate(2, 7, false);
+		double sum = 0;
+		for (float value : values) {
+			Assert.assertTrue(value >= 0f && value < 1f);
+			sum += value;
+		}
+		Assert.assertEquals(0.5, sum / LENGTH, 0.01);
+	}
+
+	@Test
+	public void testGaussianDistribution() {
+		float[] values = generate(2, 7, true);
+		double sum = 0;
+		double sumOfSquares = 0;
+		for (float value : values) {
+			sum += value;
+			sumOfSquares += value * value;
+		}
+		double mean = sum / LENGTH;
+		Assert.assertEquals(0, mean, 0.02);
+		Assert.assertEquals(1, Math.sqrt(sumOfSquares / LENGTH - mean * mean), 0.02);
+	}
+
+	@Test
+	public void testEmptyArray() {
+		new RandomKernel(ForkJoinPool.commonPool()).fillGaussian(new float[0], 1);
+	}
+}
@@ -0,0 +1,58 @@
+package org.ml4j.kernels;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScalarElementwiseKernelsTest {
+
+	private final ElementwiseKernels kernels = new ScalarElementwiseKernels();
+
+	@Test
+	public void testApplyArrays() {
+		float[] x = new float[] { 0, 1, 2, 3, 4 };
+		float[] y = new float[] { 9, 2, 4, 8 };
+		float[] result = new float[5];
+		kernels.apply(ElementwiseOperation.DIV, x, 1, y, 1, result, 2, 3);
+		Assert.assertArrayEquals(new float[] { 0, 0, 0.5f, 0.5f, 0.375f }, result, 0f);
+	}
+
+	@Test
+	public void testApplyScalarInPlace() {
+		float[] x = new float[] { 1, 2, 3 };
+		kernels.apply(ElementwiseOperation.SUB, x, 0, 1.5f, x, 0, 3);
+		Assert.assertArrayEquals(new float[] { -0.5f, 0.5f, 1.5f }, x, 0f);
+	}
+
+	@Test
+	public void testApplyRowVector() {
+		float[] x = new float[] { 1, 2, 3, 4, 5, 6 };
+		float[] result = new float[6];
+		kernels.applyRowVector(ElementwiseOperation.ADD, 2, 3, x, 0, new float[] { 10, 20, 30 }, 0, result, 0);
+		Assert.assertArrayEquals(new float[] { 11, 22, 33, 14, 25, 36 }, result, 0f);
+	}
+
+	@Test
+	public void testApplyColumnVector() {
+		float[] x = new float[] { 1, 2, 3, 4, 5, 6 };
+		kernels.applyColumnVector(ElementwiseOperation.MUL, 2, 3, x, 0, new float[] { 0, 2, -1 }, 1, x, 0);
+		Assert.assertArrayEquals(new float[] { 2, 4, 6, -4, -5, -6 }, x, 0f);
+	}
+
+	@Test
+	public void testUnaryOperations() {
+		float[] x = new float[] { 0, 1, 2 };
+		float[] result = new float[3];
+		kernels.sigmoid(x, 0, result, 0, 3);
+		Assert.assertEquals(0.5f, result[0], 0f);
+		Assert.assertEquals(1f / (1f + (float) Math.exp(-2)), result[2], 0.000001f);
+		kernels.exp(x, 0, result, 0, 3);
+		Assert.assertEquals((float) Math.E, result[1], 0.000001f);
+		kernels.log(result, 1, result, 1, 2);
+		Assert.assertArrayEquals(new float[] { 1, 1, 2 }, result, 0.000001f);
+	}
+
+	@Test
+	public void testDefaultFallsBackToScalar() {
+		Assert.assertTrue(ElementwiseKernels.getDefault() instanceof ScalarElementwiseKernels);
+	}
+}
@@ -0,0 +1,183 @@
+package org.ml4j.kernels;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixLayout;
+import org.mockito.Mockito;
+
+public class SoftmaxKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private SoftmaxKernel softmaxKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(3);
+		softmaxKernel = new SoftmaxKernel(forkJoinPool);
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length, float scale) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = (random.nextFloat() - 0.5f) * scale;
+		}
+		return values;
+	}
+
+	private static float[] naiveColumnLogSoftmax(int rows, int columns, float[] x) {
+		float[] result = new float[rows * columns];
+		for (int c = 0; c < columns; c++) {
+			double max = Double.NEGATIVE_INFINITY;
+			for (int r = 0; r < rows; r++) {
+				max = Math.max(max, x[r * columns + c]);
+			}
+			double sum = 0;
+			for (int r = 0; r < rows; r++) {
+				sum += Math.exp(x[r * columns + c] - max);
+			}
+			for (int r = 0; r < rows; r++) {
+				result[r * columns + c] = (float) (x[r * columns + c] - max - Math.log(sum));
+			}
+		}
+		return result;
+	}
+
+	private static float[] exp(float[] values) {
+		float[] result = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = (float) Math.exp(values[i]);
+		}
+		return result;
+	}
+
+	private static float[] transpose(int rows, int columns, float[] values) {
+		float[] transposed = new float[values.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				transposed[c * rows + r] = values[r * columns + c];
+			}
+		}
+		return transposed;
+	}
+
+	private void assertSoftmax(int rows, int columns) {
+		float[] x = randomArray(rows * columns, 20f);
+		float[] expectedLogSoftmax = naiveColumnLogSoftmax(rows, columns, x);
+
+		float[] softmax = new float[x.length];
+		softmaxKernel.columnSoftmax(rows, columns, MatrixLayout.ROW_MAJOR, x, softmax);
+		Assert.assertArrayEquals(exp(expectedLogSoftmax), softmax, 0.00001f);
+		float[] logSoftmax = new float[x.length];
+		softmaxKernel.columnLogSoftmax(rows, columns, MatrixLayout.ROW_MAJOR, x, logSoftmax);
+		Assert.assertArrayEquals(expectedLogSoftmax, logSoftmax, 0.0001f);
+
+		float[] columnMajor = transpose(rows, columns, x);
+		softmaxKernel.columnSoftmax(rows, columns, MatrixLayout.COLUMN_MAJOR, columnMajor, softmax);
+		Assert.assertArrayEquals(transpose(rows, columns, exp(expectedLogSoftmax)), softmax, 0.00001f);
+		softmaxKernel.columnLogSoftmax(rows, columns, MatrixLayout.COLUMN_MAJOR, columnMajor, columnMajor);
+		Assert.assertArrayEquals(transpose(rows, columns, expectedLogSoftmax), columnMajor, 0.0001f);
+	}
+
+	@Test
+	public void testColumnSoftmax() {
+		assertSoftmax(1, 1);
+		assertSoftmax(10, 7);
+		assertSoftmax(3, 0);
+	}
+
+	@Test
+	public void testColumnSoftmaxParallelBlocks() {
+		// Many classes and few examples, and few classes and many examples
+		assertSoftmax(20000, 3);
+		assertSoftmax(5, 10000);
+	}
+
+	@Test
+	public void testColumnSoftmaxDoesNotOverflow() {
+		float[] x = new float[] { 1000f, -1000f, 1000f, 1000f };
+		float[] softmax = new float[x.length];
+		softmaxKernel.columnSoftmax(2, 2, MatrixLayout.ROW_MAJOR, x, softmax);
+		Assert.assertArrayEquals(new float[] { 0.5f, 0f, 0.5f, 1f }, softmax, 0f);
+		softmaxKernel.columnSoftmax(2, 2, MatrixLayout.COLUMN_MAJOR, x, softmax);
+		Assert.assertArrayEquals(new float[] { 1f, 0f, 0.5f, 0.5f }, softmax, 0f);
+	}
+
+	@Test
+	public void testColumnSoftmaxCrossEntropy() {
+		int rows = 300;
+		int columns = 70;
+		float[] x = randomArray(rows * columns, 10f);
+		float[] desired = new float[x.length];
+		for (int c = 0; c < columns; c++) {
+			desired[random.nextInt(rows) * columns + c] = 1f;
+		}
+		float[] logSoftmax = naiveColumnLogSoftmax(rows, columns, x);
+		double expectedCost = 0;
+		float[] expectedGradient = exp(logSoftmax);
+		for (int i = 0; i < x.length; i++) {
+			expectedCost -= desired[i] * logSoftmax[i];
+			expectedGradient[i] -= desired[i];
+		}
+
+		for (MatrixLayout layout : MatrixLayout.values()) {
+			float[] values = layout == MatrixLayout.ROW_MAJOR ? x : transpose(rows, columns, x);
+			float[] desiredValues = layout == MatrixLayout.ROW_MAJOR ? desired : transpose(rows, columns, desired);
+			float[] gradient = new float[x.length];
+			float cost = softmaxKernel.columnSoftmaxCrossEntropy(rows, columns, layout, values, desiredValues,
+					gradient);
+			Assert.assertEquals(expectedCost, cost, 0.01);
+			Assert.assertEquals(cost,
+					softmaxKernel.columnSoftmaxCrossEntropy(rows, columns, layout, values, desiredValues, null), 0f);
+			Assert.assertArrayEquals(layout == MatrixLayout.ROW_MAJOR ? expectedGradient
+					: transpose(rows, columns, expectedGradient), gradient, 0.00001f);
+		}
+	}
+
+	@Test
+	public void testMatrixColumnSoftmax() {
+		// The 2 x 2 matrix [[0, log(3)], [0, 0]], stored column by column
+		float log3 = (float) Math.log(3);
+		Matrix matrix = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.getRows()).thenReturn(2);
+		Mockito.when(matrix.getColumns()).thenReturn(2);
+		Mockito.when(matrix.getLength()).thenReturn(4);
+		Mockito.when(matrix.getLayout()).thenReturn(MatrixLayout.COLUMN_MAJOR);
+		Mockito.when(matrix.getColumnByColumnArray()).thenReturn(new float[] { 0, 0, log3, 0 });
+		Matrix desired = Mockito.mock(Matrix.class);
+		Mockito.when(desired.getRows()).thenReturn(2);
+		Mockito.when(desired.getColumns()).thenReturn(2);
+		Mockito.when(desired.getColumnByColumnArray()).thenReturn(new float[] { 1, 0, 1, 0 });
+
+		Assert.assertArrayEquals(new float[] { 0.5f, 0.5f, 0.75f, 0.25f }, softmaxKernel.columnSoftmax(matrix),
+				0.000001f);
+		Assert.assertArrayEquals(new float[] { -0.5f, 0.5f, -0.25f, 0.25f },
+				softmaxKernel.columnSoftmaxCrossEntropyGradient(matrix, desired), 0.000001f);
+		Assert.assertEquals(Math.log(2) + Math.log(4f / 3f), softmaxKernel.columnSoftmaxCrossEntropy(matrix, desired),
+				0.00001f);
+		Mockito.verify(matrix, Mockito.never()).getRowByRowArray();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMatrixColumnSoftmaxCrossEntropyShapeMismatch() {
+		Matrix matrix = Mockito.mock(Matrix.class);
+		Mockito.when(matrix.getRows()).thenReturn(2);
+		Mockito.when(matrix.getColumns()).thenReturn(3);
+		Matrix desired = Mockito.mock(Matrix.class);
+		Mockito.when(desired.getRows()).thenReturn(3);
+		Mockito.when(desired.getColumns()).thenReturn(2);
+		softmaxKernel.columnSoftmaxCrossEntropy(matrix, desired);
+	}
+}
@@ -0,0 +1,109 @@
+package org.ml4j.kernels;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.CompressedSparseMatrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.SparseMatrix;
+import org.ml4j.SparseMatrixFormat;
+import org.mockito.Mockito;
+
+public class SparseGemmKernelTest {
+
+	private ForkJoinPool forkJoinPool;
+	private SparseGemmKernel sparseGemmKernel;
+	private GemmKernel gemmKernel;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		forkJoinPool = new ForkJoinPool(2);
+		sparseGemmKernel = new SparseGemmKernel(forkJoinPool);
+		gemmKernel = new GemmKernel(forkJoinPool);
+		random = new Random(11);
+	}
+
+	@After
+	public void tearDown() {
+		forkJoinPool.shutdown();
+	}
+
+	private float[] randomArray(int length, float density) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextFloat() < density ? random.nextFloat() - 0.5f : 0f;
+		}
+		return values;
+	}
+
+	private SparseMatrix compress(int rows, int columns, float[] data, SparseMatrixFormat format) {
+		return CompressedSparseMatrix.compress(Mockito.mock(MatrixFactory.class), rows, columns, data, format);
+	}
+
+	private void assertSparseDense(int m, int n, int k, SparseMatrixFormat format, boolean transA, boolean transB) {
+		float[] a = randomArray(m * k, 0.1f);
+		float[] b = randomArray(k * n, 1f);
+		float[] initialC = randomArray(m * n, 1f);
+		SparseMatrix sparseA = transA ? compress(k, m, a, format) : compress(m, k, a, format);
+		float[] expected = initialC.clone();
+		float[] actual = initialC.clone();
+
+		gemmKernel.gemm(transA, transB, m, n, k, 2f, a, 0, transA ? m : k, b, 0, transB ? k : n, 0.5f, expected, 0,
+				n);
+		sparseGemmKernel.gemm(format, transA, transB, m, n, k, 2f, sparseA.getValues(), sparseA.getIndices(),
+				sparseA.getPointers(), b, 0, transB ? k : n, 0.5f, actual, 0, n);
+
+		Assert.assertArrayEquals(expected, actual, 0.0001f);
+	}
+
+	private void assertDenseSparse(int m, int n, int k, SparseMatrixFormat format, boolean transA, boolean transB) {
+		float[] a = randomArray(m * k, 1f);
+		float[] b = randomArray(k * n, 0.1f);
+		float[] initialC = randomArray(m * n, 1f);
+		SparseMatrix sparseB = transB ? compress(n, k, b, format) : compress(k, n, b, format);
+		float[] expected = initialC.clone();
+		float[] actual = initialC.clone();
+
+		gemmKernel.gemm(transA, transB, m, n, k, -1f, a, 0, transA ? m : k, b, 0, transB ? k : n, 1f, expected, 0,
+				n);
+		sparseGemmKernel.gemm(transA, transB, m, n, k, -1f, a, 0, transA ? m : k, format, sparseB.getValues(),
+				sparseB.getIndices(), sparseB.getPointers(), 1f, actual, 0, n);
+
+		Assert.assertArrayEquals(expected, actual, 0.0001f);
+	}
+
+	@Test
+	public void testSparseDenseMatchesDense() {
+		for (SparseMatrixFormat format : SparseMatrixFormat.values()) {
+			for (boolean transA : new boolean[] { false, true }) {
+				for (boolean transB : new boolean[] { false, true }) {
+					assertSparseDense(7, 5, 9, format, transA, transB);
+					assertSparseDense(300, 40, 500, format, transA, transB);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDenseSparseMatchesDense() {
+		for (SparseMatrixFormat format : SparseMatrixFormat.values()) {
+			for (boolean transA : new boolean[] { false, true }) {
+				for (boolean transB : new boolean[] { false, true }) {
+					assertDenseSparse(6, 8, 3, format, transA, transB);
+					assertDenseSparse(200, 500, 300, format, transA, transB);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPointersMismatch() {
+		sparseGemmKernel.gemm(SparseMatrixFormat.CSR, false, false, 2, 1, 1, 1f, new float[0], new int[0],
+				new int[2], new float[1], 0, 1, 0f, new float[2], 0, 1);
+	}
+}
@@ -0,0 +1,212 @@
+package org.ml4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ml4j.DirectMatrix;
+import org.ml4j.EditableMatrix;
+import org.ml4j.InterrimMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.MatrixFactoryConfig;
+import org.ml4j.MockMatrices;
+import org.ml4j.SparseMatrix;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class InstrumentedMatrixFactoryTest {
+
+	@Mock
+	private MatrixFactory delegate;
+
+	private MatrixMetrics metrics;
+
+	private InstrumentedMatrixFactory matrixFactory;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		metrics = new MatrixMetrics();
+		matrixFactory = new InstrumentedMatrixFactory(delegate, metrics);
+	}
+
+	@Test
+	public void testCreationIsRecorded() {
+		EditableMatrix created = MockMatrices.createMockMatrix(EditableMatrix.class, 10, 20);
+		Mockito.when(delegate.createZeros(10, 20)).thenReturn(created);
+
+		Matrix matrix = matrixFactory.createZeros(10, 20);
+
+		Assert.assertTrue(matrix instanceof EditableMatrix);
+		Assert.assertSame(created, InstrumentedMatrixFactory.unwrap(matrix));
+		MatrixOperationStatistics statistics = metrics.getStatistics("createZeros");
+		Assert.assertEquals(1, statistics.getCallCount());
+		Assert.assertEquals(800, statistics.getBytesAllocated());
+		Assert.assertEquals(1, statistics.getUnclosedMatrixCount());
+
+		matrix.close();
+		matrix.close();
+		Mockito.verify(created, Mockito.times(2)).close();
+		Assert.assertEquals(0, metrics.getStatistics("createZeros").getUnclosedMatrixCount());
+	}
+
+	@Test
+	public void testOperationsAreRecordedAndOperandsUnwrapped() {
+		Matrix a = MockMatrices.createMockMatrix(Matrix.class, 2, 3);
+		Matrix b = MockMatrices.createMockMatrix(Matrix.class, 3, 4);
+		Matrix product = MockMatrices.createMockMatrix(Matrix.class, 2, 4);
+		Mockito.when(delegate.createRand(2, 3)).thenReturn(a);
+		Mockito.when(delegate.createRand(3, 4)).thenReturn(b);
+		Mockito.when(a.mmul(b)).thenReturn(product);
+		Mockito.when(product.add(1f)).thenReturn(product);
+
+		Matrix result = matrixFactory.createRand(2, 3).mmul(matrixFactory.createRand(3, 4));
+		Assert.assertSame(result, result.add(1f));
+
+		MatrixOperationStatistics mmul = metrics.getStatistics("mmul");
+		Assert.assertEquals(1, mmul.getCallCount());
+		Assert.assertEquals(48, mmul.getFlops());
+		Assert.assertEquals(32, mmul.getBytesAllocated());
+		Assert.assertEquals(1, mmul.getUnclosedMatrixCount());
+		Assert.assertEquals(0, metrics.getStatistics("add").getBytesAllocated());
+		Assert.assertEquals(8, metrics.getStatistics("add").getFlops());
+		Assert.assertEquals(2, metrics.getStatistics("createRand").getUnclosedMatrixCount());
+	}
+
+	@Test
+	public void testInterrimMatricesAreTracked() {
+		Matrix matrix = MockMatrices.createMockMatrix(Matrix.class, 2, 2);
+		InterrimMatrix interrim = MockMatrices.createMockMatrix(InterrimMatrix.class, 2, 2);
+		Mockito.when(delegate.createOnes(2, 2)).thenReturn(matrix);
+		Mockito.when(matrix.asInterrimMatrix()).thenReturn(interrim);
+
+		InterrimMatrix result = matrixFactory.createOnes(2, 2).asInterrimMatrix();
+
+		Assert.assertFalse(result instanceof EditableMatrix);
+		Assert.assertEquals(1, metrics.getStatistics("asInterrimMatrix").getUnclosedMatrixCount());
+		result.close();
+		Assert.assertEquals(0, metrics.getStatistics("asInterrimMatrix").getUnclosedMatrixCount());
+	}
+
+	@Test
+	public void testInterrimMatricesAreLeakTracked() {
+		List<LeakReport> reports = new ArrayList<>();
+		LeakTracker leakTracker = new LeakTracker(reports::add);
+		Mockito.when(delegate.getConfig()).thenReturn(MatrixFactoryConfig.defaultConfig().withLeakTracker(leakTracker));
+		Matrix matrix = MockMatrices.createMockMatrix(Matrix.class, 2, 2);
+		InterrimMatrix interrim = MockMatrices.createMockMatrix(InterrimMatrix.class, 2, 2);
+		Mockito.when(delegate.createOnes(2, 2)).thenReturn(matrix);
+		Mockito.when(matrix.asInterrimMatrix()).thenReturn(interrim);
+
+		InterrimMatrix result = matrixFactory.createOnes(2, 2).asInterrimMatrix();
+
+		Assert.assertEquals(Long.valueOf(1), leakTracker.getLiveCounts().get("InterrimMatrix"));
+		Assert.assertEquals(Long.valueOf(16), leakTracker.getLiveBytes().get("InterrimMatrix"));
+		result.close();
+		Assert.assertEquals(Long.valueOf(0), leakTracker.getLiveCounts().get("InterrimMatrix"));
+		Assert.assertEquals(Long.valueOf(0), leakTracker.getLiveBytes().get("InterrimMatrix"));
+		Assert.assertEquals(0, metrics.getStatistics("asInterrimMatrix").getUnclosedMatrixCount());
+		Assert.assertTrue(reports.isEmpty());
+	}
+
+	@Test
+	public void testAllocationsAreAttributedToInstrumentedBlock() {
+		Matrix created = MockMatrices.createMockMatrix(Matrix.class, 4, 4);
+		Mockito.when(delegate.createMatrixFromRowsByRowsArray(Mockito.eq(4), Mockito.eq(4), Mockito.any()))
+				.thenReturn(created);
+
+		Matrix matrix = metrics.instrument("im2colConvExport", 0,
+				() -> matrixFactory.createMatrixFromRowsByRowsArray(4, 4, new float[16]));
+
+		Assert.assertSame(created, InstrumentedMatrixFactory.unwrap(matrix));
+		Assert.assertEquals(64, metrics.getStatistics("im2colConvExport").getBytesAllocated());
+		Assert.assertEquals(1, metrics.getStatistics("im2colConvExport").getCallCount());
+		Assert.assertEquals(1, metrics.getStatistics("createMatrixFromRowsByRowsArray").getCallCount());
+		Assert.assertEquals(0, metrics.getStatistics("createMatrixFromRowsByRowsArray").getBytesAllocated());
+	}
+
+	@Test
+	public void testSparseAndDirectMatricesAreNotCountedAsUnclosed() {
+		SparseMatrix sparse = MockMatrices.createMockMatrix(SparseMatrix.class, 2, 3);
+		Mockito.when(delegate.createZeros(2, 3)).thenReturn(sparse);
+		DirectMatrix direct = MockMatrices.createMockMatrix(DirectMatrix.class, 3, 2);
+		Mockito.when(delegate.createOnes(3, 2)).thenReturn(direct);
+
+		Assert.assertSame(sparse, matrixFactory.createZeros(2, 3));
+		Assert.assertSame(direct, matrixFactory.createOnes(3, 2));
+
+		Assert.assertEquals(24, metrics.getStatistics("createZeros").getBytesAllocated());
+		Assert.assertEquals(0, metrics.getStatistics("createZeros").getUnclosedMatrixCount());
+		Assert.assertEquals(24, metrics.getStatistics("createOnes").getBytesAllocated());
+		Assert.assertEquals(0, metrics.getStatistics("createOnes").getUnclosedMatrixCount());
+	}
+
+	@Test
+	public void testGemmReturnsDestination() {
+		EditableMatrix created = MockMatrices.createMockMatrix(EditableMatrix.class, 2, 4);
+		Mockito.when(delegate.createZeros(2, 4)).thenReturn(created);
+		Matrix a = MockMatrices.createMockMatrix(Matrix.class, 2, 3);
+		Matrix b = MockMatrices.createMockMatrix(Matrix.class, 3, 4);
+		Mockito.when(delegate.gemm(false, false, 1f, a, b, 0f, created)).thenReturn(created);
+		Mockito.when(created.asEditableMatrix()).thenReturn(created);
+		EditableMatrix c = matrixFactory.createZeros(2, 4).asEditableMatrix();
+
+		Assert.assertSame(c, matrixFactory.gemm(false, false, 1f, a, b, 0f, c));
+		Assert.assertEquals(48, metrics.getStatistics("gemm").getFlops());
+	}
+
+	@Test
+	public void testGemmReturnsResultOfDelegate() {
+		EditableMatrix c = MockMatrices.createMockMatrix(EditableMatrix.class, 2, 4);
+		EditableMatrix result = MockMatrices.createMockMatrix(EditableMatrix.class, 2, 4);
+		Matrix a = MockMatrices.createMockMatrix(Matrix.class, 2, 3);
+		Matrix b = MockMatrices.createMockMatrix(Matrix.class, 3, 4);
+		Mockito.when(delegate.gemm(false, false, 1f, a, b, 0f, c)).thenReturn(result);
+
+		EditableMatrix product = matrixFactory.gemm(false, false, 1f, a, b, 0f, c);
+
+		Assert.assertSame(result, InstrumentedMatrixFactory.unwrap(product));
+		Assert.assertTrue(product instanceof InstrumentedEditableMatrix);
+		Assert.assertEquals(1, metrics.getStatistics("gemm").getUnclosedMatrixCount());
+	}
+
+	@Test
+	public void testReset() {
+		Matrix created = MockMatrices.createMockMatrix(Matrix.class, 1, 1);
+		Mockito.when(delegate.createOnes(1)).thenReturn(created);
+		matrixFactory.createOnes(1);
+		metrics.reset();
+
+		MatrixOperationStatistics statistics = metrics.getStatistics("createOnes");
+		Assert.assertEquals(0, statistics.getCallCount());
+		Assert.assertEquals(0, statistics.getBytesAllocated());
+		Assert.assertEquals(1, statistics.getUnclosedMatrixCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMBean() throws Exception {
+		Matrix created = MockMatrices.createMockMatrix(Matrix.class, 3, 1);
+		Mockito.when(delegate.createOnes(3)).thenReturn(created);
+		matrixFactory.createOnes(3);
+
+		ObjectName objectName = metrics.registerMBean("test");
+		try {
+			Object callCounts = ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "CallCounts");
+			Assert.assertNotNull(callCounts);
+			Map<String, Long> values = metrics.getCallCounts();
+			Assert.assertEquals(Long.valueOf(1), values.get("createOnes"));
+		} finally {
+			metrics.unregisterMBean(objectName);
+		}
+		Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+	}
+}
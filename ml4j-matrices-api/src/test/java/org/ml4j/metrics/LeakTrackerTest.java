@@ -0,0 +1,79 @@
+package org.ml4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LeakTrackerTest {
+
+	private List<LeakReport> reports;
+
+	private LeakTracker leakTracker;
+
+	@Before
+	public void setUp() {
+		reports = new ArrayList<>();
+		leakTracker = new LeakTracker(reports::add);
+	}
+
+	@Test
+	public void testClosedResourcesAreNotReported() {
+		Object resource = new Object();
+		Runnable onClose = leakTracker.track(resource, "NeuronsActivation", 40);
+		leakTracker.track(new Object(), "NeuronsActivation", 8);
+
+		Assert.assertEquals(Long.valueOf(2), leakTracker.getLiveCounts().get("NeuronsActivation"));
+		Assert.assertEquals(Long.valueOf(48), leakTracker.getLiveBytes().get("NeuronsActivation"));
+		onClose.run();
+		onClose.run();
+		Assert.assertEquals(Long.valueOf(1), leakTracker.getLiveCounts().get("NeuronsActivation"));
+		Assert.assertEquals(Long.valueOf(8), leakTracker.getLiveBytes().get("NeuronsActivation"));
+		Assert.assertNotNull(resource);
+	}
+
+	@Test
+	public void testUnclosedResourcesAreReported() throws InterruptedException {
+		trackUnreachableResource();
+		for (int attempt = 0; attempt < 50 && reports.isEmpty(); attempt++) {
+			System.gc();
+			Thread.sleep(20);
+			leakTracker.poll();
+		}
+
+		Assert.assertEquals(1, reports.size());
+		LeakReport report = reports.get(0);
+		Assert.assertEquals("CostAndGradients", report.getType());
+		Assert.assertEquals(100, report.getBytes());
+		Assert.assertEquals("trackUnreachableResource", report.getAllocationStackTrace()[0].getMethodName());
+		Assert.assertTrue(report.toString().contains("trackUnreachableResource"));
+		Assert.assertEquals(Long.valueOf(0), leakTracker.getLiveCounts().get("CostAndGradients"));
+		Assert.assertEquals(Long.valueOf(1), leakTracker.getLeakCounts().get("CostAndGradients"));
+		Assert.assertEquals(Long.valueOf(100), leakTracker.getLeakedBytes().get("CostAndGradients"));
+	}
+
+	private void trackUnreachableResource() {
+		leakTracker.track(new Object(), "CostAndGradients", 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullResource() {
+		leakTracker.track(null, "InterrimMatrix", 0);
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		leakTracker.track(new Object(), "InterrimMatrix", 4);
+		ObjectName objectName = leakTracker.registerMBean("test");
+		try {
+			Assert.assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "LiveBytes"));
+		} finally {
+			leakTracker.unregisterMBean(objectName);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.kernels.vector;
+
+import org.ml4j.kernels.ElementwiseKernels;
+import org.ml4j.kernels.ElementwiseOperation;
+import org.ml4j.kernels.ScalarElementwiseKernels;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ElementwiseKernels implemented with the Java Vector API, processing the preferred number
+ * of lanes for the platform per instruction and the remaining tail elements with scalar loops.
+ *
+ * Registered with java.util.ServiceLoader, so that it is returned by
+ * {@link ElementwiseKernels#getDefault()} when this module is on the classpath and the
+ * jdk.incubator.vector module has been added with --add-modules jdk.incubator.vector.
+ */
+public class VectorElementwiseKernels implements ElementwiseKernels {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	private final ScalarElementwiseKernels tailKernels = new ScalarElementwiseKernels();
+
+	/**
+	 * @return Whether the platform supports more than one float lane per vector.
+	 */
+	@Override
+	public boolean isSupported() {
+		return SPECIES.length() > 1;
+	}
+
+	@Override
+	public void apply(ElementwiseOperation operation, float[] x, int xOffset, float[] y, int yOffset,
+			float[] result, int resultOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		switch (operation) {
+			case ADD:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).add(FloatVector.fromArray(SPECIES, y, yOffset + i))
+							.intoArray(result, resultOffset + i);
+				}
+				break;
+			case SUB:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).sub(FloatVector.fromArray(SPECIES, y, yOffset + i))
+							.intoArray(result, resultOffset + i);
+				}
+				break;
+			case MUL:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).mul(FloatVector.fromArray(SPECIES, y, yOffset + i))
+							.intoArray(result, resultOffset + i);
+				}
+				break;
+			default:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).div(FloatVector.fromArray(SPECIES, y, yOffset + i))
+							.intoArray(result, resultOffset + i);
+				}
+		}
+		tailKernels.apply(operation, x, xOffset + i, y, yOffset + i, result, resultOffset + i, length - i);
+	}
+
+	@Override
+	public void apply(ElementwiseOperation operation, float[] x, int xOffset, float value, float[] result,
+			int resultOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		switch (operation) {
+			case ADD:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).add(value).intoArray(result, resultOffset + i);
+				}
+				break;
+			case SUB:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).sub(value).intoArray(result, resultOffset + i);
+				}
+				break;
+			case MUL:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).mul(value).intoArray(result, resultOffset + i);
+				}
+				break;
+			default:
+				for (; i < bound; i += SPECIES.length()) {
+					FloatVector.fromArray(SPECIES, x, xOffset + i).div(value).intoArray(result, resultOffset + i);
+				}
+		}
+		tailKernels.apply(operation, x, xOffset + i, value, result, resultOffset + i, length - i);
+	}
+
+	@Override
+	public void applyRowVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] rowVector, int rowVectorOffset, float[] result, int resultOffset) {
+		for (int r = 0; r < rows; r++) {
+			apply(operation, x, xOffset + r * columns, rowVector, rowVectorOffset, result,
+					resultOffset + r * columns, columns);
+		}
+	}
+
+	@Override
+	public void applyColumnVector(ElementwiseOperation operation, int rows, int columns, float[] x, int xOffset,
+			float[] columnVector, int columnVectorOffset, float[] result, int resultOffset) {
+		for (int r = 0; r < rows; r++) {
+			apply(operation, x, xOffset + r * columns, columnVector[columnVectorOffset + r], result,
+					resultOffset + r * columns, columns);
+		}
+	}
+
+	@Override
+	public void sigmoid(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		FloatVector one = FloatVector.broadcast(SPECIES, 1f);
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			one.div(FloatVector.fromArray(SPECIES, x, xOffset + i).neg().lanewise(VectorOperators.EXP).add(1f))
+					.intoArray(result, resultOffset + i);
+		}
+		tailKernels.sigmoid(x, xOffset + i, result, resultOffset + i, length - i);
+	}
+
+	@Override
+	public void log(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector.fromArray(SPECIES, x, xOffset + i).lanewise(VectorOperators.LOG)
+					.intoArray(result, resultOffset + i);
+		}
+		tailKernels.log(x, xOffset + i, result, resultOffset + i, length - i);
+	}
+
+	@Override
+	public void exp(float[] x, int xOffset, float[] result, int resultOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector.fromArray(SPECIES, x, xOffset + i).lanewise(VectorOperators.EXP)
+					.intoArray(result, resultOffset + i);
+		}
+		tailKernels.exp(x, xOffset + i, result, resultOffset + i, length - i);
+	}
+}
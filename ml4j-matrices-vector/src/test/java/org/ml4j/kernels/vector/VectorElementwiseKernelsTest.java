@@ -0,0 +1,89 @@
+package org.ml4j.kernels.vector;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.kernels.ElementwiseKernels;
+import org.ml4j.kernels.ElementwiseOperation;
+import org.ml4j.kernels.ScalarElementwiseKernels;
+
+public class VectorElementwiseKernelsTest {
+
+	private static final int LENGTH = 67;
+
+	private final ElementwiseKernels kernels = new VectorElementwiseKernels();
+	private final ElementwiseKernels expectedKernels = new ScalarElementwiseKernels();
+	private final Random random = new Random(7);
+
+	private float[] randomArray(int length, float min, float max) {
+		float[] values = new float[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = min + random.nextFloat() * (max - min);
+		}
+		return values;
+	}
+
+	@Test
+	public void testDefaultIsVectorised() {
+		Assert.assertTrue(ElementwiseKernels.getDefault() instanceof VectorElementwiseKernels);
+	}
+
+	@Test
+	public void testBinaryOperationsMatchScalar() {
+		float[] x = randomArray(LENGTH + 3, -5, 5);
+		float[] y = randomArray(LENGTH + 1, 1, 5);
+		for (ElementwiseOperation operation : ElementwiseOperation.values()) {
+			float[] expected = new float[LENGTH];
+			float[] actual = new float[LENGTH];
+			expectedKernels.apply(operation, x, 3, y, 1, expected, 0, LENGTH);
+			kernels.apply(operation, x, 3, y, 1, actual, 0, LENGTH);
+			Assert.assertArrayEquals(expected, actual, 0f);
+
+			expectedKernels.apply(operation, x, 2, 1.5f, expected, 0, LENGTH);
+			kernels.apply(operation, x, 2, 1.5f, actual, 0, LENGTH);
+			Assert.assertArrayEquals(expected, actual, 0f);
+		}
+	}
+
+	@Test
+	public void testBroadcastOperationsMatchScalar() {
+		int rows = 5;
+		int columns = 19;
+		float[] x = randomArray(rows * columns, -5, 5);
+		float[] rowVector = randomArray(columns, 1, 2);
+		float[] columnVector = randomArray(rows, 1, 2);
+		float[] expected = new float[rows * columns];
+		float[] actual = new float[rows * columns];
+
+		expectedKernels.applyRowVector(ElementwiseOperation.ADD, rows, columns, x, 0, rowVector, 0, expected, 0);
+		kernels.applyRowVector(ElementwiseOperation.ADD, rows, columns, x, 0, rowVector, 0, actual, 0);
+		Assert.assertArrayEquals(expected, actual, 0f);
+
+		expectedKernels.applyColumnVector(ElementwiseOperation.DIV, rows, columns, x, 0, columnVector, 0,
+				expected, 0);
+		kernels.applyColumnVector(ElementwiseOperation.DIV, rows, columns, x, 0, columnVector, 0, actual, 0);
+		Assert.assertArrayEquals(expected, actual, 0f);
+	}
+
+	@Test
+	public void testUnaryOperationsMatchScalar() {
+		float[] x = randomArray(LENGTH, 0.01f, 10);
+		float[] expected = new float[LENGTH];
+		float[] actual = new float[LENGTH];
+
+		expectedKernels.sigmoid(x, 0, expected, 0, LENGTH);
+		kernels.sigmoid(x, 0, actual, 0, LENGTH);
+		Assert.assertArrayEquals(expected, actual, 0.00001f);
+
+		expectedKernels.log(x, 0, expected, 0, LENGTH);
+		kernels.log(x, 0, actual, 0, LENGTH);
+		Assert.assertArrayEquals(expected, actual, 0.00001f);
+
+		expectedKernels.exp(x, 0, expected, 0, LENGTH);
+		kernels.exp(x, 0, actual, 0, LENGTH);
+		for (int i = 0; i < LENGTH; i++) {
+			Assert.assertEquals(expected[i], actual[i], expected[i] * 0.00001f);
+		}
+	}
+}
@@ -49,6 +49,10 @@ public interface CostAndGradients {
 	/**
 	 * Clean-up method that can be called to release resources within 
 	 * this CostAndGradients instance once it is no longer needed.
+	 * 
+	 * Implementations should, when created, track themselves with the leak tracker
+	 * of the MatrixFactoryConfig of the MatrixFactory used, if it has one, and run
+	 * the callback it returns here.
 	 */
 	void close();
 }
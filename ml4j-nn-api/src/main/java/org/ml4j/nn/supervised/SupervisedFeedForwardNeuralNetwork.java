@@ -26,6 +26,7 @@ import org.ml4j.nn.FeedForwardNeuralNetwork;
 import org.ml4j.nn.FeedForwardNeuralNetworkContext;
 import org.ml4j.nn.components.onetone.DefaultChainableDirectedComponent;
 import org.ml4j.nn.datasets.LabeledData;
+import org.ml4j.nn.datasets.neuronsactivation.NeuronsActivationDataSet;
 import org.ml4j.nn.neurons.NeuronsActivation;
 
 /**
@@ -106,4 +107,22 @@ public interface SupervisedFeedForwardNeuralNetwork
 	 * low level components, call the decompose() method.
 	 */
 	List<DefaultChainableDirectedComponent<?, ?>> getComponents();
+	
+	/**
+	 * Convert this trained network into an inference-only network for CPU serving, in which the
+	 * connection weights of FullyConnectedAxons and ConvolutionalAxons are replaced by int8
+	 * QuantizedWeightsMatrix instances with a scale per output channel, and the matrix
+	 * multiplications of those axons accumulate in int32.
+	 * 
+	 * The quantization scale of the input activations of each quantized axons is chosen by
+	 * forward propagating the calibration data through this network, observing the inputs
+	 * to each axons with an ActivationQuantizationCalibrator.
+	 * 
+	 * @param calibrationDataSet       Representative input activations used to choose the
+	 *                                 activation quantization scales.
+	 * @param context                  The context used to forward propagate the calibration data.
+	 * @return The quantized inference-only network.
+	 */
+	SupervisedFeedForwardNeuralNetwork toQuantizedInferenceNetwork(NeuronsActivationDataSet calibrationDataSet,
+			FeedForwardNeuralNetworkContext context);
 }
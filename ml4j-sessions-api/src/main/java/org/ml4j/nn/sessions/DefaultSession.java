@@ -13,6 +13,7 @@
  */
 package org.ml4j.nn.sessions;
 
+import org.ml4j.MatrixFactoryConfig;
 import org.ml4j.nn.FeedForwardNeuralNetworkContext;
 import org.ml4j.nn.LayeredFeedForwardNeuralNetworkContext;
 import org.ml4j.nn.components.factories.DirectedComponentFactory;
@@ -124,6 +125,16 @@ public interface DefaultSession extends Session<DefaultChainableDirectedComponen
 	 * using this session, but will change the status of any generated future contexts.
 	 */
 	DefaultSession asNonTrainingSession();
+	
+	/**
+	 * @param matrixFactoryConfig The MatrixFactoryConfig for the new session - for example specifying the
+	 * number of threads used by parallel matrix operations, or the precision of stored matrices.
+	 * @return A lightweight wrapper around the current session, 
+	 * with shared factories and configuration, but with a MatrixFactory configured using the provided
+	 * MatrixFactoryConfig. This will not change the configuration of any previous contexts that have been
+	 * generated using this session.
+	 */
+	DefaultSession withMatrixFactoryConfig(MatrixFactoryConfig matrixFactoryConfig);
 
 	/**
 	 * @return Whether this session is a training session.
@@ -14,6 +14,7 @@
 package org.ml4j.nn.sessions;
 
 import org.ml4j.MatrixFactory;
+import org.ml4j.MatrixFactoryConfig;
 import org.ml4j.nn.components.DirectedComponentsContext;
 import org.ml4j.nn.components.NeuralComponent;
 import org.ml4j.nn.components.factories.NeuralComponentFactory;
@@ -47,4 +48,11 @@ public interface Session<T extends NeuralComponent<?>> {
 	 * @return The MatrixFactory configured for this Session.
 	 */
 	MatrixFactory getMatrixFactory();
+	
+	/**
+	 * @return The MatrixFactoryConfig of the MatrixFactory configured for this Session.
+	 */
+	default MatrixFactoryConfig getMatrixFactoryConfig() {
+		return getMatrixFactory().getConfig();
+	}
 }